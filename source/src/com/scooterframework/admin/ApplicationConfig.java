@@ -16,6 +16,7 @@ import com.scooterframework.autoloader.AutoLoaderConfig;
 import com.scooterframework.autoloader.ClassManager;
 import com.scooterframework.autoloader.FileMonitor;
 import com.scooterframework.cache.CacheProviderFactory;
+import com.scooterframework.common.instrument.Instrumentation;
 import com.scooterframework.common.logging.LogConfig;
 import com.scooterframework.common.logging.LogUtil;
 import com.scooterframework.common.util.FileUtil;
@@ -23,6 +24,7 @@ import com.scooterframework.i18n.I18nConfig;
 import com.scooterframework.orm.activerecord.ReferenceDataLoader;
 import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
 import com.scooterframework.orm.sqldataexpress.config.SqlConfig;
+import com.scooterframework.orm.sqldataexpress.util.SchemaSnapshot;
 import com.scooterframework.web.controller.ActionContext;
 
 /**
@@ -227,6 +229,7 @@ public class ApplicationConfig {
 		EnvConfig wc = EnvConfig.getInstance();
 		DatabaseConfig dbc = DatabaseConfig.getInstance();
         SqlConfig.getInstance();
+        SchemaSnapshot.start();
         
         //
         //store some important information about the server
@@ -269,6 +272,7 @@ public class ApplicationConfig {
         
         DatabaseConfig dbc = DatabaseConfig.getInstance();
         SqlConfig.getInstance();
+        SchemaSnapshot.start();
         
         if (!ReferenceDataLoader.isStarted()) {
             rdLoader = new ReferenceDataLoader();
@@ -279,6 +283,8 @@ public class ApplicationConfig {
         
         ClassManager.getInstance();
         
+        Instrumentation.registerMBean(contextName);
+        
         //
         //store some important information about the server
         //
@@ -318,10 +324,19 @@ public class ApplicationConfig {
         //started by I18nConfig
         DirChangeMonitor.getInstance().stop();
         
+        FileChangeService.getInstance().stop();
+        
+        SchemaSnapshot.stop();
+        
         DatabaseConfig.getInstance().destroy();
         
         CacheProviderFactory.getInstance().shutDown();
         
+        Instrumentation.unregisterMBean();
+        
+        //logs messages still waiting in the buffer and stops the thread
+        LogUtil.disableAsync();
+        
         applicationStarted = false;
     }
     
@@ -9,14 +9,10 @@ package com.scooterframework.admin;
 
 import java.io.File;
 import java.io.FileFilter;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Observable;
 import java.util.Observer;
-import java.util.Timer;
-import java.util.TimerTask;
 
 import com.scooterframework.common.logging.LogUtil;
 
@@ -37,11 +33,10 @@ public class DirChangeMonitor {
     private LogUtil log = LogUtil.getLogger(this.getClass().getName());
     
     private Map observables = new HashMap();
+    private Map watches = new HashMap();
     
-    private static long oneHundredDays = 8640000;
     private boolean periodicReading = false;
-    private Date oldDate = null;
-    private Timer timer = null;
+    private boolean started = false;
     
     /**
      * Time interval in milliseconds between successive task executions
@@ -76,10 +71,6 @@ public class DirChangeMonitor {
         }
         
         if (periodicReading) {
-            oldDate = new Date();
-            oldDate.setTime(oldDate.getTime()-oneHundredDays);
-            
-            timer = new Timer();
             start();
         }
     }
@@ -88,17 +79,25 @@ public class DirChangeMonitor {
         return fcm;
     }
     
-    public void start() {
-        DirChangeMonitorTimerTask task = 
-            new DirChangeMonitorTimerTask();
-        schedule(task, loadInterval);
+    /**
+     * Starts watching all registered directories through FileChangeService.
+     */
+    public synchronized void start() {
+        started = true;
+        Iterator it = observables.keySet().iterator();
+        while(it.hasNext()) {
+            watch((String)it.next());
+        }
     }
     
-    public void stop() {
-        if (timer != null) {
-            timer.cancel();
-            log.debug("Dir files change monitor stopped.");
+    public synchronized void stop() {
+        Iterator it = watches.values().iterator();
+        while(it.hasNext()) {
+            FileChangeService.getInstance().cancel((FileWatch)it.next());
         }
+        if (watches.size() > 0) log.debug("Dir files change monitor stopped.");
+        watches.clear();
+        started = false;
     }
     
     /**
@@ -177,41 +176,27 @@ public class DirChangeMonitor {
         }
         
         String observableKey = getObservableKey(path, filter);
-        Observable observable = (Observable)observables.get(observableKey);
-        if (observable == null) {
-            observable = new DirObservable(path, filter);
-            observables.put(observableKey, observable);
+        synchronized(this) {
+            DirObservable observable = (DirObservable)observables.get(observableKey);
+            if (observable == null) {
+                observable = new DirObservable(path, filter);
+                observables.put(observableKey, observable);
+                if (started) watch(observableKey);
+            }
+            observable.addObserver(observer);
         }
-        observable.addObserver(observer);
     }
     
     private String getObservableKey(String path, FileFilter filter) {
         return (filter != null)?(path + "_" + filter.toString()):path;
     }
     
-    private void schedule(TimerTask task, long period) {
-        if (period > 0) {
-            timer.schedule(task, oldDate, period);
-        }
-        else {
-            timer.schedule(task, oldDate);
-        }
-    }
-    
-    /**
-     * DirChangeMonitorTimerTask is responsible for scanning files in the directory.
-     */
-    public class DirChangeMonitorTimerTask extends TimerTask {
-        public DirChangeMonitorTimerTask() {
-            super();
-        }
+    private void watch(String observableKey) {
+        if (watches.containsKey(observableKey)) return;
         
-        public void run() {
-            Iterator it = observables.keySet().iterator();
-            while(it.hasNext()) {
-                DirObservable observable = (DirObservable)observables.get(it.next());
-                observable.checkChange();
-            }
-        }
+        DirObservable observable = (DirObservable)observables.get(observableKey);
+        FileWatch watch = FileChangeService.getInstance().watch(new File(observable.getPath()), 
+                observable.getFilter(), false, loadInterval, observable);
+        watches.put(observableKey, watch);
     }
 }
@@ -9,11 +9,9 @@ package com.scooterframework.admin;
 
 import java.io.File;
 import java.io.FileFilter;
-import java.util.HashMap;
-import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Observable;
-import java.util.Set;
 
 import com.scooterframework.common.logging.LogUtil;
 
@@ -22,12 +20,10 @@ import com.scooterframework.common.logging.LogUtil;
  * 
  * @author (Fei) John Chen
  */
-public class DirObservable extends Observable {
+public class DirObservable extends Observable implements FileChangeListener {
     private LogUtil log = LogUtil.getLogger(this.getClass().getName());
     private long lastScannedTime = 0L;
     private String path;
-    private File[] files;
-    private HashMap fileTimestampMap = new HashMap();
     private FileFilter filter;
     
     public DirObservable(String path) {
@@ -49,46 +45,32 @@ public class DirObservable extends Observable {
         
         this.path = path;
         this.filter = filter;
-        files = dir.listFiles(filter);
-        
-        for(int i = 0; i < files.length; i++) {
-           fileTimestampMap.put(files[i], new Long(files[i].lastModified()));
-        }
         
         lastScannedTime = System.currentTimeMillis();
     }
     
-    void checkChange() {
-        HashSet checkedFiles = new HashSet();
-        files = new File(path).listFiles(filter);
-        
-        for(int i = 0; i < files.length; i++) {
-            File file = files[i];
-            checkedFiles.add(file);
-            
-            //skip copied file in windows XP and Vista
+    public String getPath() {
+        return path;
+    }
+    
+    public FileFilter getFilter() {
+        return filter;
+    }
+    
+    /**
+     * Notifies observers of each changed file. Windows copies of a file, 
+     * whose names start with "Copy " or contain " Copy", are skipped.
+     * 
+     * @param notices  list of FileChangeNotice instances
+     */
+    public void onFileChanges(List notices) {
+        Iterator it = notices.iterator();
+        while(it.hasNext()) {
+            FileChangeNotice notice = (FileChangeNotice)it.next();
+            File file = notice.getFile();
             if (file.getName().startsWith("Copy ") || file.getName().indexOf(" Copy") != -1) continue;
-            
-            Long current = (Long)fileTimestampMap.get(file);
-            if (current == null) {
-                fileTimestampMap.put(file, new Long(file.lastModified()));
-                onChange(file, FileChangeNotice.ADD_FILE);
-            }
-            else if (current.longValue() != file.lastModified()) {
-                fileTimestampMap.put(file, new Long(file.lastModified()));
-                onChange(file, FileChangeNotice.MODIFY_FILE);
-            }
+            onChange(file, notice.getAction());
         }
-        
-        Set ref = ((HashMap)fileTimestampMap.clone()).keySet();
-        ref.removeAll((Set)checkedFiles);
-        Iterator it = ref.iterator();
-        while (it.hasNext()) {
-            File deletedFile = (File)it.next();
-            fileTimestampMap.remove(deletedFile);
-            onChange(deletedFile, FileChangeNotice.DELETE_FILE);
-        }
-        
         lastScannedTime = System.currentTimeMillis();
     }
     
@@ -20,6 +20,7 @@ import java.util.Properties;
 
 import com.scooterframework.cache.CacheProvider;
 import com.scooterframework.cache.CacheProviderFactory;
+import com.scooterframework.common.instrument.Instrumentation;
 import com.scooterframework.common.logging.LogUtil;
 import com.scooterframework.common.util.Converters;
 import com.scooterframework.common.util.NamedProperties;
@@ -63,6 +64,7 @@ public class EnvConfig implements Observer {
     public static final String DEFAULT_VALUE_passwordScheme = "";
     public static final String DEFAULT_VALUE_benchmark = "true";
     public static final String DEFAULT_VALUE_benchmarkInHeader = "true";
+    public static final String DEFAULT_VALUE_instrumentation = "false";
     public static final String DEFAULT_VALUE_locale_language = null;
     public static final String DEFAULT_VALUE_locale_country = null;
     public static final String DEFAULT_VALUE_locale_variant = null;
@@ -96,6 +98,7 @@ public class EnvConfig implements Observer {
     private String passwordScheme = DEFAULT_VALUE_passwordScheme;
     private String benchmark = DEFAULT_VALUE_benchmark;
     private String benchmarkInHeader = DEFAULT_VALUE_benchmarkInHeader;
+    private String instrumentation = DEFAULT_VALUE_instrumentation;
     private Locale gloabalLocale = DEFAULT_VALUE_gloabalLocale;
     private String messageResourcesFileBase = DEFAULT_VALUE_messageResourcesFileBase;
     private String actionExtension = DEFAULT_VALUE_actionExtension;
@@ -164,6 +167,8 @@ public class EnvConfig implements Observer {
         passwordScheme = getProperty("password.scheme", DEFAULT_VALUE_passwordScheme);
         benchmark = getProperty("benchmark", DEFAULT_VALUE_benchmark);
         benchmarkInHeader = getProperty("benchmark.in.header", DEFAULT_VALUE_benchmarkInHeader);
+        instrumentation = getProperty("instrumentation", DEFAULT_VALUE_instrumentation);
+        Instrumentation.setInstrumentationEnabled(allowInstrumentation());
         
         String language = getProperty("locale.language", DEFAULT_VALUE_locale_language);
         String country = getProperty("locale.country", DEFAULT_VALUE_locale_country);
@@ -693,6 +698,15 @@ public class EnvConfig implements Observer {
         return ("true".equalsIgnoreCase(benchmarkInHeader))?true:false;
     }
     
+    /**
+     * Checks if request and sql timing is collected for instrumentation.
+     * 
+     * @return true if allowed
+     */
+    public boolean allowInstrumentation() {
+        return ("true".equalsIgnoreCase(instrumentation))?true:false;
+    }
+    
     /**
      * Returns configured locale.
      */
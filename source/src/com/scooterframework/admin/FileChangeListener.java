@@ -0,0 +1,26 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.admin;
+
+import java.util.List;
+
+/**
+ * FileChangeListener interface receives changes of watched files from 
+ * FileChangeService.
+ * 
+ * @author (Fei) John Chen
+ */
+public interface FileChangeListener {
+    /**
+     * Receives a batch of changes. The batch is sent after the watched 
+     * files have stopped changing for the debounce period of the service.
+     * 
+     * @param notices  list of FileChangeNotice instances
+     */
+    public void onFileChanges(List notices);
+}
@@ -0,0 +1,230 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.admin;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import com.scooterframework.common.logging.LogUtil;
+
+/**
+ * <p>FileChangeService class checks watched files and directories for
+ * changes in one shared background thread. PropertyFileChangeMonitor,
+ * DirChangeMonitor and the autoloader's FileMonitor all subscribe to it
+ * instead of running their own timers.</p>
+ *
+ * <p>Each watch is scanned at its own interval. When a scan finds changes,
+ * the watch is scanned again after the debounce period instead of waiting
+ * for the next interval. Changes are sent to the listener as one batch
+ * when a scan finds no more changes, so that a file being written or a
+ * group of files being copied is reported once.</p>
+ *
+ * <p>Without a file system notification API in the supported Java
+ * versions, changes are found by comparing last modified times. A
+ * directory is listed again only when it is changed.</p>
+ *
+ * <p>The debounce period in milliseconds can be set by system property
+ * <tt>file.change.debounce</tt>. Default is 200.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class FileChangeService {
+    private LogUtil log = LogUtil.getLogger(this.getClass().getName());
+
+    public static final long DEFAULT_DEBOUNCE = 200L;
+
+    /**
+     * Changes are sent after this many rechecks even if files are still
+     * changing.
+     */
+    public static final int MAX_RECHECKS = 10;
+
+    private static FileChangeService me;
+
+    private Timer timer;
+    private List watches = new ArrayList();
+    private long debounce = DEFAULT_DEBOUNCE;
+
+    static {
+        me = new FileChangeService();
+    }
+
+    private FileChangeService() {
+        String debounceValue = System.getProperty("file.change.debounce");
+        if (debounceValue != null) {
+            try {
+                debounce = Math.max(0L, Long.parseLong(debounceValue));
+            }
+            catch(NumberFormatException ex) {
+                log.warn("System property file.change.debounce has wrong integer format. Use default value " + debounce + " milliseconds.");
+            }
+        }
+    }
+
+    public static FileChangeService getInstance() {
+        return me;
+    }
+
+    /**
+     * Watches a file.
+     *
+     * @param file      the file to watch
+     * @param interval  interval between scans in milliseconds
+     * @param listener  listener of changes
+     * @return the watch
+     */
+    public FileWatch watchFile(File file, long interval, FileChangeListener listener) {
+        return watch(file, null, false, interval, listener);
+    }
+
+    /**
+     * Watches files of a directory.
+     *
+     * @param dir        the directory to watch
+     * @param filter     filter of files to watch, null for all files
+     * @param recursive  true if files in sub directories are watched
+     * @param interval   interval between scans in milliseconds
+     * @param listener   listener of changes
+     * @return the watch
+     */
+    public synchronized FileWatch watch(File dir, FileFilter filter, boolean recursive, long interval, FileChangeListener listener) {
+        if (interval <= 0) throw new IllegalArgumentException("interval must be positive.");
+
+        FileWatch watch = new FileWatch(dir, filter, recursive, interval, listener);
+        watches.add(watch);
+
+        if (timer == null) timer = new Timer(true);
+        timer.schedule(new ScanTask(watch), interval, interval);
+
+        log.debug("watching {}", watch);
+        return watch;
+    }
+
+    /**
+     * Stops watching. Pending changes of the watch are discarded.
+     *
+     * @param watch  the watch
+     */
+    public synchronized void cancel(FileWatch watch) {
+        if (watch == null) return;
+
+        watch.cancel();
+        watches.remove(watch);
+
+        if (watches.size() == 0 && timer != null) {
+            timer.cancel();
+            timer = null;
+            log.debug("File change service stopped.");
+        }
+    }
+
+    /**
+     * Cancels all watches and stops the background thread.
+     */
+    public synchronized void stop() {
+        Iterator it = watches.iterator();
+        while(it.hasNext()) {
+            ((FileWatch)it.next()).cancel();
+        }
+        watches.clear();
+
+        if (timer != null) {
+            timer.cancel();
+            timer = null;
+        }
+    }
+
+    /**
+     * Returns number of active watches.
+     */
+    public synchronized int getWatchCount() {
+        return watches.size();
+    }
+
+    public long getDebounce() {
+        return debounce;
+    }
+
+    private synchronized void scheduleRecheck(ScanTask task) {
+        if (timer != null && !task.watch.isCancelled()) {
+            timer.schedule(new RecheckTask(task), debounce);
+        }
+    }
+
+    private void deliver(FileWatch watch) {
+        List notices = watch.takePending();
+        if (notices.size() == 0 || watch.isCancelled()) return;
+
+        try {
+            watch.getListener().onFileChanges(notices);
+        }
+        catch(Throwable ex) {
+            log.error("Failed to process file changes of " + watch + ": " + ex.getMessage());
+        }
+    }
+
+    /**
+     * ScanTask scans a watch at its interval. A scan that finds changes
+     * starts a recheck instead of sending the changes.
+     */
+    private class ScanTask extends TimerTask {
+        ScanTask(FileWatch watch) {
+            this.watch = watch;
+        }
+
+        public void run() {
+            if (watch.isCancelled()) {
+                cancel();
+                return;
+            }
+
+            if (recheckPending) return;
+
+            if (watch.scan()) {
+                recheckPending = true;
+                rechecks = 0;
+                scheduleRecheck(this);
+            }
+        }
+
+        private FileWatch watch;
+        private volatile boolean recheckPending;
+        private int rechecks;
+    }
+
+    /**
+     * RecheckTask scans a watch again after the debounce period. It sends
+     * the pending changes when there is no new change, otherwise it waits
+     * for another debounce period.
+     */
+    private class RecheckTask extends TimerTask {
+        RecheckTask(ScanTask task) {
+            this.task = task;
+        }
+
+        public void run() {
+            FileWatch watch = task.watch;
+            if (watch.isCancelled()) return;
+
+            if (watch.scan() && ++task.rechecks < MAX_RECHECKS) {
+                scheduleRecheck(task);
+            }
+            else {
+                task.recheckPending = false;
+                deliver(watch);
+            }
+        }
+
+        private ScanTask task;
+    }
+}
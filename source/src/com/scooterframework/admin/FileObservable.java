@@ -8,6 +8,7 @@
 package com.scooterframework.admin;
 
 import java.io.File;
+import java.util.List;
 import java.util.Observable;
 
 import com.scooterframework.common.logging.LogUtil;
@@ -17,7 +18,7 @@ import com.scooterframework.common.logging.LogUtil;
  * 
  * @author (Fei) John Chen
  */
-public class FileObservable extends Observable {
+public class FileObservable extends Observable implements FileChangeListener {
     private LogUtil log = LogUtil.getLogger(this.getClass().getName());
     private File source = null;
     private long lastSourceModifiedTime = 0L;
@@ -40,12 +41,17 @@ public class FileObservable extends Observable {
         return source;
     }
     
-    void checkChange() {
+    /**
+     * Notifies observers when the file is changed.
+     * 
+     * @param notices  list of FileChangeNotice instances
+     */
+    public void onFileChanges(List notices) {
         long last = source.lastModified();
-        if (lastSourceModifiedTime < last) {
+        if (last != 0L) {
+            lastSourceModifiedTime = last;
             onChange();
         }
-        lastSourceModifiedTime = last;
     }
     
     void onChange() {
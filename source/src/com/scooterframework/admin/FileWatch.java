@@ -0,0 +1,241 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.admin;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>FileWatch class keeps the last modified time of a watched file, or of
+ * all files of a watched directory, and finds out which files are added,
+ * modified or deleted since the last scan.</p>
+ *
+ * <p>For a directory, the file list is read again only when the last
+ * modified time of the directory is changed, which happens when a file is
+ * added to or deleted from it. Otherwise only the last modified time of
+ * each file is read.</p>
+ *
+ * <p>Changes found by scans are kept as pending changes until they are
+ * taken by FileChangeService. Several changes of the same file are
+ * combined into one.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class FileWatch {
+
+    FileWatch(File root, FileFilter filter, boolean recursive, long interval, FileChangeListener listener) {
+        if (root == null) throw new IllegalArgumentException("Watched file is null.");
+        if (listener == null) throw new IllegalArgumentException("Listener is null.");
+
+        this.root = root;
+        this.filter = filter;
+        this.recursive = recursive;
+        this.interval = interval;
+        this.listener = listener;
+
+        collect(root, fileTimestampMap);
+    }
+
+    public File getRoot() {
+        return root;
+    }
+
+    public long getInterval() {
+        return interval;
+    }
+
+    public FileChangeListener getListener() {
+        return listener;
+    }
+
+    /**
+     * Checks if this watch is cancelled.
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Scans the watched files and adds changes to the pending changes.
+     *
+     * @return true if any change is found
+     */
+    synchronized boolean scan() {
+        Map current = new HashMap();
+        collect(root, current);
+
+        boolean changed = false;
+        Iterator it = current.keySet().iterator();
+        while(it.hasNext()) {
+            File file = (File)it.next();
+            Long time = (Long)current.get(file);
+            Long previous = (Long)fileTimestampMap.get(file);
+            if (previous == null) {
+                addPending(file, FileChangeNotice.ADD_FILE);
+                changed = true;
+            }
+            else if (previous.longValue() != time.longValue()) {
+                addPending(file, FileChangeNotice.MODIFY_FILE);
+                changed = true;
+            }
+        }
+
+        Set deleted = new HashSet(fileTimestampMap.keySet());
+        deleted.removeAll(current.keySet());
+        it = deleted.iterator();
+        while(it.hasNext()) {
+            addPending((File)it.next(), FileChangeNotice.DELETE_FILE);
+            changed = true;
+        }
+
+        fileTimestampMap = current;
+        removeDeletedDirListings();
+        return changed;
+    }
+
+    /**
+     * Returns pending changes as a list of FileChangeNotice instances and
+     * clears them.
+     */
+    synchronized List takePending() {
+        List notices = new ArrayList(pending.size());
+        Iterator it = pending.keySet().iterator();
+        while(it.hasNext()) {
+            File file = (File)it.next();
+            notices.add(new FileChangeNotice(file, (String)pending.get(file)));
+        }
+        pending.clear();
+        return notices;
+    }
+
+    //combines a new change with a pending change of the same file
+    private void addPending(File file, String action) {
+        String previous = (String)pending.get(file);
+        if (previous == null) {
+            pending.put(file, action);
+        }
+        else if (FileChangeNotice.ADD_FILE.equals(previous)) {
+            if (FileChangeNotice.DELETE_FILE.equals(action)) pending.remove(file);
+        }
+        else if (FileChangeNotice.DELETE_FILE.equals(previous)) {
+            if (FileChangeNotice.ADD_FILE.equals(action)) pending.put(file, FileChangeNotice.MODIFY_FILE);
+        }
+        else {
+            pending.put(file, action);
+        }
+    }
+
+    private void collect(File file, Map timestamps) {
+        if (file.isDirectory()) {
+            File[] files = listFiles(file);
+            for (int i = 0; i < files.length; i++) {
+                File f = files[i];
+                if (f.isDirectory()) {
+                    if (recursive) collect(f, timestamps);
+                }
+                else {
+                    timestamps.put(f, new Long(f.lastModified()));
+                }
+            }
+        }
+        else if (file.exists()) {
+            timestamps.put(file, new Long(file.lastModified()));
+        }
+    }
+
+    //Reads the file list of a directory only if the directory is changed.
+    //A listing taken within two seconds of the directory's last modified
+    //time is not reused, as some file systems only keep whole seconds.
+    private File[] listFiles(File dir) {
+        long modified = dir.lastModified();
+        DirListing listing = (DirListing)dirListings.get(dir);
+        if (listing != null && listing.modified == modified &&
+            listing.listedTime - modified > 2000) return listing.files;
+
+        File[] files = dir.listFiles(new WatchedFileFilter(filter, recursive));
+        if (files == null) files = new File[0];
+        dirListings.put(dir, new DirListing(modified, files));
+        return files;
+    }
+
+    //drops file lists of directories that are gone
+    private void removeDeletedDirListings() {
+        Iterator it = dirListings.keySet().iterator();
+        while(it.hasNext()) {
+            File dir = (File)it.next();
+            if (!dir.isDirectory()) it.remove();
+        }
+    }
+
+    /**
+     * Returns number of directories whose file list is kept.
+     */
+    synchronized int getDirListingCount() {
+        return dirListings.size();
+    }
+
+    public String toString() {
+        StringBuffer sb = new StringBuffer();
+        sb.append("root=" + root).append(", ");
+        sb.append("filter=" + filter).append(", ");
+        sb.append("recursive=" + recursive).append(", ");
+        sb.append("interval=" + interval);
+        return sb.toString();
+    }
+
+    private static class DirListing {
+        DirListing(long modified, File[] files) {
+            this.modified = modified;
+            this.files = files;
+            this.listedTime = System.currentTimeMillis();
+        }
+
+        long modified;
+        long listedTime;
+        File[] files;
+    }
+
+    //accepts sub directories of a recursive watch and files of the filter
+    private static class WatchedFileFilter implements FileFilter {
+        WatchedFileFilter(FileFilter filter, boolean recursive) {
+            this.filter = filter;
+            this.recursive = recursive;
+        }
+
+        public boolean accept(File file) {
+            if (file.isDirectory()) return recursive;
+            return (filter == null)?true:filter.accept(file);
+        }
+
+        private FileFilter filter;
+        private boolean recursive;
+    }
+
+    private File root;
+    private FileFilter filter;
+    private boolean recursive;
+    private long interval;
+    private FileChangeListener listener;
+    private volatile boolean cancelled;
+
+    private Map fileTimestampMap = new HashMap();
+    private Map dirListings = new HashMap();
+    private Map pending = new LinkedHashMap();
+}
@@ -8,14 +8,10 @@
 package com.scooterframework.admin;
 
 import java.io.File;
-import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
-import java.util.Observable;
 import java.util.Observer;
-import java.util.Timer;
-import java.util.TimerTask;
 
 import com.scooterframework.common.logging.LogUtil;
 
@@ -27,7 +23,8 @@ import com.scooterframework.common.logging.LogUtil;
  * 
  * <p>
  * The default monitor interval is 2000 miliseconds. This can be changed by 
- * System property <tt>property.load.interval</tt>.
+ * System property <tt>property.load.interval</tt>. Files are checked by the 
+ * shared FileChangeService.
  * </p>
  * 
  * <p>
@@ -41,11 +38,10 @@ public class PropertyFileChangeMonitor {
     private LogUtil log = LogUtil.getLogger(this.getClass().getName());
     
     private Map observables = new HashMap();
+    private Map watches = new HashMap();
     
-    private static long oneHundredDays = 8640000;
     private boolean periodicReading = false;
-    private Date oldDate = null;
-    private Timer timer = null;
+    private boolean started = false;
     
     /**
      * Time interval in milliseconds between successive task executions
@@ -84,10 +80,6 @@ public class PropertyFileChangeMonitor {
         }
         
         if (periodicReading) {
-            oldDate = new Date();
-            oldDate.setTime(oldDate.getTime()-oneHundredDays);
-            
-            timer = new Timer();
             start();
         }
     }
@@ -96,17 +88,25 @@ public class PropertyFileChangeMonitor {
         return fcm;
     }
     
-    public void start() {
-        FileChangeMonitorTimerTask task = 
-            new FileChangeMonitorTimerTask();
-        schedule(task, loadInterval);
+    /**
+     * Starts watching all registered files through FileChangeService.
+     */
+    public synchronized void start() {
+        started = true;
+        Iterator it = observables.keySet().iterator();
+        while(it.hasNext()) {
+            watch((File)it.next());
+        }
     }
     
-    public void stop() {
-        if (timer != null) {
-            timer.cancel();
-            log.debug("Property file change monitor stopped.");
+    public synchronized void stop() {
+        Iterator it = watches.values().iterator();
+        while(it.hasNext()) {
+            FileChangeService.getInstance().cancel((FileWatch)it.next());
         }
+        if (watches.size() > 0) log.debug("Property file change monitor stopped.");
+        watches.clear();
+        started = false;
     }
 
     public void registerObserver(Observer observer, String fileName) {
@@ -129,12 +129,15 @@ public class PropertyFileChangeMonitor {
         
         log.debug("monitoring file: " + file.getName());
         
-        Observable observable = (Observable)observables.get(file);
-        if (observable == null) {
-            observable = new FileObservable(file);
-            observables.put(file, observable);
+        synchronized(this) {
+            FileObservable observable = (FileObservable)observables.get(file);
+            if (observable == null) {
+                observable = new FileObservable(file);
+                observables.put(file, observable);
+                if (started) watch(file);
+            }
+            observable.addObserver(observer);
         }
-        observable.addObserver(observer);
     }
     
     public String getFullFileName(String fileName) {
@@ -146,29 +149,10 @@ public class PropertyFileChangeMonitor {
             (fileName);
     }
     
-    private void schedule(TimerTask task, long period) {
-        if (period > 0) {
-            timer.schedule(task, oldDate, period);
-        }
-        else {
-            timer.schedule(task, oldDate);
-        }
-    }
-    
-    /**
-     * FileChangeMonitorTimerTask is responsible for scanning files.
-     */
-    public class FileChangeMonitorTimerTask extends TimerTask {
-        public FileChangeMonitorTimerTask() {
-            super();
-        }
+    private void watch(File file) {
+        if (watches.containsKey(file)) return;
         
-        public void run() {
-            Iterator it = observables.keySet().iterator();
-            while(it.hasNext()) {
-                FileObservable observable = (FileObservable)observables.get(it.next());
-                observable.checkChange();
-            }
-        }
+        FileObservable observable = (FileObservable)observables.get(file);
+        watches.put(file, FileChangeService.getInstance().watchFile(file, loadInterval, observable));
     }
 }
@@ -39,6 +39,7 @@ public class AutoLoaderConfig implements Observer {
     private String sourcepath = "";
     private String referencesLocation = "";
     private long period = 0;//in milliseconds
+    private boolean checkSourceOnLoad = true;
     private String forbiddenFilesPrefix = "java., javax., com.sun., org.apache., com.scooterframework.";
     
     private Set forbiddenSet = new HashSet();
@@ -98,6 +99,8 @@ public class AutoLoaderConfig implements Observer {
         catch(NumberFormatException nfex) {
             period = 0;
         }
+        
+        checkSourceOnLoad = "true".equalsIgnoreCase(getProperty("check_source_on_load", "true"));
     }
     
     private void loadProperties() {
@@ -212,7 +215,7 @@ public class AutoLoaderConfig implements Observer {
 	}
     
 
-    public static synchronized AutoLoaderConfig getInstance() {
+    public static AutoLoaderConfig getInstance() {
         return me;
     }
     
@@ -250,6 +253,25 @@ public class AutoLoaderConfig implements Observer {
         return period;
     }
     
+    /**
+     * Checks if source files of loaded classes are checked each time a 
+     * class is loaded. If not, changes are only detected by the file 
+     * monitor, and loaded classes are returned without any lock.
+     * 
+     * @return true if source files are checked on each load
+     */
+    public boolean checkSourceOnLoad() {
+        return checkSourceOnLoad;
+    }
+    
+    /**
+     * Sets <tt>check_source_on_load</tt> until the properties file is 
+     * loaded again.
+     */
+    void setCheckSourceOnLoad(boolean checkSourceOnLoad) {
+        this.checkSourceOnLoad = checkSourceOnLoad;
+    }
+    
     public String getClassPath() {
         return classpath;
     }
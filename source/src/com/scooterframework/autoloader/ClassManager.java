@@ -10,7 +10,16 @@ package com.scooterframework.autoloader;
 import com.scooterframework.common.exception.ObjectCreationException;
 
 /**
- * ClassManager class
+ * <p>ClassManager class loads classes that are under the source directory 
+ * of the application through a MyClassLoader instance. When a source file 
+ * is changed, the current class loader is replaced by a new one, so that 
+ * the changed classes are loaded again.</p>
+ * 
+ * <p>The current class loader is published by a single write of a volatile 
+ * field. Requests that are still using the old class loader finish with 
+ * it. When <tt>check_source_on_load</tt> is false in 
+ * <tt>autoloader.properties</tt>, source changes are detected by the 
+ * FileMonitor timer instead of on each load.</p>
  * 
  * @author (Fei) John Chen
  *
@@ -18,7 +27,7 @@ import com.scooterframework.common.exception.ObjectCreationException;
 public class ClassManager {
     
     private static ClassManager cm;
-    private MyClassLoader xcl;
+    private volatile MyClassLoader xcl;
     private FileMonitor fm;
     
     static {
@@ -28,11 +37,12 @@ public class ClassManager {
     private ClassManager() {
         xcl = new MyClassLoader(this);
         fm = FileMonitor.getInstance();
+        fm.registerClassManager(this);
         fm.start();
     }
     
 
-    public static synchronized ClassManager getInstance() {
+    public static ClassManager getInstance() {
         return cm;
     }
     
@@ -60,6 +70,24 @@ public class ClassManager {
         xcl = new MyClassLoader(this);
     }
     
+    /**
+     * Replaces the current class loader with a new one if source file of 
+     * any class loaded by it has been changed. This is called by the 
+     * FileMonitor timer after it has scanned and recompiled source files.
+     * 
+     * @return true if a new class loader is published
+     */
+    public boolean checkSourceChanges() {
+        MyClassLoader current = xcl;
+        if (!current.sourceChanged()) return false;
+        
+        synchronized(this) {
+            if (xcl != current) return false;
+            xcl = new MyClassLoader(this);
+        }
+        return true;
+    }
+    
     public FileMonitor getFileMonitor() {
         return fm;
     }
@@ -0,0 +1,242 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.autoloader;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * <p>CompiledClassStore class keeps bytecode of compiled application
+ * classes in memory, so that a new class loader created after a source
+ * change reads class files from disk only for the classes that were
+ * recompiled.</p>
+ *
+ * <p>It also keeps a dependency graph of application classes. When the
+ * bytecode of a class is read, the classes it refers to are found in its
+ * constant pool. Classes that refer to a changed class are recompiled
+ * together with the changed class.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class CompiledClassStore {
+
+    private CompiledClassStore() {
+    }
+
+    /**
+     * Returns bytecode of a class. The class file is read again only if it
+     * has been changed since it was last read.
+     *
+     * @param className  class name
+     * @param classFile  compiled class file
+     * @return bytecode of the class
+     * @throws IOException if the class file cannot be read
+     */
+    public static byte[] getClassBytes(String className, File classFile)
+    throws IOException {
+        long modified = classFile.lastModified();
+        synchronized(store) {
+            CompiledClass cc = (CompiledClass)store.get(className);
+            if (cc != null && cc.modified == modified && modified != 0L) return cc.bytes;
+        }
+
+        byte[] bytes = readFile(classFile);
+        Set references = getReferencedClassNames(bytes);
+        references.remove(className);
+
+        synchronized(store) {
+            CompiledClass old = (CompiledClass)store.get(className);
+            if (old != null) removeDependent(className, old.references);
+            store.put(className, new CompiledClass(modified, bytes, references));
+            addDependent(className, references);
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns names of all known classes that refer to a class or to any
+     * of its inner classes.
+     *
+     * @param className  class name
+     * @return set of class names
+     */
+    public static Set getDependents(String className) {
+        Set result = new HashSet();
+        synchronized(store) {
+            Iterator it = dependents.keySet().iterator();
+            while(it.hasNext()) {
+                String name = (String)it.next();
+                if (name.equals(className) || name.startsWith(className + "$")) {
+                    result.addAll((Set)dependents.get(name));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns number of classes whose bytecode is kept in memory.
+     */
+    public static int size() {
+        synchronized(store) {
+            return store.size();
+        }
+    }
+
+    /**
+     * Removes all bytecode and dependencies.
+     */
+    public static void clear() {
+        synchronized(store) {
+            store.clear();
+            dependents.clear();
+        }
+    }
+
+    /**
+     * Returns names of classes referred to by a class in its constant pool,
+     * either as class entries or in field and method descriptors.
+     *
+     * @param bytes  bytecode of a class
+     * @return set of class names
+     */
+    static Set getReferencedClassNames(byte[] bytes) throws IOException {
+        Set names = new HashSet();
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes));
+        if (in.readInt() != 0xCAFEBABE) throw new IOException("Not a class file.");
+        in.readUnsignedShort();
+        in.readUnsignedShort();
+
+        int count = in.readUnsignedShort();
+        String[] utf8s = new String[count];
+        int[] classIndexes = new int[count];
+        int classCount = 0;
+        for (int i = 1; i < count; i++) {
+            int tag = in.readUnsignedByte();
+            switch(tag) {
+                case 1:
+                    utf8s[i] = in.readUTF();
+                    break;
+                case 7:
+                    classIndexes[classCount++] = in.readUnsignedShort();
+                    break;
+                case 8: case 16: case 19: case 20:
+                    in.readUnsignedShort();
+                    break;
+                case 15:
+                    in.readUnsignedByte();
+                    in.readUnsignedShort();
+                    break;
+                case 3: case 4: case 9: case 10: case 11: case 12: case 17: case 18:
+                    in.readInt();
+                    break;
+                case 5: case 6:
+                    in.readLong();
+                    i++;
+                    break;
+                default:
+                    throw new IOException("Unknown constant pool tag " + tag + ".");
+            }
+        }
+
+        for (int i = 0; i < classCount; i++) {
+            String name = utf8s[classIndexes[i]];
+            if (name == null) continue;
+            if (name.startsWith("[")) {
+                addDescriptorClassNames(names, name);
+            }
+            else {
+                names.add(name.replace('/', '.'));
+            }
+        }
+
+        for (int i = 1; i < count; i++) {
+            String s = utf8s[i];
+            if (s != null && s.indexOf(';') != -1) addDescriptorClassNames(names, s);
+        }
+        return names;
+    }
+
+    //adds class names of the form Lpkg/Name; in a descriptor
+    private static void addDescriptorClassNames(Set names, String descriptor) {
+        int start = descriptor.indexOf('L');
+        while (start != -1) {
+            int end = descriptor.indexOf(';', start);
+            if (end == -1) break;
+            String name = descriptor.substring(start + 1, end);
+            if (name.indexOf('<') == -1 && name.indexOf('(') == -1 && name.indexOf(' ') == -1) {
+                names.add(name.replace('/', '.'));
+            }
+            start = descriptor.indexOf('L', end);
+        }
+    }
+
+    private static void addDependent(String className, Set references) {
+        Iterator it = references.iterator();
+        while(it.hasNext()) {
+            String reference = (String)it.next();
+            Set set = (Set)dependents.get(reference);
+            if (set == null) {
+                set = new HashSet();
+                dependents.put(reference, set);
+            }
+            set.add(className);
+        }
+    }
+
+    private static void removeDependent(String className, Set references) {
+        Iterator it = references.iterator();
+        while(it.hasNext()) {
+            Set set = (Set)dependents.get(it.next());
+            if (set != null) set.remove(className);
+        }
+    }
+
+    private static byte[] readFile(File file) throws IOException {
+        FileInputStream fi = new FileInputStream(file);
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream((int)Math.max(1024, file.length()));
+            byte[] b = new byte[4096];
+            int n = 0;
+            while((n = fi.read(b)) != -1) {
+                out.write(b, 0, n);
+            }
+            return out.toByteArray();
+        }
+        finally {
+            fi.close();
+        }
+    }
+
+    private static class CompiledClass {
+        CompiledClass(long modified, byte[] bytes, Set references) {
+            this.modified = modified;
+            this.bytes = bytes;
+            this.references = references;
+        }
+
+        long modified;
+        byte[] bytes;
+        Set references;
+    }
+
+    //key is class name, value is CompiledClass
+    private static Map store = new HashMap();
+
+    //key is class name, value is set of names of classes referring to it
+    private static Map dependents = new HashMap();
+}
@@ -8,6 +8,7 @@
 package com.scooterframework.autoloader;
 
 import java.io.File;
+import java.io.FileFilter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
@@ -15,24 +16,25 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Timer;
-import java.util.TimerTask;
 
+import com.scooterframework.admin.FileChangeListener;
+import com.scooterframework.admin.FileChangeNotice;
+import com.scooterframework.admin.FileChangeService;
+import com.scooterframework.admin.FileWatch;
 import com.scooterframework.common.logging.LogUtil;
 
 /**
  * FileMonitor is responsible for monitoring file changes. Changed files are
- * automatically recompiled.
+ * automatically recompiled. Source files are watched by the shared 
+ * FileChangeService.
  * 
  * @author (Fei) John Chen
  */
-public class FileMonitor {
+public class FileMonitor implements FileChangeListener {
     private LogUtil log = LogUtil.getLogger(this.getClass().getName());
     
-    private static long oneHundredDays = 8640000;
     private static boolean started = false;
-    private Date oldDate = null;
-    private Timer timer = null;
+    private FileWatch watch = null;
     private long period = 0L;
     private String sourcePath = "";
     private long lastScanTime = 0L;
@@ -41,6 +43,7 @@ public class FileMonitor {
     private long latestChange = 0L;
     
     private static FileMonitor fm;
+    private ClassManager classManager;
     
     public static boolean turnOff = false;
     
@@ -52,9 +55,6 @@ public class FileMonitor {
         sourcePath = AutoLoaderConfig.getInstance().getSourcePath();
         scanAllSources(sourcePath);
         
-        oldDate = new Date();
-        oldDate.setTime(oldDate.getTime()-oneHundredDays);
-        
         AutoLoaderConfig.getInstance().registerFileMonitor(this);
     }
     
@@ -65,28 +65,30 @@ public class FileMonitor {
     public void start() {
         if (turnOff || started) return;
         
-        timer = new Timer();
         sourcePath = AutoLoaderConfig.getInstance().getSourcePath();
         period = AutoLoaderConfig.getInstance().getPeriod();
         
-        if (period > 0) {
-            SourceFileTimerTask sourceTask = 
-                new SourceFileTimerTask(sourcePath);
-            schedule(sourceTask, period);
+        File sourceDir = new File(sourcePath);
+        if (period > 0 && sourceDir.isDirectory()) {
+            watch = FileChangeService.getInstance().watch(sourceDir, 
+                        new JavaSourceFileFilter(), true, period, this);
             
             started = true;
             log.debug("Java source file change monitor started with an interval of " + period + " milliseconds.");
+            
+            //the watch only reports later changes, so recompile sources 
+            //changed before it is started
+            scanAllSources(sourcePath);
         }
     }
     
     /**
-     * Terminates this loader, discarding any currently scheduled tasks.
-     * 
-     * @see  java.util.Timer#cancel()
+     * Stops watching source files.
      */
     public void stop() {
-        if (timer != null) {
-            timer.cancel();
+        if (watch != null) {
+            FileChangeService.getInstance().cancel(watch);
+            watch = null;
             log.debug("Java source file change monitor stopped.");
         }
         started = false;
@@ -105,6 +107,14 @@ public class FileMonitor {
         }
     }
     
+    /**
+     * Registers the ClassManager whose class loader is checked for changed 
+     * sources after each scan.
+     */
+    public void registerClassManager(ClassManager classManager) {
+        this.classManager = classManager;
+    }
+    
     public static boolean isStarted() {
         return started;
     }
@@ -131,16 +141,36 @@ public class FileMonitor {
         return lastScanTime;
     }
     
-    private void schedule(TimerTask task, long period) {
-        if (period > 0) {
-            timer.schedule(task, oldDate, period);
+    /**
+     * Recompiles changed source files. If source files are not checked on 
+     * each class load, the class loader is also replaced when a loaded 
+     * class is changed.
+     * 
+     * @param notices  list of FileChangeNotice instances
+     */
+    public synchronized void onFileChanges(List notices) {
+        if (!started) return;
+        
+        Iterator it = notices.iterator();
+        while(it.hasNext()) {
+            FileChangeNotice notice = (FileChangeNotice)it.next();
+            if (!FileChangeNotice.DELETE_FILE.equals(notice.getAction())) {
+                processJavaFile(notice.getFile());
+            }
         }
-        else {
-            timer.schedule(task, oldDate);
+        lastScanTime = (new Date()).getTime();
+        
+        if (modifiedSources.size() > 0) {
+            recompile();
+        }
+        
+        if (classManager != null && 
+            !AutoLoaderConfig.getInstance().checkSourceOnLoad()) {
+            classManager.checkSourceChanges();
         }
     }
     
-    private void scanAllSources(String sourceLocation) {
+    private synchronized void scanAllSources(String sourceLocation) {
         File base = new File(sourceLocation);
         scanFiles(base);
         lastScanTime = (new Date()).getTime();
@@ -179,7 +209,13 @@ public class FileMonitor {
             }
         }
         else {
-            sourceMap.put(className, new SourceFile(file));
+            SourceFile sf = new SourceFile(file);
+            sourceMap.put(className, sf);
+            
+            //a source file added while monitoring has no other chance to be compiled
+            if (started && sf.availableForRecompile()) {
+                modifiedSources.put(fileName, sf);
+            }
         }
     }
     
@@ -201,8 +237,28 @@ public class FileMonitor {
         
         if (sumTime == latestChange) return;
         
-        //2. recompile
+        //2. add sources of classes depending on the changed classes
+        int changed = files.size();
+        for (int i = 0; i < changed; i++) {
+            String className = SourceFile.getClassName((File)files.get(i));
+            Iterator dit = CompiledClassStore.getDependents(className).iterator();
+            while(dit.hasNext()) {
+                String dependent = (String)dit.next();
+                int index = dependent.indexOf('$');
+                if (index != -1) dependent = dependent.substring(0, index);
+                SourceFile dsf = (SourceFile)sourceMap.get(dependent);
+                if (dsf != null && dsf.getSource().exists() && 
+                    !files.contains(dsf.getSource())) {
+                    files.add(dsf.getSource());
+                }
+            }
+        }
+        
+        //3. recompile
         log.debug("recompile classes: " + files);
+        if (files.size() > changed) {
+            log.debug("recompile " + (files.size() - changed) + " dependent classes");
+        }
         latestChange = sumTime;
         
         String error = JavaCompiler.compile(files);
@@ -215,18 +271,13 @@ public class FileMonitor {
     }
     
     /**
-     * SourceFileTimerTask is responsible for scanning files.
+     * JavaSourceFileFilter accepts java source files without space in 
+     * their names.
      */
-    public class SourceFileTimerTask extends TimerTask {
-        private String sourceLocation = "";
-        
-        public SourceFileTimerTask(String sourceLocation) {
-            super();
-            this.sourceLocation = sourceLocation;
-        }
-        
-        public void run() {
-            if (started) scanAllSources(sourceLocation);
+    private static class JavaSourceFileFilter implements FileFilter {
+        public boolean accept(File file) {
+            String fn = file.getName();
+            return (fn.endsWith("java") && (fn.indexOf(' ') == -1))?true:false;
         }
     }
 }
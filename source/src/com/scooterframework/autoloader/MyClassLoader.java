@@ -7,8 +7,7 @@
  */
 package com.scooterframework.autoloader;
 
-import java.io.ByteArrayOutputStream;
-import java.io.FileInputStream;
+import java.io.File;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -17,7 +16,10 @@ import java.util.Map;
 import com.scooterframework.common.logging.LogUtil;
 
 /**
- * MyClassLoader class
+ * <p>MyClassLoader class loads classes from the class files of the 
+ * application source files. A class that is already loaded is found in a 
+ * copy-on-write map without any lock. Only loading a new class takes the 
+ * lock of the class loader.</p>
  * 
  * @author (Fei) John Chen
  *
@@ -29,7 +31,9 @@ public class MyClassLoader extends ClassLoader {
     private ClassManager caller;
     private String initiatingClassName;
     
-    private Map loadedClasses = Collections.synchronizedMap(new HashMap());
+    //copy-on-write maps of class name and LoadedClass or Class instances
+    private volatile Map loadedClasses = Collections.EMPTY_MAP;
+    private volatile Map delegatedClasses = Collections.EMPTY_MAP;
     
     public MyClassLoader(ClassManager caller) {
         this(MyClassLoader.class.getClassLoader(), caller);
@@ -45,13 +49,26 @@ public class MyClassLoader extends ClassLoader {
         return key;
     }
     
-    public synchronized Class loadMyClass(String className) 
+    public Class loadMyClass(String className) 
+    throws ClassNotFoundException {
+        if (!AutoLoaderConfig.getInstance().checkSourceOnLoad()) {
+            LoadedClass loadedClass = (LoadedClass)loadedClasses.get(className);
+            if (loadedClass != null) return loadedClass.clazz;
+            
+            Class c = (Class)delegatedClasses.get(className);
+            if (c != null) return c;
+        }
+        
+        return loadMyClassLocked(className);
+    }
+    
+    private synchronized Class loadMyClassLocked(String className) 
     throws ClassNotFoundException {
         initiatingClassName = className;
         return loadClass(className, true);
     }
     
-    protected Class loadClass(String className, boolean resolve) 
+    protected synchronized Class loadClass(String className, boolean resolve) 
     throws ClassNotFoundException {
         Class c = null;
         
@@ -63,12 +80,19 @@ public class MyClassLoader extends ClassLoader {
             if (!FileMonitor.isClassMonitored(className) ||
                  AutoLoaderConfig.getInstance().notAllowedToChange(className)) {
                 c = super.loadClass(className, resolve);
+                if (!delegatedClasses.containsKey(className)) {
+                    Map copy = new HashMap(delegatedClasses);
+                    copy.put(className, c);
+                    delegatedClasses = copy;
+                }
                 return c;
             }
             else {
                 c = findClass(className);
                 loadedClass = new LoadedClass(c, key);
-                loadedClasses.put(className, loadedClass);
+                Map copy = new HashMap(loadedClasses);
+                copy.put(className, loadedClass);
+                loadedClasses = copy;
             }
         }
         else {
@@ -77,8 +101,9 @@ public class MyClassLoader extends ClassLoader {
         }
         
         //check if the source file has been changed
-        if (sourceChanged()) {
-            loadedClasses.clear();
+        if (AutoLoaderConfig.getInstance().checkSourceOnLoad() && sourceChanged()) {
+            loadedClasses = Collections.EMPTY_MAP;
+            delegatedClasses = Collections.EMPTY_MAP;
             caller.createNewClassLoader(className);
             c = caller.loadMyClass(initiatingClassName);
         }
@@ -115,30 +140,29 @@ public class MyClassLoader extends ClassLoader {
                     throw new CompileException(error);
                 }
             }
-            FileInputStream fi = new FileInputStream(sourceFile.getClassFilePath());
-            ByteArrayOutputStream out = new ByteArrayOutputStream(1024);
-            byte[] b = new byte[1024];
-            int n = 0;
-            while((n = fi.read(b)) != -1) {
-                out.write(b, 0, n);
-            }
-            fi.close();
-            out.close();
-            result = out.toByteArray();
+            result = CompiledClassStore.getClassBytes(className, 
+                        new File(sourceFile.getClassFilePath()));
     	} catch (Exception ex) {
     	    throw new ClassNotFoundException("Failed to find class " + className);
     	}
         return result;
     }
     
+    /**
+     * Checks if source file of any class loaded by this class loader has 
+     * been changed since the class was loaded.
+     * 
+     * @return true if changed
+     */
     protected boolean sourceChanged() {
         boolean changed = false;
-        if (loadedClasses == null || loadedClasses.size() == 0) return changed;
+        Map classes = loadedClasses;
+        if (classes.size() == 0) return changed;
         
-        Iterator it = loadedClasses.keySet().iterator();
+        Iterator it = classes.keySet().iterator();
         while(it.hasNext()) {
             String className = (String)it.next();
-            LoadedClass loadedClass = (LoadedClass)loadedClasses.get(className);
+            LoadedClass loadedClass = (LoadedClass)classes.get(className);
             
             SourceFile sourceFile = FileMonitor.getSourceFile(className);
             if (sourceFile != null && 
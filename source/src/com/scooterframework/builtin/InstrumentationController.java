@@ -0,0 +1,50 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.builtin;
+
+import com.scooterframework.common.instrument.Instrumentation;
+import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
+import com.scooterframework.web.controller.ActionControl;
+
+/**
+ * InstrumentationController class displays latency statistics of
+ * controller actions, request phases and sql statements, and metrics of
+ * connection pools.
+ * 
+ * @author (Fei) John Chen
+ */
+public class InstrumentationController extends ActionControl {
+    
+    /**
+     * registerFilters
+     */
+    public void registerFilters() {
+        beforeFilter(BuiltinHelper.class, "validateRequest");
+        beforeFilter(BuiltinHelper.class, "displayParams");
+    }
+    
+    public String index() {
+        Instrumentation instrumentation = Instrumentation.getInstance();
+        storeToRequest("enabled", (instrumentation.isEnabled()?"On":"Off"));
+        storeToRequest("mbean", Instrumentation.getRegisteredName());
+        storeToRequest("request_count", new Long(instrumentation.getRequestCount()));
+        storeToRequest("statement_count", new Long(instrumentation.getStatementCount()));
+        storeToRequest("actions", Instrumentation.getActionHistograms());
+        storeToRequest("phases", Instrumentation.getPhaseHistograms());
+        storeToRequest("sqls", Instrumentation.getSqlHistograms());
+        storeToRequest("traces", Instrumentation.getRecentTraces());
+        storeToRequest("pools", DatabaseConfig.getInstance().getAllConnectionPoolMetrics());
+        return null;
+    }
+    
+    public String reset() {
+        Instrumentation.getInstance().reset();
+        flash("notice", "Instrumentation statistics are cleared.");
+        return redirectTo("/instrumentation");
+    }
+}
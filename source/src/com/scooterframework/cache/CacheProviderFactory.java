@@ -49,6 +49,18 @@ public class CacheProviderFactory {
     	if (name == null) 
     		throw new IllegalArgumentException("Cache provider name cannot be null.");
     	
+    	CacheProvider cp = (CacheProvider)cacheProviders.get(name);
+    	if (cp == null) {
+    		cp = createCacheProvider(name);
+    	}
+    	return cp;
+    }
+    
+    /**
+     * Creates a cache provider and keeps it in the factory, so that cached 
+     * objects of in-process providers survive between calls.
+     */
+    private synchronized CacheProvider createCacheProvider(String name) {
     	CacheProvider cp = (CacheProvider)cacheProviders.get(name);
     	if (cp == null) {
     		Properties p = EnvConfig.getInstance().getPredefinedCacheProviderProperties(name);
@@ -64,6 +76,7 @@ public class CacheProviderFactory {
             Class[] parameterTypes = {Properties.class};
             Object[] initargs = {p};
     		cp = (CacheProvider)AutoLoadedObjectFactory.getInstance().newInstance(providerClassName, parameterTypes, initargs);
+    		cacheProviders.put(name, cp);
     	}
     	return cp;
     }
@@ -78,9 +91,10 @@ public class CacheProviderFactory {
     }
     
     /**
-     * Removes all cache providers from factory's cache.
+     * Shuts down and removes all cache providers from factory's cache.
      */
     public void clear() {
+    	shutDown();
     	cacheProviders.clear();
     }
     
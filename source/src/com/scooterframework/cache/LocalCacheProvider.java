@@ -0,0 +1,134 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.cache;
+
+import java.util.Properties;
+
+import com.scooterframework.common.util.LRUCache;
+
+/**
+ * <p>LocalCacheProvider keeps cached objects in the memory of the current
+ * JVM. There is no network round trip, so it is suitable as a first level
+ * cache of small and frequently used objects on each node.</p>
+ *
+ * <p>Objects are stored in a segmented LRU map. When the number of objects
+ * exceeds <tt>maxSize</tt>, the least recently used objects are removed.
+ * Objects expire after <tt>expiresInSeconds</tt> seconds if the property is
+ * greater than zero. Each provider instance has its own store, so clearing
+ * one provider does not affect objects in other namespaces.</p>
+ *
+ * <p>Properties supported in addition to those of <tt>CacheProvider</tt>:
+ * <pre>
+ *   maxSize: optional, maximum number of cached objects, default 10000
+ *   segments: optional, number of lock segments, default 16
+ * </pre>
+ * </p>
+ *
+ * @author (Fei) John Chen
+ */
+public class LocalCacheProvider extends CacheProvider {
+
+    /**
+     * Key to represent cache provider <tt>maxSize</tt> property.
+     */
+    public static final String KEY_CACHE_PROVIDER_MAXSIZE = "maxSize";
+
+    /**
+     * Key to represent cache provider <tt>segments</tt> property.
+     */
+    public static final String KEY_CACHE_PROVIDER_SEGMENTS = "segments";
+
+    public static final int DEFAULT_VALUE_MAXSIZE = 10000;
+
+	private LRUCache store;
+	private long timeToLiveMillis;
+
+	public LocalCacheProvider(Properties p) {
+		super(p);
+
+		int maxSize = getIntProperty(p, KEY_CACHE_PROVIDER_MAXSIZE, DEFAULT_VALUE_MAXSIZE);
+		int segments = getIntProperty(p, KEY_CACHE_PROVIDER_SEGMENTS, LRUCache.DEFAULT_SEGMENTS);
+		store = new LRUCache(maxSize, segments);
+		timeToLiveMillis = super.expiresInSeconds() * 1000L;
+	}
+
+	/**
+	 * Returns number of objects in cache.
+	 */
+	public int size() {
+		return store.size();
+	}
+
+	/**
+	 * Returns number of cache hits.
+	 */
+	public long getHitCount() {
+		return store.getHitCount();
+	}
+
+	/**
+	 * Returns number of cache misses.
+	 */
+	public long getMissCount() {
+		return store.getMissCount();
+	}
+
+	/**
+	 * Returns number of objects removed to keep the cache within
+	 * <tt>maxSize</tt>.
+	 */
+	public long getEvictionCount() {
+		return store.getEvictionCount();
+	}
+
+	/**
+	 * Returns number of objects removed because they expired.
+	 */
+	public long getExpirationCount() {
+		return store.getExpirationCount();
+	}
+
+	/**
+	 * Returns a string representation of the cache statistics.
+	 */
+	public String getStatistics() {
+		return store.toString();
+	}
+
+	protected Object getObject(String key) {
+		return store.get(key);
+	}
+
+	protected boolean putObject(String key, Object value) {
+		if (value == null) {
+			store.remove(key);
+		}
+		else {
+			store.put(key, value, timeToLiveMillis);
+		}
+		return true;
+	}
+
+	protected boolean removeObject(String key) {
+		return store.remove(key) != null;
+	}
+
+	protected void clearObjects() {
+		store.clear();
+	}
+
+    public void shutDown() {
+    	store.clear();
+    }
+
+	private int getIntProperty(Properties p, String key, int defaultValue) {
+		String value = p.getProperty(key);
+		if (value == null || "".equals(value.trim())) return defaultValue;
+		return Integer.parseInt(value.trim());
+	}
+}
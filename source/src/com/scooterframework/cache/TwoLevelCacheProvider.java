@@ -0,0 +1,288 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.cache;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Properties;
+
+import com.scooterframework.common.util.LRUCache;
+
+/**
+ * <p>TwoLevelCacheProvider puts an in-memory near cache in front of another
+ * cache provider, usually a memcached-powered one such as
+ * <tt>SpyMemcachedCacheProvider</tt> or <tt>XMemcachedCacheProvider</tt>.</p>
+ *
+ * <p>Reads are served from local memory first. On a local miss the object
+ * is fetched from the remote provider and kept locally. Concurrent misses
+ * of the same key on this node are coalesced, so only one thread fetches
+ * the key from the remote provider while the others wait for its result.
+ * If the key is written or removed on this node while it is being fetched,
+ * the waiting threads fetch it again instead of using the result.</p>
+ *
+ * <p>Writes and removes go to the remote provider and drop the local copy.
+ * Local copies on other nodes are not notified. They expire after
+ * <tt>expiresInSeconds</tt> seconds, which is 60 seconds if not specified.
+ * The expiration of objects in the remote provider is controlled by the
+ * remote provider's own properties.</p>
+ *
+ * <p>Properties supported in addition to those of <tt>CacheProvider</tt>:
+ * <pre>
+ *   remoteProvider: required, name of the remote cache provider
+ *   maxSize: optional, maximum number of objects in local memory, default 10000
+ *   segments: optional, number of lock segments of local memory, default 16
+ * </pre>
+ * </p>
+ *
+ * @author (Fei) John Chen
+ */
+public class TwoLevelCacheProvider extends CacheProvider {
+
+    /**
+     * Key to represent cache provider <tt>remoteProvider</tt> property.
+     */
+    public static final String KEY_CACHE_PROVIDER_REMOTEPROVIDER = "remoteProvider";
+
+    public static final int DEFAULT_VALUE_LOCAL_EXPIRESINSECONDS = 60;
+
+	private String remoteProviderName;
+	private volatile CacheProvider remote;
+	private LRUCache local;
+	private long timeToLiveMillis;
+	private long timeoutMillis;
+
+	/**
+	 * key to PendingLoad map of remote fetches in progress
+	 */
+	private Map pendingLoads = new HashMap();
+
+	private long remoteFetches;
+	private long coalescedFetches;
+
+	public TwoLevelCacheProvider(Properties p) {
+		super(p);
+
+		remoteProviderName = p.getProperty(KEY_CACHE_PROVIDER_REMOTEPROVIDER);
+		if (remoteProviderName == null || "".equals(remoteProviderName.trim())) {
+			throw new IllegalArgumentException("Property " +
+					KEY_CACHE_PROVIDER_REMOTEPROVIDER + " must exist in cache provider named " + getName());
+		}
+		remoteProviderName = remoteProviderName.trim();
+
+		int maxSize = getIntProperty(p, LocalCacheProvider.KEY_CACHE_PROVIDER_MAXSIZE, LocalCacheProvider.DEFAULT_VALUE_MAXSIZE);
+		int segments = getIntProperty(p, LocalCacheProvider.KEY_CACHE_PROVIDER_SEGMENTS, LRUCache.DEFAULT_SEGMENTS);
+		local = new LRUCache(maxSize, segments);
+
+		int expires = (super.expiresInSeconds() > 0)?super.expiresInSeconds():DEFAULT_VALUE_LOCAL_EXPIRESINSECONDS;
+		timeToLiveMillis = expires * 1000L;
+
+		int timeout = (super.requestTimeoutInSeconds() > 0)?super.requestTimeoutInSeconds():60;
+		timeoutMillis = timeout * 1000L;
+	}
+
+	/**
+	 * Returns the remote cache provider.
+	 */
+	public CacheProvider getRemoteProvider() {
+		CacheProvider cp = remote;
+		if (cp == null) {
+			cp = (CacheProvider)CacheProviderFactory.getInstance().getCache(remoteProviderName);
+			remote = cp;
+		}
+		return cp;
+	}
+
+	/**
+	 * Returns number of objects in local memory.
+	 */
+	public int localSize() {
+		return local.size();
+	}
+
+	/**
+	 * Returns number of reads served from local memory.
+	 */
+	public long getLocalHitCount() {
+		return local.getHitCount();
+	}
+
+	/**
+	 * Returns number of reads not found in local memory.
+	 */
+	public long getLocalMissCount() {
+		return local.getMissCount();
+	}
+
+	/**
+	 * Returns number of fetches sent to the remote provider.
+	 */
+	public synchronized long getRemoteFetchCount() {
+		return remoteFetches;
+	}
+
+	/**
+	 * Returns number of reads which waited for a fetch of the same key by
+	 * another thread instead of fetching from the remote provider.
+	 */
+	public synchronized long getCoalescedFetchCount() {
+		return coalescedFetches;
+	}
+
+	/**
+	 * Returns a string representation of the cache statistics.
+	 */
+	public String getStatistics() {
+		return "local: [" + local + "], remoteFetches = " +
+				getRemoteFetchCount() + ", coalescedFetches = " + getCoalescedFetchCount();
+	}
+
+	protected Object getObject(String key) {
+		Object value = local.get(key);
+		if (value != null) return value;
+
+		PendingLoad load = null;
+		boolean fetcher = false;
+		synchronized(pendingLoads) {
+			load = (PendingLoad)pendingLoads.get(key);
+			if (load == null) {
+				load = new PendingLoad();
+				pendingLoads.put(key, load);
+				fetcher = true;
+			}
+		}
+
+		if (!fetcher) {
+			countFetch(false);
+			if (load.await(timeoutMillis) && !load.invalidated) return load.value;
+			return getRemoteProvider().getObject(key);
+		}
+
+		countFetch(true);
+		try {
+			value = getRemoteProvider().getObject(key);
+		}
+		finally {
+			synchronized(pendingLoads) {
+				pendingLoads.remove(key);
+				if (value != null && !load.invalidated) {
+					local.put(key, value, timeToLiveMillis);
+				}
+			}
+			load.complete(value);
+		}
+		return value;
+	}
+
+	protected boolean putObject(String key, Object value) {
+		boolean status = false;
+		try {
+			status = getRemoteProvider().putObject(key, value);
+		}
+		finally {
+			invalidate(key);
+		}
+		return status;
+	}
+
+	protected boolean removeObject(String key) {
+		boolean status = false;
+		try {
+			status = getRemoteProvider().removeObject(key);
+		}
+		finally {
+			invalidate(key);
+		}
+		return status;
+	}
+
+	protected void clearObjects() {
+		try {
+			getRemoteProvider().clearObjects();
+		}
+		finally {
+			synchronized(pendingLoads) {
+				local.clear();
+				invalidatePendingLoads();
+			}
+		}
+	}
+
+    /**
+     * Clears local memory. The remote provider is managed by
+     * <tt>CacheProviderFactory</tt> and is not shut down here.
+     */
+    public void shutDown() {
+    	local.clear();
+    }
+
+	/**
+	 * Drops the local copy of a key. A remote fetch of the key which is in
+	 * progress will not store its possibly stale result in local memory.
+	 */
+	private void invalidate(String key) {
+		synchronized(pendingLoads) {
+			local.remove(key);
+			PendingLoad load = (PendingLoad)pendingLoads.get(key);
+			if (load != null) load.invalidated = true;
+		}
+	}
+
+	private void invalidatePendingLoads() {
+		Iterator it = pendingLoads.values().iterator();
+		while(it.hasNext()) {
+			((PendingLoad)it.next()).invalidated = true;
+		}
+	}
+
+	private synchronized void countFetch(boolean remoteFetch) {
+		if (remoteFetch) remoteFetches++; else coalescedFetches++;
+	}
+
+	private int getIntProperty(Properties p, String key, int defaultValue) {
+		String value = p.getProperty(key);
+		if (value == null || "".equals(value.trim())) return defaultValue;
+		return Integer.parseInt(value.trim());
+	}
+
+	/**
+	 * A remote fetch in progress. Threads missing the same key wait on it.
+	 */
+	private static class PendingLoad {
+		private Object value;
+		private boolean done;
+		private volatile boolean invalidated;
+
+		synchronized void complete(Object value) {
+			this.value = value;
+			done = true;
+			notifyAll();
+		}
+
+		/**
+		 * Waits until the fetch is completed.
+		 *
+		 * @return true if the fetch is completed within the timeout
+		 */
+		synchronized boolean await(long timeoutMillis) {
+			long deadline = System.currentTimeMillis() + timeoutMillis;
+			while (!done) {
+				long remaining = deadline - System.currentTimeMillis();
+				if (remaining <= 0) return false;
+				try {
+					wait(remaining);
+				}
+				catch(InterruptedException ex) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+}
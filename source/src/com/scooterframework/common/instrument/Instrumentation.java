@@ -0,0 +1,350 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.instrument;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.scooterframework.common.logging.LogUtil;
+
+/**
+ * <p>Instrumentation class aggregates timing of requests and statements
+ * into latency histograms. There is a histogram for each controller
+ * action, for each request phase, and for each sql key.</p>
+ *
+ * <p>Instrumentation is disabled by default. It is enabled by the
+ * <tt>instrumentation</tt> property in <tt>environment.properties</tt>.
+ * Histograms are looked up without a lock. Number of histograms of each
+ * kind is limited by <tt>MAX_KEYS</tt>; latencies of further keys are
+ * recorded under the <tt>(other)</tt> key.</p>
+ *
+ * <p>The statistics are available through the built-in instrumentation
+ * controller and as a JMX MBean when the platform MBean server is
+ * available.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class Instrumentation implements InstrumentationMBean {
+	/**
+	 * Maximum number of histograms of each kind.
+	 */
+	public static final int MAX_KEYS = 500;
+
+	/**
+	 * Number of recent requests kept.
+	 */
+	public static final int MAX_RECENT_REQUESTS = 20;
+
+	/**
+	 * Maximum length of a sql key.
+	 */
+	public static final int MAX_SQL_KEY_LENGTH = 200;
+
+	public static final String KEY_OTHER = "(other)";
+	public static final String KEY_NO_ACTION = "(no action)";
+
+	public static final String MBEAN_DOMAIN = "com.scooterframework";
+
+	private Instrumentation() {
+	}
+
+	public static Instrumentation getInstance() {
+		return me;
+	}
+
+	/**
+	 * Checks if instrumentation is enabled. This is called for every
+	 * statement and request, therefore it does not lock.
+	 */
+	public static boolean isInstrumentationEnabled() {
+		return enabled;
+	}
+
+	/**
+	 * Enables or disables instrumentation.
+	 */
+	public static void setInstrumentationEnabled(boolean enable) {
+		enabled = enable;
+	}
+
+	/**
+	 * Adds a finished request to the statistics.
+	 *
+	 * @param trace  trace of the request
+	 */
+	public static void recordRequest(RequestTrace trace) {
+		if (!enabled || trace == null) return;
+
+		String actionKey = trace.getActionKey();
+		if (actionKey == null) actionKey = KEY_NO_ACTION;
+		actionHistograms.record(actionKey, trace.getDuration());
+
+		Iterator it = trace.getPhases().entrySet().iterator();
+		while(it.hasNext()) {
+			Map.Entry entry = (Map.Entry)it.next();
+			phaseHistograms.record((String)entry.getKey(), ((Long)entry.getValue()).longValue());
+		}
+
+		synchronized(recentRequests) {
+			requestCount++;
+			recentRequests.addFirst(trace);
+			if (recentRequests.size() > MAX_RECENT_REQUESTS) recentRequests.removeLast();
+		}
+
+		if (log.isDebugEnabled()) log.debug("request: {}", trace);
+	}
+
+	/**
+	 * Adds an executed statement to the statistics and to the trace of
+	 * the current request.
+	 *
+	 * @param sqlKey       key of the statement, usually statement name or sql
+	 * @param sql          executed sql
+	 * @param bindTime     time spent on binding parameters in milliseconds
+	 * @param executeTime  time spent on executing and reading rows in milliseconds
+	 * @param rows         number of rows read or updated
+	 */
+	public static void recordStatement(String sqlKey, String sql, long bindTime, long executeTime, int rows) {
+		if (!enabled) return;
+
+		if (sqlKey == null) sqlKey = sql;
+		if (sqlKey != null && sqlKey.length() > MAX_SQL_KEY_LENGTH) {
+			sqlKey = sqlKey.substring(0, MAX_SQL_KEY_LENGTH);
+		}
+		sqlHistograms.record(sqlKey, bindTime + executeTime);
+
+		synchronized(recentRequests) {
+			statementCount++;
+		}
+
+		RequestTrace trace = RequestTrace.current();
+		if (trace != null) trace.addStatement(sql, bindTime, executeTime, rows);
+	}
+
+	/**
+	 * Returns histograms of controller actions sorted by key.
+	 *
+	 * @return list of LatencyHistogram instances
+	 */
+	public static List getActionHistograms() {
+		return actionHistograms.sorted();
+	}
+
+	/**
+	 * Returns histograms of request phases sorted by phase name.
+	 *
+	 * @return list of LatencyHistogram instances
+	 */
+	public static List getPhaseHistograms() {
+		return phaseHistograms.sorted();
+	}
+
+	/**
+	 * Returns histograms of sql statements sorted by sql key.
+	 *
+	 * @return list of LatencyHistogram instances
+	 */
+	public static List getSqlHistograms() {
+		return sqlHistograms.sorted();
+	}
+
+	/**
+	 * Returns traces of recent requests. The latest request is the first.
+	 *
+	 * @return list of RequestTrace instances
+	 */
+	public static List getRecentTraces() {
+		synchronized(recentRequests) {
+			return new ArrayList(recentRequests);
+		}
+	}
+
+	/**
+	 * Registers the instrumentation MBean to the platform MBean server.
+	 * The MBean server is looked up by reflection so that this method does
+	 * nothing on a JVM without it.
+	 *
+	 * @param name  name of the application, used in the object name
+	 */
+	public static synchronized void registerMBean(String name) {
+		unregisterMBean();
+		try {
+			Object server = getPlatformMBeanServer();
+			Object objectName = createObjectName(name);
+			Class serverClass = Class.forName("javax.management.MBeanServer");
+			Class objectNameClass = objectName.getClass();
+			Method isRegistered = serverClass.getMethod("isRegistered", new Class[]{objectNameClass});
+			if (Boolean.TRUE.equals(isRegistered.invoke(server, new Object[]{objectName}))) {
+				Method unregister = serverClass.getMethod("unregisterMBean", new Class[]{objectNameClass});
+				unregister.invoke(server, new Object[]{objectName});
+			}
+			Method register = serverClass.getMethod("registerMBean", new Class[]{Object.class, objectNameClass});
+			register.invoke(server, new Object[]{me, objectName});
+			registeredName = objectName;
+			log.debug("registered MBean {}", objectName);
+		}
+		catch(Throwable ex) {
+			log.warn("Failed to register instrumentation MBean: {}", ex);
+		}
+	}
+
+	/**
+	 * Unregisters the instrumentation MBean if it is registered.
+	 */
+	public static synchronized void unregisterMBean() {
+		if (registeredName == null) return;
+		try {
+			Object server = getPlatformMBeanServer();
+			Class serverClass = Class.forName("javax.management.MBeanServer");
+			Method unregister = serverClass.getMethod("unregisterMBean", new Class[]{registeredName.getClass()});
+			unregister.invoke(server, new Object[]{registeredName});
+		}
+		catch(Throwable ex) {
+			log.warn("Failed to unregister instrumentation MBean: {}", ex);
+		}
+		registeredName = null;
+	}
+
+	/**
+	 * Returns the object name of the registered MBean, or null if it is
+	 * not registered.
+	 */
+	public static synchronized String getRegisteredName() {
+		return (registeredName != null)?registeredName.toString():null;
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public void setEnabled(boolean enable) {
+		enabled = enable;
+	}
+
+	public long getRequestCount() {
+		synchronized(recentRequests) {
+			return requestCount;
+		}
+	}
+
+	public long getStatementCount() {
+		synchronized(recentRequests) {
+			return statementCount;
+		}
+	}
+
+	public String[] getActionLatencies() {
+		return summaries(getActionHistograms());
+	}
+
+	public String[] getPhaseLatencies() {
+		return summaries(getPhaseHistograms());
+	}
+
+	public String[] getSqlLatencies() {
+		return summaries(getSqlHistograms());
+	}
+
+	public String[] getRecentRequests() {
+		return summaries(getRecentTraces());
+	}
+
+	public void reset() {
+		actionHistograms.clear();
+		phaseHistograms.clear();
+		sqlHistograms.clear();
+		synchronized(recentRequests) {
+			requestCount = 0;
+			statementCount = 0;
+			recentRequests.clear();
+		}
+	}
+
+	private static String[] summaries(List items) {
+		String[] summaries = new String[items.size()];
+		for (int i = 0; i < summaries.length; i++) {
+			summaries[i] = items.get(i).toString();
+		}
+		return summaries;
+	}
+
+	private static Object getPlatformMBeanServer() throws Exception {
+		Class factory = Class.forName("java.lang.management.ManagementFactory");
+		Method method = factory.getMethod("getPlatformMBeanServer", (Class[])null);
+		return method.invoke(null, (Object[])null);
+	}
+
+	private static Object createObjectName(String name) throws Exception {
+		String objectName = MBEAN_DOMAIN + ":type=Instrumentation";
+		if (name != null && !"".equals(name)) objectName += ",name=" + name;
+		Class clz = Class.forName("javax.management.ObjectName");
+		return clz.getConstructor(new Class[]{String.class}).newInstance(new Object[]{objectName});
+	}
+
+	/**
+	 * HistogramGroup holds histograms of one kind in a copy-on-write map,
+	 * so that an existing histogram is found without a lock.
+	 */
+	private static class HistogramGroup {
+		void record(String key, long millis) {
+			LatencyHistogram histogram = (LatencyHistogram)histograms.get(key);
+			if (histogram == null) histogram = add(key);
+			histogram.record(millis);
+		}
+
+		private synchronized LatencyHistogram add(String key) {
+			LatencyHistogram histogram = (LatencyHistogram)histograms.get(key);
+			if (histogram != null) return histogram;
+
+			if (histograms.size() >= MAX_KEYS) {
+				key = KEY_OTHER;
+				histogram = (LatencyHistogram)histograms.get(key);
+				if (histogram != null) return histogram;
+			}
+
+			histogram = new LatencyHistogram(key);
+			Map copy = new HashMap(histograms);
+			copy.put(key, histogram);
+			histograms = copy;
+			return histogram;
+		}
+
+		List sorted() {
+			return new ArrayList((new TreeMap(histograms)).values());
+		}
+
+		synchronized void clear() {
+			histograms = Collections.EMPTY_MAP;
+		}
+
+		private volatile Map histograms = Collections.EMPTY_MAP;
+	}
+
+	private static final Instrumentation me = new Instrumentation();
+
+	private static volatile boolean enabled = false;
+
+	private static HistogramGroup actionHistograms = new HistogramGroup();
+	private static HistogramGroup phaseHistograms = new HistogramGroup();
+	private static HistogramGroup sqlHistograms = new HistogramGroup();
+
+	private static LinkedList recentRequests = new LinkedList();
+	private static long requestCount;
+	private static long statementCount;
+
+	private static Object registeredName;
+
+	private static LogUtil log = LogUtil.getLogger(Instrumentation.class.getName());
+}
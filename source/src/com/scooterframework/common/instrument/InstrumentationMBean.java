@@ -0,0 +1,61 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.instrument;
+
+/**
+ * InstrumentationMBean interface is the JMX management interface of
+ * request and sql statistics.
+ *
+ * @author (Fei) John Chen
+ */
+public interface InstrumentationMBean {
+	/**
+	 * Checks if instrumentation is enabled.
+	 */
+	public boolean isEnabled();
+
+	/**
+	 * Enables or disables instrumentation.
+	 */
+	public void setEnabled(boolean enabled);
+
+	/**
+	 * Returns number of finished requests.
+	 */
+	public long getRequestCount();
+
+	/**
+	 * Returns number of executed statements.
+	 */
+	public long getStatementCount();
+
+	/**
+	 * Returns summaries of latency histograms of controller actions.
+	 */
+	public String[] getActionLatencies();
+
+	/**
+	 * Returns summaries of latency histograms of request phases.
+	 */
+	public String[] getPhaseLatencies();
+
+	/**
+	 * Returns summaries of latency histograms of sql statements.
+	 */
+	public String[] getSqlLatencies();
+
+	/**
+	 * Returns summaries of recent requests.
+	 */
+	public String[] getRecentRequests();
+
+	/**
+	 * Clears all statistics.
+	 */
+	public void reset();
+}
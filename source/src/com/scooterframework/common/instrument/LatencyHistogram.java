@@ -0,0 +1,147 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.instrument;
+
+/**
+ * <p>LatencyHistogram class counts latencies of an operation in fixed
+ * buckets of milliseconds. Memory used by a histogram does not grow with
+ * the number of recorded latencies.</p>
+ *
+ * <p>Percentiles are estimated by the upper bound of the bucket that holds
+ * the percentile. Latencies beyond the last bound are reported as the
+ * maximum latency recorded.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class LatencyHistogram {
+	/**
+	 * Upper bounds of buckets in milliseconds. The last bucket holds all
+	 * latencies greater than the last bound.
+	 */
+	public static final long[] BOUNDS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000};
+
+	public LatencyHistogram(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * Returns name of the histogram.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Records a latency.
+	 *
+	 * @param millis  latency in milliseconds
+	 */
+	public synchronized void record(long millis) {
+		if (millis < 0) millis = 0;
+		counts[bucketOf(millis)]++;
+		count++;
+		total += millis;
+		if (millis > max) max = millis;
+	}
+
+	/**
+	 * Returns number of recorded latencies.
+	 */
+	public synchronized long getCount() {
+		return count;
+	}
+
+	/**
+	 * Returns sum of all recorded latencies in milliseconds.
+	 */
+	public synchronized long getTotal() {
+		return total;
+	}
+
+	/**
+	 * Returns the maximum recorded latency in milliseconds.
+	 */
+	public synchronized long getMax() {
+		return max;
+	}
+
+	/**
+	 * Returns the average latency in milliseconds.
+	 */
+	public synchronized double getMean() {
+		return (count == 0)?0.0:((double)total/count);
+	}
+
+	/**
+	 * Returns an estimate of a percentile in milliseconds.
+	 *
+	 * @param percent  a number between 0 and 100
+	 * @return upper bound of the bucket holding the percentile
+	 */
+	public synchronized long getPercentile(double percent) {
+		if (count == 0) return 0;
+
+		long rank = (long)Math.ceil(count * percent / 100.0);
+		if (rank < 1) rank = 1;
+		long seen = 0;
+		for (int i = 0; i < counts.length; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				return (i < BOUNDS.length)?Math.min(BOUNDS[i], max):max;
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * Returns a copy of counts of all buckets. The length of the array is
+	 * one more than the length of <tt>BOUNDS</tt>.
+	 */
+	public synchronized long[] getBucketCounts() {
+		long[] copy = new long[counts.length];
+		System.arraycopy(counts, 0, copy, 0, counts.length);
+		return copy;
+	}
+
+	/**
+	 * Clears all recorded latencies.
+	 */
+	public synchronized void reset() {
+		for (int i = 0; i < counts.length; i++) counts[i] = 0;
+		count = 0;
+		total = 0;
+		max = 0;
+	}
+
+	/**
+	 * Returns a one-line summary of the histogram.
+	 */
+	public synchronized String toString() {
+		StringBuffer sb = new StringBuffer();
+		sb.append(name).append(": count=").append(count);
+		sb.append(", mean=").append(Math.round(getMean())).append("ms");
+		sb.append(", p50=").append(getPercentile(50)).append("ms");
+		sb.append(", p90=").append(getPercentile(90)).append("ms");
+		sb.append(", p99=").append(getPercentile(99)).append("ms");
+		sb.append(", max=").append(max).append("ms");
+		return sb.toString();
+	}
+
+	private static int bucketOf(long millis) {
+		for (int i = 0; i < BOUNDS.length; i++) {
+			if (millis <= BOUNDS[i]) return i;
+		}
+		return BOUNDS.length;
+	}
+
+	private String name;
+	private long[] counts = new long[BOUNDS.length + 1];
+	private long count;
+	private long total;
+	private long max;
+}
@@ -0,0 +1,258 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.instrument;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.scooterframework.common.util.CurrentThreadCache;
+
+/**
+ * <p>RequestTrace class holds timing of one request. A trace is started by
+ * the request filter and kept in the current thread until the request is
+ * finished. Framework code adds time spent in each phase and each JDBC
+ * statement executed for the request.</p>
+ *
+ * <p>Time spent in the same phase more than once, such as forwarding to
+ * a view twice, is added together.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class RequestTrace {
+	public static final String PHASE_ROUTE = "route";
+	public static final String PHASE_BEFORE_FILTERS = "before_filters";
+	public static final String PHASE_ACTION = "action";
+	public static final String PHASE_AFTER_FILTERS = "after_filters";
+	public static final String PHASE_VIEW = "view";
+
+	/**
+	 * Maximum number of statements kept in a trace. Statements beyond the
+	 * limit are counted but not kept.
+	 */
+	public static final int MAX_STATEMENTS = 100;
+
+	private static final String KEY_REQUEST_TRACE = "scooter.request.trace";
+
+	RequestTrace(String requestPath) {
+		this.requestPath = requestPath;
+		this.startTime = System.currentTimeMillis();
+	}
+
+	/**
+	 * Starts a trace for the current thread if instrumentation is enabled.
+	 *
+	 * @param requestPath  request method and path
+	 * @return the trace, or null if instrumentation is disabled
+	 */
+	public static RequestTrace begin(String requestPath) {
+		if (!Instrumentation.isInstrumentationEnabled()) return null;
+
+		RequestTrace trace = new RequestTrace(requestPath);
+		CurrentThreadCache.set(KEY_REQUEST_TRACE, trace);
+		return trace;
+	}
+
+	/**
+	 * Returns the trace of the current thread, or null if there is none.
+	 */
+	public static RequestTrace current() {
+		return (RequestTrace)CurrentThreadCache.get(KEY_REQUEST_TRACE);
+	}
+
+	/**
+	 * Adds time spent in a phase of the current request. Nothing is done
+	 * if there is no trace for the current thread.
+	 *
+	 * @param phase      phase name
+	 * @param startTime  start time of the phase in milliseconds
+	 */
+	public static void phaseEnded(String phase, long startTime) {
+		RequestTrace trace = current();
+		if (trace != null) trace.addPhase(phase, System.currentTimeMillis() - startTime);
+	}
+
+	/**
+	 * Finishes the trace of the current thread and adds it to the
+	 * instrumentation statistics.
+	 *
+	 * @return the trace, or null if there is none
+	 */
+	public static RequestTrace end() {
+		RequestTrace trace = current();
+		if (trace == null) return null;
+
+		CurrentThreadCache.clear(KEY_REQUEST_TRACE);
+		trace.duration = System.currentTimeMillis() - trace.startTime;
+		Instrumentation.recordRequest(trace);
+		return trace;
+	}
+
+	/**
+	 * Adds time spent in a phase.
+	 *
+	 * @param phase   phase name
+	 * @param millis  time in milliseconds
+	 */
+	public void addPhase(String phase, long millis) {
+		Long time = (Long)phases.get(phase);
+		long total = (time != null)?(time.longValue() + millis):millis;
+		phases.put(phase, new Long(total));
+	}
+
+	/**
+	 * Adds an executed statement.
+	 *
+	 * @param sql          executed sql
+	 * @param bindTime     time spent on binding parameters in milliseconds
+	 * @param executeTime  time spent on executing and reading rows in milliseconds
+	 * @param rows         number of rows read or updated
+	 */
+	public void addStatement(String sql, long bindTime, long executeTime, int rows) {
+		statementCount++;
+		statementTime += bindTime + executeTime;
+		if (statements.size() < MAX_STATEMENTS) {
+			statements.add(new StatementTiming(sql, bindTime, executeTime, rows));
+		}
+	}
+
+	/**
+	 * Sets controller and action handling the request.
+	 */
+	public void setAction(String controller, String action) {
+		this.controller = controller;
+		this.action = action;
+	}
+
+	public String getRequestPath() {
+		return requestPath;
+	}
+
+	public String getController() {
+		return controller;
+	}
+
+	public String getAction() {
+		return action;
+	}
+
+	/**
+	 * Returns controller and action in the form of <tt>controller#action</tt>,
+	 * or null if the request is not handled by an action.
+	 */
+	public String getActionKey() {
+		return (controller == null)?null:(controller + "#" + action);
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	/**
+	 * Returns total time of the request in milliseconds. The value is
+	 * zero before the trace is finished.
+	 */
+	public long getDuration() {
+		return duration;
+	}
+
+	/**
+	 * Returns time spent in each phase. Key is phase name, value is a Long
+	 * of milliseconds.
+	 */
+	public Map getPhases() {
+		return Collections.unmodifiableMap(phases);
+	}
+
+	/**
+	 * Returns time spent in a phase in milliseconds.
+	 */
+	public long getPhaseTime(String phase) {
+		Long time = (Long)phases.get(phase);
+		return (time != null)?time.longValue():0L;
+	}
+
+	/**
+	 * Returns a list of StatementTiming instances.
+	 */
+	public List getStatements() {
+		return Collections.unmodifiableList(statements);
+	}
+
+	/**
+	 * Returns number of all statements executed for the request.
+	 */
+	public int getStatementCount() {
+		return statementCount;
+	}
+
+	/**
+	 * Returns total time spent on statements in milliseconds.
+	 */
+	public long getStatementTime() {
+		return statementTime;
+	}
+
+	public String toString() {
+		StringBuffer sb = new StringBuffer();
+		sb.append('"').append(requestPath).append("\": ").append(duration).append(" ms");
+		if (controller != null) sb.append(" ").append(getActionKey());
+		sb.append(" ").append(phases);
+		sb.append(" sql=").append(statementCount).append("/").append(statementTime).append("ms");
+		return sb.toString();
+	}
+
+	/**
+	 * StatementTiming holds timing of one executed statement.
+	 */
+	public static class StatementTiming {
+		StatementTiming(String sql, long bindTime, long executeTime, int rows) {
+			this.sql = sql;
+			this.bindTime = bindTime;
+			this.executeTime = executeTime;
+			this.rows = rows;
+		}
+
+		public String getSql() {
+			return sql;
+		}
+
+		public long getBindTime() {
+			return bindTime;
+		}
+
+		public long getExecuteTime() {
+			return executeTime;
+		}
+
+		public int getRows() {
+			return rows;
+		}
+
+		public String toString() {
+			return sql + " (bind=" + bindTime + "ms, execute=" + executeTime + "ms, rows=" + rows + ")";
+		}
+
+		private String sql;
+		private long bindTime;
+		private long executeTime;
+		private int rows;
+	}
+
+	private String requestPath;
+	private String controller;
+	private String action;
+	private long startTime;
+	private long duration;
+	private Map phases = new LinkedHashMap();
+	private List statements = new ArrayList();
+	private int statementCount;
+	private long statementTime;
+}
@@ -0,0 +1,137 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.logging;
+
+import org.apache.log4j.spi.LoggingEvent;
+
+/**
+ * <p>AsyncLogDispatcher class passes logging events to log4j appenders in a
+ * background thread.</p>
+ *
+ * <p>Events are kept in a bounded ring buffer. A logging thread only holds
+ * the buffer's lock to put an event in it and never waits for appenders.
+ * When the buffer is full, the event is discarded and counted.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class AsyncLogDispatcher implements Runnable {
+
+	/**
+	 * Creates a dispatcher and starts its thread.
+	 *
+	 * @param bufferSize  maximum number of events waiting in the buffer
+	 */
+	AsyncLogDispatcher(int bufferSize) {
+		if (bufferSize <= 0)
+			throw new IllegalArgumentException("bufferSize must be positive.");
+
+		buffer = new LoggingEvent[bufferSize];
+		thread = new Thread(this, "AsyncLogDispatcher");
+		thread.setDaemon(true);
+		thread.start();
+	}
+
+	/**
+	 * Puts an event in the buffer. Thread name, NDC and MDC of the event are
+	 * taken from the current thread.
+	 *
+	 * @param event  the logging event
+	 * @return false if the event is discarded
+	 */
+	boolean dispatch(LoggingEvent event) {
+		event.getThreadName();
+		event.getNDC();
+		event.getMDCCopy();
+
+		synchronized(this) {
+			if (!running || count == buffer.length) {
+				discarded++;
+				return false;
+			}
+
+			buffer[(head + count) % buffer.length] = event;
+			count++;
+			if (count == 1) notify();
+		}
+		return true;
+	}
+
+	/**
+	 * Stops the dispatcher thread after all events in the buffer are
+	 * passed to appenders.
+	 */
+	void stop() {
+		synchronized(this) {
+			running = false;
+			notify();
+		}
+
+		try {
+			thread.join(5000);
+		}
+		catch(InterruptedException ex) {
+			;
+		}
+	}
+
+	/**
+	 * Returns number of events discarded because the buffer was full.
+	 */
+	public synchronized long getDiscardedCount() {
+		return discarded;
+	}
+
+	/**
+	 * Returns number of events waiting in the buffer.
+	 */
+	public synchronized int getPendingCount() {
+		return count;
+	}
+
+	public void run() {
+		LoggingEvent[] events = new LoggingEvent[buffer.length];
+		while(true) {
+			int size = 0;
+			synchronized(this) {
+				while (running && count == 0) {
+					try {
+						wait();
+					}
+					catch(InterruptedException ex) {
+						;
+					}
+				}
+				if (!running && count == 0) return;
+
+				while (count > 0) {
+					events[size++] = buffer[head];
+					buffer[head] = null;
+					head = (head + 1) % buffer.length;
+					count--;
+				}
+			}
+
+			for (int i = 0; i < size; i++) {
+				try {
+					events[i].getLogger().callAppenders(events[i]);
+				}
+				catch(Throwable t) {
+					;
+				}
+				events[i] = null;
+			}
+		}
+	}
+
+	private LoggingEvent[] buffer;
+	private int head;
+	private int count;
+	private long discarded;
+	private boolean running = true;
+	private Thread thread;
+}
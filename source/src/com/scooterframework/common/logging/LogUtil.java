@@ -7,7 +7,12 @@
  */
 package com.scooterframework.common.logging;
 
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.log4j.Level;
 import org.apache.log4j.Logger;
+import org.apache.log4j.spi.LoggingEvent;
 
 import com.scooterframework.security.LoginHelper;
 
@@ -32,6 +37,10 @@ import com.scooterframework.security.LoginHelper;
  *            log.debug(message);
  *        }
  *        
+ *        or with a message pattern which is formatted only if the level 
+ *        is enabled:
+ *        log.debug("execute - parsed inputs: {}", inputs);
+ *        
  *     3. Modify log4j.properties file according to your own application: 
  *        This may be necessary if you want log file names do not conflict with
  *        other application's log file names in the same container. 
@@ -41,8 +50,18 @@ import com.scooterframework.security.LoginHelper;
  *        4.2 Make sure this file is on your classpath. 
  *        4.3 Add this system property on your container start line: 
  *            -Dlog4j.configuration=myApp_log4j.properties
+ *     
+ *     5. Log asynchronously: This is optional. Add system property 
+ *        -DASYNC_LOG=true on your container start line, or call 
+ *        LogUtil.enableAsync(bufferSize). Messages are then passed to log4j 
+ *        appenders by a background thread. If the buffer is full, messages 
+ *        are discarded instead of blocking the caller. 
+ *        -DASYNC_LOG_BUFFER_SIZE changes the default buffer size 1024.
  * </PRE>
  * 
+ * <p>Instances are cached by name, so getLogger returns the same instance 
+ * for the same name.</p>
+ * 
  * @author (Fei) John Chen
  */
 public class LogUtil {
@@ -56,11 +75,24 @@ public class LogUtil {
 	public static String m_consoleDebug = "TRUE";
 	public static int m_debugLevel = DEBUG;
 
+	public static final int DEFAULT_ASYNC_BUFFER_SIZE = 1024;
+
+	private static final String FQCN = LogUtil.class.getName();
+
 	private String m_instanceName = "";
 	private Logger logger;
 	private static boolean loggerEnabled;
 	private static boolean manualStop;
 
+	/**
+	 * Cached instances: key is instance name, value is LogUtil. The map is 
+	 * replaced by a new copy when an instance is added, so that lookups 
+	 * do not need a lock.
+	 */
+	private static volatile Map loggers = new HashMap();
+
+	private static volatile AsyncLogDispatcher dispatcher;
+
 	static {
 		m_consoleDebug = System.getProperty("ConsoleDebug", m_consoleDebug);
 
@@ -69,15 +101,65 @@ public class LogUtil {
 		} catch (Exception ex) {
 			;// use default
 		}
+
+		if ("TRUE".equalsIgnoreCase(System.getProperty("ASYNC_LOG"))) {
+			int bufferSize = DEFAULT_ASYNC_BUFFER_SIZE;
+			try {
+				bufferSize = Integer.parseInt(System.getProperty("ASYNC_LOG_BUFFER_SIZE"));
+			} catch (Exception ex) {
+				;// use default
+			}
+			enableAsync(bufferSize);
+		}
 	}
     /**
      * Starts a <tt>Logger</tt> for a specific instance.
      * 
      * @param instanceName      The instance to log
-     * @return this instance
+     * @return the cached instance for the name
      */
-	public static synchronized LogUtil getLogger(String instanceName) {
-		return new LogUtil(instanceName);
+	public static LogUtil getLogger(String instanceName) {
+		LogUtil log = (LogUtil)loggers.get(instanceName);
+		if (log != null) return log;
+
+		synchronized(LogUtil.class) {
+			log = (LogUtil)loggers.get(instanceName);
+			if (log == null) {
+				log = new LogUtil(instanceName);
+				Map m = new HashMap(loggers);
+				m.put(instanceName, log);
+				loggers = m;
+			}
+		}
+		return log;
+	}
+
+    /**
+     * Passes log messages to log4j appenders in a background thread. 
+     * 
+     * @param bufferSize    maximum number of messages waiting to be logged
+     */
+	public static synchronized void enableAsync(int bufferSize) {
+		disableAsync();
+		dispatcher = new AsyncLogDispatcher(bufferSize);
+	}
+
+    /**
+     * Stops logging in a background thread. Messages waiting in the 
+     * buffer are logged before this method returns.
+     */
+	public static synchronized void disableAsync() {
+		AsyncLogDispatcher d = dispatcher;
+		dispatcher = null;
+		if (d != null) d.stop();
+	}
+
+    /**
+     * Returns the dispatcher of asynchronous logging, or null if logging 
+     * is synchronous.
+     */
+	public static AsyncLogDispatcher getAsyncDispatcher() {
+		return dispatcher;
 	}
     
     /**
@@ -116,9 +198,14 @@ public class LogUtil {
 
 	private LogUtil(String instanceName) {
 		m_instanceName = instanceName;
-		if (loggerEnabled) {
+	}
+
+	//log4j logger is created when the logger is enabled
+	private Logger getLog4jLogger() {
+		if (logger == null && loggerEnabled) {
 			logger = Logger.getLogger(m_instanceName);
 		}
+		return logger;
 	}
 
 	/**
@@ -217,6 +304,114 @@ public class LogUtil {
 		log(message, FATAL);
 	}
 
+	/**
+	 * Method to log a trace message. Each <tt>{}</tt> in the pattern is 
+	 * replaced by the argument only if trace level is enabled.
+	 * 
+	 */
+	public void trace(String pattern, Object arg) {
+		if (isEnabled(TRACE)) log(format(pattern, new Object[]{arg}), TRACE);
+	}
+
+	/**
+	 * Method to log a trace message. Each <tt>{}</tt> in the pattern is 
+	 * replaced by an argument only if trace level is enabled.
+	 * 
+	 */
+	public void trace(String pattern, Object arg1, Object arg2) {
+		if (isEnabled(TRACE)) log(format(pattern, new Object[]{arg1, arg2}), TRACE);
+	}
+
+	/**
+	 * Method to log a trace message. Each <tt>{}</tt> in the pattern is 
+	 * replaced by an argument only if trace level is enabled.
+	 * 
+	 */
+	public void trace(String pattern, Object[] args) {
+		if (isEnabled(TRACE)) log(format(pattern, args), TRACE);
+	}
+
+	/**
+	 * Method to log a debug message. Each <tt>{}</tt> in the pattern is 
+	 * replaced by the argument only if debug level is enabled.
+	 * 
+	 */
+	public void debug(String pattern, Object arg) {
+		if (isEnabled(DEBUG)) log(format(pattern, new Object[]{arg}), DEBUG);
+	}
+
+	/**
+	 * Method to log a debug message. Each <tt>{}</tt> in the pattern is 
+	 * replaced by an argument only if debug level is enabled.
+	 * 
+	 */
+	public void debug(String pattern, Object arg1, Object arg2) {
+		if (isEnabled(DEBUG)) log(format(pattern, new Object[]{arg1, arg2}), DEBUG);
+	}
+
+	/**
+	 * Method to log a debug message. Each <tt>{}</tt> in the pattern is 
+	 * replaced by an argument only if debug level is enabled.
+	 * 
+	 */
+	public void debug(String pattern, Object[] args) {
+		if (isEnabled(DEBUG)) log(format(pattern, args), DEBUG);
+	}
+
+	/**
+	 * Method to log an info message. Each <tt>{}</tt> in the pattern is 
+	 * replaced by the argument only if info level is enabled.
+	 * 
+	 */
+	public void info(String pattern, Object arg) {
+		if (isEnabled(INFO)) log(format(pattern, new Object[]{arg}), INFO);
+	}
+
+	/**
+	 * Method to log an info message. Each <tt>{}</tt> in the pattern is 
+	 * replaced by an argument only if info level is enabled.
+	 * 
+	 */
+	public void info(String pattern, Object arg1, Object arg2) {
+		if (isEnabled(INFO)) log(format(pattern, new Object[]{arg1, arg2}), INFO);
+	}
+
+	/**
+	 * Method to log an info message. Each <tt>{}</tt> in the pattern is 
+	 * replaced by an argument only if info level is enabled.
+	 * 
+	 */
+	public void info(String pattern, Object[] args) {
+		if (isEnabled(INFO)) log(format(pattern, args), INFO);
+	}
+
+	/**
+	 * Method to log a warning message. Each <tt>{}</tt> in the pattern is 
+	 * replaced by the argument only if warn level is enabled.
+	 * 
+	 */
+	public void warn(String pattern, Object arg) {
+		if (isEnabled(WARN)) log(format(pattern, new Object[]{arg}), WARN);
+	}
+
+	/**
+	 * Method to log a warning message. Each <tt>{}</tt> in the pattern is 
+	 * replaced by an argument only if warn level is enabled.
+	 * 
+	 */
+	public void warn(String pattern, Object arg1, Object arg2) {
+		if (isEnabled(WARN)) log(format(pattern, new Object[]{arg1, arg2}), WARN);
+	}
+
+	/**
+	 * Method to log a warning message. Each <tt>{}</tt> in the pattern is 
+	 * replaced by an argument only if warn level is enabled.
+	 * 
+	 */
+	public void warn(String pattern, Object[] args) {
+		if (isEnabled(WARN)) log(format(pattern, args), WARN);
+	}
+
 	/**
 	 * Method to log an info message
 	 * 
@@ -256,7 +451,8 @@ public class LogUtil {
 	 *         level TRACE, <tt>false</tt> otherwise.
 	 */
 	public boolean isTraceEnabled() {
-		return (logger != null) ? logger.isTraceEnabled() : false;
+		Logger l = getLog4jLogger();
+		return (l != null) ? l.isTraceEnabled() : false;
 	}
 
 	/**
@@ -266,7 +462,8 @@ public class LogUtil {
 	 *         level DEBUG, <tt>false</tt> otherwise.
 	 */
 	public boolean isDebugEnabled() {
-		return (logger != null) ? logger.isDebugEnabled()
+		Logger l = getLog4jLogger();
+		return (l != null) ? l.isDebugEnabled()
 				: (m_debugLevel == DEBUG);
 	}
 
@@ -277,17 +474,49 @@ public class LogUtil {
 	 *         level INFO, <tt>false</tt> otherwise.
 	 */
 	public boolean isInfoEnabled() {
-		return (logger != null) ? logger.isInfoEnabled() : false;
+		Logger l = getLog4jLogger();
+		return (l != null) ? l.isInfoEnabled() : false;
+	}
+
+	/**
+	 * Check whether a message of the level would be logged.
+	 */
+	private boolean isEnabled(int iLogLevel) {
+		if (!loggerEnabled)
+			return false;
+
+		Logger l = getLog4jLogger();
+		if (l != null) return l.isEnabledFor(getLevel(iLogLevel));
+		return "TRUE".equalsIgnoreCase(m_consoleDebug) && (iLogLevel >= m_debugLevel);
+	}
+
+	//replaces each {} in the pattern by an argument
+	private static String format(String pattern, Object[] args) {
+		if (pattern == null || args == null || args.length == 0) return pattern;
+
+		StringBuffer sb = new StringBuffer(pattern.length() + 16 * args.length);
+		int start = 0;
+		int index = 0;
+		while (index < args.length) {
+			int pos = pattern.indexOf("{}", start);
+			if (pos == -1) break;
+			sb.append(pattern.substring(start, pos)).append(args[index++]);
+			start = pos + 2;
+		}
+		sb.append(pattern.substring(start));
+		return sb.toString();
 	}
 
-	
 	private void log(Object object, int iLogLevel) {
+		if (!isEnabled(iLogLevel))
+			return;
+
 		String message = (object == null) ? "null" : object.toString();
 		log(message, iLogLevel);
 	}
 
 	private void log(String message, int iLogLevel) {
-		if (!loggerEnabled)
+		if (!isEnabled(iLogLevel))
 			return;
 
 		String userInfo = getUserInfo();
@@ -295,7 +524,12 @@ public class LogUtil {
 			message = "[" + userInfo + "] " + message;
 		}
 
-		if (logger != null) {
+		Logger logger = getLog4jLogger();
+		AsyncLogDispatcher d = dispatcher;
+		if (logger != null && d != null) {
+			d.dispatch(new LoggingEvent(FQCN, logger, getLevel(iLogLevel), message, null));
+		}
+		else if (logger != null) {
 			switch (iLogLevel) {
 			case TRACE:
 				logger.trace(message);
@@ -337,6 +571,25 @@ public class LogUtil {
 		}
 	}
 
+	private static Level getLevel(int iLogLevel) {
+		switch (iLogLevel) {
+		case TRACE:
+			return Level.TRACE;
+		case DEBUG:
+			return Level.DEBUG;
+		case INFO:
+			return Level.INFO;
+		case WARN:
+			return Level.WARN;
+		case ERROR:
+			return Level.ERROR;
+		case FATAL:
+			return Level.FATAL;
+		default:
+			return Level.DEBUG;
+		}
+	}
+
 	private String getShortName(String name) {
 		return name.substring(name.lastIndexOf('.') + 1);
 	}
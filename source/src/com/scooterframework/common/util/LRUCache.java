@@ -0,0 +1,345 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * <p>LRUCache class is a thread-safe, size-bounded cache which evicts the
+ * least recently used entries.</p>
+ *
+ * <p>Entries are spread over a number of segments by key hash. Each segment
+ * is an access-ordered map guarded by its own lock, so threads working on
+ * different segments do not block each other. The size bound and the LRU
+ * order are maintained per segment.</p>
+ *
+ * <p>An entry may be given a time to live. An expired entry is removed when
+ * it is read and is counted as a miss.</p>
+ *
+ * <p>Hit, miss, eviction and expiration counts are recorded for 
+ * monitoring.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class LRUCache {
+
+	/**
+	 * Default number of segments
+	 */
+	public static final int DEFAULT_SEGMENTS = 16;
+
+	private int maxSize;
+	private Segment[] segments;
+	private int segmentMask;
+
+	/**
+	 * Creates a cache with default number of segments.
+	 *
+	 * @param maxSize  maximum number of entries in the cache
+	 */
+	public LRUCache(int maxSize) {
+		this(maxSize, DEFAULT_SEGMENTS);
+	}
+
+	/**
+	 * Creates a cache.
+	 *
+	 * @param maxSize       maximum number of entries in the cache
+	 * @param segmentCount  number of segments, rounded up to a power of two
+	 */
+	public LRUCache(int maxSize, int segmentCount) {
+		if (maxSize <= 0)
+			throw new IllegalArgumentException("maxSize must be positive.");
+
+		int count = 1;
+		while (count < segmentCount && count < maxSize) count <<= 1;
+
+		this.maxSize = maxSize;
+		segmentMask = count - 1;
+		segments = new Segment[count];
+
+		int perSegment = (maxSize + count - 1) / count;
+		for (int i = 0; i < count; i++) {
+			segments[i] = new Segment(perSegment);
+		}
+	}
+
+	/**
+	 * Returns the value cached for a key, or null if there is no such key.
+	 */
+	public Object get(Object key) {
+		return segmentFor(key).get(key);
+	}
+
+	/**
+	 * Caches a value for a key.
+	 *
+	 * @return the previous value of the key, or null if there was none.
+	 */
+	public Object put(Object key, Object value) {
+		return segmentFor(key).put(key, value);
+	}
+
+	/**
+	 * Caches a value for a key for a period of time.
+	 *
+	 * @param key               the key
+	 * @param value             the value
+	 * @param timeToLiveMillis  time to live in milliseconds; zero or 
+	 *                          negative means the entry does not expire
+	 * @return the previous value of the key, or null if there was none.
+	 */
+	public Object put(Object key, Object value, long timeToLiveMillis) {
+		if (timeToLiveMillis <= 0) return put(key, value);
+		Object data = new ExpiringValue(value, System.currentTimeMillis() + timeToLiveMillis);
+		return segmentFor(key).put(key, data);
+	}
+
+	/**
+	 * Caches a value for a key only if the key is not cached yet.
+	 *
+	 * @return the value already cached for the key, or null if the input
+	 * value is cached.
+	 */
+	public Object putIfAbsent(Object key, Object value) {
+		return segmentFor(key).putIfAbsent(key, value);
+	}
+
+	/**
+	 * Removes a key from the cache.
+	 *
+	 * @return the removed value, or null if the key was not cached.
+	 */
+	public Object remove(Object key) {
+		return segmentFor(key).remove(key);
+	}
+
+	/**
+	 * Removes all entries from the cache. Statistics are kept.
+	 */
+	public void clear() {
+		for (int i = 0; i < segments.length; i++) {
+			segments[i].clear();
+		}
+	}
+
+	/**
+	 * Returns current number of entries in the cache.
+	 */
+	public int size() {
+		int size = 0;
+		for (int i = 0; i < segments.length; i++) {
+			size += segments[i].size();
+		}
+		return size;
+	}
+
+	/**
+	 * Returns maximum number of entries in the cache.
+	 */
+	public int getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Returns number of <tt>get</tt> calls which found a value.
+	 */
+	public long getHitCount() {
+		long count = 0;
+		for (int i = 0; i < segments.length; i++) {
+			count += segments[i].hits();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns number of <tt>get</tt> calls which found no value.
+	 */
+	public long getMissCount() {
+		long count = 0;
+		for (int i = 0; i < segments.length; i++) {
+			count += segments[i].misses();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns number of entries removed to keep the cache in its size bound.
+	 */
+	public long getEvictionCount() {
+		long count = 0;
+		for (int i = 0; i < segments.length; i++) {
+			count += segments[i].evictions();
+		}
+		return count;
+	}
+
+	/**
+	 * Returns number of entries removed because their time to live passed.
+	 */
+	public long getExpirationCount() {
+		long count = 0;
+		for (int i = 0; i < segments.length; i++) {
+			count += segments[i].expirations();
+		}
+		return count;
+	}
+
+	/**
+	 * Resets hit, miss, eviction and expiration counts to zero.
+	 */
+	public void resetStatistics() {
+		for (int i = 0; i < segments.length; i++) {
+			segments[i].resetStatistics();
+		}
+	}
+
+	/**
+	 * Returns a string representation of the cache statistics.
+	 */
+	public String toString() {
+		StringBuffer returnString = new StringBuffer();
+		String SEPARATOR = ", ";
+
+		returnString.append("size = " + size()).append(SEPARATOR);
+		returnString.append("maxSize = " + maxSize).append(SEPARATOR);
+		returnString.append("hits = " + getHitCount()).append(SEPARATOR);
+		returnString.append("misses = " + getMissCount()).append(SEPARATOR);
+		returnString.append("evictions = " + getEvictionCount()).append(SEPARATOR);
+		returnString.append("expirations = " + getExpirationCount());
+
+		return returnString.toString();
+	}
+
+	private Segment segmentFor(Object key) {
+		int h = (key != null)?key.hashCode():0;
+		h ^= (h >>> 16);
+		return segments[h & segmentMask];
+	}
+
+	/**
+	 * An access-ordered map with its own lock and statistics.
+	 */
+	private static class Segment {
+		private BoundedMap map;
+		private long hits;
+		private long misses;
+		private long expirations;
+
+		Segment(int maxSize) {
+			map = new BoundedMap(maxSize);
+		}
+
+		synchronized Object get(Object key) {
+			Object value = liveValue(key);
+			if (value != null) hits++; else misses++;
+			return value;
+		}
+
+		synchronized Object put(Object key, Object value) {
+			return unwrap(map.put(key, value));
+		}
+
+		synchronized Object putIfAbsent(Object key, Object value) {
+			Object existing = liveValue(key);
+			if (existing != null) return existing;
+			map.put(key, value);
+			return null;
+		}
+
+		synchronized Object remove(Object key) {
+			return unwrap(map.remove(key));
+		}
+
+		synchronized void clear() {
+			map.clear();
+		}
+
+		synchronized int size() {
+			return map.size();
+		}
+
+		synchronized long hits() {
+			return hits;
+		}
+
+		synchronized long misses() {
+			return misses;
+		}
+
+		synchronized long evictions() {
+			return map.evictions;
+		}
+
+		synchronized long expirations() {
+			return expirations;
+		}
+
+		synchronized void resetStatistics() {
+			hits = 0;
+			misses = 0;
+			expirations = 0;
+			map.evictions = 0;
+		}
+
+		/**
+		 * Returns the value of a key, removing it if it has expired.
+		 */
+		private Object liveValue(Object key) {
+			Object data = map.get(key);
+			if (data instanceof ExpiringValue) {
+				ExpiringValue ev = (ExpiringValue)data;
+				if (ev.expiresAt <= System.currentTimeMillis()) {
+					map.remove(key);
+					expirations++;
+					return null;
+				}
+				return ev.value;
+			}
+			return data;
+		}
+
+		private Object unwrap(Object data) {
+			return (data instanceof ExpiringValue)?((ExpiringValue)data).value:data;
+		}
+	}
+
+	private static class ExpiringValue {
+		private Object value;
+		private long expiresAt;
+
+		ExpiringValue(Object value, long expiresAt) {
+			this.value = value;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	private static class BoundedMap extends LinkedHashMap {
+		/**
+		 * Generated serialVersionUID
+		 */
+		private static final long serialVersionUID = -2826462374096245765L;
+
+		private int maxSize;
+		private long evictions;
+
+		BoundedMap(int maxSize) {
+			super(16, 0.75f, true);
+			this.maxSize = maxSize;
+		}
+
+		protected boolean removeEldestEntry(Map.Entry eldest) {
+			if (size() > maxSize) {
+				evictions++;
+				return true;
+			}
+			return false;
+		}
+	}
+}
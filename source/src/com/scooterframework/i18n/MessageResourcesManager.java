@@ -18,6 +18,7 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.Map.Entry;
 
 import com.scooterframework.admin.PropertyReader;
 import com.scooterframework.common.logging.LogUtil;
@@ -45,6 +46,14 @@ import com.scooterframework.common.logging.LogUtil;
  * </pre>
  * </p>
  * 
+ * <p>
+ * Messages of a locale are merged from all its files into one map when the 
+ * locale is loaded, and each message is parsed into a MessageTemplate. The 
+ * maps of all loaded locales are kept in an immutable map which is replaced 
+ * as a whole when a locale is loaded or a message file is changed. Looking 
+ * up a message of a loaded locale does not take any lock.
+ * </p>
+ * 
  * @author (Fei) John Chen
  */
 public class MessageResourcesManager {
@@ -66,11 +75,6 @@ public class MessageResourcesManager {
 	 */
 	private String baseName;
 	
-	/*
-	 * map of all loaded locales and keys
-	 */
-	private static Map loadedLocalesKeyMap = Collections.synchronizedMap(new HashMap());
-	
 	/*
 	 * map of all message files.
 	 */
@@ -82,19 +86,12 @@ public class MessageResourcesManager {
 	private static Map fileMessagesMap = Collections.synchronizedMap(new HashMap());
 	
 	/*
-	 * map of locale files map in theory.
-	 */
-	private static Map localeFilesInTheoryMap = Collections.synchronizedMap(new HashMap());
-	
-	/*
-	 * map of locale files map in reality.
+	 * immutable map of locale key and its LocaleMessages. It is replaced as 
+	 * a whole under loadLock.
 	 */
-	private static Map localeFilesInRealityMap = Collections.synchronizedMap(new HashMap());
+	private static volatile Map localeMessagesMap = Collections.EMPTY_MAP;
 	
-	/*
-	 * map of locale message map.
-	 */
-	private static Map localeMsgMap = Collections.synchronizedMap(new HashMap());
+	private static final Object loadLock = new Object();
 	
 	public MessageResourcesManager(String configPath, String baseName) {
 		this.configPath = configPath;
@@ -117,8 +114,18 @@ public class MessageResourcesManager {
 		return allMessageFiles;
 	}
 	
+	/**
+	 * Returns a set of entries of all loaded locales. The key of an entry 
+	 * is the locale string and the value is the locale.
+	 */
 	public Set getAllLoadedLocalesSet() {
-		return loadedLocalesKeyMap.entrySet();
+		Map locales = new HashMap();
+		Iterator it = localeMessagesMap.values().iterator();
+		while(it.hasNext()) {
+			LocaleMessages lm = (LocaleMessages)it.next();
+			locales.put(getLocaleKey(lm.locale), lm.locale);
+		}
+		return locales.entrySet();
 	}
 	
     /**
@@ -133,10 +140,29 @@ public class MessageResourcesManager {
      * @return a message string
      */
 	public String getMessage(String key, Locale locale) {
-		if (!hasLoaded(locale)) {
+		MessageTemplate template = getMessageTemplate(key, locale);
+		return (template != null)?template.getMessage():null;
+	}
+	
+    /**
+     * Returns a parsed message associated with the <tt>key</tt> in a 
+     * specific <tt>locale</tt>.
+     * 
+     * <p>If there is no message associated with the <tt>key</tt> in messages 
+     * property files, this method returns <tt>null</tt>.</p>
+     * 
+     * @param key       a message key in messages resource files
+     * @param locale    a specific locale object
+     * @return a message template
+     */
+	public MessageTemplate getMessageTemplate(String key, Locale locale) {
+		String localeKey = getLocaleKey(locale);
+		LocaleMessages lm = (LocaleMessages)localeMessagesMap.get(localeKey);
+		if (lm == null) {
 			loadLocale(locale);
+			lm = (LocaleMessages)localeMessagesMap.get(localeKey);
 		}
-		return ((Properties)localeMsgMap.get(getLocaleKey(locale))).getProperty(key);
+		return (MessageTemplate)lm.templates.get(key);
 	}
 	
 	public void loadLocale(Locale locale) {
@@ -145,18 +171,21 @@ public class MessageResourcesManager {
 		if (hasLoaded(locale)) {
 			return;
 		}
-
-		String key = getLocaleKey(locale);
-		localeFilesInTheoryMap.put(key, getFilesInTheory(locale));
-		localeFilesInRealityMap.put(key, getFilesInReality(locale));
-		localeMsgMap.put(key, getMessages(locale));
-		loadedLocalesKeyMap.put(key, locale);
 		
-		log.debug("loaded locale: " + key);
+		synchronized(loadLock) {
+			if (hasLoaded(locale)) return;
+			
+			String key = getLocaleKey(locale);
+			Map map = new HashMap(localeMessagesMap);
+			map.put(key, createLocaleMessages(locale));
+			localeMessagesMap = Collections.unmodifiableMap(map);
+			
+			log.debug("loaded locale: " + key);
+		}
 	}
 	
 	private boolean hasLoaded(Locale locale) {
-		return loadedLocalesKeyMap.containsKey(getLocaleKey(locale));
+		return localeMessagesMap.containsKey(getLocaleKey(locale));
 	}
 	
 	private String getLocaleKey(Locale locale) {
@@ -225,6 +254,7 @@ public class MessageResourcesManager {
 		
 		if (variant != null && !"".equals(variant)) {
 			file = getFileName(base + "_" + language + "_" + country + "_" + variant);
+			list.add(file);
 		}
 	}
 	
@@ -234,40 +264,30 @@ public class MessageResourcesManager {
 	
 	private List getFilesInReality(Locale locale) {
 		List list = new ArrayList();
-		List tFiles = (List)localeFilesInTheoryMap.get(getLocaleKey(locale));
-		if (tFiles != null) {
-			Iterator it = tFiles.iterator();
-			while(it.hasNext()) {
-				String file = (String)it.next();
-				if (allMessageFiles.containsKey(file)) {
-					list.add(file);
-				}
+		Iterator it = getFilesInTheory(locale).iterator();
+		while(it.hasNext()) {
+			String file = (String)it.next();
+			if (allMessageFiles.containsKey(file)) {
+				list.add(file);
 			}
 		}
 		
 		return list;
 	}
 	
-	private Properties getMessages(Locale locale) {
-		String key = getLocaleKey(locale);
-		Properties messages = (Properties)localeMsgMap.get(key);
-		if (messages != null) return messages;
-		
-		messages = new Properties();
-		List files = (List)localeFilesInRealityMap.get(key);
+	//merges messages of all files of a locale, later files override earlier ones
+	private LocaleMessages createLocaleMessages(Locale locale) {
+		List files = getFilesInReality(locale);
+		Properties messages = new Properties();
 		
-		if (files != null) {
-			int length = files.size();
-			for (int i = 0; i < length; i++) {
-				String fileName = (String)files.get(i);
-				Properties props = loadPropertiesFromFile(fileName);
-				messages.putAll(props);
-			}
+		int length = files.size();
+		for (int i = 0; i < length; i++) {
+			String fileName = (String)files.get(i);
+			Properties props = loadPropertiesFromFile(fileName);
+			if (props != null) messages.putAll(props);
 		}
 		
-		localeMsgMap.put(key, messages);
-		
-		return messages;
+		return new LocaleMessages(locale, files, messages);
 	}
 	
 	private Properties loadPropertiesFromFile(String fileName) {
@@ -284,33 +304,32 @@ public class MessageResourcesManager {
 		return fileMessagesMap.containsKey(fileName);
 	}
 	
+	/*
+	 * Reloads loaded locales. If fileName is not null, only locales using 
+	 * the file are reloaded. Must be called under loadLock.
+	 */
+	private void reloadLocales(String fileName) {
+		Map map = new HashMap(localeMessagesMap);
+		Iterator it = map.entrySet().iterator();
+		while(it.hasNext()) {
+			Entry entry = (Entry)it.next();
+			LocaleMessages lm = (LocaleMessages)entry.getValue();
+			if (fileName == null || lm.files.contains(fileName)) {
+				entry.setValue(createLocaleMessages(lm.locale));
+			}
+		}
+		localeMessagesMap = Collections.unmodifiableMap(map);
+	}
+	
 	/**
 	 * Reloads locales related to the updated file.
 	 * 
 	 * @param file
 	 */
 	void fileUpdated(File file) {
-		//remove the file from fileMessagesMap
-		fileMessagesMap.remove(file.getName());
-		
-		//find all locales that use the file
-		List affectedLocales = new ArrayList();
-		Iterator it = localeFilesInRealityMap.keySet().iterator();
-		while(it.hasNext()) {
-			String localeKey = (String)it.next();
-			List files = (List)localeFilesInRealityMap.get(localeKey);
-			if (files.contains(file.getName())) {
-				affectedLocales.add(loadedLocalesKeyMap.get(localeKey));
-			}
-		}
-		
-		//reload for each affected locale
-		Iterator it2 = affectedLocales.iterator();
-		while(it2.hasNext()) {
-			Locale locale = (Locale)it2.next();
-			String key = getLocaleKey(locale);
-			localeMsgMap.remove(key);
-			localeMsgMap.put(key, getMessages(locale));
+		synchronized(loadLock) {
+			fileMessagesMap.remove(file.getName());
+			reloadLocales(file.getName());
 		}
 	}
     
@@ -320,17 +339,10 @@ public class MessageResourcesManager {
 	 * @param file
 	 */
 	void fileAdded(File file) {
-        allMessageFiles.put(file.getName(), file);
-        
-        //reload all loaded locales
-        Iterator it = loadedLocalesKeyMap.keySet().iterator();
-        while(it.hasNext()) {
-            String key = (String)it.next();
-            Locale locale = (Locale)loadedLocalesKeyMap.get(key);
-            localeFilesInRealityMap.put(key, getFilesInReality(locale));
-            localeMsgMap.remove(key);
-            localeMsgMap.put(key, getMessages(locale));
-        }
+		synchronized(loadLock) {
+			allMessageFiles.put(file.getName(), file);
+			reloadLocales(null);
+		}
     }
     
     /**
@@ -339,17 +351,35 @@ public class MessageResourcesManager {
 	 * @param file
 	 */
 	void fileDeleted(File file) {
-        allMessageFiles.remove(file.getName());
-        fileMessagesMap.remove(file.getName());
-        
-        //reload all loaded locales
-        Iterator it = loadedLocalesKeyMap.keySet().iterator();
-        while(it.hasNext()) {
-            String key = (String)it.next();
-            Locale locale = (Locale)loadedLocalesKeyMap.get(key);
-            localeFilesInRealityMap.put(key, getFilesInReality(locale));
-            localeMsgMap.remove(key);
-            localeMsgMap.put(key, getMessages(locale));
-        }
+		synchronized(loadLock) {
+			allMessageFiles.remove(file.getName());
+			fileMessagesMap.remove(file.getName());
+			reloadLocales(null);
+		}
     }
+	
+	/**
+	 * LocaleMessages holds the merged messages of a locale. It is not 
+	 * changed after it is created.
+	 */
+	private static class LocaleMessages {
+		LocaleMessages(Locale locale, List files, Properties messages) {
+			this.locale = locale;
+			this.files = files;
+			
+			Map map = new HashMap(messages.size());
+			Iterator it = messages.entrySet().iterator();
+			while(it.hasNext()) {
+				Entry entry = (Entry)it.next();
+				map.put(entry.getKey(), new MessageTemplate((String)entry.getValue()));
+			}
+			this.templates = map;
+		}
+		
+		Locale locale;
+		List files;
+		
+		//key is message key, value is MessageTemplate
+		Map templates;
+	}
 }
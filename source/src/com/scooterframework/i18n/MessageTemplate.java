@@ -0,0 +1,115 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.i18n;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>MessageTemplate class holds a message split at its placeholders 
+ * <tt>{0}</tt>, <tt>{1}</tt>, etc. The message is parsed once when it is 
+ * loaded, so that formatting it with values does not scan the message 
+ * again.</p>
+ * 
+ * <p>A placeholder without a corresponding value is kept in the formatted 
+ * message as it is. Values are included in the message by their 
+ * <tt>toString()</tt> method, and a <tt>null</tt> value as an empty 
+ * string.</p>
+ * 
+ * @author (Fei) John Chen
+ */
+public class MessageTemplate {
+	
+	public MessageTemplate(String message) {
+		this.message = message;
+		parse();
+	}
+	
+	/**
+	 * Returns the message as it is in the message file.
+	 */
+	public String getMessage() {
+		return message;
+	}
+	
+	/**
+	 * Checks if the message has any placeholder.
+	 */
+	public boolean hasPlaceholders() {
+		return indexes.length > 0;
+	}
+	
+	/**
+	 * Returns the message with placeholders replaced by the <tt>values</tt>.
+	 * 
+	 * @param values    an array of objects to be included in the message
+	 * @return a message string
+	 */
+	public String format(Object[] values) {
+		if (values == null || values.length == 0 || indexes.length == 0) return message;
+		
+		StringBuffer sb = new StringBuffer(message.length() + 16 * indexes.length);
+		for (int i = 0; i < indexes.length; i++) {
+			sb.append(literals[i]);
+			int index = indexes[i];
+			if (index < values.length) {
+				Object o = values[index];
+				if (o != null) sb.append(o.toString());
+			}
+			else {
+				sb.append('{').append(index).append('}');
+			}
+		}
+		sb.append(literals[indexes.length]);
+		return sb.toString();
+	}
+	
+	public String toString() {
+		return message;
+	}
+	
+	private void parse() {
+		List literalList = new ArrayList();
+		List indexList = new ArrayList();
+		
+		if (message != null) {
+			int length = message.length();
+			int last = 0;
+			int start = message.indexOf('{');
+			while (start != -1) {
+				int end = start + 1;
+				while (end < length && Character.isDigit(message.charAt(end))) end++;
+				if (end > start + 1 && end < length && message.charAt(end) == '}' && end - start < 10) {
+					literalList.add(message.substring(last, start));
+					indexList.add(Integer.valueOf(message.substring(start + 1, end)));
+					last = end + 1;
+					start = message.indexOf('{', last);
+				}
+				else {
+					start = message.indexOf('{', start + 1);
+				}
+			}
+			literalList.add(message.substring(last));
+		}
+		else {
+			literalList.add("");
+		}
+		
+		literals = (String[])literalList.toArray(new String[literalList.size()]);
+		indexes = new int[indexList.size()];
+		for (int i = 0; i < indexes.length; i++) {
+			indexes[i] = ((Integer)indexList.get(i)).intValue();
+		}
+	}
+	
+	private String message;
+	
+	//literals[i] is the text before placeholder i, the last one is the text after all placeholders
+	private String[] literals;
+	private int[] indexes;
+}
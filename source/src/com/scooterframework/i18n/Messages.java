@@ -112,9 +112,8 @@ public class Messages {
      * @return a message string
      */
     public static String get(String messageKey, Object[] values) {
-    	if (messageKey != null && messageKey.startsWith("friendlytime")) 
-    		return processFriendlytime(get(messageKey), values);
-        return process(get(messageKey), values);
+        Locale locale = ACH.getAC().getLocale();
+        return get(messageKey, locale, values);
     }
     
     /**
@@ -132,7 +131,9 @@ public class Messages {
     public static String get(String messageKey, Locale locale, Object[] values) {
     	if (messageKey != null && messageKey.startsWith("friendlytime")) 
     		return processFriendlytime(get(messageKey, locale), values);
-        return process(get(messageKey, locale), values);
+        MessageTemplate template = I18nConfig.mrm.getMessageTemplate(messageKey, locale);
+        if (template != null) return template.format(values);
+        return process(messageKey, values);
     }
     
     private static String processFriendlytime(String message, Object[] values) {
@@ -156,13 +157,6 @@ public class Messages {
         if (values == null || values.length == 0 || message == null || "".equals(message)) 
             return message;
         
-        int length = values.length;
-        for (int i=0; i < length; i++) {
-            Object o = values[i];
-            String r = (o==null)?"":o.toString();
-            message = message.replaceAll("\\Q{" + i + "}", r);
-        }
-        
-        return message;
+        return (new MessageTemplate(message)).format(values);
     }
 }
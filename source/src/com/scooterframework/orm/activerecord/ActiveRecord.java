@@ -10,6 +10,7 @@ package com.scooterframework.orm.activerecord;
 import java.io.Serializable;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -650,16 +651,7 @@ public class ActiveRecord implements RESTified, Serializable {
 
             beforeUpdate();
 
-            Map conditions = null;
-            String[] pkNames = rowInfo.getPrimaryKeyColumnNames();
-            if (pkNames == null || pkNames.length == 0) {
-                conditions = rowData.getDataMap();
-            }
-            else {
-                conditions = rowData.getPrimaryKeyDataMap();
-            }
-
-            int updateCount = internal_update(conditions);
+            int updateCount = internal_update();
 
             if (updateCount > 1) throw new UnexpectedDataException("Should only update one, but actually updated " + updateCount + " records.");
 
@@ -678,41 +670,28 @@ public class ActiveRecord implements RESTified, Serializable {
 
 
     /**
-     * Updates the record that satisfies the condition.
-     *
-     * @param Map conditions A Map of column name and value pairs.
+     * Updates the record by its primary key. A record of a table without
+     * primary key is found by all its current values.
      *
      * @return count of records updated.
      */
-    private int internal_update(Map conditions) {
+    private int internal_update() {
         int count = 0;
-        String updateSQL = "UPDATE " + getTableName();
 
         before_internal_update();
 
         try {
-            Map inputs = new HashMap();
+            StatementPlan.PlannedStatement update = getStatementPlan().getUpdate();
+            if (update != null) {
+                log.debug("updates sql = {}", update);
 
-            int position = 1;
+                OmniDTO returnTO =
+                    getSqlService().executeUpdate(update.getValues(rowData), DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, update.getSql());
 
-            //construct sets
-            StringBuffer sets = new StringBuffer();
-            position = prepareSetSQL(position, rowData, inputs, sets);
-            updateSQL += " SET " + sets.toString();
-
-            //construct where clause
-            if (conditions != null && conditions.size() > 0) {
-                StringBuffer wheres = new StringBuffer();
-                position = prepareWhereClause(position, conditions, inputs, wheres);
-                updateSQL += " WHERE " + wheres.toString();
+                count = returnTO.getUpdatedRowCount();
             }
 
-            log.debug("updates sql = " + updateSQL);
-
-            OmniDTO returnTO =
-                getSqlService().execute(inputs, DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, updateSQL);
-
-            count = returnTO.getUpdatedRowCount();
+            QueryCache.invalidate(this);
 
             after_internal_update();
         }
@@ -878,6 +857,35 @@ public class ActiveRecord implements RESTified, Serializable {
         return updateCount;
     }
 
+    /**
+     * <p>Creates a list of records in database in one transaction.</p>
+     *
+     * <p>Each item of the list is either a new record of this model or a
+     * map of field data. Records are sent to database in batches. See
+     * {@link com.scooterframework.orm.activerecord.TableGateway#createAll(java.util.List, int)
+     * TableGateway.createAll} for details.</p>
+     *
+     * @param records a list of new records or maps of field data
+     * @return list of created records
+     */
+    public List createAll(List records) {
+        validateHomeInstance();
+        return ActiveRecordUtil.getGateway(getClass()).createAll(records);
+    }
+
+    /**
+     * <p>Creates a list of records in database in one transaction, sending
+     * <tt>batchSize</tt> records to database at a time.</p>
+     *
+     * @param records   a list of new records or maps of field data
+     * @param batchSize number of rows sent to database at a time
+     * @return list of created records
+     */
+    public List createAll(List records, int batchSize) {
+        validateHomeInstance();
+        return ActiveRecordUtil.getGateway(getClass()).createAll(records, batchSize);
+    }
+
     /**
      * <p>Updates all the records of a table.</p>
      *
@@ -968,20 +976,12 @@ public class ActiveRecord implements RESTified, Serializable {
 
             before_internal_delete();
 
-            //populate a Map with primary key values
-            RowInfo ri = getTableInfo().getHeader();
-            String[] pkNames = ri.getPrimaryKeyColumnNames();
-            if (pkNames == null || pkNames.length == 0) pkNames = ri.getColumnNames();
-
-            int size = pkNames.length;
-            Map inputs = new HashMap();
-            for (int i=0; i< size; i++) {
-                String columnName = pkNames[i];
-                Object columnData = rowData.getField(columnName);
-                inputs.put(columnName, columnData);
-            }
-
-            count = ActiveRecordUtil.getGateway(getClass()).deleteAll(inputs);
+            //delete by primary key values, or by all values if there is no primary key
+            StatementPlan.PlannedStatement delete = getStatementPlan().getDelete();
+            OmniDTO returnTO =
+                getSqlService().executeUpdate(delete.getValues(rowData), DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, delete.getSql());
+            count = returnTO.getUpdatedRowCount();
+            QueryCache.invalidate(this);
 
             after_internal_delete();
 
@@ -2716,6 +2716,16 @@ public class ActiveRecord implements RESTified, Serializable {
         ;
     }
 
+    /**
+     * Query results of the model are cached only if the model enables it.
+     *
+     * Subclass need to override this method by calling enableQueryCache
+     * method to cache query results of its finders.
+     */
+    protected void declaresQueryCache() {
+        ;
+    }
+
     /**
      * initializes the record
      */
@@ -2735,6 +2745,9 @@ public class ActiveRecord implements RESTified, Serializable {
 
         //load extra fields
         declaresExtraFields();
+
+        //load query cache setting
+        declaresQueryCache();
     }
 
     /**
@@ -2825,132 +2838,6 @@ public class ActiveRecord implements RESTified, Serializable {
         return ti;
     }
 
-    /**
-     * prepareInsertSQL
-     */
-    private int prepareInsertSQL(RowData rd, Map outs, StringBuffer strBuffer, boolean autoPopulatePrimaryKey) {
-        RowInfo ri = rd.getRowInfo();
-        if (ri == null)
-            throw new IllegalArgumentException("Error in prepareInsertSQL: no RowInfo.");
-
-        StringBuffer names = new StringBuffer();
-        StringBuffer values = new StringBuffer();
-        int maxSize = rd.getSize();
-        int positionIndex = 0;
-        ColumnInfo ci = null;
-        int i = 0;
-        for(i=0; i<maxSize-1; i++) {
-            ci = ri.getColumnInfo(i);
-            if (ci.isPrimaryKey() && autoPopulatePrimaryKey) continue;
-            if (ci.isReadOnly() || !ci.isWritable()) continue;
-
-            names.append(ci.getColumnName()).append(", ");
-            values.append("?, ");
-            positionIndex = positionIndex + 1;
-            outs.put(positionIndex+"", rd.getField(i));
-        }
-
-        //the last column: i=maxSize-1
-        ci = ri.getColumnInfo(i);
-        if (!ci.isReadOnly() && ci.isWritable()) {
-            names.append(ci.getColumnName()).append("");
-            values.append("?");
-            positionIndex = positionIndex + 1;
-            outs.put(positionIndex+"", rd.getField(i));
-        }
-
-        String namesList = names.toString();
-        if (namesList.endsWith(", ")) {
-            namesList = namesList.substring(0,namesList.lastIndexOf(','));
-        }
-        String valuesList = values.toString();
-        if (valuesList.endsWith(", ")) {
-            valuesList = valuesList.substring(0,valuesList.lastIndexOf(','));
-        }
-
-        strBuffer.append("(").append(namesList).append(") VALUES (").append(valuesList).append(")");
-        return positionIndex;
-    }
-
-    /**
-     * prepareWhereClause
-     */
-    private int prepareWhereClause(int startPosition, Map ins, Map outs, StringBuffer strBuffer) {
-        int maxSize = ins.size();
-        int count = 0;
-        for(Iterator it = ins.keySet().iterator(); it.hasNext();) {
-            String keyName = (String) it.next();
-            Object valueData = ins.get(keyName);
-
-            count = count + 1;
-            if (maxSize != count)
-                strBuffer.append(keyName).append(" = ? AND ");
-            else
-                strBuffer.append(keyName).append(" = ? ");
-
-            outs.put(startPosition+"", valueData);
-            startPosition = startPosition + 1;
-        }
-
-        return startPosition;
-    }
-
-    /**
-     * prepareSetSQL
-     */
-    private int prepareSetSQL(int startPosition, RowData rd, Map outs, StringBuffer strBuffer) {
-        RowInfo ri = rd.getRowInfo();
-        if (ri == null)
-            throw new IllegalArgumentException("Error in prepareSetSQL: no RowInfo.");
-
-        int maxSize = rd.getSize();
-
-        int i = 0;
-        ColumnInfo ci = null;
-        for(i=0; i<maxSize-1; i++) {
-            ci = ri.getColumnInfo(i);
-            if (ci.isReadOnly() || !ci.isWritable() || ci.isPrimaryKey()) continue;
-
-            strBuffer.append(ci.getColumnName()).append(" = ?, ");
-            outs.put(startPosition+"", rd.getField(i));
-            startPosition = startPosition + 1;
-        }
-
-        //the last column: i=maxSize-1
-        ci = ri.getColumnInfo(i);
-        if (!ci.isReadOnly() && ci.isWritable() && !ci.isPrimaryKey()) {
-            strBuffer.append(ci.getColumnName()).append(" = ? ");
-            outs.put(startPosition+"", rd.getField(i));
-            startPosition = startPosition + 1;
-        }
-
-        return startPosition;
-    }
-
-    /**
-     * prepareSetSQL
-     */
-    private int prepareSetSQL(int startPosition, Map fieldData, Map outs, StringBuffer strBuffer) {
-        RowInfo ri = rowInfo;
-        if (ri == null)
-            throw new IllegalArgumentException("Error in prepareSetSQL: no RowInfo.");
-
-        if (fieldData == null || fieldData.size() == 0) return startPosition;
-
-        ColumnInfo ci = null;
-        for(Iterator it = fieldData.keySet().iterator(); it.hasNext();) {
-            String field = (String)it.next();
-            ci = ri.getColumnInfo(field);
-            if (ci.isReadOnly() || !ci.isWritable() || ci.isPrimaryKey()) continue;
-
-            strBuffer.append(ci.getColumnName()).append(" = ?, ");
-            outs.put(startPosition+"", fieldData.get(field));
-            startPosition = startPosition + 1;
-        }
-
-        return startPosition;
-    }
-
     /**
      * populates primary key values based on the primary key rules
      *
@@ -3099,58 +2986,25 @@ public class ActiveRecord implements RESTified, Serializable {
      * creates the record in database and returns it.
      */
     protected ActiveRecord internal_create() {
-        String createSQL = "INSERT INTO " + getTableName();
-
-        Map pkValues = null;
         try {
-            before_internal_create();
-
-            boolean autoPopulatePrimaryKey = false;
+            boolean autoPopulatePrimaryKey = prepareCreate();
+            StatementPlan.PlannedStatement insert = getStatementPlan().getInsert(autoPopulatePrimaryKey);
 
-            //prepare primary key value
-            if (isPrimaryKeyDataEmpty()) {
-                pkValues = populatePrimaryKeyValuesBeforeInsert();
-                if (pkValues == null || pkValues.size() == 0) {
-                    autoPopulatePrimaryKey = true;
-                }
-                else {
-                    setData(pkValues);
-                }
-            }
-
-            StringBuffer strBuffer = new StringBuffer();
-            Map inputs = new HashMap();
-
-            int columns = prepareInsertSQL(rowData, inputs, strBuffer, autoPopulatePrimaryKey);
-
-            createSQL += " " + strBuffer.toString();
-            log.debug("create sql = " + createSQL);
+            log.debug("create sql = {}", insert);
 
             OmniDTO returnTO =
-                getSqlService().execute(inputs, DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, createSQL);
+                getSqlService().executeUpdate(insert.getValues(rowData), DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, insert.getSql());
 
             int count = returnTO.getUpdatedRowCount();
 
+            QueryCache.invalidate(this);
+
             if (count != 1) {
                 log.error("Only one record should be created, but " + count +
                           " objects were created instead.");
             }
 
-            //populate auto-generated primary keys
-            if (autoPopulatePrimaryKey) {
-                long gpk = returnTO.getGeneratedKey();
-                if (gpk != -1) {
-                    Map pkMap = getPrimaryKeyDataMap();
-                    Iterator it = pkMap.keySet().iterator();
-                    if(it.hasNext()) { //only one column is allowed to be auto-generated pk
-                        setData((String)it.next(), new Long(gpk));
-                    }
-                }
-            }
-
-            createClean();
-
-            after_internal_create();
+            finishCreate((autoPopulatePrimaryKey)?returnTO.getGeneratedKey():-1);
         }
         catch (Exception ex) {
             throw new BaseSQLException(ex);
@@ -3159,6 +3013,78 @@ public class ActiveRecord implements RESTified, Serializable {
         return this;
     }
 
+    /**
+     * Prepares insert SQL and input data of this record before it is
+     * created in database.
+     *
+     * @param createSQL  buffer to hold the insert SQL
+     * @param inputs     map to hold the input data of the insert SQL
+     * @return true if primary key value is to be generated by database
+     */
+    boolean prepareCreate(StringBuffer createSQL, Map inputs) {
+        boolean autoPopulatePrimaryKey = prepareCreate();
+
+        StatementPlan.PlannedStatement insert = getStatementPlan().getInsert(autoPopulatePrimaryKey);
+        createSQL.append(insert.getSql());
+        Object[] values = insert.getValues(rowData);
+        for (int i = 0; i < values.length; i++) {
+            inputs.put((i + 1) + "", values[i]);
+        }
+        return autoPopulatePrimaryKey;
+    }
+
+    /**
+     * Prepares data of this record before it is created in database.
+     *
+     * @return true if primary key value is to be generated by database
+     */
+    private boolean prepareCreate() {
+        before_internal_create();
+
+        boolean autoPopulatePrimaryKey = false;
+
+        //prepare primary key value
+        if (isPrimaryKeyDataEmpty()) {
+            Map pkValues = populatePrimaryKeyValuesBeforeInsert();
+            if (pkValues == null || pkValues.size() == 0) {
+                autoPopulatePrimaryKey = true;
+            }
+            else {
+                setData(pkValues);
+            }
+        }
+
+        return autoPopulatePrimaryKey;
+    }
+
+    /**
+     * Returns the compiled insert, update and delete statements for the
+     * row layout of this record.
+     */
+    StatementPlan getStatementPlan() {
+        return StatementPlan.getPlan(getTableName(), rowInfo, rowData.getRowInfo());
+    }
+
+    /**
+     * Finishes create after the record is inserted in database.
+     *
+     * @param generatedKey  auto-generated primary key value, or -1 if there is none
+     */
+    void finishCreate(long generatedKey) {
+        //populate auto-generated primary keys
+        if (generatedKey != -1) {
+            Map pkMap = getPrimaryKeyDataMap();
+            Iterator it = pkMap.keySet().iterator();
+            if(it.hasNext()) { //only one column is allowed to be auto-generated pk
+                setData((String)it.next(), new Long(generatedKey));
+            }
+        }
+
+        createClean();
+
+        after_internal_create();
+    }
+
     /**
      * cleans up something before finishing create.
      *
@@ -3303,44 +3229,30 @@ public class ActiveRecord implements RESTified, Serializable {
 
         before_internal_update();
 
-        //prepare modified data map
-        Map modifiedData = new HashMap();
+        //row indexes of modified columns
+        RowInfo ri = rowData.getRowInfo();
+        BitSet changed = new BitSet(ri.getDimension());
         for (Iterator it = modifiedColumns.iterator(); it.hasNext();) {
             String field = (String)it.next();
             if (!isColumnField(field)) continue;
-            Object value = rowData.getField(field);
-            modifiedData.put(field, value);
+            int index = ri.findColumnPositionIndex(field);
+            if (index != -1) changed.set(index);
         }
 
         int count = 0;
-        String updateSQL = "UPDATE " + getTableName();
 
         try {
-            Map inputs = new HashMap();
-
-            int position = 1;
+            StatementPlan.PlannedStatement update = getStatementPlan().getUpdateChanged(changed);
+            if (update != null) {
+                log.debug("updates sql = {}", update);
 
-            //construct sets
-            StringBuffer sets = new StringBuffer();
-            position = prepareSetSQL(position, modifiedData, inputs, sets);
+                OmniDTO returnTO =
+                    getSqlService().executeUpdate(update.getValues(rowData), DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, update.getSql());
 
-            sets = StringUtil.removeLastToken(sets, ", ");
-            updateSQL += " SET " + sets.toString();
-
-            //construct where clause
-            Map conditions = rowData.getPrimaryKeyDataMap();
-            if (conditions != null && conditions.size() > 0) {
-                StringBuffer wheres = new StringBuffer();
-                position = prepareWhereClause(position, conditions, inputs, wheres);
-                updateSQL += " WHERE " + wheres.toString();
+                count = returnTO.getUpdatedRowCount();
             }
 
-            log.debug("updates sql = " + updateSQL);
-
-            OmniDTO returnTO =
-                getSqlService().execute(inputs, DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, updateSQL);
-
-            count = returnTO.getUpdatedRowCount();
+            QueryCache.invalidate(this);
 
             //do some maintanance works
             updateClean();
@@ -4100,6 +4012,40 @@ public class ActiveRecord implements RESTified, Serializable {
         }
     }
 
+    /**
+     * Enables caching of query results of the model in the default cache
+     * provider.
+     */
+    protected void enableQueryCache() {
+        enableQueryCache(null);
+    }
+
+    /**
+     * Enables caching of query results of the model in a cache provider.
+     *
+     * @param providerName name of the cache provider, or null for the
+     *                     default cache provider
+     */
+    protected void enableQueryCache(String providerName) {
+        queryCacheEnabled = true;
+        queryCacheProviderName = providerName;
+    }
+
+    /**
+     * Returns true if query results of the model are cached.
+     */
+    public boolean useQueryCache() {
+        return queryCacheEnabled;
+    }
+
+    /**
+     * Returns the name of the cache provider for query results of the
+     * model. Null means the default cache provider.
+     */
+    public String getQueryCacheProviderName() {
+        return queryCacheProviderName;
+    }
+
     private Object getExtraFieldData(String fieldName) {
         if (fieldName == null) return null;
         return extraFieldsMap.get(fieldName.toUpperCase());
@@ -4289,6 +4235,50 @@ public class ActiveRecord implements RESTified, Serializable {
         return ActiveRecordUtil.getGateway(getClass()).findAllBy(columns, values, options);
     }
 
+    /**
+     * <p>Processes all the records of a table one by one. Records are passed
+     * to the handler as they are read from database and are not collected
+     * in a list.</p>
+     *
+     * @param handler a handler which processes each record
+     * @return number of records processed
+     */
+    public int findEach(RecordHandler handler) {
+        validateHomeInstance();
+        return ActiveRecordUtil.getGateway(getClass()).findEach(handler);
+    }
+
+    /**
+     * <p>Processes all the records that satisfy the conditions and options
+     * one by one. See
+     * {@link com.scooterframework.orm.activerecord.TableGateway#findEach(java.lang.String, java.util.Map, java.util.Map, com.scooterframework.orm.activerecord.RecordHandler)
+     * TableGateway.findEach} for details.</p>
+     *
+     * @param conditionsSQL a SQL fragment string
+     * @param conditionsSQLData a data map for dynamic attributes in <tt>conditionsSQL</tt>
+     * @param options a string of options.
+     * @param handler a handler which processes each record
+     * @return number of records processed
+     */
+    public int findEach(String conditionsSQL, Map conditionsSQLData, String options, RecordHandler handler) {
+        validateHomeInstance();
+        return ActiveRecordUtil.getGateway(getClass()).findEach(conditionsSQL, conditionsSQLData, options, handler);
+    }
+
+    /**
+     * <p>Loads associated records of a list of records with one query for
+     * each association. See
+     * {@link com.scooterframework.orm.activerecord.TableGateway#preload(java.util.List, java.lang.String)
+     * TableGateway.preload} for details.</p>
+     *
+     * @param records a list of records of this model
+     * @param include a string of associations in the format of <tt>include</tt> option
+     */
+    public void preload(List records, String include) {
+        validateHomeInstance();
+        ActiveRecordUtil.getGateway(getClass()).preload(records, include);
+    }
+
     /**
      * <p>Finds all the records of a table.</p>
      *
@@ -5119,6 +5109,16 @@ public class ActiveRecord implements RESTified, Serializable {
      */
     private Map recordRelations = Collections.synchronizedMap(new HashMap());
 
+    /**
+     * indicates if query results of the model are cached
+     */
+    private boolean queryCacheEnabled = false;
+
+    /**
+     * name of the cache provider for query results
+     */
+    private String queryCacheProviderName = null;
+
     private ModelValidators validators = null;
 
     protected static LogUtil log = LogUtil.getLogger(ActiveRecord.class.getName());
@@ -82,6 +82,33 @@ public class ActiveRecordConstants {
      */
     public static final String key_join_type = "join_type";
     
+    /**
+     * <p>Key <tt>include_strategy</tt> indicates how the associated entities 
+     * of the <tt>include</tt> option are loaded. Allowed values are join and 
+     * preload.</p>
+     * <ul>
+     * <li>join: one query with joins of all associated tables. (default)</li>
+     * <li>preload: one more query for each association, which finds 
+     * associated records by a <tt>WHERE fk IN (...)</tt> clause.</li>
+     * </ul>
+     * 
+     * <p>For example, "<tt>include: pets=>visits; include_strategy: preload</tt>" 
+     * means find method will load owners first, then all their pets in one 
+     * query and then all visits of those pets in another query. The preload 
+     * strategy cannot be used with <tt>strict_include</tt>.</p>
+     */
+    public static final String key_include_strategy = "include_strategy";
+    
+    /**
+     * Value <tt>join</tt> of <tt>include_strategy</tt> option.
+     */
+    public static final String INCLUDE_STRATEGY_JOIN = "join";
+    
+    /**
+     * Value <tt>preload</tt> of <tt>include_strategy</tt> option.
+     */
+    public static final String INCLUDE_STRATEGY_PRELOAD = "preload";
+    
     /**
      * <p>Key <tt>conditions_sql</tt> represents extra conditional sql string 
      * to be appended to a query.</p>
@@ -171,4 +198,12 @@ public class ActiveRecordConstants {
      * a count of child model records.
      */
     public static final String key_counter_cache = "counter_cache";
+    
+    /**
+     * Key <tt>cache</tt> indicates whether the result of a finder query 
+     * is cached. Its value can be <tt>true</tt>, <tt>false</tt> or the 
+     * name of a cache provider. See 
+     * {@link com.scooterframework.orm.activerecord.QueryCache QueryCache}.
+     */
+    public static final String key_cache = "cache";
 }
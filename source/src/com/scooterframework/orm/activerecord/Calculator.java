@@ -12,6 +12,7 @@ import java.util.Map;
 import com.scooterframework.common.util.Converters;
 import com.scooterframework.common.util.StringUtil;
 import com.scooterframework.common.util.Util;
+import com.scooterframework.orm.sqldataexpress.connection.ReadReplicaRouter;
 import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
 
 /**
@@ -182,23 +183,29 @@ public class Calculator {
      */
     public static Object calculate(ActiveRecord recordHome, String function, String field, Map options) {
         Object result= null;
-        if (options != null && options.containsKey(ActiveRecordConstants.key_custom_sql)) {
-            String sql = (String)options.get(ActiveRecordConstants.key_custom_sql);
-            result = SqlServiceClient.retrieveObjectBySQL(sql, options);
-        }
-        else if (options != null && options.containsKey(ActiveRecordConstants.key_custom_sql_key)) {
-            String sqlKey = (String)options.get(ActiveRecordConstants.key_custom_sql_key);
-            result = SqlServiceClient.retrieveObjectBySQLKey(sqlKey, options);
-        }
-        else if (options != null && (
-        		options.containsKey(ActiveRecordConstants.key_include)||
-        		options.containsKey(ActiveRecordConstants.key_strict_include))) {
-            String sql = constructSqlWithInclude(recordHome, function, field, options);
-            result = SqlServiceClient.retrieveObjectBySQL(sql, options);
+        ReadReplicaRouter.beginRead();
+        try {
+            if (options != null && options.containsKey(ActiveRecordConstants.key_custom_sql)) {
+                String sql = (String)options.get(ActiveRecordConstants.key_custom_sql);
+                result = SqlServiceClient.retrieveObjectBySQL(sql, options);
+            }
+            else if (options != null && options.containsKey(ActiveRecordConstants.key_custom_sql_key)) {
+                String sqlKey = (String)options.get(ActiveRecordConstants.key_custom_sql_key);
+                result = SqlServiceClient.retrieveObjectBySQLKey(sqlKey, options);
+            }
+            else if (options != null && (
+            		options.containsKey(ActiveRecordConstants.key_include)||
+            		options.containsKey(ActiveRecordConstants.key_strict_include))) {
+                String sql = constructSqlWithInclude(recordHome, function, field, options);
+                result = SqlServiceClient.retrieveObjectBySQL(sql, options);
+            }
+            else {
+                String sql = constructSql(recordHome, function, field, options);
+                result = SqlServiceClient.retrieveObjectBySQL(sql, options);
+            }
         }
-        else {
-            String sql = constructSql(recordHome, function, field, options);
-            result = SqlServiceClient.retrieveObjectBySQL(sql, options);
+        finally {
+            ReadReplicaRouter.endRead();
         }
         return result;
     }
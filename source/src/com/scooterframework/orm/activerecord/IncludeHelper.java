@@ -296,7 +296,7 @@ public class IncludeHelper {
         findSQL += QueryHelper.getAllSelectQueryClauses(options);
         if (options != null) inputsAndSql.putAll(options);
         
-        log.debug("find sql = " + findSQL);
+        log.debug("find sql = {}", findSQL);
         
         inputsAndSql.put(ActiveRecordConstants.key_finder_sql, findSQL);
         inputsAndSql.putAll(inputs);
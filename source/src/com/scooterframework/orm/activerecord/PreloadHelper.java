@@ -0,0 +1,348 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.activerecord;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.util.Converters;
+import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
+
+/**
+ * <p>PreloadHelper class loads associated records of a list of records with
+ * one query for each association instead of one query for each record.</p>
+ *
+ * <p>For example, pets of a list of owners are loaded by a query like
+ * <tt>SELECT * FROM pets WHERE owner_id IN (?1, ?2, ...)</tt>. The loaded
+ * pets are grouped by <tt>owner_id</tt> and stored in the association cache
+ * of each owner, so that <tt>owner.allAssociated("pets")</tt> does not go to
+ * database again. The number of values in an <tt>IN</tt> list is limited by
+ * the <tt>in.list.size</tt> property in <tt>database.properties</tt>. Longer
+ * lists are split into several queries.</p>
+ *
+ * <p>The include string has the same format as the <tt>include</tt> option.
+ * For example, "<tt>pets=>visits, pets=>type</tt>" loads pets of the
+ * records, then visits and types of all those pets. A has-many-through
+ * association is loaded through its middle association.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class PreloadHelper {
+    PreloadHelper(String includeString) {
+        if (includeString == null || "".equals(includeString.trim()))
+            throw new IllegalArgumentException("include string cannot be empty for PreloadHelper.");
+
+        includeTree = constructIncludeTree(includeString);
+    }
+
+    /**
+     * Loads associated records of all records in the list and stores them
+     * in the association cache of each record. All records in the list
+     * must be of the same type.
+     *
+     * @param records a list of ActiveRecord instances
+     */
+    public void preload(List records) {
+        preload(records, includeTree);
+    }
+
+    private void preload(List records, Map tree) {
+        if (records == null || records.size() == 0) return;
+
+        Iterator it = tree.keySet().iterator();
+        while(it.hasNext()) {
+            String include = (String)it.next();
+            List targets = preloadAssociation(records, include);
+
+            Map next = (Map)tree.get(include);
+            if (next.size() > 0) preload(targets, next);
+        }
+    }
+
+    //key is include name, value is a map of next level include names.
+    private Map constructIncludeTree(String includeString) {
+        Map tree = new LinkedHashMap();
+        List includes = Converters.convertStringToUniqueList(includeString.toLowerCase());
+
+        Iterator it = includes.iterator();
+        while(it.hasNext()) {
+            String include = (String)it.next();
+            Map current = tree;
+            Iterator itNode = Converters.convertStringToUniqueList(include, IncludeHelper.INCLUDE_LINK).iterator();
+            while(itNode.hasNext()) {
+                String node = ((String)itNode.next()).trim();
+                Map next = (Map)current.get(node);
+                if (next == null) {
+                    next = new LinkedHashMap();
+                    current.put(node, next);
+                }
+                current = next;
+            }
+        }
+        return tree;
+    }
+
+    //returns a list of all distinct associated records
+    private List preloadAssociation(List owners, String include) {
+        Class ownerClz = ((ActiveRecord)owners.get(0)).getClass();
+        Relation relation = RelationManager.getInstance().getRelation(ownerClz, include);
+        if (relation == null) {
+            throw new UndefinedRelationException(ActiveRecordUtil.getModelName(ownerClz), include);
+        }
+
+        String relationType = relation.getRelationType();
+        Map ownerTargetsMap = null;
+        if (Relation.HAS_MANY_THROUGH_TYPE.equals(relationType)) {
+            ownerTargetsMap = loadThroughTargets(owners, (HasManyThroughRelation)relation);
+        }
+        else {
+            ownerTargetsMap = loadTargets(owners, relation);
+        }
+
+        List allTargets = new ArrayList();
+        Map seen = new IdentityHashMap();
+        Iterator it = owners.iterator();
+        while(it.hasNext()) {
+            ActiveRecord owner = (ActiveRecord)it.next();
+            List targets = (List)ownerTargetsMap.get(owner);
+            if (targets == null) targets = new ArrayList();
+
+            RecordRelation rr = owner.getRecordRelation(relation.getAssociation());
+            if (Relation.BELONGS_TO_TYPE.equals(relationType) ||
+                Relation.HAS_ONE_TYPE.equals(relationType)) {
+                ActiveRecord target = (targets.size() > 0)?((ActiveRecord)targets.get(0)):null;
+                rr.setAssociatedData(new AssociatedRecord(rr, target));
+            }
+            else if (Relation.HAS_MANY_TYPE.equals(relationType)) {
+                rr.setAssociatedData(new AssociatedRecordsHM(rr, new ArrayList(targets)));
+            }
+            else if (Relation.HAS_MANY_THROUGH_TYPE.equals(relationType)) {
+                rr.setAssociatedData(new AssociatedRecordsHMT(rr, new ArrayList(targets)));
+            }
+
+            addDistinct(allTargets, seen, targets);
+        }
+
+        if (log.isDebugEnabled()) log.debug("preloaded " + allTargets.size() + " " + include + " records for " + owners.size() + " owners.");
+
+        return allTargets;
+    }
+
+    //map key is owner, value is list of targets of the owner.
+    private Map loadThroughTargets(List owners, HasManyThroughRelation relation) {
+        Map ownerMiddlesMap = loadTargets(owners, relation.getACRelation());
+
+        List allMiddles = new ArrayList();
+        Map seen = new IdentityHashMap();
+        Iterator it = ownerMiddlesMap.values().iterator();
+        while(it.hasNext()) {
+            addDistinct(allMiddles, seen, (List)it.next());
+        }
+
+        Map middleTargetsMap = loadTargets(allMiddles, relation.getCBRelation());
+
+        Map ownerTargetsMap = new IdentityHashMap();
+        Iterator itOwner = ownerMiddlesMap.keySet().iterator();
+        while(itOwner.hasNext()) {
+            Object ownerKey = itOwner.next();
+            List targets = new ArrayList();
+            Map targetSeen = new IdentityHashMap();
+            Iterator itMiddle = ((List)ownerMiddlesMap.get(ownerKey)).iterator();
+            while(itMiddle.hasNext()) {
+                ActiveRecord middle = (ActiveRecord)itMiddle.next();
+                List list = (List)middleTargetsMap.get(middle);
+                if (list != null) addDistinct(targets, targetSeen, list);
+            }
+            ownerTargetsMap.put(ownerKey, targets);
+        }
+        return ownerTargetsMap;
+    }
+
+    //map key is owner, value is list of targets of the owner.
+    private Map loadTargets(List owners, Relation relation) {
+        Map ownerTargetsMap = new IdentityHashMap();
+        if (owners == null || owners.size() == 0) return ownerTargetsMap;
+
+        //left side columns are owner's, right side columns are target's
+        Map mappingMap = relation.getMappingMap();
+        int width = mappingMap.size();
+        String[] leftColumns = new String[width];
+        String[] rightColumns = new String[width];
+        int index = 0;
+        Iterator itm = mappingMap.keySet().iterator();
+        while(itm.hasNext()) {
+            String left = (String)itm.next();
+            leftColumns[index] = left;
+            rightColumns[index] = (String)mappingMap.get(left);
+            index++;
+        }
+
+        //distinct owner mapping data
+        Map keyValuesMap = new LinkedHashMap();
+        Iterator it = owners.iterator();
+        while(it.hasNext()) {
+            ActiveRecord owner = (ActiveRecord)it.next();
+            Object[] values = getValues(owner, leftColumns);
+            if (values == null) continue;
+
+            List key = getKey(values);
+            if (!keyValuesMap.containsKey(key)) keyValuesMap.put(key, values);
+            ownerTargetsMap.put(owner, key);
+        }
+
+        //load targets by chunks of IN list
+        Map keyTargetsMap = new HashMap();
+        int chunkSize = Math.max(1, DatabaseConfig.getInstance().getInListSize() / width);
+        List allValues = new ArrayList(keyValuesMap.values());
+        int total = allValues.size();
+        ActiveRecord targetHome = ActiveRecordUtil.getHomeInstance(relation.getTargetClass());
+        for (int start = 0; start < total; start += chunkSize) {
+            List chunk = allValues.subList(start, Math.min(start + chunkSize, total));
+            Map conditionsSQLData = new HashMap();
+            String conditionsSQL = getConditionsSQL(rightColumns, chunk, conditionsSQLData);
+
+            List targets = targetHome.findAll(conditionsSQL, conditionsSQLData, getOptions(relation));
+            Iterator itt = targets.iterator();
+            while(itt.hasNext()) {
+                ActiveRecord target = (ActiveRecord)itt.next();
+                Object[] values = getValues(target, rightColumns);
+                if (values == null) continue;
+
+                List key = getKey(values);
+                List list = (List)keyTargetsMap.get(key);
+                if (list == null) {
+                    list = new ArrayList();
+                    keyTargetsMap.put(key, list);
+                }
+                list.add(target);
+            }
+        }
+
+        //replace key with targets
+        Iterator itk = ownerTargetsMap.keySet().iterator();
+        while(itk.hasNext()) {
+            Object ownerKey = itk.next();
+            List targets = (List)keyTargetsMap.get(ownerTargetsMap.get(ownerKey));
+            ownerTargetsMap.put(ownerKey, (targets != null)?targets:(new ArrayList()));
+        }
+        return ownerTargetsMap;
+    }
+
+    private Map getOptions(Relation relation) {
+        Map options = new HashMap();
+        Map properties = relation.getProperties();
+        if (properties != null) options.putAll(properties);
+        return options;
+    }
+
+    //Creates "col IN (?1, ?2, ...)" for one column or
+    //"(c1 = ?1 AND c2 = ?2) OR (...)" for more columns.
+    private String getConditionsSQL(String[] columns, List valuesList, Map conditionsSQLData) {
+        StringBuffer sb = new StringBuffer();
+        int position = 1;
+        int size = valuesList.size();
+        if (columns.length == 1) {
+            sb.append(columns[0]).append(" IN (");
+            for (int i = 0; i < size; i++) {
+                if (i > 0) sb.append(", ");
+                sb.append('?').append(position);
+                conditionsSQLData.put(position + "", ((Object[])valuesList.get(i))[0]);
+                position++;
+            }
+            sb.append(')');
+        }
+        else {
+            for (int i = 0; i < size; i++) {
+                if (i > 0) sb.append(" OR ");
+                Object[] values = (Object[])valuesList.get(i);
+                sb.append('(');
+                for (int j = 0; j < columns.length; j++) {
+                    if (j > 0) sb.append(" AND ");
+                    sb.append(columns[j]).append(" = ?").append(position);
+                    conditionsSQLData.put(position + "", values[j]);
+                    position++;
+                }
+                sb.append(')');
+            }
+        }
+        return sb.toString();
+    }
+
+    //returns null if any of the values is null
+    private Object[] getValues(ActiveRecord record, String[] columns) {
+        Object[] values = new Object[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            values[i] = record.getField(columns[i]);
+            if (values[i] == null) return null;
+        }
+        return values;
+    }
+
+    //Owner and target columns may be read as different number types, such
+    //as Integer and BigDecimal. Numbers are converted to a common type.
+    static List getKey(Object[] values) {
+        List key = new ArrayList(values.length);
+        for (int i = 0; i < values.length; i++) {
+            key.add(getKeyValue(values[i]));
+        }
+        return key;
+    }
+
+    //integral numbers become BigInteger, other numbers become BigDecimal
+    private static Object getKeyValue(Object value) {
+        if (!(value instanceof Number)) return value;
+        if (value instanceof BigInteger) return value;
+        if (value instanceof Byte || value instanceof Short ||
+            value instanceof Integer || value instanceof Long) {
+            return BigInteger.valueOf(((Number)value).longValue());
+        }
+
+        BigDecimal bd = null;
+        try {
+            bd = (value instanceof BigDecimal)?((BigDecimal)value):(new BigDecimal(value.toString()));
+        }
+        catch(NumberFormatException ex) {
+            return value;//NaN or infinity
+        }
+
+        BigInteger bi = bd.toBigInteger();
+        if (bd.compareTo(new BigDecimal(bi)) == 0) return bi;
+
+        //removes trailing zeros so that 1.50 equals 1.5
+        while (bd.scale() > 0) {
+            try {
+                bd = bd.setScale(bd.scale() - 1);
+            }
+            catch(ArithmeticException ex) {
+                break;
+            }
+        }
+        return bd;
+    }
+
+    private void addDistinct(List all, Map seen, List records) {
+        Iterator it = records.iterator();
+        while(it.hasNext()) {
+            Object record = it.next();
+            if (seen.put(record, record) == null) all.add(record);
+        }
+    }
+
+    //key is include name, value is a map of next level include names.
+    private Map includeTree;
+
+    private LogUtil log = LogUtil.getLogger(this.getClass().getName());
+}
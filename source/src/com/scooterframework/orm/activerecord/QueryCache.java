@@ -0,0 +1,324 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.activerecord;
+
+import java.security.MessageDigest;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+import com.scooterframework.admin.EnvConfig;
+import com.scooterframework.cache.Cache;
+import com.scooterframework.cache.CacheProviderFactory;
+import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.orm.sqldataexpress.object.CompactTableData;
+import com.scooterframework.orm.sqldataexpress.object.TableData;
+import com.scooterframework.transaction.AbstractTransactionImpl;
+import com.scooterframework.transaction.Transaction;
+import com.scooterframework.transaction.TransactionManagerUtil;
+
+/**
+ * <p>QueryCache class caches results of finder queries of
+ * {@link com.scooterframework.orm.activerecord.TableGateway TableGateway}
+ * in a cache provider of <tt>com.scooterframework.cache</tt> package.</p>
+ *
+ * <p>Caching is off by default. It is turned on for all finders of a model
+ * by calling <tt>enableQueryCache</tt> in the model's
+ * <tt>declaresQueryCache</tt> method, or for a single finder call by the
+ * <tt>cache</tt> option. The option value can be <tt>true</tt>,
+ * <tt>false</tt> or the name of a cache provider. When no provider name is
+ * given, the default cache provider is used.</p>
+ *
+ * <pre>
+ * Examples:
+ *      List pets = Pet.findAll("type_id=1", "cache: true");
+ *      List pets = Pet.findAll("type_id=1", "cache: my_local_cache");
+ *      List pets = Pet.findAll("type_id=1", "cache: false");
+ * </pre>
+ *
+ * <p>The cache key is made of the finder SQL, the bound input values, the
+ * offset and the limit. Cached results are compact column by column
+ * snapshots of the rows. Each read from the cache gets its own copy of the
+ * rows, so that changing a record does not change the cached result.</p>
+ *
+ * <p>Each table has a version token in the cache provider, which is part
+ * of every cache key of the table. Creating, updating or deleting records
+ * through a model or its table gateway replaces the token, so that all
+ * cached results of the table are no longer used. Records changed by
+ * <tt>updateBySQL</tt>, <tt>deleteBySQL</tt> or by other applications are
+ * not detected. Cached results of such tables stay until they expire in the
+ * cache provider.</p>
+ *
+ * <p>When records are changed in a transaction, the token is replaced
+ * again after the transaction is committed or rolled back. Results read by
+ * other threads before the commit, and cached under the token set by the
+ * change, are therefore not used after the commit. Finders of a table that
+ * has been changed in the current transaction do not use the cache until
+ * the transaction ends, so that rows which are not committed are never
+ * cached.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class QueryCache {
+    private static LogUtil log = LogUtil.getLogger(QueryCache.class.getName());
+
+    private static final String VERSION_KEY_PREFIX = "qcv_";
+    private static final String RESULT_KEY_PREFIX = "qcr_";
+
+    /**
+     * table key to set of names of cache providers which have cached
+     * results of the table
+     */
+    private static Map providersOfTables = Collections.synchronizedMap(new HashMap());
+
+    private static long sequence = 0;
+
+    private QueryCache() {
+    }
+
+    /**
+     * Returns the cache provider to be used for a query, or null if results
+     * of the query should not be cached.
+     *
+     * @param home      home instance of the model
+     * @param options   finder options, may be null
+     * @return cache provider or null
+     */
+    static Cache getCache(ActiveRecord home, Map options) {
+        Object option = (options != null)?options.get(ActiveRecordConstants.key_cache):null;
+        String providerName = null;
+        if (option == null || "".equals(option.toString().trim())) {
+            if (!home.useQueryCache()) return null;
+            providerName = home.getQueryCacheProviderName();
+        }
+        else {
+            String value = option.toString().trim();
+            if ("false".equalsIgnoreCase(value)) return null;
+            providerName = ("true".equalsIgnoreCase(value))?home.getQueryCacheProviderName():value;
+        }
+
+        if (isChangedInTransaction(home)) return null;
+
+        Cache cache = null;
+        try {
+            if (providerName == null) {
+                providerName = EnvConfig.getInstance().getDefaultCacheProviderName();
+                if (providerName == null) {
+                    log.warn("Query cache is not used for table " + home.getTableName() +
+                             " because there is no default cache provider.");
+                    return null;
+                }
+            }
+            cache = CacheProviderFactory.getInstance().getCache(providerName);
+        }
+        catch(Exception ex) {
+            log.error("Failed to get cache provider \"" + providerName + "\": " + ex.getMessage());
+            return null;
+        }
+
+        registerProvider(home, providerName);
+        return cache;
+    }
+
+    /**
+     * Returns cache key of a query.
+     *
+     * @param cache     cache provider
+     * @param home      home instance of the model
+     * @param sql       finder SQL
+     * @param inputs    input values of the query
+     * @param offset    offset of the first row
+     * @param limit     maximum number of rows
+     * @return cache key, or null if the cache provider cannot be read
+     */
+    static String getKey(Cache cache, ActiveRecord home, String sql, Map inputs, int offset, int limit) {
+        String version = getTableVersion(cache, home);
+        if (version == null) return null;
+
+        StringBuffer sb = new StringBuffer();
+        sb.append(sql).append('|').append(offset).append('|').append(limit);
+
+        if (inputs != null) {
+            Map sorted = new TreeMap();
+            Iterator it = inputs.keySet().iterator();
+            while(it.hasNext()) {
+                Object key = it.next();
+                if (ActiveRecordConstants.key_cache.equals(key)) continue;
+                Object value = inputs.get(key);
+                sorted.put(String.valueOf(key),
+                    (value == null)?"null":(value.getClass().getName() + ":" + value));
+            }
+            sb.append('|').append(sorted);
+        }
+
+        return RESULT_KEY_PREFIX + home.getTableName() + "_" +
+               version + "_" + digest(sb.toString());
+    }
+
+    /**
+     * Returns a copy of the rows cached under a key, or null if there is none.
+     */
+    static TableData getRows(Cache cache, String key) {
+        Object value = null;
+        try {
+            value = cache.get(key);
+        }
+        catch(Exception ex) {
+            log.error("Failed to read query cache: " + ex.getMessage());
+        }
+        return (value instanceof CompactTableData)?((CompactTableData)value).toTableData():null;
+    }
+
+    /**
+     * Caches a snapshot of the rows under a key.
+     */
+    static void putRows(Cache cache, String key, TableData td) {
+        if (td == null) return;
+        try {
+            cache.put(key, new CompactTableData(td));
+        }
+        catch(Exception ex) {
+            log.error("Failed to write query cache: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Makes all cached query results of the model's table obsolete. If the
+     * current thread is in a transaction, they are made obsolete again
+     * after the transaction ends.
+     *
+     * @param record  a record or the home instance of the model
+     */
+    public static void invalidate(final ActiveRecord record) {
+        replaceVersion(record);
+
+        AbstractTransactionImpl tx = getActiveTransaction();
+        if (tx != null) {
+            tx.registerCompletionTask(getVersionKey(record), new Runnable() {
+                public void run() {
+                    replaceVersion(record);
+                }
+            });
+        }
+    }
+
+    /**
+     * Checks if the model's table has been changed in the transaction of
+     * the current thread. Results read by such a transaction may not be
+     * committed, so they are neither read from nor written to the cache.
+     */
+    private static boolean isChangedInTransaction(ActiveRecord home) {
+        AbstractTransactionImpl tx = getActiveTransaction();
+        return (tx != null && tx.hasCompletionTask(getVersionKey(home)));
+    }
+
+    private static AbstractTransactionImpl getActiveTransaction() {
+        Transaction tx = TransactionManagerUtil.getTransactionManager().getTransaction();
+        if (tx instanceof AbstractTransactionImpl &&
+            tx.isTransactionStarted() && !tx.isTransactionEnded()) {
+            return (AbstractTransactionImpl)tx;
+        }
+        return null;
+    }
+
+    private static void replaceVersion(ActiveRecord record) {
+        Set names = new HashSet();
+        Set used = (Set)providersOfTables.get(getTableKey(record));
+        if (used != null) {
+            synchronized(used) {
+                names.addAll(used);
+            }
+        }
+        if (record.useQueryCache() && record.getQueryCacheProviderName() != null) {
+            names.add(record.getQueryCacheProviderName());
+        }
+
+        Iterator it = names.iterator();
+        while(it.hasNext()) {
+            String providerName = (String)it.next();
+            try {
+                Cache cache = CacheProviderFactory.getInstance().getCache(providerName);
+                cache.put(getVersionKey(record), newVersion());
+            }
+            catch(Exception ex) {
+                log.error("Failed to invalidate query cache of table " +
+                          record.getTableName() + " in cache provider \"" +
+                          providerName + "\": " + ex.getMessage());
+            }
+        }
+    }
+
+    private static void registerProvider(ActiveRecord home, String providerName) {
+        String tableKey = getTableKey(home);
+        Set names = (Set)providersOfTables.get(tableKey);
+        if (names == null) {
+            synchronized(providersOfTables) {
+                names = (Set)providersOfTables.get(tableKey);
+                if (names == null) {
+                    names = Collections.synchronizedSet(new HashSet());
+                    providersOfTables.put(tableKey, names);
+                }
+            }
+        }
+        names.add(providerName);
+    }
+
+    private static String getTableVersion(Cache cache, ActiveRecord home) {
+        String versionKey = getVersionKey(home);
+        try {
+            Object version = cache.get(versionKey);
+            if (version == null) {
+                version = newVersion();
+                cache.put(versionKey, version);
+            }
+            return version.toString();
+        }
+        catch(Exception ex) {
+            log.error("Failed to read query cache version of table " +
+                      home.getTableName() + ": " + ex.getMessage());
+        }
+        return null;
+    }
+
+    static String getVersionKey(ActiveRecord record) {
+        return VERSION_KEY_PREFIX + getTableKey(record);
+    }
+
+    private static String getTableKey(ActiveRecord record) {
+        return record.getConnectionName() + "_" + record.getTableName();
+    }
+
+    private static synchronized String newVersion() {
+        sequence++;
+        return Long.toString(System.currentTimeMillis(), 36) + Long.toString(sequence, 36);
+    }
+
+    /**
+     * Returns a hex MD5 digest of a string, so that the cache key is short
+     * and has no white space as required by memcached.
+     */
+    private static String digest(String s) {
+        try {
+            byte[] bytes = MessageDigest.getInstance("MD5").digest(s.getBytes("UTF-8"));
+            StringBuffer sb = new StringBuffer(bytes.length * 2);
+            for (int i = 0; i < bytes.length; i++) {
+                int b = bytes[i] & 0xff;
+                if (b < 0x10) sb.append('0');
+                sb.append(Integer.toHexString(b));
+            }
+            return sb.toString();
+        }
+        catch(Exception ex) {
+            throw new IllegalStateException("Failed to create digest: " + ex.getMessage());
+        }
+    }
+}
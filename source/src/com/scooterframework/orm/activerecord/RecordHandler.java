@@ -0,0 +1,26 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.activerecord;
+
+/**
+ * <p>RecordHandler interface is a callback for processing records found by 
+ * <tt>findEach</tt> finders one by one as they are read from database.</p>
+ * 
+ * <p>Records passed to a RecordHandler are not kept by the framework, so 
+ * that a large number of records can be processed in constant memory.</p>
+ * 
+ * @author (Fei) John Chen
+ */
+public interface RecordHandler {
+    /**
+     * Processes a record.
+     * 
+     * @param record the current record
+     */
+    public void handleRecord(ActiveRecord record);
+}
@@ -24,7 +24,16 @@ import com.scooterframework.orm.sqldataexpress.object.RowData;
 import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
 
 /**
- * ReferenceDataLoader is responsible for loading reference data.
+ * <p>ReferenceDataLoader is responsible for loading reference data.</p>
+ * 
+ * <p>If the <tt>update_column</tt> attribute of a reference data names a 
+ * timestamp column which is updated whenever a row is changed, only rows 
+ * changed at or after the latest loaded time are read when the data is 
+ * refreshed, and they are merged into the existing data by key. Rows 
+ * deleted from the table, and rows committed late with an earlier 
+ * timestamp, are only picked up by a full load. A full load happens when 
+ * the reference data properties are changed, and every 
+ * <tt>full_reload_period</tt> milliseconds if the attribute is specified.</p>
  * 
  * @author (Fei) John Chen
  */
@@ -144,7 +153,11 @@ public class ReferenceDataLoader implements Observer {
         String sql = null;
         String key = "";
         String value = "";
+        String updateColumn = null;
+        Object lastUpdate = null;
         long period = 0;//in milliseconds
+        long fullReloadPeriod = 0;//in milliseconds
+        long fullLoadTime = 0;
         Date loadedTime = null;
         boolean hasRun = false;
         boolean periodModified = false;
@@ -165,6 +178,7 @@ public class ReferenceDataLoader implements Observer {
             
             key = prop.getProperty("key");
             value = prop.getProperty("value");
+            updateColumn = prop.getProperty("update_column");
             
             long thePeriod = 0;
             try {
@@ -174,6 +188,13 @@ public class ReferenceDataLoader implements Observer {
                 thePeriod = 0;
             }
             
+            try {
+                fullReloadPeriod = Long.parseLong(prop.getProperty("full_reload_period", "0"));
+            }
+            catch(NumberFormatException nfex) {
+                fullReloadPeriod = 0;
+            }
+            
             periodModified = false;
             //if ((hasRun && (thePeriod != 0) || !hasRun && (thePeriod == 0)) && (period != thePeriod)) {
             if (period != thePeriod) {
@@ -196,30 +217,89 @@ public class ReferenceDataLoader implements Observer {
         
         public void resetProperties(Properties prop) {
             init(prop);
+            lastUpdate = null;
         }
         
         public void run() {
             if (donotRun || (runOnlyOnce && hasRun)) return;
             
+            if (updateColumn != null && lastUpdate != null && !isFullReloadDue()) {
+                List changes = loadChanges();
+                ReferenceDataStore.mergeReferenceData(theName, changes);
+                lastUpdate = getLatestUpdate(changes, lastUpdate);
+            }
+            else {
+                List data = loadAll();
+                ReferenceDataStore.setReferenceData(theName, data);
+                if (updateColumn != null) lastUpdate = getLatestUpdate(data, null);
+                fullLoadTime = System.currentTimeMillis();
+            }
+            
+            loadedTime = new Date();
+            hasRun = true;
+        }
+        
+        private List loadAll() {
             if (clz != null) {
                 ActiveRecord recordHome = ActiveRecordUtil.getHomeInstance(clz);
                 List records = null;
                 if (sql != null) {
                     records = recordHome.findAllBySQL(sql);
-                    ReferenceDataStore.setReferenceData(theName, records);
                 }
                 else {
                     records = recordHome.findAll();
                 }
-                ReferenceDataStore.setReferenceData(theName, convertRecordsToReferenceDataList(records));
+                return convertRecordsToReferenceDataList(records);
             }
-            else {
-                List rows = SqlServiceClient.retrieveRowsBySQL(sql);
-                ReferenceDataStore.setReferenceData(theName, convertRowsToReferenceDataList(rows));
+            
+            List rows = SqlServiceClient.retrieveRowsBySQL(sql);
+            return convertRowsToReferenceDataList(rows);
+        }
+        
+        private boolean isFullReloadDue() {
+            return fullReloadPeriod > 0 && 
+                   System.currentTimeMillis() - fullLoadTime >= fullReloadPeriod;
+        }
+        
+        //loads rows whose update column is not earlier than the last load. 
+        //Rows of the latest loaded time are read again, as rows committed 
+        //later may have the same time, and merging them again is harmless.
+        private List loadChanges() {
+            Map inputs = new HashMap();
+            inputs.put("1", lastUpdate);
+            
+            if (clz != null) {
+                ActiveRecord recordHome = ActiveRecordUtil.getHomeInstance(clz);
+                List records = null;
+                if (sql != null) {
+                    records = recordHome.findAllBySQL(getChangedRowsSQL(), inputs);
+                }
+                else {
+                    records = recordHome.findAll(updateColumn + " >= ?1", inputs);
+                }
+                return convertRecordsToReferenceDataList(records);
             }
             
-            loadedTime = new Date();
-            hasRun = true;
+            List rows = SqlServiceClient.retrieveRowsBySQL(getChangedRowsSQL(), inputs);
+            return convertRowsToReferenceDataList(rows);
+        }
+        
+        private String getChangedRowsSQL() {
+            return "SELECT * FROM (" + sql + ") rd WHERE rd." + updateColumn + " >= ?1";
+        }
+        
+        private Object getLatestUpdate(List data, Object latest) {
+            if (data == null) return latest;
+            
+            Iterator it = data.iterator();
+            while(it.hasNext()) {
+                Object time = ((ReferenceData)it.next()).getFieldData(updateColumn);
+                if (time instanceof Comparable && 
+                    (latest == null || ((Comparable)time).compareTo(latest) > 0)) {
+                    latest = time;
+                }
+            }
+            return latest;
         }
         
         public String toString() {
@@ -229,7 +309,9 @@ public class ReferenceDataLoader implements Observer {
             sb.append("sql=" + sql).append(", ");
             sb.append("key=" + key).append(", ");
             sb.append("value=" + value).append(", ");
+            sb.append("update_column=" + updateColumn).append(", ");
             sb.append("period=" + period).append(", ");
+            sb.append("full_reload_period=" + fullReloadPeriod).append(", ");
             sb.append("loadedTime=" + loadedTime);
             return sb.toString();
         }
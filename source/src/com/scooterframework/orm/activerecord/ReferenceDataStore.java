@@ -7,15 +7,26 @@
  */
 package com.scooterframework.orm.activerecord;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 
 /**
- * ReferenceDataStore class holds static reference data for all users.
+ * <p>ReferenceDataStore class holds static reference data for all users.</p>
+ * 
+ * <p>Data of each type is kept as an immutable snapshot with indexes on 
+ * key and on value, so that a lookup by key or by value does not scan the 
+ * list. Keys and values are compared by their string forms, ignoring case. 
+ * When more than one item has the same key or value, the first one in the 
+ * list is found.</p>
+ * 
+ * <p>A new snapshot replaces the old one as a whole. Lookups never wait for 
+ * a reload, and they see either the old data or the new data of a type.</p>
  * 
  * @author (Fei) John Chen
  * 
@@ -27,8 +38,10 @@ public class ReferenceDataStore implements java.io.Serializable {
 	 */
 	private static final long serialVersionUID = 5382025995336758728L;
     
-    private static Map refData = Collections.synchronizedMap(new HashMap());
-    private static Date refDataLoadedTime = null;
+    //key is type, value is TypeData. The map is replaced as a whole under lock.
+    private static volatile Map refData = Collections.EMPTY_MAP;
+    private static volatile Date refDataLoadedTime = null;
+    private static final Object lock = new Object();
 	
 	/**
      * Gets ReferenceData by type and key
@@ -38,21 +51,8 @@ public class ReferenceDataStore implements java.io.Serializable {
     public static ReferenceData getReferenceDataByTypeAndKey(String type, String keyData) {
         if (keyData == null) return null;
         
-        ReferenceData rd = null;
-
-        List list = (List) refData.get(type);
-        if ( list != null ) {
-            Iterator it = list.iterator();
-            while (it.hasNext()) {
-                ReferenceData tmp = (ReferenceData) it.next();
-                if (tmp.getKeyData() != null && keyData.toString().equalsIgnoreCase(tmp.getKeyData().toString())) {
-                    rd = tmp;
-                    break;
-                }
-            }
-        }
-
-        return rd;
+        TypeData td = (TypeData)refData.get(type);
+        return (td != null)?(ReferenceData)td.keyIndex.get(normalize(keyData)):null;
     }
     
     /**
@@ -63,30 +63,19 @@ public class ReferenceDataStore implements java.io.Serializable {
     public static ReferenceData getReferenceDataByTypeAndValue(String type, Object valueData) {
         if (valueData == null) return null;
         
-        ReferenceData rd = null;
-
-        List list = (List) refData.get(type);
-        if ( list != null ) {
-            Iterator it = list.iterator();
-            while (it.hasNext()) {
-                ReferenceData tmp = (ReferenceData) it.next();
-                if (tmp.getValueData() != null && valueData.toString().equalsIgnoreCase(tmp.getValueData().toString())) {
-                    rd = tmp;
-                    break;
-                }
-            }
-        }
-
-        return rd;
+        TypeData td = (TypeData)refData.get(type);
+        return (td != null)?(ReferenceData)td.valueIndex.get(normalize(valueData)):null;
     }
 
     /**
-     * Gets a list of ReferenceData instances for a certain type
+     * Gets a list of ReferenceData instances for a certain type. The list 
+     * cannot be modified.
      * 
      * @return List
      */
     public static List getReferenceDataList(String type) {
-        return (List) refData.get(type);
+        TypeData td = (TypeData)refData.get(type);
+        return (td != null)?td.list:null;
     }
 
     /**
@@ -96,8 +85,19 @@ public class ReferenceDataStore implements java.io.Serializable {
      */
     public static void setReferenceData(Map dataMap) {
         if (dataMap == null || dataMap.size() == 0) return;
-        refData = dataMap;
-        refDataLoadedTime = new Date();
+        
+        Map map = new HashMap(dataMap.size());
+        Iterator it = dataMap.keySet().iterator();
+        while(it.hasNext()) {
+            Object type = it.next();
+            List data = (List)dataMap.get(type);
+            if (data != null) map.put(type, new TypeData(data));
+        }
+        
+        synchronized(lock) {
+            refData = Collections.unmodifiableMap(map);
+            refDataLoadedTime = new Date();
+        }
     }
 
     /**
@@ -109,8 +109,52 @@ public class ReferenceDataStore implements java.io.Serializable {
     public static void setReferenceData(String type, List data) {
         if (data == null) return;
         
-        refData.put(type, data);
-        refDataLoadedTime = new Date();
+        publish(type, new TypeData(data));
+    }
+
+    /**
+     * Merges changed ReferenceData into the existing data of a certain type. 
+     * An item replaces the existing item with the same key, and an item 
+     * with a new key is added to the end of the list.
+     *
+     * @param type type of the data
+     * @param changes a list of changed reference data
+     */
+    public static void mergeReferenceData(String type, List changes) {
+        if (changes == null || changes.size() == 0) return;
+        
+        synchronized(lock) {
+            TypeData td = (TypeData)refData.get(type);
+            if (td == null) {
+                publish(type, new TypeData(changes));
+                return;
+            }
+            
+            Map changedByKey = new HashMap();
+            List added = new ArrayList();
+            Iterator it = changes.iterator();
+            while(it.hasNext()) {
+                ReferenceData rd = (ReferenceData)it.next();
+                String key = normalize(rd.getKeyData());
+                if (key != null && td.keyIndex.containsKey(key)) {
+                    changedByKey.put(key, rd);
+                }
+                else {
+                    added.add(rd);
+                }
+            }
+            
+            List list = new ArrayList(td.list.size() + added.size());
+            it = td.list.iterator();
+            while(it.hasNext()) {
+                ReferenceData rd = (ReferenceData)it.next();
+                ReferenceData changed = (ReferenceData)changedByKey.remove(normalize(rd.getKeyData()));
+                list.add((changed != null)?changed:rd);
+            }
+            list.addAll(added);
+            
+            publish(type, new TypeData(list));
+        }
     }
 
     /**
@@ -121,4 +165,42 @@ public class ReferenceDataStore implements java.io.Serializable {
     public static Date getLastReferenceDataLoadedTime() {
         return refDataLoadedTime;
     }
+    
+    private static void publish(Object type, TypeData td) {
+        synchronized(lock) {
+            Map map = new HashMap(refData);
+            map.put(type, td);
+            refData = Collections.unmodifiableMap(map);
+            refDataLoadedTime = new Date();
+        }
+    }
+    
+    private static String normalize(Object data) {
+        return (data != null)?data.toString().toLowerCase(Locale.ENGLISH):null;
+    }
+    
+    /**
+     * TypeData holds an immutable list of reference data of a type and its 
+     * indexes.
+     */
+    private static class TypeData {
+        TypeData(List data) {
+            list = Collections.unmodifiableList(new ArrayList(data));
+            keyIndex = new HashMap(data.size());
+            valueIndex = new HashMap(data.size());
+            
+            Iterator it = list.iterator();
+            while(it.hasNext()) {
+                ReferenceData rd = (ReferenceData)it.next();
+                String key = normalize(rd.getKeyData());
+                if (key != null && !keyIndex.containsKey(key)) keyIndex.put(key, rd);
+                String value = normalize(rd.getValueData());
+                if (value != null && !valueIndex.containsKey(value)) valueIndex.put(value, rd);
+            }
+        }
+        
+        List list;
+        Map keyIndex;
+        Map valueIndex;
+    }
 }
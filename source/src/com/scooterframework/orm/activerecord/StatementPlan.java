@@ -0,0 +1,332 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.activerecord;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.scooterframework.common.util.LRUCache;
+import com.scooterframework.orm.sqldataexpress.object.ColumnInfo;
+import com.scooterframework.orm.sqldataexpress.object.RowData;
+import com.scooterframework.orm.sqldataexpress.object.RowInfo;
+
+/**
+ * <p>StatementPlan class holds the insert, update and delete statements of
+ * a model, compiled once for each row layout of its records.</p>
+ *
+ * <p>A new record uses the table's RowInfo, while a record found by a
+ * finder uses the RowInfo of the finder's result set, which is created for
+ * each query. Plans are therefore kept by table name and row layout, made
+ * of the names, types and key and read-only flags of the row's columns, so
+ * that records of all finders with the same columns share one plan. At
+ * most {@link #MAX_PLANS} plans are kept. Each statement keeps the positions of its parameter
+ * values in the row, so that values are read from the RowData by index
+ * and bound by position without building SQL strings or input maps.</p>
+ *
+ * <p>Update statements of changed columns are compiled for each set of
+ * changed columns and kept up to {@link #MAX_CHANGED_VARIANTS} sets.</p>
+ *
+ * <p>A plan is compiled again when the table's RowInfo or its primary key
+ * or read-only columns are changed.</p>
+ *
+ * @author (Fei) John Chen
+ */
+class StatementPlan {
+
+    /**
+     * Maximum number of update statements of changed columns kept in a plan.
+     */
+    static final int MAX_CHANGED_VARIANTS = 64;
+
+    /**
+     * Maximum number of plans kept for all models.
+     */
+    static final int MAX_PLANS = 1000;
+
+    //A plan keeps no strong reference to the RowInfo of the table, so that
+    //a replaced table RowInfo can be collected.
+    private StatementPlan(String tableName, RowInfo header, RowInfo rowHeader) {
+        this.tableName = tableName;
+        this.headerRef = new WeakReference(header);
+        this.headerPrimaryKeys = header.getPrimaryKeyColumnNames();
+        this.headerReadOnlyCount = header.getReadOnlyColumnNames().size();
+
+        int dimension = rowHeader.getDimension();
+        rowColumnNames = new String[dimension];
+        changeable = new boolean[dimension];
+        for (int i = 0; i < dimension; i++) {
+            rowColumnNames[i] = rowHeader.getColumnName(i);
+            int headerIndex = header.findColumnPositionIndex(rowColumnNames[i]);
+            if (headerIndex != -1) {
+                ColumnInfo ci = header.getColumnInfo(headerIndex);
+                changeable[i] = !ci.isReadOnly() && ci.isWritable() && !ci.isPrimaryKey();
+            }
+        }
+
+        rowKeyIndexes = getRowIndexes(rowHeader, rowHeader.getPrimaryKeyColumnNames());
+        insert = compileInsert(rowHeader, false);
+        insertAutoKey = compileInsert(rowHeader, true);
+        update = compileUpdate(rowHeader, header.hasPrimaryKey());
+        delete = compileDelete(rowHeader, header);
+    }
+
+    /**
+     * Returns the plan of a row layout of a model.
+     *
+     * @param tableName  table name of the model
+     * @param header     RowInfo of the table
+     * @param rowHeader  RowInfo of the record's row
+     * @return the plan
+     */
+    static StatementPlan getPlan(String tableName, RowInfo header, RowInfo rowHeader) {
+        String layout = getLayout(tableName, rowHeader);
+        StatementPlan plan = (StatementPlan)plans.get(layout);
+        if (plan == null || !plan.isValidFor(header)) {
+            plan = new StatementPlan(tableName, header, rowHeader);
+            plans.put(layout, plan);
+        }
+        return plan;
+    }
+
+    //returns a key of the table and the columns of a row layout
+    private static String getLayout(String tableName, RowInfo rowHeader) {
+        StringBuffer sb = new StringBuffer(tableName);
+        int dimension = rowHeader.getDimension();
+        for (int i = 0; i < dimension; i++) {
+            ColumnInfo ci = rowHeader.getColumnInfo(i);
+            sb.append('|').append(ci.getColumnName()).append(':').append(ci.getSQLDataType());
+            if (ci.isPrimaryKey()) sb.append(":P");
+            if (ci.isReadOnly()) sb.append(":R");
+            if (!ci.isWritable()) sb.append(":N");
+        }
+
+        String[] keys = rowHeader.getPrimaryKeyColumnNames();
+        if (keys != null) {
+            sb.append("|keys");
+            for (int i = 0; i < keys.length; i++) sb.append(':').append(keys[i]);
+        }
+        sb.append("|readonly:").append(rowHeader.getReadOnlyColumnNames());
+        return sb.toString();
+    }
+
+    /**
+     * Returns the insert statement.
+     *
+     * @param autoPopulatePrimaryKey true if primary key value is generated by database
+     */
+    PlannedStatement getInsert(boolean autoPopulatePrimaryKey) {
+        return (autoPopulatePrimaryKey)?insertAutoKey:insert;
+    }
+
+    /**
+     * Returns the statement which updates all writable columns of the row,
+     * or null if there is no such column.
+     */
+    PlannedStatement getUpdate() {
+        return update;
+    }
+
+    /**
+     * Returns the statement which updates changed columns of the row, or
+     * null if none of them can be updated.
+     *
+     * @param changed  row indexes of changed columns
+     */
+    PlannedStatement getUpdateChanged(BitSet changed) {
+        synchronized(changedVariants) {
+            PlannedStatement ps = (PlannedStatement)changedVariants.get(changed);
+            if (ps != null || changedVariants.containsKey(changed)) return ps;
+        }
+
+        PlannedStatement ps = compileUpdateChanged(changed);
+
+        synchronized(changedVariants) {
+            if (changedVariants.size() < MAX_CHANGED_VARIANTS) {
+                changedVariants.put(changed.clone(), ps);
+            }
+        }
+        return ps;
+    }
+
+    /**
+     * Returns the statement which deletes the record by its primary key.
+     */
+    PlannedStatement getDelete() {
+        return delete;
+    }
+
+    private boolean isValidFor(RowInfo header) {
+        return headerRef.get() == header &&
+               headerPrimaryKeys == header.getPrimaryKeyColumnNames() &&
+               headerReadOnlyCount == header.getReadOnlyColumnNames().size();
+    }
+
+    private PlannedStatement compileInsert(RowInfo rowHeader, boolean autoPopulatePrimaryKey) {
+        StringBuffer names = new StringBuffer();
+        StringBuffer values = new StringBuffer();
+        List indexes = new ArrayList();
+        int dimension = rowHeader.getDimension();
+        for (int i = 0; i < dimension; i++) {
+            ColumnInfo ci = rowHeader.getColumnInfo(i);
+            if (ci.isPrimaryKey() && autoPopulatePrimaryKey) continue;
+            if (ci.isReadOnly() || !ci.isWritable()) continue;
+
+            if (indexes.size() > 0) {
+                names.append(", ");
+                values.append(", ");
+            }
+            names.append(ci.getColumnName());
+            values.append("?");
+            indexes.add(new Integer(i));
+        }
+
+        String sql = "INSERT INTO " + tableName + " (" + names + ") VALUES (" + values + ")";
+        return new PlannedStatement(sql, toArray(indexes));
+    }
+
+    private PlannedStatement compileUpdate(RowInfo rowHeader, boolean hasPrimaryKey) {
+        StringBuffer sets = new StringBuffer();
+        List indexes = new ArrayList();
+        int dimension = rowHeader.getDimension();
+        for (int i = 0; i < dimension; i++) {
+            ColumnInfo ci = rowHeader.getColumnInfo(i);
+            if (ci.isReadOnly() || !ci.isWritable() || ci.isPrimaryKey()) continue;
+            appendSet(sets, indexes, ci.getColumnName(), i);
+        }
+        if (indexes.size() == 0) return null;
+
+        //a table without primary key is updated by all current values
+        int[] whereIndexes = rowKeyIndexes;
+        if (!hasPrimaryKey) {
+            whereIndexes = new int[dimension];
+            for (int i = 0; i < dimension; i++) whereIndexes[i] = i;
+        }
+        return compileUpdate(sets, indexes, whereIndexes);
+    }
+
+    private PlannedStatement compileUpdateChanged(BitSet changed) {
+        StringBuffer sets = new StringBuffer();
+        List indexes = new ArrayList();
+        for (int i = changed.nextSetBit(0); i >= 0; i = changed.nextSetBit(i + 1)) {
+            if (i >= changeable.length || !changeable[i]) continue;
+            appendSet(sets, indexes, rowColumnNames[i], i);
+        }
+        if (indexes.size() == 0) return null;
+
+        return compileUpdate(sets, indexes, rowKeyIndexes);
+    }
+
+    private PlannedStatement compileUpdate(StringBuffer sets, List indexes, int[] whereIndexes) {
+        StringBuffer sql = new StringBuffer();
+        sql.append("UPDATE ").append(tableName).append(" SET ").append(sets);
+        for (int i = 0; i < whereIndexes.length; i++) {
+            sql.append((i == 0)?" WHERE ":" AND ");
+            sql.append(rowColumnNames[whereIndexes[i]]).append(" = ?");
+            indexes.add(new Integer(whereIndexes[i]));
+        }
+        return new PlannedStatement(sql.toString(), toArray(indexes));
+    }
+
+    private PlannedStatement compileDelete(RowInfo rowHeader, RowInfo header) {
+        String[] names = header.getPrimaryKeyColumnNames();
+        if (names == null || names.length == 0) names = header.getColumnNames();
+        if (names == null) names = new String[0];
+
+        StringBuffer sql = new StringBuffer();
+        sql.append("DELETE FROM ").append(tableName);
+        List indexes = new ArrayList();
+        for (int i = 0; i < names.length; i++) {
+            sql.append((i == 0)?" WHERE ":" AND ").append(names[i]).append(" = ?");
+            indexes.add(new Integer(rowHeader.findColumnPositionIndex(names[i])));
+        }
+        return new PlannedStatement(sql.toString(), toArray(indexes));
+    }
+
+    private static void appendSet(StringBuffer sets, List indexes, String columnName, int index) {
+        if (indexes.size() > 0) sets.append(", ");
+        sets.append(columnName).append(" = ?");
+        indexes.add(new Integer(index));
+    }
+
+    private static int[] getRowIndexes(RowInfo rowHeader, String[] names) {
+        if (names == null) return new int[0];
+
+        List indexes = new ArrayList();
+        for (int i = 0; i < names.length; i++) {
+            int index = rowHeader.findColumnPositionIndex(names[i]);
+            if (index != -1) indexes.add(new Integer(index));
+        }
+        return toArray(indexes);
+    }
+
+    private static int[] toArray(List indexes) {
+        int[] array = new int[indexes.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = ((Integer)indexes.get(i)).intValue();
+        }
+        return array;
+    }
+
+    /**
+     * PlannedStatement class holds a compiled statement and the row indexes
+     * of its parameter values.
+     */
+    static class PlannedStatement {
+        PlannedStatement(String sql, int[] indexes) {
+            this.sql = sql;
+            this.indexes = indexes;
+        }
+
+        String getSql() {
+            return sql;
+        }
+
+        /**
+         * Returns parameter values of the statement read from a row. The
+         * value of a column which is not in the row is null.
+         */
+        Object[] getValues(RowData rd) {
+            Object[] values = new Object[indexes.length];
+            for (int i = 0; i < indexes.length; i++) {
+                int index = indexes[i];
+                if (index >= 0) values[i] = rd.getField(index);
+            }
+            return values;
+        }
+
+        public String toString() {
+            return sql;
+        }
+
+        private String sql;
+        private int[] indexes;
+    }
+
+    private String tableName;
+    private WeakReference headerRef;
+    private String[] headerPrimaryKeys;
+    private int headerReadOnlyCount;
+    private String[] rowColumnNames;
+    private boolean[] changeable;
+    private int[] rowKeyIndexes;
+
+    private PlannedStatement insert;
+    private PlannedStatement insertAutoKey;
+    private PlannedStatement update;
+    private PlannedStatement delete;
+
+    //key is BitSet of changed row indexes, value is PlannedStatement or null
+    private Map changedVariants = new HashMap();
+
+    //key is table name and row layout, value is StatementPlan
+    private static LRUCache plans = new LRUCache(MAX_PLANS);
+}
@@ -14,15 +14,19 @@ import java.util.List;
 import java.util.Map;
 import java.util.StringTokenizer;
 
+import com.scooterframework.cache.Cache;
 import com.scooterframework.common.exception.ObjectCreationException;
 import com.scooterframework.common.exception.RequiredDataMissingException;
 import com.scooterframework.common.util.Converters;
 import com.scooterframework.common.util.StringUtil;
 import com.scooterframework.common.util.Util;
+import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
+import com.scooterframework.orm.sqldataexpress.connection.ReadReplicaRouter;
 import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
 import com.scooterframework.orm.sqldataexpress.object.ColumnInfo;
 import com.scooterframework.orm.sqldataexpress.object.OmniDTO;
 import com.scooterframework.orm.sqldataexpress.object.RowData;
+import com.scooterframework.orm.sqldataexpress.object.RowHandler;
 import com.scooterframework.orm.sqldataexpress.object.RowInfo;
 import com.scooterframework.orm.sqldataexpress.object.TableData;
 import com.scooterframework.orm.sqldataexpress.processor.DataProcessor;
@@ -30,6 +34,10 @@ import com.scooterframework.orm.sqldataexpress.processor.DataProcessorTypes;
 import com.scooterframework.orm.sqldataexpress.service.SqlService;
 import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
 import com.scooterframework.orm.sqldataexpress.service.SqlServiceConfig;
+import com.scooterframework.orm.sqldataexpress.vendor.DBAdapter;
+import com.scooterframework.orm.sqldataexpress.vendor.DBAdapterFactory;
+import com.scooterframework.transaction.ImplicitTransactionManager;
+import com.scooterframework.transaction.TransactionManagerUtil;
 
 /**
  * <p>TableGateway class implements Table Data Gateway pattern. TableGateway 
@@ -41,6 +49,16 @@ import com.scooterframework.orm.sqldataexpress.service.SqlServiceConfig;
  * retrieve them and then use the record instance's delete() or update() 
  * method which has callbacks. </p>
  * 
+ * <p>Results of finder methods can be cached. See 
+ * {@link com.scooterframework.orm.activerecord.QueryCache QueryCache} 
+ * class for details. Updates and deletes through this class invalidate 
+ * cached results of the table.</p>
+ * 
+ * <p>A list of records can be created in batches by <tt>createAll</tt>.</p>
+ * 
+ * <p>Large results can be processed record by record in constant memory 
+ * by <tt>findEach</tt>.</p>
+ * 
  * @author (Fei) John Chen
  */
 public class TableGateway {
@@ -115,10 +133,18 @@ public class TableGateway {
         try {
             Map inputs = new HashMap();
             inputs.put("1", id);
-            OmniDTO returnTO = 
-                getSqlService().execute(inputs, DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, findSQL);
             
-            RowData tmpRd = returnTO.getTableData(findSQL).getRow(0);
+            Cache cache = QueryCache.getCache(home, null);
+            String cacheKey = (cache != null)?QueryCache.getKey(cache, home, findSQL, inputs, 0, DataProcessor.NO_ROW_LIMIT):null;
+            TableData td = (cacheKey != null)?QueryCache.getRows(cache, cacheKey):null;
+            if (td == null) {
+                OmniDTO returnTO = 
+                    executeRead(inputs, DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, findSQL);
+                td = returnTO.getTableData(findSQL);
+                if (cacheKey != null) QueryCache.putRows(cache, cacheKey, td);
+            }
+            
+            RowData tmpRd = td.getRow(0);
             newRecord = (ActiveRecord) createNewInstance();
             
             newRecord.populateDataFromDatabase(tmpRd);
@@ -151,19 +177,23 @@ public class TableGateway {
         List list = null;
         
         try {
-            OmniDTO returnTO = 
-                getSqlService().execute(inputs, DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, sql);
+            Cache cache = QueryCache.getCache(home, null);
+            String cacheKey = (cache != null)?QueryCache.getKey(cache, home, sql, inputs, 0, DataProcessor.NO_ROW_LIMIT):null;
+            TableData rt = (cacheKey != null)?QueryCache.getRows(cache, cacheKey):null;
+            if (rt == null) {
+                OmniDTO returnTO = 
+                    executeRead(inputs, DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, sql);
+                if (returnTO != null) rt = returnTO.getTableData(sql);
+                if (cacheKey != null) QueryCache.putRows(cache, cacheKey, rt);
+            }
             
-            if ( returnTO != null ) {
-                TableData rt = returnTO.getTableData(sql);
-                if (rt != null) {
-                    list = new ArrayList();
-                    int records = rt.getTableSize();
-                    for (int i = 0; i < records; i++) {
-                        ActiveRecord newRecord = (ActiveRecord) createNewInstance();
-                        newRecord.populateDataFromDatabase(rt.getRow(i));
-                        list.add(newRecord);
-                    }
+            if (rt != null) {
+                list = new ArrayList();
+                int records = rt.getTableSize();
+                for (int i = 0; i < records; i++) {
+                    ActiveRecord newRecord = (ActiveRecord) createNewInstance();
+                    newRecord.populateDataFromDatabase(rt.getRow(i));
+                    list.add(newRecord);
                 }
             }
         }
@@ -198,7 +228,7 @@ public class TableGateway {
         
         try {
             OmniDTO returnTO = 
-                getSqlService().execute(inputs, DataProcessorTypes.NAMED_SQL_STATEMENT_PROCESSOR, sqlKey);
+                executeRead(inputs, DataProcessorTypes.NAMED_SQL_STATEMENT_PROCESSOR, sqlKey);
             
             if ( returnTO != null ) {
                 TableData rt = returnTO.getTableData(sqlKey);
@@ -447,6 +477,26 @@ public class TableGateway {
         return (list != null)?list:(new ArrayList());
     }
     
+    /**
+     * <p>Loads associated records of a list of records with one query for 
+     * each association, and stores them in the association cache of each 
+     * record. This is the same as the <tt>include</tt> option with 
+     * <tt>include_strategy: preload</tt>, but works for records which have 
+     * already been found.</p>
+     * 
+     * <p>For example, <tt>preload(owners, "pets=>visits")</tt> loads pets 
+     * of all owners in one query and visits of all those pets in another 
+     * query. After that <tt>owner.allAssociated("pets")</tt> does not access 
+     * database.</p>
+     * 
+     * @param records a list of records of this gateway's model
+     * @param include a string of associations in the format of <tt>include</tt> option
+     */
+    public void preload(List records, String include) {
+        if (records == null || records.size() == 0) return;
+        new PreloadHelper(include).preload(records);
+    }
+    
     /**
      * <p>Finds all the records that satisfy the conditions and options.</p>
      * 
@@ -462,6 +512,134 @@ public class TableGateway {
         return findAll(conditionsSQL, conditionsSQLData, Converters.convertSqlOptionStringToMap(options));
     }
     
+    /**
+     * <p>Processes all the records of a table one by one.</p>
+     * 
+     * <p>See {@link #findEach(java.lang.String, java.util.Map, java.util.Map, 
+     * com.scooterframework.orm.activerecord.RecordHandler) findEach} for 
+     * details.</p>
+     * 
+     * @param handler a handler which processes each record
+     * @return number of records processed
+     */
+    public int findEach(RecordHandler handler) {
+        return findEach((String)null, (Map)null, (Map)null, handler);
+    }
+    
+    /**
+     * <p>Processes all the records that satisfy the conditions and options 
+     * one by one.</p>
+     * 
+     * <p>See {@link #findEach(java.lang.String, java.util.Map, java.util.Map, 
+     * com.scooterframework.orm.activerecord.RecordHandler) findEach} for 
+     * details.</p>
+     * 
+     * @param conditions a map of column name and value pairs
+     * @param options a map of options
+     * @param handler a handler which processes each record
+     * @return number of records processed
+     */
+    public int findEach(Map conditions, Map options, RecordHandler handler) {
+        checkFindEachOptions(options);
+        Map inputs = constructFindSQL(conditions, options);
+        return internal_findEach(inputs, options, handler);
+    }
+    
+    /**
+     * <p>Processes all the records that satisfy the conditions and options 
+     * one by one.</p>
+     * 
+     * <p>Unlike <tt>findAll</tt>, records are not collected in a list. Each 
+     * record is passed to the handler as soon as it is read from database 
+     * and is not referenced by the framework afterwards, so that a large 
+     * number of records can be processed in constant memory. The 
+     * connection is released when all records are processed.</p>
+     * 
+     * <p>The <tt>include</tt> and <tt>cache</tt> options are not supported.</p>
+     * 
+     * <p>See {@link com.scooterframework.orm.activerecord.ActiveRecord ActiveRecord} 
+     * class for <tt>conditionsSQL</tt> and <tt>conditionsSQLData</tt> examples.</p>
+     * 
+     * @param conditionsSQL a SQL fragment string
+     * @param conditionsSQLData a data map for dynamic attributes in <tt>conditionsSQL</tt>
+     * @param options a map of options.
+     * @param handler a handler which processes each record
+     * @return number of records processed
+     */
+    public int findEach(String conditionsSQL, Map conditionsSQLData, Map options, RecordHandler handler) {
+        checkFindEachOptions(options);
+        Map inputs = constructFindSQL(conditionsSQL, conditionsSQLData, options);
+        return internal_findEach(inputs, options, handler);
+    }
+    
+    /**
+     * <p>Processes all the records that satisfy the conditions and options 
+     * one by one.</p>
+     * 
+     * @param conditionsSQL a SQL fragment string
+     * @param conditionsSQLData a data map for dynamic attributes in <tt>conditionsSQL</tt>
+     * @param options a string of options.
+     * @param handler a handler which processes each record
+     * @return number of records processed
+     */
+    public int findEach(String conditionsSQL, Map conditionsSQLData, String options, RecordHandler handler) {
+        return findEach(conditionsSQL, conditionsSQLData, Converters.convertSqlOptionStringToMap(options), handler);
+    }
+    
+    private void checkFindEachOptions(Map options) {
+        if (options != null && (
+    		options.containsKey(ActiveRecordConstants.key_include) ||
+    		options.containsKey(ActiveRecordConstants.key_strict_include))) {
+            throw new IllegalArgumentException("include option is not supported by findEach().");
+        }
+    }
+    
+    private int internal_findEach(Map inputs, Map options, RecordHandler handler) {
+        if (handler == null) throw new IllegalArgumentException("handler is null.");
+        
+        String findSQL = (String)inputs.get(ActiveRecordConstants.key_finder_sql);
+        int offset = Util.getIntValue(options, DataProcessor.input_key_records_offset, 0);
+        int limit = Util.getIntValue(options, DataProcessor.input_key_records_limit, DataProcessor.NO_ROW_LIMIT);
+        inputs.put(DataProcessor.input_key_records_offset, new Integer(offset));
+        inputs.put(DataProcessor.input_key_records_limit, new Integer(limit));
+        
+        ReadReplicaRouter.beginRead();
+        try {
+            return getSqlService().processRows(inputs, 
+                                               DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, 
+                                               findSQL, 
+                                               new RecordRowHandler(this, handler));
+        }
+        finally {
+            ReadReplicaRouter.endRead();
+        }
+    }
+    
+    /**
+     * Converts each row to a record of the gateway's model.
+     */
+    private static class RecordRowHandler implements RowHandler {
+        private TableGateway gateway;
+        private RecordHandler handler;
+        
+        RecordRowHandler(TableGateway gateway, RecordHandler handler) {
+            this.gateway = gateway;
+            this.handler = handler;
+        }
+        
+        public void handleRow(RowData row) {
+            ActiveRecord record = null;
+            try {
+                record = (ActiveRecord)gateway.createNewInstance();
+            }
+            catch(Exception ex) {
+                throw new ObjectCreationException(gateway.clazz.getName(), ex);
+            }
+            record.populateDataFromDatabase(row);
+            handler.handleRecord(record);
+        }
+    }
+    
     /**
      * <p>Finds the first record of a table.</p>
      * 
@@ -731,11 +909,17 @@ public class TableGateway {
             int offset = Util.getIntValue(options, DataProcessor.input_key_records_offset, 0);
             int limit = Util.getIntValue(options, DataProcessor.input_key_records_limit, DataProcessor.NO_ROW_LIMIT);
             
-            TableData td = getSqlService().retrieveRows(inputs, 
-                                                        DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, 
-                                                        findSQL, 
-                                                        limit, 
-                                                        offset);
+            Cache cache = QueryCache.getCache(home, options);
+            String cacheKey = (cache != null)?QueryCache.getKey(cache, home, findSQL, inputs, offset, limit):null;
+            TableData td = (cacheKey != null)?QueryCache.getRows(cache, cacheKey):null;
+            if (td == null) {
+                td = retrieveRowsRead(inputs, 
+                                      DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, 
+                                      findSQL, 
+                                      limit, 
+                                      offset);
+                if (cacheKey != null) QueryCache.putRows(cache, cacheKey, td);
+            }
             
             if (td != null) {
                 list = new ArrayList();
@@ -764,11 +948,17 @@ public class TableGateway {
             int offset = Util.getIntValue(options, DataProcessor.input_key_records_offset, 0);
             int limit = Util.getIntValue(options, DataProcessor.input_key_records_limit, DataProcessor.NO_ROW_LIMIT);
             
-            TableData td = getSqlService().retrieveRows(inputs, 
-                                                        DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, 
-                                                        findSQL, 
-                                                        limit, 
-                                                        offset);
+            Cache cache = QueryCache.getCache(home, options);
+            String cacheKey = (cache != null)?QueryCache.getKey(cache, home, findSQL, inputs, offset, limit):null;
+            TableData td = (cacheKey != null)?QueryCache.getRows(cache, cacheKey):null;
+            if (td == null) {
+                td = retrieveRowsRead(inputs, 
+                                      DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, 
+                                      findSQL, 
+                                      limit, 
+                                      offset);
+                if (cacheKey != null) QueryCache.putRows(cache, cacheKey, td);
+            }
             
             if (td != null) {
                 list = new ArrayList();
@@ -1001,6 +1191,10 @@ public class TableGateway {
      * Finds a list of records that satisfy the conditions and options.
      */
     List internal_findAll_include(Map conditions, Map options) {
+        if (isPreloadStrategy(options)) {
+            return internal_findAll_preload(internal_findAll(conditions, removeIncludeOptions(options)), options);
+        }
+        
         IncludeHelper sqlHelper = new IncludeHelper(getModelClass(), conditions, options);
         return internal_findAll_include_fetch(sqlHelper, options);
     }
@@ -1009,6 +1203,10 @@ public class TableGateway {
      * Finds a list of records that satisfy the conditions and options.
      */
     List internal_findAll_include(String conditionsSQL, Map conditionsSQLData, Map options) {
+        if (isPreloadStrategy(options)) {
+            return internal_findAll_preload(internal_findAll(conditionsSQL, conditionsSQLData, removeIncludeOptions(options)), options);
+        }
+        
         IncludeHelper sqlHelper = new IncludeHelper(getModelClass(), conditionsSQL, conditionsSQLData, options);
         return internal_findAll_include_fetch(sqlHelper, options);
     }
@@ -1024,6 +1222,35 @@ public class TableGateway {
         return internal_findAll_include_fetch(sqlHelper, options);
     }
     
+    private boolean isPreloadStrategy(Map options) {
+        String strategy = (String)options.get(ActiveRecordConstants.key_include_strategy);
+        if (strategy == null || ActiveRecordConstants.INCLUDE_STRATEGY_JOIN.equalsIgnoreCase(strategy)) return false;
+        
+        if (!ActiveRecordConstants.INCLUDE_STRATEGY_PRELOAD.equalsIgnoreCase(strategy)) {
+            throw new IllegalArgumentException("Unknown include_strategy '" + strategy + "' in options " + options);
+        }
+        if (options.containsKey(ActiveRecordConstants.key_strict_include)) {
+            throw new IllegalArgumentException("strict_include cannot be used with include_strategy '" + strategy + "' in options " + options);
+        }
+        return true;
+    }
+    
+    private Map removeIncludeOptions(Map options) {
+        Map opts = new HashMap(options);
+        opts.remove(ActiveRecordConstants.key_include);
+        opts.remove(ActiveRecordConstants.key_include_strategy);
+        opts.remove(ActiveRecordConstants.key_join_type);
+        return opts;
+    }
+    
+    private List internal_findAll_preload(List list, Map options) {
+        String includeString = (String)options.get(ActiveRecordConstants.key_include);
+        if (list != null && list.size() > 0 && includeString != null && !"".equals(includeString.trim())) {
+            new PreloadHelper(includeString).preload(list);
+        }
+        return (list != null)?list:(new ArrayList());
+    }
+    
     private List internal_findAll_include_fetch(IncludeHelper sqlHelper, Map options) {
         List list = null;
         
@@ -1033,11 +1260,11 @@ public class TableGateway {
             int offset = Util.getIntValue(options, DataProcessor.input_key_records_offset, 0);
             int limit = Util.getIntValue(options, DataProcessor.input_key_records_limit, DataProcessor.NO_ROW_LIMIT);
             
-            TableData td = getSqlService().retrieveRows(inputs, 
-                                                        DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, 
-                                                        findSQL, 
-                                                        limit, 
-                                                        offset);
+            TableData td = retrieveRowsRead(inputs, 
+                                            DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, 
+                                            findSQL, 
+                                            limit, 
+                                            offset);
             
             if (td != null) {
                 list = sqlHelper.organizeData(td);
@@ -1059,6 +1286,159 @@ public class TableGateway {
      */
     
     
+    /**
+     * <p>Creates a list of records in database in one transaction. See 
+     * {@link #createAll(java.util.List, int)} for details. The batch size 
+     * is the <tt>batch.size</tt> property in <tt>database.properties</tt>.</p>
+     * 
+     * @param records a list of new records or maps of field data
+     * @return list of created records
+     */
+    public List createAll(List records) {
+        return createAll(records, DatabaseConfig.getInstance().getBatchSize());
+    }
+    
+    /**
+     * <p>Creates a list of records in database in one transaction.</p>
+     * 
+     * <p>Each item of the list is either a new record of this gateway's 
+     * model or a map of field data from which a new record is created. 
+     * Callbacks of create are invoked for each record.</p>
+     * 
+     * <p>Records are sent to database <tt>batchSize</tt> rows at a time. 
+     * When primary key values are known before insert and the database 
+     * supports multi-row insert, each batch is a single insert statement 
+     * with a values list for each row. Otherwise all records are bound to 
+     * the same prepared statement as a JDBC batch. Auto-generated primary 
+     * key values are set back on the records if the driver returns them 
+     * for every row of the batch.</p>
+     * 
+     * @param records   a list of new records or maps of field data
+     * @param batchSize number of rows sent to database at a time
+     * @return list of created records
+     */
+    public List createAll(List records, int batchSize) {
+        if (records == null) throw new IllegalArgumentException("records is null.");
+        if (batchSize <= 0) batchSize = 1;
+        
+        List created = new ArrayList(records.size());
+        ImplicitTransactionManager tm = TransactionManagerUtil.getImplicitTransactionManager();
+        
+        try {
+            tm.beginTransactionImplicit();
+            
+            String batchSQL = null;
+            boolean batchAutoPK = false;
+            List batchRecords = new ArrayList();
+            List batchInputs = new ArrayList();
+            
+            Iterator it = records.iterator();
+            while(it.hasNext()) {
+                ActiveRecord record = toNewRecord(it.next());
+                record.beforeCreate();
+                
+                StringBuffer createSQL = new StringBuffer();
+                Map inputs = new HashMap();
+                boolean autoPK = record.prepareCreate(createSQL, inputs);
+                
+                String sql = createSQL.toString();
+                if (!sql.equals(batchSQL)) {
+                    createBatch(batchSQL, batchAutoPK, batchRecords, batchInputs, batchSize);
+                    batchRecords.clear();
+                    batchInputs.clear();
+                    batchSQL = sql;
+                    batchAutoPK = autoPK;
+                }
+                batchRecords.add(record);
+                batchInputs.add(inputs);
+                created.add(record);
+            }
+            createBatch(batchSQL, batchAutoPK, batchRecords, batchInputs, batchSize);
+            
+            QueryCache.invalidate(home);
+            
+            it = created.iterator();
+            while(it.hasNext()) {
+                ((ActiveRecord)it.next()).afterCreate();
+            }
+            
+            tm.commitTransactionImplicit();
+        }
+        catch(RuntimeException ex) {
+            tm.rollbackTransactionImplicit();
+            throw ex;
+        }
+        finally {
+            tm.releaseResourcesImplicit();
+        }
+        
+        return created;
+    }
+    
+    private ActiveRecord toNewRecord(Object item) {
+        ActiveRecord record = null;
+        if (item instanceof ActiveRecord) {
+            record = (ActiveRecord)item;
+            ActiveRecordUtil.validateRecordType(clazz, record);
+            if (!record.isNewRecord()) 
+                throw new IllegalArgumentException("Record exists in database already: " + record);
+        }
+        else if (item instanceof Map) {
+            try {
+                record = (ActiveRecord)createNewInstance();
+            }
+            catch(Exception ex) {
+                throw new ObjectCreationException(clazz.getName(), ex);
+            }
+            record.setData((Map)item);
+        }
+        else {
+            throw new IllegalArgumentException("Item must be a record or a map: " + item);
+        }
+        return record;
+    }
+    
+    private void createBatch(String sql, boolean autoPK, List records, List inputsList, int batchSize) {
+        if (records.size() == 0) return;
+        
+        DBAdapter dba = DBAdapterFactory.getInstance().getAdapter(home.getConnectionName());
+        if (!autoPK && records.size() > 1 && dba.supportsMultiRowInsert()) {
+            int total = inputsList.size();
+            for (int start = 0; start < total; start += batchSize) {
+                int end = Math.min(start + batchSize, total);
+                Map inputs = new HashMap();
+                int position = 0;
+                for (int i = start; i < end; i++) {
+                    Map rowInputs = (Map)inputsList.get(i);
+                    int columns = rowInputs.size();
+                    for (int j = 1; j <= columns; j++) {
+                        position = position + 1;
+                        inputs.put(position+"", rowInputs.get(j+""));
+                    }
+                }
+                
+                String multiRowSQL = dba.getMultiRowInsertSQL(sql, end - start);
+                getSqlService().execute(inputs, DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, multiRowSQL);
+            }
+            
+            Iterator it = records.iterator();
+            while(it.hasNext()) {
+                ((ActiveRecord)it.next()).finishCreate(-1);
+            }
+            return;
+        }
+        
+        OmniDTO returnTO = 
+            getSqlService().executeBatch(inputsList, DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, sql, batchSize);
+        
+        List keys = returnTO.getGeneratedKeys();
+        boolean useKeys = autoPK && keys.size() == records.size();
+        for (int i = 0; i < records.size(); i++) {
+            ActiveRecord record = (ActiveRecord)records.get(i);
+            record.finishCreate((useKeys)?((Long)keys.get(i)).longValue():-1);
+        }
+    }
+    
     /**
      * deletes the record with the given id. 
      * 
@@ -1073,7 +1453,9 @@ public class TableGateway {
         }
         
         String deleteSQL = "DELETE FROM " + home.getTableName() + " WHERE id = ?";
-       return SqlServiceClient.executeSQL(deleteSQL);
+        int count = SqlServiceClient.executeSQL(deleteSQL);
+        QueryCache.invalidate(home);
+        return count;
     }
     
     /**
@@ -1219,6 +1601,7 @@ public class TableGateway {
             }
             
             count = SqlServiceClient.executeSQL(deleteSQL, inputs);
+            QueryCache.invalidate(home);
         }
         catch (Exception ex) {
             throw new BaseSQLException(ex);
@@ -1243,6 +1626,7 @@ public class TableGateway {
             }
             
             count = SqlServiceClient.executeSQL(deleteSQL, inputs);
+            QueryCache.invalidate(home);
         }
         catch (Exception ex) {
             throw new BaseSQLException(ex);
@@ -1343,6 +1727,7 @@ public class TableGateway {
             }
             
             count = SqlServiceClient.executeSQL(updateSQL, inputs);
+            QueryCache.invalidate(home);
         }
         catch (Exception ex) {
             throw new BaseSQLException(ex);
@@ -1419,4 +1804,25 @@ public class TableGateway {
     private static SqlService getSqlService() {
         return SqlServiceConfig.getSqlService();
     }
+    
+    //finders run as reads, so that they may go to a read replica
+    private static OmniDTO executeRead(Map inputs, String processorType, String processorName) {
+        ReadReplicaRouter.beginRead();
+        try {
+            return getSqlService().execute(inputs, processorType, processorName);
+        }
+        finally {
+            ReadReplicaRouter.endRead();
+        }
+    }
+    
+    private static TableData retrieveRowsRead(Map inputs, String processorType, String processorName, int limit, int offset) {
+        ReadReplicaRouter.beginRead();
+        try {
+            return getSqlService().retrieveRows(inputs, processorType, processorName, limit, offset);
+        }
+        finally {
+            ReadReplicaRouter.endRead();
+        }
+    }
 }
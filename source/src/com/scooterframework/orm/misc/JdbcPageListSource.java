@@ -7,15 +7,19 @@
  */
 package com.scooterframework.orm.misc;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.StringTokenizer;
 
 import com.scooterframework.common.util.Util;
 import com.scooterframework.orm.activerecord.ActiveRecord;
 import com.scooterframework.orm.activerecord.ActiveRecordConstants;
 import com.scooterframework.orm.activerecord.ActiveRecordUtil;
+import com.scooterframework.orm.sqldataexpress.connection.ReadReplicaRouter;
 import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
+import com.scooterframework.orm.sqldataexpress.processor.DataProcessor;
 import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
 
 /**
@@ -30,6 +34,12 @@ import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
  * <p>You can specify more conditional sql query strings in the inputOptions map 
  * with key ActiveRecord.key_conditions_sql.</p>
  * 
+ * <p>This class supports the <tt>keyset</tt> option. For example, with 
+ * "<tt>keyset: id</tt>" the page after a page which ends with id 1000 is 
+ * retrieved by <tt>... WHERE id > ?  ORDER BY id ASC</tt> with limit and 
+ * without offset. The count query does not have the <tt>ORDER BY</tt> 
+ * clause, and its result can be cached with "<tt>count_mode: cached</tt>".</p>
+ * 
  * @author (Fei) John Chen
  */
 public class JdbcPageListSource extends PageListSource {
@@ -75,16 +85,22 @@ public class JdbcPageListSource extends PageListSource {
     }
 
     protected int countTotalRecords() {
-    	Map options = inputOptions;
         int totalRecords = 0;
         
         try {
             // count records
-            Map inputs = ActiveRecordUtil.getGateway(modelClass).constructFindSQL(options, options);
+            Map inputs = constructCountInputs();
             String findSQL = (String)inputs.get(ActiveRecordConstants.key_finder_sql);
             String selectCountSQL = "SELECT count(*) total FROM (" + findSQL + ") xxx";
             
-            Object Total = SqlServiceClient.retrieveObjectBySQL(selectCountSQL, inputs);
+            Object Total = null;
+            ReadReplicaRouter.beginRead();
+            try {
+                Total = SqlServiceClient.retrieveObjectBySQL(selectCountSQL, inputs);
+            }
+            finally {
+                ReadReplicaRouter.endRead();
+            }
             totalRecords = Util.getSafeIntValue(Total);
         }
         catch (Exception ex) {
@@ -94,10 +110,78 @@ public class JdbcPageListSource extends PageListSource {
         return totalRecords;
     }
     
+    //the order of records does not matter for counting
+    private Map constructCountInputs() {
+        Map options = new HashMap(inputOptions);
+        options.remove(ActiveRecordConstants.key_order_by);
+        options.remove(ActiveRecordConstants.key_sort);
+        options.remove(ActiveRecordConstants.key_order);
+        return ActiveRecordUtil.getGateway(modelClass).constructFindSQL(options, options);
+    }
+    
+    /**
+     * Returns the model class name, the count query and values of all 
+     * parameters in the query.
+     */
+    protected String getCountCacheKey() {
+        Map inputs = constructCountInputs();
+        String findSQL = (String)inputs.get(ActiveRecordConstants.key_finder_sql);
+        
+        StringBuffer sb = new StringBuffer();
+        sb.append(modelClass.getName()).append(':').append(findSQL);
+        int position = 1;
+        StringTokenizer st = new StringTokenizer(findSQL, " ,|><=(){}+-*/");
+        while(st.hasMoreTokens()) {
+            String token = st.nextToken();
+            if (!token.startsWith("?")) continue;
+            
+            String name = ("?".equals(token))?String.valueOf(position):token.substring(1);
+            if (name.indexOf(':') != -1) name = name.substring(0, name.indexOf(':'));
+            sb.append('|').append(inputs.get(name));
+            position++;
+        }
+        return sb.toString();
+    }
+    
+    protected boolean supportsKeyset() {
+        return true;
+    }
+    
     protected List retrieveList() {
         Map options = inputOptions;
-        return ActiveRecordUtil.getHomeInstance(modelClass).findAll(options, options);
+        if (!isKeysetMode()) {
+            return ActiveRecordUtil.getHomeInstance(modelClass).findAll(options, options);
+        }
+        
+        //a backward page is retrieved in reverse order
+        boolean backward = (keyBefore != null);
+        boolean descending = (keyDescending != backward);
+        Object keyValue = (backward)?keyBefore:keyAfter;
+        
+        Map opts = new HashMap(inputOptions);
+        opts.remove(ActiveRecordConstants.key_sort);
+        opts.remove(ActiveRecordConstants.key_order);
+        opts.put(ActiveRecordConstants.key_order_by, keyColumn + ((descending)?" DESC":" ASC"));
+        if (keyValue != null) {
+            String keyCondition = keyColumn + ((descending)?" < ?":" > ?") + KEYSET_VALUE;
+            String conditionsSql = (String)opts.get(ActiveRecordConstants.key_conditions_sql);
+            if (conditionsSql != null && !"".equals(conditionsSql.trim())) {
+                keyCondition = "(" + conditionsSql + ") AND " + keyCondition;
+            }
+            opts.put(ActiveRecordConstants.key_conditions_sql, keyCondition);
+            opts.put(KEYSET_VALUE, keyValue);
+            opts.put(DataProcessor.input_key_records_offset, new Integer(0));
+        }
+        
+        List list = ActiveRecordUtil.getHomeInstance(modelClass).findAll(opts, opts);
+        if (backward) Collections.reverse(list);
+        return list;
     }
+    
+    /**
+     * Name of the parameter of keyset value in query
+     */
+    private static final String KEYSET_VALUE = "_keyset_value";
 
     private Class modelClass;
 }
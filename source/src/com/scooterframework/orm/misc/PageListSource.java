@@ -12,10 +12,34 @@ import java.util.List;
 import java.util.Map;
 
 import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.common.util.LRUCache;
+import com.scooterframework.common.util.Util;
+import com.scooterframework.orm.activerecord.ActiveRecord;
+import com.scooterframework.orm.sqldataexpress.object.RowData;
 import com.scooterframework.orm.sqldataexpress.processor.DataProcessor;
 
 /**
- * PageListSource class sets up basic framework for retrieving paged data.
+ * <p>PageListSource class sets up basic framework for retrieving paged data.</p>
+ * 
+ * <p>The following keys in the inputOptions map have an impact on how pages 
+ * are retrieved:</p>
+ * 
+ * <ul>
+ * <li>key_keyset "<tt>keyset</tt>": an indexed and unique sort column such 
+ * as "<tt>id</tt>" or "<tt>id desc</tt>". Records are always sorted by this 
+ * column. When the key value of the last (or first) record of the current 
+ * page is known, the next (or previous) page is retrieved by a query like 
+ * <tt>WHERE id > ? ORDER BY id</tt> instead of skipping all records before 
+ * the page. Only subclasses which return true for 
+ * {@link #supportsKeyset()} use this option.</li>
+ * <li>key_count_mode "<tt>count_mode</tt>": <tt>exact</tt> (default) counts 
+ * total records for every page; <tt>cached</tt> keeps the count for 
+ * <tt>count_ttl</tt> seconds; <tt>none</tt> does not count and only checks 
+ * if there is a next page, so that the total count is the number of records 
+ * up to the current page plus one if there are more.</li>
+ * <li>key_count_ttl "<tt>count_ttl</tt>": seconds to cache a total count, 
+ * default to 60.</li>
+ * </ul>
  * 
  * @author (Fei) John Chen
  */
@@ -45,6 +69,11 @@ public abstract class PageListSource {
         this.inputOptions.put(DataProcessor.input_key_use_pagination, "Y");
         
         this.recount = recount;
+        
+        String keyset = Util.getStringValue(this.inputOptions, key_keyset, null);
+        if (keyset != null && !"".equals(keyset.trim())) setKeyset(keyset);
+        countMode = Util.getStringValue(this.inputOptions, key_count_mode, COUNT_MODE_EXACT);
+        countTimeToLive = Util.getIntValue(this.inputOptions, key_count_ttl, DEFAULT_COUNT_TTL);
     }
     
     /**
@@ -82,6 +111,94 @@ public abstract class PageListSource {
         this.recount = recount;
     }
     
+    /**
+     * <p>Sets the keyset column. The column should be indexed and unique. 
+     * Use "<tt>column desc</tt>" for descending order.</p>
+     * 
+     * @param keyset the keyset column
+     */
+    public void setKeyset(String keyset) {
+        keyset = keyset.trim();
+        int space = keyset.indexOf(' ');
+        if (space == -1) {
+            keyColumn = keyset;
+            keyDescending = false;
+        }
+        else {
+            keyColumn = keyset.substring(0, space);
+            keyDescending = "desc".equalsIgnoreCase(keyset.substring(space).trim());
+        }
+    }
+    
+    /**
+     * Returns the keyset column, or null if keyset is not used.
+     */
+    public String getKeyColumn() {
+        return keyColumn;
+    }
+    
+    /**
+     * Checks if records are paged by keyset.
+     */
+    public boolean isKeysetMode() {
+        return keyColumn != null && supportsKeyset();
+    }
+    
+    /**
+     * Sets the key value of the last record of the previous page. The next 
+     * page starts after this value.
+     */
+    public void setKeyAfter(Object keyAfter) {
+        this.keyAfter = keyAfter;
+        if (keyAfter != null) keyBefore = null;
+    }
+    
+    /**
+     * Sets the key value of the first record of the next page. The previous 
+     * page ends before this value.
+     */
+    public void setKeyBefore(Object keyBefore) {
+        this.keyBefore = keyBefore;
+        if (keyBefore != null) keyAfter = null;
+    }
+    
+    /**
+     * Returns key value of the first record in the retrieved list.
+     */
+    public Object getFirstKey() {
+        if (keyColumn == null || recordList == null || recordList.size() == 0) return null;
+        return getKeyValue(recordList.get(0));
+    }
+    
+    /**
+     * Returns key value of the last record in the retrieved list.
+     */
+    public Object getLastKey() {
+        if (keyColumn == null || recordList == null || recordList.size() == 0) return null;
+        return getKeyValue(recordList.get(recordList.size() - 1));
+    }
+    
+    /**
+     * Sets count mode. See top of this class for allowed values.
+     */
+    public void setCountMode(String countMode) {
+        this.countMode = countMode;
+    }
+    
+    /**
+     * Sets number of seconds to cache a total count.
+     */
+    public void setCountTimeToLive(int seconds) {
+        this.countTimeToLive = seconds;
+    }
+    
+    /**
+     * Checks if total count is calculated from retrieved records.
+     */
+    public boolean isCountSkipped() {
+        return COUNT_MODE_NONE.equalsIgnoreCase(countMode);
+    }
+    
     /**
      * Returns Map of input parameters.
      */
@@ -127,9 +244,14 @@ public abstract class PageListSource {
      * Really does the record count and retrieval. 
      */
     protected void execute() {
+        if (isCountSkipped()) {
+            executeWithoutCount();
+            return;
+        }
+        
         // count records
         if (recount || !totalCounted) {
-            totalCount = countTotalRecords();
+            totalCount = countTotalRecordsCached();
             totalCounted = true;
         }
         
@@ -146,6 +268,74 @@ public abstract class PageListSource {
         }
     }
     
+    //retrieves one more record to see if there is a next page
+    private void executeWithoutCount() {
+        if (offset < 0) offset = 0;
+        inputOptions.put(DataProcessor.input_key_records_limit,  new Integer(limit + 1));
+        inputOptions.put(DataProcessor.input_key_records_offset, new Integer(offset));
+        
+        recordList = retrieveList();
+        
+        //a backward page always has a next page, its extra record is the first one
+        boolean backward = keyBefore != null && isKeysetMode();
+        int size = (recordList != null)?recordList.size():0;
+        boolean hasMore = size > limit;
+        if (hasMore) {
+            recordList.remove((backward)?0:(size - 1));
+            size = limit;
+        }
+        totalCount = offset + size + ((hasMore || backward)?1:0);
+        inputOptions.put(DataProcessor.input_key_records_limit,  new Integer(limit));
+    }
+    
+    private int countTotalRecordsCached() {
+        if (!COUNT_MODE_CACHED.equalsIgnoreCase(countMode)) return countTotalRecords();
+        
+        String key = getCountCacheKey();
+        if (key == null) return countTotalRecords();
+        
+        Integer count = (Integer)countCache.get(key);
+        if (count == null) {
+            count = new Integer(countTotalRecords());
+            countCache.put(key, count, countTimeToLive * 1000L);
+        }
+        return count.intValue();
+    }
+    
+    /**
+     * Returns a key which identifies the count query for caching total 
+     * counts, or null if the count should not be cached. The default 
+     * implementation returns null.
+     * 
+     * @return a key of the count query
+     */
+    protected String getCountCacheKey() {
+        return null;
+    }
+    
+    /**
+     * Checks if this source retrieves records by keyset when 
+     * <tt>keyset</tt> option is specified. The default is false.
+     * 
+     * @return true if keyset is supported
+     */
+    protected boolean supportsKeyset() {
+        return false;
+    }
+    
+    /**
+     * Returns value of the keyset column of a retrieved record.
+     * 
+     * @param record a retrieved record
+     * @return value of the keyset column
+     */
+    protected Object getKeyValue(Object record) {
+        if (record instanceof ActiveRecord) return ((ActiveRecord)record).getField(keyColumn);
+        if (record instanceof RowData) return ((RowData)record).getField(keyColumn);
+        if (record instanceof Map) return ((Map)record).get(keyColumn);
+        return null;
+    }
+    
     /**
      * Counts total number of records. May not be invoked if <tt>recounted</tt> 
      * is <tt>false</tt>.
@@ -161,6 +351,32 @@ public abstract class PageListSource {
      */
     protected abstract List retrieveList();
 
+    /**
+     * Key <tt>keyset</tt> specifies the keyset column.
+     */
+    public static final String key_keyset = "keyset";
+    
+    /**
+     * Key <tt>count_mode</tt> specifies how total records are counted.
+     */
+    public static final String key_count_mode = "count_mode";
+    
+    /**
+     * Key <tt>count_ttl</tt> specifies seconds to cache a total count.
+     */
+    public static final String key_count_ttl = "count_ttl";
+    
+    public static final String COUNT_MODE_EXACT = "exact";
+    public static final String COUNT_MODE_CACHED = "cached";
+    public static final String COUNT_MODE_NONE = "none";
+    
+    public static final int DEFAULT_COUNT_TTL = 60;
+    
+    /**
+     * Cached total counts: key is count cache key, value is Integer
+     */
+    private static LRUCache countCache = new LRUCache(500);
+    
 	protected Map inputOptions;
     
     /**
@@ -187,6 +403,36 @@ public abstract class PageListSource {
     
     private boolean totalCounted = false;
     
+    /**
+     * Keyset column
+     */
+    protected String keyColumn;
+    
+    /**
+     * True if keyset column is in descending order
+     */
+    protected boolean keyDescending;
+    
+    /**
+     * Key value of the last record of the previous page
+     */
+    protected Object keyAfter;
+    
+    /**
+     * Key value of the first record of the next page
+     */
+    protected Object keyBefore;
+    
+    /**
+     * Count mode
+     */
+    protected String countMode = COUNT_MODE_EXACT;
+    
+    /**
+     * Seconds to cache a total count
+     */
+    protected int countTimeToLive = DEFAULT_COUNT_TTL;
+    
     /**
      * paged record list
      */
@@ -7,6 +7,8 @@
  */
 package com.scooterframework.orm.misc;
 
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -44,6 +46,13 @@ import com.scooterframework.orm.sqldataexpress.processor.DataProcessor;
  * <p>In addition, all sql related information can be passed to the paginator 
  * through its PageListSource instance.</p>
  * 
+ * <p>If the PageListSource pages by keyset (see the <tt>keyset</tt> option of 
+ * {@link PageListSource}), the "next" link carries key_after 
+ * "<tt>after</tt>" with the key value of the last record on the current 
+ * page, and the "previous" link carries key_before "<tt>before</tt>" with 
+ * the key value of the first record. Those two pages are then retrieved 
+ * without offset. Other page links still use page numbers.</p>
+ * 
  * <p>Usage example:</p>
  * <pre>
  * Paginator page = new Paginator(new JdbcPageListSource(modelClass), controlOptions);
@@ -216,6 +225,7 @@ public class Paginator
         qs.append("&npage=").append(cpage-1);
         qs.append("&limit=").append(limit);
         qs.append("&cpage=").append(cpage);
+        if (keysetMode && firstKey != null) qs.append("&").append(key_before).append("=").append(encode(firstKey));
         appendExclude(qs, "r, npage, cpage, limit");
         return qs.toString();
     }
@@ -231,6 +241,7 @@ public class Paginator
         qs.append("&npage=").append(cpage+1);
         qs.append("&limit=").append(limit);
         qs.append("&cpage=").append(cpage);
+        if (keysetMode && lastKey != null) qs.append("&").append(key_after).append("=").append(encode(lastKey));
         appendExclude(qs, "r, npage, cpage, limit");
         return qs.toString();
     }
@@ -286,6 +297,17 @@ public class Paginator
         return recordList;
     }
     
+    /**
+     * Checks if total records are not counted. In that case, the total 
+     * count only includes records up to the current page plus one if there 
+     * is a next page.
+     * 
+     * @return true if total records are not counted
+     */
+    public boolean isCountSkipped() {
+        return countSkipped;
+    }
+    
     /**
      * <p>Sets html keys that do not have to appear in url. </p>
      * 
@@ -333,6 +355,15 @@ public class Paginator
         cpage = Util.getIntValue(options, key_npage, 1);
         ref   = Util.getStringValue(options, key_link, "");
         
+        if (pls.isKeysetMode()) {
+            if (cpage == opage + 1) {
+                pls.setKeyAfter(getKeyValue(options, key_after));
+            }
+            else if (cpage == opage - 1) {
+                pls.setKeyBefore(getKeyValue(options, key_before));
+            }
+        }
+        
         pls.setLimit(limit);
         pls.setOffset(getOffset());
         pls.setInputs(options);//in case some other conditions are passed into options
@@ -342,6 +373,28 @@ public class Paginator
         recordList = pls.getRecordList();
         totalCounted = true;
         pageCount = countPages(totalCount);
+        
+        keysetMode = pls.isKeysetMode();
+        countSkipped = pls.isCountSkipped();
+        if (keysetMode) {
+            firstKey = pls.getFirstKey();
+            lastKey = pls.getLastKey();
+        }
+    }
+    
+    private Object getKeyValue(Map options, String key) {
+        Object value = (options != null)?options.get(key):null;
+        return (value == null || "".equals(value))?null:value;
+    }
+    
+    private String encode(Object value) {
+        String s = String.valueOf(value);
+        try {
+            s = URLEncoder.encode(s, "UTF-8");
+        } catch(UnsupportedEncodingException uee) {
+            ;
+        }
+        return s;
     }
     
     protected int countPages(int totalRecords) {
@@ -363,6 +416,9 @@ public class Paginator
     		excludeString = (excludeString != null)?
     				(excludeString + ", " + excludedKeys):excludedKeys;
     	}
+    	if (keysetMode) {
+    		excludeString = excludeString + ", " + key_after + ", " + key_before;
+    	}
         List excludeList = Converters.convertStringToList(excludeString);
         Iterator it = controlOptions.keySet().iterator();
         while(it.hasNext()) 
@@ -387,6 +443,8 @@ public class Paginator
     public static final String key_limit = "limit";
     public static final String key_cpage = "cpage";
     public static final String key_npage = "npage";
+    public static final String key_after = "after";
+    public static final String key_before = "before";
     
     /**
      * <p>Key <tt>group_by</tt> represents <tt>GROUP BY</tt> clause in sql. </p>
@@ -491,4 +549,24 @@ public class Paginator
     protected List recordList;
     
     protected String excludedKeys;
+    
+    /**
+     * Indicates whether the PageListSource pages by keyset.
+     */
+    protected boolean keysetMode = false;
+    
+    /**
+     * Key value of the first record on the current page
+     */
+    protected Object firstKey;
+    
+    /**
+     * Key value of the last record on the current page
+     */
+    protected Object lastKey;
+    
+    /**
+     * Indicates whether total records are not counted.
+     */
+    protected boolean countSkipped = false;
 }
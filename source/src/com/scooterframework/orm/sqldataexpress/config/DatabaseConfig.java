@@ -9,6 +9,7 @@ package com.scooterframework.orm.sqldataexpress.config;
 
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Enumeration;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -22,8 +23,6 @@ import java.util.Set;
 
 import javax.sql.DataSource;
 
-import com.mchange.v2.c3p0.ComboPooledDataSource;
-import com.mchange.v2.c3p0.DataSources;
 import com.scooterframework.admin.Constants;
 import com.scooterframework.admin.PropertyFileChangeMonitor;
 import com.scooterframework.admin.PropertyReader;
@@ -32,6 +31,10 @@ import com.scooterframework.common.util.Converters;
 import com.scooterframework.common.util.NamedProperties;
 import com.scooterframework.common.util.PropertyFileUtil;
 import com.scooterframework.common.util.Util;
+import com.scooterframework.orm.sqldataexpress.connection.C3P0PoolProvider;
+import com.scooterframework.orm.sqldataexpress.connection.ConnectionPoolMetrics;
+import com.scooterframework.orm.sqldataexpress.connection.ConnectionPoolProvider;
+import com.scooterframework.orm.sqldataexpress.connection.SimplePoolProvider;
 import com.scooterframework.transaction.Transaction;
 import com.scooterframework.web.route.RouteConstants;
 
@@ -217,6 +220,46 @@ public class DatabaseConfig extends Observable implements Observer {
      */
     public static final String KEY_DB_CONNECTION_MAX_IDLE_TIME = "max_idle_time";
     
+    /**
+     * Key to represent <tt>pool_provider</tt> property in database connection properties.
+     */
+    public static final String KEY_DB_CONNECTION_POOL_PROVIDER = "pool_provider";
+    
+    /**
+     * Key to represent <tt>checkout_timeout</tt> property in database connection properties.
+     */
+    public static final String KEY_DB_CONNECTION_CHECKOUT_TIMEOUT = "checkout_timeout";
+    
+    /**
+     * Key to represent <tt>validation_query</tt> property in database connection properties.
+     */
+    public static final String KEY_DB_CONNECTION_VALIDATION_QUERY = "validation_query";
+    
+    /**
+     * Key to represent <tt>validation_interval</tt> property in database connection properties.
+     */
+    public static final String KEY_DB_CONNECTION_VALIDATION_INTERVAL = "validation_interval";
+    
+    /**
+     * Key to represent <tt>leak_detection_threshold</tt> property in database connection properties.
+     */
+    public static final String KEY_DB_CONNECTION_LEAK_DETECTION_THRESHOLD = "leak_detection_threshold";
+    
+    /**
+     * Key to represent <tt>read_replicas</tt> property in database connection properties.
+     */
+    public static final String KEY_DB_CONNECTION_READ_REPLICAS = "read_replicas";
+    
+    /**
+     * Name of the c3p0 connection pool provider.
+     */
+    public static final String POOL_PROVIDER_C3P0 = "c3p0";
+    
+    /**
+     * Name of the built-in connection pool provider.
+     */
+    public static final String POOL_PROVIDER_SIMPLE = "simple";
+    
     public static final String BUILTIN_DATABASE_NAME_HSQLDB     = "HsqlDB";
     public static final String BUILTIN_DATABASE_NAME_H2         = "H2";
     public static final String BUILTIN_DATABASE_NAME_MYSQL      = "MySQL";
@@ -242,6 +285,17 @@ public class DatabaseConfig extends Observable implements Observer {
     public static final int DEFAULT_VALUE_acquire_increment = 3;
     public static final int DEFAULT_VALUE_initial_pool_size = 3;
     public static final int DEFAULT_VALUE_max_idle_time = 0;
+    public static final String DEFAULT_VALUE_pool_provider = POOL_PROVIDER_C3P0;
+    public static final long DEFAULT_VALUE_checkout_timeout = 30000L;
+    public static final long DEFAULT_VALUE_validation_interval = 30000L;
+    public static final long DEFAULT_VALUE_leak_detection_threshold = 0L;
+    public static final int DEFAULT_VALUE_statementCacheSize = 50;
+    public static final int DEFAULT_VALUE_statementRegistrySize = 1000;
+    public static final String DEFAULT_VALUE_schemaSnapshotFile = "";
+    public static final String DEFAULT_VALUE_schemaSnapshotWarmup = "false";
+    public static final int DEFAULT_VALUE_batchSize = 100;
+    public static final int DEFAULT_VALUE_fetchSize = 100;
+    public static final int DEFAULT_VALUE_inListSize = 500;
     
     private static DatabaseConfig me;
     private Properties appProperties = null;
@@ -255,6 +309,13 @@ public class DatabaseConfig extends Observable implements Observer {
     private String autoAuditCreate = DEFAULT_VALUE_autoAuditCreate;
     private String autoAuditUpdate = DEFAULT_VALUE_autoAuditUpdate;
     private String additionalSQLDataTypeMapping = DEFAULT_VALUE_additionalSQLDataTypeMapping;
+    private int statementCacheSize = DEFAULT_VALUE_statementCacheSize;
+    private int statementRegistrySize = DEFAULT_VALUE_statementRegistrySize;
+    private String schemaSnapshotFile = DEFAULT_VALUE_schemaSnapshotFile;
+    private String schemaSnapshotWarmup = DEFAULT_VALUE_schemaSnapshotWarmup;
+    private int batchSize = DEFAULT_VALUE_batchSize;
+    private int fetchSize = DEFAULT_VALUE_fetchSize;
+    private int inListSize = DEFAULT_VALUE_inListSize;
     
     private List autoAuditListForCreate = null;
     private List autoAuditListForUpdate = null;
@@ -262,6 +323,8 @@ public class DatabaseConfig extends Observable implements Observer {
     private List referenceDataNames = new ArrayList();
     private Map referenceDataMap = new HashMap();
     private Map connectionPoolDataSourcesMap = new HashMap();
+    private Map connectionPoolProvidersMap = new HashMap();
+    private Map readReplicasMap = new HashMap();
 
     /**
      * <p>A map of sql data type name and its corresponding type (Integer).</p>
@@ -291,12 +354,17 @@ public class DatabaseConfig extends Observable implements Observer {
         referenceDataMap.clear();
         allSQLDataNameTypesMap.clear();
         allSQLTypeJavaNamesMap.clear();
-        connectionPoolDataSourcesMap.clear();
     }
     
     private void init() {
         clear();
         
+        //pools of the old properties are destroyed after new pools are created
+        Map oldDataSources = connectionPoolDataSourcesMap;
+        Map oldProviders = connectionPoolProvidersMap;
+        connectionPoolDataSourcesMap = new HashMap();
+        connectionPoolProvidersMap = new HashMap();
+        
         ALL_BUILTIN_DATABASE_VENDORS.add(BUILTIN_DATABASE_NAME_H2.toUpperCase());
         ALL_BUILTIN_DATABASE_VENDORS.add(BUILTIN_DATABASE_NAME_HSQLDB.toUpperCase());
         ALL_BUILTIN_DATABASE_VENDORS.add(BUILTIN_DATABASE_NAME_MYSQL.toUpperCase());
@@ -359,6 +427,56 @@ public class DatabaseConfig extends Observable implements Observer {
         gloablTableNamingSuffix = getProperty("global.table.naming.suffix", DEFAULT_VALUE_gloablTableNamingSuffix);
         usePluralTableName = getProperty("use.plural.table.name", DEFAULT_VALUE_usePluralTableName);
         
+        String cacheSize = getProperty("statement.cache.size", "" + DEFAULT_VALUE_statementCacheSize);
+        try {
+            statementCacheSize = Integer.parseInt(cacheSize.trim());
+        }
+        catch(NumberFormatException ex) {
+            log.error("Invalid value for statement.cache.size: " + cacheSize);
+            statementCacheSize = DEFAULT_VALUE_statementCacheSize;
+        }
+        
+        String registrySize = getProperty("statement.registry.size", "" + DEFAULT_VALUE_statementRegistrySize);
+        try {
+            statementRegistrySize = Integer.parseInt(registrySize.trim());
+        }
+        catch(NumberFormatException ex) {
+            log.error("Invalid value for statement.registry.size: " + registrySize);
+            statementRegistrySize = DEFAULT_VALUE_statementRegistrySize;
+        }
+        
+        schemaSnapshotFile = getProperty("schema.snapshot.file", DEFAULT_VALUE_schemaSnapshotFile).trim();
+        schemaSnapshotWarmup = getProperty("schema.snapshot.warmup", DEFAULT_VALUE_schemaSnapshotWarmup);
+        
+        String batch = getProperty("batch.size", "" + DEFAULT_VALUE_batchSize);
+        try {
+            batchSize = Integer.parseInt(batch.trim());
+        }
+        catch(NumberFormatException ex) {
+            log.error("Invalid value for batch.size: " + batch);
+            batchSize = DEFAULT_VALUE_batchSize;
+        }
+        if (batchSize <= 0) batchSize = DEFAULT_VALUE_batchSize;
+        
+        String fetch = getProperty("fetch.size", "" + DEFAULT_VALUE_fetchSize);
+        try {
+            fetchSize = Integer.parseInt(fetch.trim());
+        }
+        catch(NumberFormatException ex) {
+            log.error("Invalid value for fetch.size: " + fetch);
+            fetchSize = DEFAULT_VALUE_fetchSize;
+        }
+        
+        String inList = getProperty("in.list.size", "" + DEFAULT_VALUE_inListSize);
+        try {
+            inListSize = Integer.parseInt(inList.trim());
+        }
+        catch(NumberFormatException ex) {
+            log.error("Invalid value for in.list.size: " + inList);
+            inListSize = DEFAULT_VALUE_inListSize;
+        }
+        if (inListSize <= 0) inListSize = DEFAULT_VALUE_inListSize;
+        
         String nameValueSpliter = "=";
         String propertyDelimiter = ",";
         
@@ -395,6 +513,8 @@ public class DatabaseConfig extends Observable implements Observer {
             }
         }
         
+        readReplicasMap = loadReadReplicas();
+        
         defaultDatabaseConnection = getProperty("default.database.connection.name", DEFAULT_VALUE_defaultDatabaseConnection);
         if (defaultDatabaseConnection != null && !databaseConnectionsMap.keySet().contains(defaultDatabaseConnection)) {
         	log.error("There is no definition for default database connection " + defaultDatabaseConnection);
@@ -428,6 +548,8 @@ public class DatabaseConfig extends Observable implements Observer {
             allSQLDataNameTypesMap.put(typeName, sqlDataTypeCode);
             allSQLTypeJavaNamesMap.put(sqlDataTypeCode, javaName);
         }
+        
+        destroyPools(oldDataSources, oldProviders);
     }
     
     private void checkConnectionPoolProperties(String connectionName, Properties p) {
@@ -437,57 +559,77 @@ public class DatabaseConfig extends Observable implements Observer {
             log.debug("No connection pool for " + connectionName + ", because max_pool_size is " + maxPoolSize);
             return;
         }
-        
-        Properties c3p0props = new Properties();
-        c3p0props.setProperty("maxPoolSize", maxPoolSize);
+        p.setProperty(KEY_DB_CONNECTION_MAX_POOL_SIZE, maxPoolSize);
         
         String minPoolSize = p.getProperty(KEY_DB_CONNECTION_MIN_POOL_SIZE, "" + DEFAULT_VALUE_min_pool_size);
         p.setProperty(KEY_DB_CONNECTION_MIN_POOL_SIZE, minPoolSize);
-        c3p0props.setProperty("minPoolSize", minPoolSize);
         
         String acquireIncrement = p.getProperty(KEY_DB_CONNECTION_ACQUIRE_INCREMENT, "" + DEFAULT_VALUE_acquire_increment);
         p.setProperty(KEY_DB_CONNECTION_ACQUIRE_INCREMENT, acquireIncrement);
-        c3p0props.setProperty("acquireIncrement", acquireIncrement);
         
         String initialPoolSize = p.getProperty(KEY_DB_CONNECTION_INITIAL_POOL_SIZE, "" + DEFAULT_VALUE_initial_pool_size);
         p.setProperty(KEY_DB_CONNECTION_INITIAL_POOL_SIZE, initialPoolSize);
-        c3p0props.setProperty("initialPoolSize", initialPoolSize);
         
         String maxIdleTime = p.getProperty(KEY_DB_CONNECTION_MAX_IDLE_TIME, "" + DEFAULT_VALUE_max_idle_time);
         p.setProperty(KEY_DB_CONNECTION_MAX_IDLE_TIME, maxIdleTime);
-        c3p0props.setProperty("maxIdleTime", maxIdleTime);
         
+        String providerName = p.getProperty(KEY_DB_CONNECTION_POOL_PROVIDER, DEFAULT_VALUE_pool_provider);
         try {
-            String driver = p.getProperty(KEY_DB_CONNECTION_DRIVER);
-            if (driver == null) throw new IllegalArgumentException("Driver class is not specified for connection " + connectionName);
-            
-            String url = p.getProperty(KEY_DB_CONNECTION_URL);
-            if (url == null) throw new IllegalArgumentException("Database url is not specified for connection " + connectionName);
-            
-            String username = p.getProperty(KEY_DB_CONNECTION_USERNAME);
-            String password = p.getProperty(KEY_DB_CONNECTION_PASSWORD);
-            
-            System.setProperty("com.mchange.v2.c3p0.management.ManagementCoordinator", "com.mchange.v2.c3p0.management.NullManagementCoordinator");
-            
-            ComboPooledDataSource cpds = new ComboPooledDataSource(connectionName);
-			cpds.setDriverClass(driver);
-            cpds.setJdbcUrl(url);
-			cpds.setUser(username);
-			cpds.setPassword(password);
-			
-			cpds.setMaxPoolSize(Integer.parseInt(maxPoolSize));
-			cpds.setMinPoolSize(Integer.parseInt(minPoolSize));
-			cpds.setAcquireIncrement(Integer.parseInt(acquireIncrement));
-			cpds.setInitialPoolSize(Integer.parseInt(initialPoolSize));
-			cpds.setMaxIdleTime(Integer.parseInt(maxIdleTime));
-            
-            connectionPoolDataSourcesMap.put(connectionName, cpds);
-            log.debug("created ds for " + connectionName + " with properties: " + c3p0props);
+            ConnectionPoolProvider provider = createConnectionPoolProvider(providerName);
+            DataSource ds = provider.createDataSource(connectionName, p);
+            connectionPoolDataSourcesMap.put(connectionName, ds);
+            connectionPoolProvidersMap.put(connectionName, provider);
+            log.debug("created ds for " + connectionName + " by provider " + providerName);
 		} catch (Throwable e) {
-			log.error("Failed to create data source for " + connectionName + " with properties: " + c3p0props + ": " + e.getMessage());
+			log.error("Failed to create data source for " + connectionName + " by provider " + providerName + ": " + e.getMessage());
 		}
     }
     
+    //key is connection name, value is list of names of its replicas
+    private Map loadReadReplicas() {
+        Map map = new HashMap();
+        Iterator it = databaseConnectionsMap.keySet().iterator();
+        while(it.hasNext()) {
+            String name = (String)it.next();
+            String replicas = getPredefinedDatabaseConnectionProperties(name).getProperty(KEY_DB_CONNECTION_READ_REPLICAS);
+            if (replicas == null || "".equals(replicas.trim())) continue;
+            
+            List list = new ArrayList();
+            String[] items = replicas.split("\\|");
+            for (int i = 0; i < items.length; i++) {
+                String replica = items[i].trim();
+                if ("".equals(replica) || replica.equals(name)) continue;
+                if (!databaseConnectionsMap.containsKey(replica)) {
+                    log.error("There is no definition for read replica " + replica + " of connection " + name);
+                    continue;
+                }
+                list.add(replica);
+            }
+            if (list.size() > 0) map.put(name, Collections.unmodifiableList(list));
+        }
+        return map;
+    }
+    
+    private ConnectionPoolProvider createConnectionPoolProvider(String providerName) 
+    throws Exception {
+        if (POOL_PROVIDER_C3P0.equalsIgnoreCase(providerName)) return new C3P0PoolProvider();
+        if (POOL_PROVIDER_SIMPLE.equalsIgnoreCase(providerName)) return new SimplePoolProvider();
+        return (ConnectionPoolProvider)Class.forName(providerName).newInstance();
+    }
+    
+    private void destroyPools(Map dataSources, Map providers) {
+        Iterator it = dataSources.keySet().iterator();
+        while(it.hasNext()) {
+            Object connectionName = it.next();
+            ConnectionPoolProvider provider = (ConnectionPoolProvider)providers.get(connectionName);
+            try {
+                provider.destroy((DataSource)dataSources.get(connectionName));
+            } catch (SQLException ex) {
+                log.error("ERROR ERROR ERROR failed to close connection pool " + connectionName + ": " + ex.getMessage());
+            }
+        }
+    }
+    
     private void loadProperties() {
         if (appProperties != null) appProperties.clear();
         
@@ -584,6 +726,62 @@ public class DatabaseConfig extends Observable implements Observer {
         return ("true".equalsIgnoreCase(usePluralTableName))?true:false;
     }
     
+    /**
+     * Returns maximum number of prepared statements cached for each 
+     * connection. Zero means statements are not cached.
+     */
+    public int getStatementCacheSize() {
+        return statementCacheSize;
+    }
+    
+    /**
+     * Returns maximum number of parsed direct SQL statements kept for 
+     * reuse. Zero means direct SQL statements are parsed for each use.
+     */
+    public int getStatementRegistrySize() {
+        return statementRegistrySize;
+    }
+    
+    /**
+     * Returns path of the file which keeps table meta data between 
+     * application starts. Empty string means there is no such file.
+     */
+    public String getSchemaSnapshotFile() {
+        return schemaSnapshotFile;
+    }
+    
+    /**
+     * Checks if meta data of all tables are loaded in background when the 
+     * application starts.
+     */
+    public boolean isSchemaSnapshotWarmup() {
+        return ("true".equalsIgnoreCase(schemaSnapshotWarmup))?true:false;
+    }
+    
+    /**
+     * Returns number of rows sent to database in one batch by batch 
+     * executions.
+     */
+    public int getBatchSize() {
+        return batchSize;
+    }
+    
+    /**
+     * Returns number of rows fetched from database at a time when rows of 
+     * a query are processed one by one. Zero means the driver's default.
+     */
+    public int getFetchSize() {
+        return fetchSize;
+    }
+    
+    /**
+     * Returns maximum number of values in an <tt>IN</tt> list of a query 
+     * which preloads associated records.
+     */
+    public int getInListSize() {
+        return inListSize;
+    }
+    
     /**
      * Returns a full table name. A full table name includes global table name 
      * prefix and suffix. 
@@ -662,6 +860,15 @@ public class DatabaseConfig extends Observable implements Observer {
         return (np != null)?np.getProperties():(new Properties());
     }
     
+    /**
+     * Returns names of read replicas of a connection. An empty list is 
+     * returned if the connection has no replica.
+     */
+    public List getReadReplicaNames(String connectionName) {
+        List list = (List)readReplicasMap.get(connectionName);
+        return (list != null)?list:Collections.EMPTY_LIST;
+    }
+    
     /**
      * Returns database connection names
      */
@@ -768,17 +975,34 @@ public class DatabaseConfig extends Observable implements Observer {
         return getPooledDataSource(getDefaultDatabaseConnectionName());
     }
 	
+    /**
+     * Returns metrics of the connection pool of a connection name, or null 
+     * if the connection is not pooled.
+     */
+    public ConnectionPoolMetrics getConnectionPoolMetrics(String connectionName) {
+        DataSource ds = (DataSource)connectionPoolDataSourcesMap.get(connectionName);
+        if (ds == null) return null;
+        ConnectionPoolProvider provider = (ConnectionPoolProvider)connectionPoolProvidersMap.get(connectionName);
+        return provider.getMetrics(connectionName, ds);
+    }
+    
+    /**
+     * Returns a list of metrics of all connection pools.
+     */
+    public List getAllConnectionPoolMetrics() {
+        List list = new ArrayList();
+        Iterator it = connectionPoolDataSourcesMap.keySet().iterator();
+        while(it.hasNext()) {
+            ConnectionPoolMetrics metrics = getConnectionPoolMetrics((String)it.next());
+            if (metrics != null) list.add(metrics);
+        }
+        return list;
+    }
+	
     /**
      * Destroies all connection pools if there is any.
      */
 	public void destroy() {
-		try {
-            Iterator it = connectionPoolDataSourcesMap.keySet().iterator();
-            while(it.hasNext()) {
-                DataSources.destroy((DataSource)connectionPoolDataSourcesMap.get(it.next()));
-            }
-		} catch (SQLException ex) {
-			log.error("ERROR ERROR ERROR failed to close connection pool: " + ex.getMessage());
-		}
+        destroyPools(connectionPoolDataSourcesMap, connectionPoolProvidersMap);
 	}
 }
@@ -0,0 +1,106 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.connection;
+
+import java.sql.SQLException;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import com.mchange.v2.c3p0.ComboPooledDataSource;
+import com.mchange.v2.c3p0.DataSources;
+import com.mchange.v2.c3p0.PooledDataSource;
+import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
+
+/**
+ * <p>C3P0PoolProvider class creates connection pools by c3p0. This is the 
+ * default connection pool provider.</p>
+ * 
+ * <p>Pool properties <tt>checkout_timeout</tt>, <tt>validation_query</tt> 
+ * and <tt>validation_interval</tt> are passed to c3p0 only when they are 
+ * specified, so that c3p0's own defaults are kept otherwise. Leak detection 
+ * and acquisition histograms are not available with this provider.</p>
+ * 
+ * @author (Fei) John Chen
+ */
+public class C3P0PoolProvider implements ConnectionPoolProvider {
+    private LogUtil log = LogUtil.getLogger(this.getClass().getName());
+    
+    public DataSource createDataSource(String connectionName, Properties p) 
+    throws SQLException {
+        String driver = p.getProperty(DatabaseConfig.KEY_DB_CONNECTION_DRIVER);
+        if (driver == null) throw new IllegalArgumentException("Driver class is not specified for connection " + connectionName);
+        
+        String url = p.getProperty(DatabaseConfig.KEY_DB_CONNECTION_URL);
+        if (url == null) throw new IllegalArgumentException("Database url is not specified for connection " + connectionName);
+        
+        System.setProperty("com.mchange.v2.c3p0.management.ManagementCoordinator", "com.mchange.v2.c3p0.management.NullManagementCoordinator");
+        
+        ComboPooledDataSource cpds = new ComboPooledDataSource(connectionName);
+        try {
+            cpds.setDriverClass(driver);
+        }
+        catch(Exception ex) {
+            throw new SQLException("Failed to load driver \"" + driver + "\": " + ex.getMessage());
+        }
+        cpds.setJdbcUrl(url);
+        cpds.setUser(p.getProperty(DatabaseConfig.KEY_DB_CONNECTION_USERNAME));
+        cpds.setPassword(p.getProperty(DatabaseConfig.KEY_DB_CONNECTION_PASSWORD));
+        
+        cpds.setMaxPoolSize(getInt(p, DatabaseConfig.KEY_DB_CONNECTION_MAX_POOL_SIZE));
+        cpds.setMinPoolSize(getInt(p, DatabaseConfig.KEY_DB_CONNECTION_MIN_POOL_SIZE));
+        cpds.setAcquireIncrement(getInt(p, DatabaseConfig.KEY_DB_CONNECTION_ACQUIRE_INCREMENT));
+        cpds.setInitialPoolSize(getInt(p, DatabaseConfig.KEY_DB_CONNECTION_INITIAL_POOL_SIZE));
+        cpds.setMaxIdleTime(getInt(p, DatabaseConfig.KEY_DB_CONNECTION_MAX_IDLE_TIME));
+        
+        String checkoutTimeout = p.getProperty(DatabaseConfig.KEY_DB_CONNECTION_CHECKOUT_TIMEOUT);
+        if (checkoutTimeout != null) cpds.setCheckoutTimeout(Integer.parseInt(checkoutTimeout));
+        
+        String validationQuery = p.getProperty(DatabaseConfig.KEY_DB_CONNECTION_VALIDATION_QUERY);
+        if (validationQuery != null) cpds.setPreferredTestQuery(validationQuery);
+        
+        String validationInterval = p.getProperty(DatabaseConfig.KEY_DB_CONNECTION_VALIDATION_INTERVAL);
+        if (validationInterval != null) cpds.setIdleConnectionTestPeriod(Integer.parseInt(validationInterval)/1000);
+        
+        String loginTimeout = p.getProperty(DatabaseConfig.KEY_DB_CONNECTION_TIMEOUT);
+        if (loginTimeout != null) cpds.setLoginTimeout(Integer.parseInt(loginTimeout));
+        
+        log.debug("created c3p0 ds for " + connectionName);
+        return cpds;
+    }
+    
+    public void destroy(DataSource dataSource) throws SQLException {
+        DataSources.destroy(dataSource);
+    }
+    
+    public ConnectionPoolMetrics getMetrics(String connectionName, DataSource dataSource) {
+        ConnectionPoolMetrics metrics = new ConnectionPoolMetrics(connectionName, DatabaseConfig.POOL_PROVIDER_C3P0);
+        if (dataSource instanceof ComboPooledDataSource) {
+            metrics.setMaxPoolSize(((ComboPooledDataSource)dataSource).getMaxPoolSize());
+        }
+        if (dataSource instanceof PooledDataSource) {
+            PooledDataSource pds = (PooledDataSource)dataSource;
+            try {
+                metrics.setActiveCount(pds.getNumBusyConnectionsDefaultUser());
+                metrics.setIdleCount(pds.getNumIdleConnectionsDefaultUser());
+                metrics.setWaitingCount(pds.getNumThreadsAwaitingCheckoutDefaultUser());
+                metrics.setTimeoutCount(pds.getNumFailedCheckoutsDefaultUser());
+                metrics.setValidationFailureCount(pds.getNumFailedIdleTestsDefaultUser());
+            }
+            catch(SQLException ex) {
+                log.warn("Failed to get metrics of connection pool " + connectionName + ": " + ex.getMessage());
+            }
+        }
+        return metrics;
+    }
+    
+    private int getInt(Properties p, String key) {
+        return Integer.parseInt(p.getProperty(key));
+    }
+}
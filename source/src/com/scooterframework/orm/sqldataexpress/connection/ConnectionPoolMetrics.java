@@ -0,0 +1,189 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.connection;
+
+import com.scooterframework.common.instrument.LatencyHistogram;
+
+/**
+ * <p>ConnectionPoolMetrics class holds metrics of a connection pool at the 
+ * time it is created. Counts which a provider does not keep are -1, and 
+ * the acquisition histogram is null if a provider does not keep it.</p>
+ * 
+ * @author (Fei) John Chen
+ */
+public class ConnectionPoolMetrics {
+    
+    public ConnectionPoolMetrics(String connectionName, String provider) {
+        this.connectionName = connectionName;
+        this.provider = provider;
+    }
+    
+    public String getConnectionName() {
+        return connectionName;
+    }
+    
+    public String getProvider() {
+        return provider;
+    }
+    
+    /**
+     * Returns maximum number of connections of the pool.
+     */
+    public int getMaxPoolSize() {
+        return maxPoolSize;
+    }
+    
+    public void setMaxPoolSize(int maxPoolSize) {
+        this.maxPoolSize = maxPoolSize;
+    }
+    
+    /**
+     * Returns number of connections in use.
+     */
+    public int getActiveCount() {
+        return activeCount;
+    }
+    
+    public void setActiveCount(int activeCount) {
+        this.activeCount = activeCount;
+    }
+    
+    /**
+     * Returns number of connections waiting in the pool.
+     */
+    public int getIdleCount() {
+        return idleCount;
+    }
+    
+    public void setIdleCount(int idleCount) {
+        this.idleCount = idleCount;
+    }
+    
+    /**
+     * Returns number of threads waiting for a connection.
+     */
+    public int getWaitingCount() {
+        return waitingCount;
+    }
+    
+    public void setWaitingCount(int waitingCount) {
+        this.waitingCount = waitingCount;
+    }
+    
+    /**
+     * Returns number of connections borrowed from the pool.
+     */
+    public long getCheckoutCount() {
+        return checkoutCount;
+    }
+    
+    public void setCheckoutCount(long checkoutCount) {
+        this.checkoutCount = checkoutCount;
+    }
+    
+    /**
+     * Returns number of borrows which had to wait for a connection.
+     */
+    public long getWaitCount() {
+        return waitCount;
+    }
+    
+    public void setWaitCount(long waitCount) {
+        this.waitCount = waitCount;
+    }
+    
+    /**
+     * Returns number of borrows which failed because no connection was 
+     * returned in time.
+     */
+    public long getTimeoutCount() {
+        return timeoutCount;
+    }
+    
+    public void setTimeoutCount(long timeoutCount) {
+        this.timeoutCount = timeoutCount;
+    }
+    
+    /**
+     * Returns number of physical connections opened by the pool.
+     */
+    public long getCreatedCount() {
+        return createdCount;
+    }
+    
+    public void setCreatedCount(long createdCount) {
+        this.createdCount = createdCount;
+    }
+    
+    /**
+     * Returns number of idle connections discarded because they failed 
+     * validation.
+     */
+    public long getValidationFailureCount() {
+        return validationFailureCount;
+    }
+    
+    public void setValidationFailureCount(long validationFailureCount) {
+        this.validationFailureCount = validationFailureCount;
+    }
+    
+    /**
+     * Returns number of connections held longer than the leak detection 
+     * threshold.
+     */
+    public long getLeakCount() {
+        return leakCount;
+    }
+    
+    public void setLeakCount(long leakCount) {
+        this.leakCount = leakCount;
+    }
+    
+    /**
+     * Returns histogram of time spent on borrowing a connection, or null.
+     */
+    public LatencyHistogram getAcquireHistogram() {
+        return acquireHistogram;
+    }
+    
+    public void setAcquireHistogram(LatencyHistogram acquireHistogram) {
+        this.acquireHistogram = acquireHistogram;
+    }
+    
+    public String toString() {
+        StringBuffer sb = new StringBuffer();
+        sb.append("connectionName=" + connectionName).append(", ");
+        sb.append("provider=" + provider).append(", ");
+        sb.append("maxPoolSize=" + maxPoolSize).append(", ");
+        sb.append("active=" + activeCount).append(", ");
+        sb.append("idle=" + idleCount).append(", ");
+        sb.append("waiting=" + waitingCount).append(", ");
+        sb.append("checkouts=" + checkoutCount).append(", ");
+        sb.append("waits=" + waitCount).append(", ");
+        sb.append("timeouts=" + timeoutCount).append(", ");
+        sb.append("created=" + createdCount).append(", ");
+        sb.append("validationFailures=" + validationFailureCount).append(", ");
+        sb.append("leaks=" + leakCount);
+        if (acquireHistogram != null) sb.append(", ").append(acquireHistogram);
+        return sb.toString();
+    }
+    
+    private String connectionName;
+    private String provider;
+    private int maxPoolSize = -1;
+    private int activeCount = -1;
+    private int idleCount = -1;
+    private int waitingCount = -1;
+    private long checkoutCount = -1;
+    private long waitCount = -1;
+    private long timeoutCount = -1;
+    private long createdCount = -1;
+    private long validationFailureCount = -1;
+    private long leakCount = -1;
+    private LatencyHistogram acquireHistogram;
+}
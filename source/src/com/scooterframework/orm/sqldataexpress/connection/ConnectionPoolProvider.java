@@ -0,0 +1,59 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.connection;
+
+import java.sql.SQLException;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+/**
+ * <p>ConnectionPoolProvider interface creates and destroys pooled data 
+ * sources for database connections which are defined with a positive 
+ * <tt>max_pool_size</tt> in <tt>database.properties</tt> file.</p>
+ * 
+ * <p>The provider of a connection is specified by its <tt>pool_provider</tt> 
+ * property. The value is either <tt>c3p0</tt> (default), <tt>simple</tt>, 
+ * or the class name of an implementation of this interface. An 
+ * implementation must have a public constructor without arguments.</p>
+ * 
+ * @author (Fei) John Chen
+ */
+public interface ConnectionPoolProvider {
+    
+    /**
+     * Creates a pooled data source.
+     * 
+     * @param connectionName  name of the database connection
+     * @param properties      properties of the database connection, with 
+     *                        default values of pool properties filled in
+     * @return a pooled data source
+     * @throws SQLException if the data source cannot be created
+     */
+    public DataSource createDataSource(String connectionName, Properties properties) 
+    throws SQLException;
+    
+    /**
+     * Destroys a pooled data source created by this provider and closes all 
+     * its connections.
+     * 
+     * @param dataSource  a pooled data source created by this provider
+     * @throws SQLException if the data source cannot be destroyed
+     */
+    public void destroy(DataSource dataSource) throws SQLException;
+    
+    /**
+     * Returns current metrics of a pooled data source created by this 
+     * provider.
+     * 
+     * @param connectionName  name of the database connection
+     * @param dataSource      a pooled data source created by this provider
+     * @return metrics of the pool
+     */
+    public ConnectionPoolMetrics getMetrics(String connectionName, DataSource dataSource);
+}
@@ -303,6 +303,7 @@ public class ConnectionUtil {
 
 	/**
 	 * Helper method to create a pooled connection to database with given connection name.
+	 * The login timeout is applied when the pool is created, not here.
 	 * 
 	 * @return Connection
 	 * @exception CreateConnectionFailureException
@@ -315,9 +316,6 @@ public class ConnectionUtil {
 
 			DataSource ds = (DataSource) DatabaseConfig.getInstance().getPooledDataSource(connectionName);
             if (ds == null) throw new IllegalArgumentException("No data source for " + connectionName);
-            
-			if (loginTimeout != null)
-				ds.setLoginTimeout(loginTimeout.intValue());
 
 			connection = ds.getConnection();
 
@@ -337,6 +335,7 @@ public class ConnectionUtil {
 
 	/**
 	 * Helper method to create a pooled connection to database with given connection name.
+	 * The login timeout is applied when the pool is created, not here.
 	 * 
 	 * @return Connection
 	 * @exception CreateConnectionFailureException
@@ -350,9 +349,6 @@ public class ConnectionUtil {
 
 			DataSource ds = (DataSource) DatabaseConfig.getInstance().getPooledDataSource(connectionName);
             if (ds == null) throw new IllegalArgumentException("No data source for " + connectionName);
-            
-			if (loginTimeout != null)
-				ds.setLoginTimeout(loginTimeout.intValue());
 
 			connection = ds.getConnection(username, password);
 
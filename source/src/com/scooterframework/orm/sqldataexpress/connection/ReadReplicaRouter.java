@@ -0,0 +1,144 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.connection;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.scooterframework.common.logging.LogUtil;
+
+/**
+ * <p>ReadReplicaRouter class picks a read replica for a connection which 
+ * has <tt>read_replicas</tt> declared in <tt>database.properties</tt>.</p>
+ * 
+ * <p>Finder code marks the statements it runs as reads by calling 
+ * {@link #beginRead()} and {@link #endRead()} around them. A transaction 
+ * that has not yet used its primary connection sends these reads to a 
+ * replica. Replicas of a connection are picked in round-robin order. A 
+ * replica that fails to give a connection is skipped for 
+ * {@link #RETRY_INTERVAL} milliseconds.</p>
+ * 
+ * @author (Fei) John Chen
+ */
+public class ReadReplicaRouter {
+    
+    /**
+     * Milliseconds a failed replica is skipped before it is tried again.
+     */
+    public static final long RETRY_INTERVAL = 30000L;
+    
+    private static LogUtil log = LogUtil.getLogger(ReadReplicaRouter.class.getName());
+    
+    private ReadReplicaRouter() {
+    }
+    
+    /**
+     * Marks the start of a read in the current thread. Each call must be 
+     * followed by a call to {@link #endRead()} in a finally block. Reads 
+     * may be nested.
+     */
+    public static void beginRead() {
+        int[] depth = (int[])readDepth.get();
+        if (depth == null) {
+            depth = new int[1];
+            readDepth.set(depth);
+        }
+        depth[0]++;
+    }
+    
+    /**
+     * Marks the end of a read in the current thread.
+     */
+    public static void endRead() {
+        int[] depth = (int[])readDepth.get();
+        if (depth == null) return;
+        if (--depth[0] <= 0) readDepth.set(null);
+    }
+    
+    /**
+     * Checks if the current thread is running a read.
+     */
+    public static boolean isReading() {
+        return readDepth.get() != null;
+    }
+    
+    /**
+     * Returns the next available replica of a connection.
+     * 
+     * @param connectionName  name of the primary connection
+     * @param replicaNames    names of its replicas
+     * @return a replica name, or null if no replica is available
+     */
+    public static String selectReplica(String connectionName, List replicaNames) {
+        int total = (replicaNames != null)?replicaNames.size():0;
+        if (total == 0) return null;
+        
+        int start = 0;
+        synchronized(counters) {
+            int[] counter = (int[])counters.get(connectionName);
+            if (counter == null) {
+                counter = new int[1];
+                counters.put(connectionName, counter);
+            }
+            start = counter[0];
+            counter[0] = (start + 1) % total;
+        }
+        
+        long now = System.currentTimeMillis();
+        for (int i = 0; i < total; i++) {
+            String replicaName = (String)replicaNames.get((start + i) % total);
+            if (isAvailable(replicaName, now)) return replicaName;
+        }
+        return null;
+    }
+    
+    /**
+     * Marks a replica as failed. It is skipped until the retry interval 
+     * has passed.
+     * 
+     * @param replicaName  name of the replica
+     */
+    public static void markFailed(String replicaName) {
+        synchronized(failures) {
+            failures.put(replicaName, new Long(System.currentTimeMillis()));
+        }
+        log.warn("Read replica " + replicaName + " is skipped for " + RETRY_INTERVAL + " milliseconds.");
+    }
+    
+    /**
+     * Forgets all failed replicas and round-robin positions.
+     */
+    public static void reset() {
+        synchronized(failures) {
+            failures.clear();
+        }
+        synchronized(counters) {
+            counters.clear();
+        }
+    }
+    
+    private static boolean isAvailable(String replicaName, long now) {
+        synchronized(failures) {
+            Long failedTime = (Long)failures.get(replicaName);
+            if (failedTime == null) return true;
+            if (now - failedTime.longValue() < RETRY_INTERVAL) return false;
+            failures.remove(replicaName);
+            return true;
+        }
+    }
+    
+    //nesting depth of reads in the current thread
+    private static ThreadLocal readDepth = new ThreadLocal();
+    
+    //key is connection name, value is position of the next replica
+    private static Map counters = new HashMap();
+    
+    //key is replica name, value is time of its last failure
+    private static Map failures = new HashMap();
+}
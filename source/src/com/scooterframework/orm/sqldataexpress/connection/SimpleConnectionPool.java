@@ -0,0 +1,647 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.connection;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.Timer;
+import java.util.TimerTask;
+
+import javax.sql.DataSource;
+
+import com.scooterframework.common.instrument.LatencyHistogram;
+import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
+
+/**
+ * <p>SimpleConnectionPool class is a lightweight connection pool. It is 
+ * used for a database connection whose <tt>pool_provider</tt> property is 
+ * <tt>simple</tt>.</p>
+ * 
+ * <p>Borrowing an idle connection only takes the pool's lock for removing 
+ * the connection from the idle list. New connections are opened, and idle 
+ * connections are validated, outside of the lock. The most recently 
+ * returned connection is borrowed first, so that connections idle for a 
+ * long time can be discarded.</p>
+ * 
+ * <p>A returned connection is rolled back if it is not in auto-commit
+ * mode. Its auto-commit, read-only and transaction isolation settings are
+ * then set back to those it had when it was opened. A connection whose
+ * settings cannot be restored is closed instead of being pooled.</p>
+ * 
+ * <p>The pool supports these properties of a database connection in 
+ * addition to the pool size properties:</p>
+ * <pre>
+ *   checkout_timeout: milliseconds to wait for a connection when all 
+ *                     connections are in use, default 30000. Zero means 
+ *                     wait forever.
+ *   validation_query: a query to check an idle connection before it is 
+ *                     borrowed. If it is not specified, only 
+ *                     <tt>isClosed()</tt> is checked.
+ *   validation_interval: milliseconds a connection must be idle before 
+ *                     it is validated, default 30000.
+ *   leak_detection_threshold: milliseconds a connection can be held before 
+ *                     it is reported with the stack trace of its borrower, 
+ *                     default 0 which means no leak detection.
+ * </pre>
+ * 
+ * <p>The login <tt>timeout</tt> property limits the time to open a 
+ * connection, not the time to borrow one. As connections are opened by 
+ * <tt>DriverManager</tt>, whose login timeout is shared by all drivers in 
+ * the JVM, the timeout is set on <tt>DriverManager</tt> once when the pool 
+ * is created. The last pool created with a timeout decides the value.</p>
+ * 
+ * @author (Fei) John Chen
+ */
+public class SimpleConnectionPool implements DataSource {
+    private LogUtil log = LogUtil.getLogger(this.getClass().getName());
+    
+    /**
+     * Milliseconds between checks of idle connections and leaks.
+     */
+    public static final long HOUSEKEEPING_PERIOD = 5000L;
+    
+    private static Timer housekeepingTimer;
+    
+    public SimpleConnectionPool(String name, Properties p) throws SQLException {
+        this.name = name;
+        
+        driver = p.getProperty(DatabaseConfig.KEY_DB_CONNECTION_DRIVER);
+        if (driver == null) throw new IllegalArgumentException("Driver class is not specified for connection " + name);
+        
+        url = p.getProperty(DatabaseConfig.KEY_DB_CONNECTION_URL);
+        if (url == null) throw new IllegalArgumentException("Database url is not specified for connection " + name);
+        
+        username = p.getProperty(DatabaseConfig.KEY_DB_CONNECTION_USERNAME);
+        password = p.getProperty(DatabaseConfig.KEY_DB_CONNECTION_PASSWORD);
+        
+        maxPoolSize = (int)getLong(p, DatabaseConfig.KEY_DB_CONNECTION_MAX_POOL_SIZE, DatabaseConfig.DEFAULT_VALUE_max_pool_size);
+        minPoolSize = (int)getLong(p, DatabaseConfig.KEY_DB_CONNECTION_MIN_POOL_SIZE, DatabaseConfig.DEFAULT_VALUE_min_pool_size);
+        int initialPoolSize = (int)getLong(p, DatabaseConfig.KEY_DB_CONNECTION_INITIAL_POOL_SIZE, DatabaseConfig.DEFAULT_VALUE_initial_pool_size);
+        maxIdleTime = 1000L * getLong(p, DatabaseConfig.KEY_DB_CONNECTION_MAX_IDLE_TIME, DatabaseConfig.DEFAULT_VALUE_max_idle_time);
+        checkoutTimeout = getLong(p, DatabaseConfig.KEY_DB_CONNECTION_CHECKOUT_TIMEOUT, DatabaseConfig.DEFAULT_VALUE_checkout_timeout);
+        validationQuery = p.getProperty(DatabaseConfig.KEY_DB_CONNECTION_VALIDATION_QUERY);
+        validationInterval = getLong(p, DatabaseConfig.KEY_DB_CONNECTION_VALIDATION_INTERVAL, DatabaseConfig.DEFAULT_VALUE_validation_interval);
+        leakDetectionThreshold = getLong(p, DatabaseConfig.KEY_DB_CONNECTION_LEAK_DETECTION_THRESHOLD, DatabaseConfig.DEFAULT_VALUE_leak_detection_threshold);
+        loginTimeout = (int)getLong(p, DatabaseConfig.KEY_DB_CONNECTION_TIMEOUT, 0);
+        
+        if (maxPoolSize <= 0) throw new IllegalArgumentException("max_pool_size must be positive for connection " + name);
+        
+        applyLoginTimeout();
+        
+        try {
+            Class.forName(driver);
+        }
+        catch(Exception ex) {
+            throw new SQLException("Failed to load driver \"" + driver + "\".");
+        }
+        
+        int size = Math.min(initialPoolSize, maxPoolSize);
+        for (int i = 0; i < size; i++) {
+            try {
+                idle.addLast(openEntry());
+                total++;
+            }
+            catch(SQLException ex) {
+                log.warn("Failed to open initial connections of pool " + name + ": " + ex.getMessage());
+                break;
+            }
+        }
+        
+        housekeeper = new HousekeepingTask(this);
+        getHousekeepingTimer().schedule(housekeeper, HOUSEKEEPING_PERIOD, HOUSEKEEPING_PERIOD);
+        
+        log.debug("created simple connection pool for " + name + " with " + total + " connections");
+    }
+    
+    public String getName() {
+        return name;
+    }
+    
+    /**
+     * Borrows a connection from the pool. Closing the returned connection 
+     * returns it to the pool.
+     * 
+     * @return a connection
+     * @throws SQLException if no connection is available before the 
+     *         checkout timeout, or a new connection cannot be opened
+     */
+    public Connection getConnection() throws SQLException {
+        long start = System.currentTimeMillis();
+        boolean waited = false;
+        
+        while (true) {
+            PooledEntry entry = null;
+            boolean create = false;
+            
+            synchronized(this) {
+                while (true) {
+                    if (closed) throw new SQLException("Connection pool " + name + " is closed.");
+                    
+                    if (idle.size() > 0) {
+                        entry = (PooledEntry)idle.removeLast();
+                        break;
+                    }
+                    
+                    if (total < maxPoolSize) {
+                        total++;
+                        create = true;
+                        break;
+                    }
+                    
+                    long remaining = 0L;
+                    if (checkoutTimeout > 0) {
+                        remaining = start + checkoutTimeout - System.currentTimeMillis();
+                        if (remaining <= 0) {
+                            timeoutCount++;
+                            throw new SQLException("Timed out after " + checkoutTimeout + 
+                                " ms waiting for a connection of pool " + name + ".");
+                        }
+                    }
+                    
+                    waited = true;
+                    waitingCount++;
+                    try {
+                        wait(remaining);
+                    }
+                    catch(InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("Interrupted while waiting for a connection of pool " + name + ".");
+                    }
+                    finally {
+                        waitingCount--;
+                    }
+                }
+            }
+            
+            if (create) {
+                try {
+                    entry = openEntry();
+                }
+                catch(SQLException ex) {
+                    synchronized(this) {
+                        total--;
+                        notify();
+                    }
+                    throw ex;
+                }
+            }
+            else if (!validate(entry)) {
+                discard(entry);
+                continue;
+            }
+            
+            return checkout(entry, start, waited);
+        }
+    }
+    
+    /**
+     * Borrows a connection from the pool if the user is the user of the 
+     * pool. Otherwise a new connection is opened for the user which is not 
+     * pooled.
+     */
+    public Connection getConnection(String user, String pwd) throws SQLException {
+        if ((user == null)?(username == null):user.equals(username)) {
+            return getConnection();
+        }
+        
+        log.debug("opening an unpooled connection of " + name + " for " + user);
+        return openConnection(user, pwd);
+    }
+    
+    /**
+     * Returns current metrics of the pool.
+     */
+    public synchronized ConnectionPoolMetrics getMetrics() {
+        ConnectionPoolMetrics metrics = new ConnectionPoolMetrics(name, DatabaseConfig.POOL_PROVIDER_SIMPLE);
+        metrics.setMaxPoolSize(maxPoolSize);
+        metrics.setActiveCount(active.size());
+        metrics.setIdleCount(idle.size());
+        metrics.setWaitingCount(waitingCount);
+        metrics.setCheckoutCount(checkoutCount);
+        metrics.setWaitCount(waitCount);
+        metrics.setTimeoutCount(timeoutCount);
+        metrics.setCreatedCount(createdCount);
+        metrics.setValidationFailureCount(validationFailureCount);
+        metrics.setLeakCount(leakCount);
+        metrics.setAcquireHistogram(acquireHistogram);
+        return metrics;
+    }
+    
+    /**
+     * Closes all idle connections and the pool. Connections in use are 
+     * closed when they are returned.
+     */
+    public void close() {
+        List connections = null;
+        synchronized(this) {
+            if (closed) return;
+            closed = true;
+            connections = new ArrayList(idle);
+            total -= idle.size();
+            idle.clear();
+            notifyAll();
+        }
+        
+        housekeeper.cancel();
+        
+        Iterator it = connections.iterator();
+        while(it.hasNext()) {
+            closeQuietly(((PooledEntry)it.next()).connection);
+        }
+        log.debug("closed simple connection pool for " + name);
+    }
+    
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+    
+    /**
+     * Discards idle connections which have been idle longer than the 
+     * maximum idle time while keeping the minimum pool size, and reports 
+     * connections held longer than the leak detection threshold.
+     */
+    void housekeep() {
+        List expired = new ArrayList();
+        List leaks = new ArrayList();
+        long now = System.currentTimeMillis();
+        
+        synchronized(this) {
+            if (closed) return;
+            
+            if (maxIdleTime > 0) {
+                Iterator it = idle.iterator();
+                while(it.hasNext() && total - expired.size() > minPoolSize) {
+                    PooledEntry entry = (PooledEntry)it.next();
+                    if (now - entry.lastUsedTime > maxIdleTime) {
+                        it.remove();
+                        expired.add(entry);
+                    }
+                }
+                total -= expired.size();
+            }
+            
+            if (leakDetectionThreshold > 0) {
+                Iterator it = active.iterator();
+                while(it.hasNext()) {
+                    PooledEntry entry = (PooledEntry)it.next();
+                    if (!entry.leakReported && now - entry.borrowedTime > leakDetectionThreshold) {
+                        entry.leakReported = true;
+                        leakCount++;
+                        leaks.add(new Object[]{new Long(now - entry.borrowedTime), entry.borrowStack});
+                    }
+                }
+            }
+        }
+        
+        Iterator it = expired.iterator();
+        while(it.hasNext()) {
+            closeQuietly(((PooledEntry)it.next()).connection);
+        }
+        
+        it = leaks.iterator();
+        while(it.hasNext()) {
+            Object[] leak = (Object[])it.next();
+            StringWriter sw = new StringWriter();
+            if (leak[1] != null) ((Throwable)leak[1]).printStackTrace(new PrintWriter(sw));
+            log.warn("A connection of pool " + name + " has been held for " + leak[0] + 
+                     " ms and may be leaked. It was borrowed at: " + sw);
+        }
+    }
+    
+    private Connection checkout(PooledEntry entry, long start, boolean waited) {
+        long now = System.currentTimeMillis();
+        synchronized(this) {
+            entry.borrowedTime = now;
+            entry.leakReported = false;
+            entry.borrowStack = (leakDetectionThreshold > 0)?
+                new Throwable("Connection borrowed from pool " + name):null;
+            active.add(entry);
+            checkoutCount++;
+            if (waited) waitCount++;
+        }
+        acquireHistogram.record(now - start);
+        
+        return (Connection)Proxy.newProxyInstance(SimpleConnectionPool.class.getClassLoader(), 
+            new Class[]{Connection.class}, new PooledConnectionHandler(this, entry));
+    }
+    
+    //returns a connection to the pool, called when a borrowed connection is closed
+    void release(PooledEntry entry) {
+        boolean broken = false;
+        try {
+            Connection c = entry.connection;
+            if (c.isClosed()) {
+                broken = true;
+            }
+            else {
+                if (!c.getAutoCommit()) c.rollback();
+                restoreState(entry);
+            }
+        }
+        catch(SQLException ex) {
+            log.debug("connection of pool " + name + " is discarded as its state cannot be restored: " + ex.getMessage());
+            broken = true;
+        }
+        
+        synchronized(this) {
+            active.remove(entry);
+            entry.borrowStack = null;
+            if (!broken && !closed) {
+                entry.lastUsedTime = System.currentTimeMillis();
+                idle.addLast(entry);
+                notify();
+                return;
+            }
+            total--;
+            notify();
+        }
+        closeQuietly(entry.connection);
+    }
+    
+    private boolean validate(PooledEntry entry) {
+        if (System.currentTimeMillis() - entry.lastUsedTime < validationInterval) return true;
+        
+        Connection c = entry.connection;
+        try {
+            if (c.isClosed()) return false;
+            if (validationQuery != null) {
+                Statement st = c.createStatement();
+                try {
+                    st.execute(validationQuery);
+                }
+                finally {
+                    st.close();
+                }
+                if (!c.getAutoCommit()) c.rollback();
+            }
+            return true;
+        }
+        catch(SQLException ex) {
+            log.debug("idle connection of pool " + name + " failed validation: " + ex.getMessage());
+            return false;
+        }
+    }
+    
+    private void discard(PooledEntry entry) {
+        synchronized(this) {
+            total--;
+            validationFailureCount++;
+            notify();
+        }
+        closeQuietly(entry.connection);
+    }
+    
+    //restores the settings a borrower may have changed
+    private void restoreState(PooledEntry entry) throws SQLException {
+        Connection c = entry.connection;
+        if (c.getAutoCommit() != entry.autoCommit) c.setAutoCommit(entry.autoCommit);
+        if (c.isReadOnly() != entry.readOnly) c.setReadOnly(entry.readOnly);
+        if (c.getTransactionIsolation() != entry.isolation) c.setTransactionIsolation(entry.isolation);
+    }
+    
+    //opens a connection of the pool and records its initial settings
+    private PooledEntry openEntry() throws SQLException {
+        Connection c = openConnection(username, password);
+        try {
+            return new PooledEntry(c);
+        }
+        catch(SQLException ex) {
+            closeQuietly(c);
+            throw ex;
+        }
+    }
+    
+    private Connection openConnection(String user, String pwd) throws SQLException {
+        Connection c = (user == null)?DriverManager.getConnection(url):
+                                      DriverManager.getConnection(url, user, pwd);
+        synchronized(this) {
+            createdCount++;
+        }
+        return c;
+    }
+    
+    //DriverManager's login timeout is global, so it is only changed here
+    private void applyLoginTimeout() {
+        if (loginTimeout <= 0 || DriverManager.getLoginTimeout() == loginTimeout) return;
+        
+        if (DriverManager.getLoginTimeout() > 0) {
+            log.warn("Pool " + name + " changes the JVM-wide login timeout of DriverManager from " + 
+                     DriverManager.getLoginTimeout() + " to " + loginTimeout + " seconds.");
+        }
+        DriverManager.setLoginTimeout(loginTimeout);
+    }
+    
+    private void closeQuietly(Connection c) {
+        try {
+            c.close();
+        }
+        catch(SQLException ex) {
+            log.debug("failed to close a connection of pool " + name + ": " + ex.getMessage());
+        }
+    }
+    
+    private static long getLong(Properties p, String key, long defaultValue) {
+        String value = p.getProperty(key);
+        if (value == null || "".equals(value.trim())) return defaultValue;
+        return Long.parseLong(value.trim());
+    }
+    
+    private static synchronized Timer getHousekeepingTimer() {
+        if (housekeepingTimer == null) housekeepingTimer = new Timer(true);
+        return housekeepingTimer;
+    }
+    
+    public PrintWriter getLogWriter() {
+        return logWriter;
+    }
+    
+    public void setLogWriter(PrintWriter out) {
+        logWriter = out;
+    }
+    
+    public int getLoginTimeout() {
+        return loginTimeout;
+    }
+    
+    /**
+     * Sets login timeout in seconds. The timeout is set on 
+     * <tt>DriverManager</tt>, therefore it applies to all drivers in the JVM.
+     */
+    public void setLoginTimeout(int seconds) {
+        loginTimeout = seconds;
+        applyLoginTimeout();
+    }
+    
+    public java.util.logging.Logger getParentLogger() {
+        return java.util.logging.Logger.getLogger(SimpleConnectionPool.class.getName());
+    }
+    
+    public Object unwrap(Class iface) throws SQLException {
+        if (iface.isInstance(this)) return this;
+        throw new SQLException("Not a wrapper for " + iface.getName());
+    }
+    
+    public boolean isWrapperFor(Class iface) {
+        return iface.isInstance(this);
+    }
+    
+    public String toString() {
+        return "SimpleConnectionPool[" + name + "]";
+    }
+    
+    /**
+     * PooledEntry holds a physical connection of the pool and the settings 
+     * of the connection when it was opened, which are restored each time 
+     * the connection is returned.
+     */
+    static class PooledEntry {
+        PooledEntry(Connection connection) throws SQLException {
+            this.connection = connection;
+            this.lastUsedTime = System.currentTimeMillis();
+            this.autoCommit = connection.getAutoCommit();
+            this.readOnly = connection.isReadOnly();
+            this.isolation = connection.getTransactionIsolation();
+        }
+        
+        Connection connection;
+        boolean autoCommit;
+        boolean readOnly;
+        int isolation;
+        long lastUsedTime;
+        long borrowedTime;
+        boolean leakReported;
+        Throwable borrowStack;
+    }
+    
+    /**
+     * PooledConnectionHandler handles calls to a borrowed connection. The 
+     * <tt>close</tt> method returns the connection to the pool, and the 
+     * connection cannot be used after it is closed.
+     */
+    private static class PooledConnectionHandler implements InvocationHandler {
+        PooledConnectionHandler(SimpleConnectionPool pool, PooledEntry entry) {
+            this.pool = pool;
+            this.entry = entry;
+        }
+        
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String methodName = method.getName();
+            int argCount = (args != null)?args.length:0;
+            
+            if ("close".equals(methodName) && argCount == 0) {
+                close();
+                return null;
+            }
+            if ("isClosed".equals(methodName) && argCount == 0) {
+                if (isClosed()) return Boolean.TRUE;
+            }
+            else if ("equals".equals(methodName) && argCount == 1) {
+                return (proxy == args[0])?Boolean.TRUE:Boolean.FALSE;
+            }
+            else if ("hashCode".equals(methodName) && argCount == 0) {
+                return new Integer(System.identityHashCode(proxy));
+            }
+            else if ("toString".equals(methodName) && argCount == 0) {
+                return "Pooled connection of " + pool.getName() + ": " + entry.connection;
+            }
+            else if (isClosed()) {
+                throw new SQLException("Connection is closed.");
+            }
+            
+            try {
+                return method.invoke(entry.connection, args);
+            }
+            catch(InvocationTargetException ex) {
+                throw ex.getTargetException();
+            }
+        }
+        
+        private synchronized boolean isClosed() {
+            return closed;
+        }
+        
+        private void close() {
+            synchronized(this) {
+                if (closed) return;
+                closed = true;
+            }
+            pool.release(entry);
+        }
+        
+        private SimpleConnectionPool pool;
+        private PooledEntry entry;
+        private boolean closed;
+    }
+    
+    /**
+     * HousekeepingTask checks a pool in the shared housekeeping thread.
+     */
+    private static class HousekeepingTask extends TimerTask {
+        HousekeepingTask(SimpleConnectionPool pool) {
+            this.pool = pool;
+        }
+        
+        public void run() {
+            try {
+                pool.housekeep();
+            }
+            catch(Throwable ex) {
+                ;
+            }
+        }
+        
+        private SimpleConnectionPool pool;
+    }
+    
+    private String name;
+    private String driver;
+    private String url;
+    private String username;
+    private String password;
+    private int maxPoolSize;
+    private int minPoolSize;
+    private long maxIdleTime;
+    private long checkoutTimeout;
+    private String validationQuery;
+    private long validationInterval;
+    private long leakDetectionThreshold;
+    private int loginTimeout;
+    private PrintWriter logWriter;
+    private HousekeepingTask housekeeper;
+    
+    //all fields below are guarded by this pool
+    private LinkedList idle = new LinkedList();
+    private Set active = new HashSet();
+    private int total;
+    private boolean closed;
+    private int waitingCount;
+    private long checkoutCount;
+    private long waitCount;
+    private long timeoutCount;
+    private long createdCount;
+    private long validationFailureCount;
+    private long leakCount;
+    
+    private LatencyHistogram acquireHistogram = new LatencyHistogram("acquire");
+}
@@ -0,0 +1,34 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.connection;
+
+import java.sql.SQLException;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+/**
+ * SimplePoolProvider class creates SimpleConnectionPool instances.
+ * 
+ * @author (Fei) John Chen
+ */
+public class SimplePoolProvider implements ConnectionPoolProvider {
+    
+    public DataSource createDataSource(String connectionName, Properties properties) 
+    throws SQLException {
+        return new SimpleConnectionPool(connectionName, properties);
+    }
+    
+    public void destroy(DataSource dataSource) throws SQLException {
+        ((SimpleConnectionPool)dataSource).close();
+    }
+    
+    public ConnectionPoolMetrics getMetrics(String connectionName, DataSource dataSource) {
+        return ((SimpleConnectionPool)dataSource).getMetrics();
+    }
+}
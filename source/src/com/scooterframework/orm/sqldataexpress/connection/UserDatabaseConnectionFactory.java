@@ -74,10 +74,10 @@ public class UserDatabaseConnectionFactory {
         
         UserDatabaseConnection udc = null;
         if (dcc instanceof DataSourceConnectionContext) {
-            udc = new DataSourceConnection((DataSourceConnectionContext)udc);
+            udc = new DataSourceConnection((DataSourceConnectionContext)dcc);
         }
         else if (dcc instanceof JdbcConnectionContext) {
-            udc = new JdbcConnection((JdbcConnectionContext)udc);
+            udc = new JdbcConnection((JdbcConnectionContext)dcc);
         }
         else {
             throw new CreateConnectionFailureException("Failed to create a database connection: " + 
@@ -270,7 +270,7 @@ public class ColumnInfo implements Serializable {
     private String m_sSchemaName = "";
     private String m_sCatalogName = "";
     private String m_sTableName = "";
-    private boolean m_bPrimaryKey = false;
+    private volatile boolean m_bPrimaryKey = false;
     private String m_sColumnClassName = "";
     private String m_sColumnName = "";
     private String m_sColumnTypeName = "";
@@ -285,7 +285,7 @@ public class ColumnInfo implements Serializable {
     private boolean m_bCaseSensitive = false;
     private boolean m_bCurrency = false;
     private boolean m_bDefinitelyWritable = false;
-    private boolean m_bReadOnly = false;
+    private volatile boolean m_bReadOnly = false;
     private boolean m_bSearchable = true;
     private boolean m_bSigned = true;
     private boolean m_bWritable = true;
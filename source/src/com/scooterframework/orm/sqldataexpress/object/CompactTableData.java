@@ -0,0 +1,314 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.object;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * <p>CompactTableData class is a read-only copy of a TableData which keeps
+ * the data column by column instead of row by row.</p>
+ *
+ * <p>Columns whose values are all of the same type of Integer, Long,
+ * Double, java.util.Date, java.sql.Date or java.sql.Timestamp are stored in
+ * primitive arrays. String columns with repeated values are stored as
+ * indexes to a dictionary of distinct values. Other columns are stored as
+ * object arrays. Null values are tracked by a bit set of each column.</p>
+ *
+ * <p>Boxed values are created when a field is read. Each call of
+ * {@link #getRow(int)} or {@link #toTableData()} returns new RowData
+ * instances, so changes to them do not change this object.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class CompactTableData implements Serializable {
+    /**
+     * Generated serialVersionUID
+     */
+    private static final long serialVersionUID = 6251973310240788461L;
+
+    /**
+     * Constructs a compact copy of a TableData.
+     *
+     * @param td the table data to copy
+     */
+    public CompactTableData(TableData td) {
+        if (td == null) throw new IllegalArgumentException("Input TableData is null.");
+
+        size = td.getTableSize();
+        header = td.getHeader();
+        if (header == null && size > 0) header = td.getRow(0).getRowInfo();
+
+        int width = 0;
+        for (int i = 0; i < size; i++) {
+            Object[] fields = td.getRow(i).getFields();
+            if (fields != null && fields.length > width) width = fields.length;
+        }
+
+        columns = new Column[width];
+        for (int j = 0; j < width; j++) {
+            columns[j] = createColumn(td, j);
+        }
+    }
+
+    /**
+     * Returns the header of the rows.
+     */
+    public RowInfo getHeader() {
+        return header;
+    }
+
+    /**
+     * Returns number of rows.
+     */
+    public int getTableSize() {
+        return size;
+    }
+
+    /**
+     * Returns number of columns.
+     */
+    public int getColumnSize() {
+        return columns.length;
+    }
+
+    /**
+     * Returns data of a cell.
+     *
+     * @param rowIndex      row index, starting from 0
+     * @param columnIndex   column index, starting from 0
+     * @return data of the cell
+     */
+    public Object getField(int rowIndex, int columnIndex) {
+        return columns[columnIndex].get(rowIndex);
+    }
+
+    /**
+     * Returns a new RowData instance of a row.
+     *
+     * @param rowIndex  row index, starting from 0
+     * @return a RowData instance
+     */
+    public RowData getRow(int rowIndex) {
+        if (rowIndex < 0 || rowIndex >= size)
+            throw new IllegalArgumentException("Row index " + rowIndex + " is out of range.");
+
+        int width = columns.length;
+        Object[] fields = new Object[width];
+        for (int j = 0; j < width; j++) {
+            fields[j] = columns[j].get(rowIndex);
+        }
+        return new RowData(header, fields);
+    }
+
+    /**
+     * Returns a new TableData instance of all rows.
+     */
+    public TableData toTableData() {
+        TableData td = new TableData();
+        td.setHeader(header);
+        for (int i = 0; i < size; i++) {
+            td.addRow(getRow(i));
+        }
+        return td;
+    }
+
+    private Column createColumn(TableData td, int columnIndex) {
+        Object[] values = new Object[size];
+        Class type = null;
+        boolean sameType = true;
+        for (int i = 0; i < size; i++) {
+            Object[] fields = td.getRow(i).getFields();
+            Object value = (fields != null && columnIndex < fields.length)?fields[columnIndex]:null;
+            values[i] = value;
+            if (value == null) continue;
+            if (type == null) type = value.getClass();
+            else if (type != value.getClass()) sameType = false;
+        }
+
+        if (type == null || !sameType) return new ObjectColumn(values);
+        if (type == Integer.class) return new IntColumn(values);
+        if (type == Long.class) return new LongColumn(values);
+        if (type == Double.class) return new DoubleColumn(values);
+        if (type == Timestamp.class) return new TimestampColumn(values);
+        if (type == java.sql.Date.class || type == java.util.Date.class) return new DateColumn(values, type);
+        if (type == String.class) return createStringColumn(values);
+        return new ObjectColumn(values);
+    }
+
+    private Column createStringColumn(Object[] values) {
+        Map dictionary = new HashMap();
+        for (int i = 0; i < values.length; i++) {
+            if (values[i] == null || dictionary.containsKey(values[i])) continue;
+            dictionary.put(values[i], new Integer(dictionary.size()));
+            if (dictionary.size() > values.length / 2) return new ObjectColumn(values);
+        }
+        return new StringColumn(values, dictionary);
+    }
+
+    /**
+     * Column data
+     */
+    private static abstract class Column implements Serializable {
+        private static final long serialVersionUID = -3395407436373719826L;
+
+        protected BitSet nulls = new BitSet();
+
+        abstract Object get(int row);
+    }
+
+    private static class ObjectColumn extends Column {
+        private static final long serialVersionUID = 8014386329170329424L;
+
+        private Object[] values;
+
+        ObjectColumn(Object[] values) {
+            this.values = values;
+        }
+
+        Object get(int row) {
+            return values[row];
+        }
+    }
+
+    private static class IntColumn extends Column {
+        private static final long serialVersionUID = -1789427340211547734L;
+
+        private int[] values;
+
+        IntColumn(Object[] objects) {
+            values = new int[objects.length];
+            for (int i = 0; i < objects.length; i++) {
+                if (objects[i] == null) nulls.set(i);
+                else values[i] = ((Integer)objects[i]).intValue();
+            }
+        }
+
+        Object get(int row) {
+            return (nulls.get(row))?null:(new Integer(values[row]));
+        }
+    }
+
+    private static class LongColumn extends Column {
+        private static final long serialVersionUID = 2972154788915203380L;
+
+        private long[] values;
+
+        LongColumn(Object[] objects) {
+            values = new long[objects.length];
+            for (int i = 0; i < objects.length; i++) {
+                if (objects[i] == null) nulls.set(i);
+                else values[i] = ((Long)objects[i]).longValue();
+            }
+        }
+
+        Object get(int row) {
+            return (nulls.get(row))?null:(new Long(values[row]));
+        }
+    }
+
+    private static class DoubleColumn extends Column {
+        private static final long serialVersionUID = -6432986227381416553L;
+
+        private double[] values;
+
+        DoubleColumn(Object[] objects) {
+            values = new double[objects.length];
+            for (int i = 0; i < objects.length; i++) {
+                if (objects[i] == null) nulls.set(i);
+                else values[i] = ((Double)objects[i]).doubleValue();
+            }
+        }
+
+        Object get(int row) {
+            return (nulls.get(row))?null:(new Double(values[row]));
+        }
+    }
+
+    private static class DateColumn extends Column {
+        private static final long serialVersionUID = 5513808204731945527L;
+
+        private long[] values;
+        private boolean sqlDate;
+
+        DateColumn(Object[] objects, Class type) {
+            sqlDate = (type == java.sql.Date.class);
+            values = new long[objects.length];
+            for (int i = 0; i < objects.length; i++) {
+                if (objects[i] == null) nulls.set(i);
+                else values[i] = ((java.util.Date)objects[i]).getTime();
+            }
+        }
+
+        Object get(int row) {
+            if (nulls.get(row)) return null;
+            return (sqlDate)?(new java.sql.Date(values[row])):(new java.util.Date(values[row]));
+        }
+    }
+
+    private static class TimestampColumn extends Column {
+        private static final long serialVersionUID = -4170335957338925105L;
+
+        private long[] values;
+        private int[] nanos;
+
+        TimestampColumn(Object[] objects) {
+            values = new long[objects.length];
+            nanos = new int[objects.length];
+            for (int i = 0; i < objects.length; i++) {
+                if (objects[i] == null) {
+                    nulls.set(i);
+                }
+                else {
+                    Timestamp ts = (Timestamp)objects[i];
+                    values[i] = ts.getTime();
+                    nanos[i] = ts.getNanos();
+                }
+            }
+        }
+
+        Object get(int row) {
+            if (nulls.get(row)) return null;
+            Timestamp ts = new Timestamp(values[row]);
+            ts.setNanos(nanos[row]);
+            return ts;
+        }
+    }
+
+    private static class StringColumn extends Column {
+        private static final long serialVersionUID = 7396268815232146180L;
+
+        private String[] dictionary;
+        private int[] codes;
+
+        StringColumn(Object[] objects, Map dictionaryMap) {
+            dictionary = new String[dictionaryMap.size()];
+            codes = new int[objects.length];
+            for (int i = 0; i < objects.length; i++) {
+                if (objects[i] == null) {
+                    nulls.set(i);
+                    continue;
+                }
+                int code = ((Integer)dictionaryMap.get(objects[i])).intValue();
+                dictionary[code] = (String)objects[i];
+                codes[i] = code;
+            }
+        }
+
+        Object get(int row) {
+            return (nulls.get(row))?null:dictionary[codes[row]];
+        }
+    }
+
+    private RowInfo header;
+    private int size;
+    private Column[] columns;
+}
@@ -134,14 +134,16 @@ public class JdbcStatement {
      * returns cursor
      */
     public Cursor getCursor(String cursorName, ResultSet rs) {
-        Cursor cursor = (Cursor)coursors.get(cursorName);
-        
-        if ( cursor == null ) {
-            cursor = new Cursor(cursorName, rs);
-            addCursor(cursorName, cursor);
+        synchronized(coursors) {
+            Cursor cursor = (Cursor)coursors.get(cursorName);
+            
+            if ( cursor == null ) {
+                cursor = new Cursor(cursorName, rs);
+                addCursor(cursorName, cursor);
+            }
+            
+            return cursor;
         }
-        
-        return cursor;
     }
     
     public boolean hasLoadedParameterProperties() {
@@ -242,12 +244,12 @@ public class JdbcStatement {
 
     public static final String QuestionMarkStopper = " ,|><=(){}+-*/";
     
-    private boolean loadedParameterProperties = false;
+    private volatile boolean loadedParameterProperties = false;
     private String name = null;
     private String jdbcStatementString = null;
     private List parameters = new ArrayList();
     private Map coursors = new HashMap();
-    private boolean loadedParameterMetaData = false;
+    private volatile boolean loadedParameterMetaData = false;
     
     protected LogUtil log = LogUtil.getLogger(this.getClass().getName());
 }
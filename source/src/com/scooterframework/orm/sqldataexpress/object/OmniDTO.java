@@ -35,6 +35,7 @@ public class OmniDTO implements OmniDTOJdbcStatement, OmniDTOStoredProcedure, Om
     //jdbc specific keys
     public static String UPDATED_ROW_COUNT  = "UPDATED_ROW_COUNT";
     public static String GENERATED_KEY      = "GENERATED_KEY";
+    public static String GENERATED_KEYS     = "GENERATED_KEYS";
 
     public OmniDTO() {}
     
@@ -96,6 +97,29 @@ public class OmniDTO implements OmniDTOJdbcStatement, OmniDTOStoredProcedure, Om
         resultMap.put(GENERATED_KEY, new Long(generatedKey));
     }
     
+    /**
+     * returns a list of generated key values as Long of a batch execution.
+     * 
+     * The list is empty if the underline database does not support 
+     * generatedKeys feature for batch execution.
+     */
+    public List getGeneratedKeys() {
+        List keys = (List)resultMap.get(GENERATED_KEYS);
+        return (keys != null)?keys:(new ArrayList());
+    }
+    
+    /**
+     * adds a generated key value of a batch execution
+     */
+    public void addGeneratedKey(long generatedKey) {
+        List keys = (List)resultMap.get(GENERATED_KEYS);
+        if (keys == null) {
+            keys = new ArrayList();
+            resultMap.put(GENERATED_KEYS, keys);
+        }
+        keys.add(new Long(generatedKey));
+    }
+    
     /**
      * returns processor name
      */
@@ -252,7 +276,7 @@ public class OmniDTO implements OmniDTOJdbcStatement, OmniDTOStoredProcedure, Om
      * is a JdbcStatementProcessor. 
      */
     public String getMethodNamesSupportingJdbcStatementProcessorOnly() {
-        return "getUpdatedRowCount, setUpdatedRowCount, getGeneratedKey, setGeneratedKey";
+        return "getUpdatedRowCount, setUpdatedRowCount, getGeneratedKey, setGeneratedKey, getGeneratedKeys, addGeneratedKey";
     }
     
     /**
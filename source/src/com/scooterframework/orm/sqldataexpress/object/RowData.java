@@ -47,8 +47,7 @@ public class RowData implements RESTified, Serializable {
             this.data = data;
         }
         
-        //set dataMap
-        createDataMap();
+        checkData();
     }
 
     /**
@@ -171,8 +170,7 @@ public class RowData implements RESTified, Serializable {
     public void setFields(Object[] data) {
         this.data = data;
         
-        //reset dataMap
-        createDataMap();
+        checkData();
     }
     
     /**
@@ -193,15 +191,22 @@ public class RowData implements RESTified, Serializable {
     public void setField(int index, Object columnData) {
         if (data == null && index >= data.length) return;
         data[index] = columnData;
-        createDataMap();
+        initialized = true;
     }
     
     /**
-     * Returns column data for a column name
+     * <p>Returns column data for a column name.</p>
+     * 
+     * <p>The column name is resolved to a column index through the 
+     * RowInfo of the row. When the same column is read from many rows, 
+     * resolve the index once by 
+     * {@link RowInfo#findColumnPositionIndex(java.lang.String)} and use 
+     * {@link #getField(int)} instead.</p>
      */
     public Object getField(String columnName) {
         if (data == null || columnName == null) return null;
-        return dataMap.get(columnName.toUpperCase());
+        int index = rowInfo.findColumnPositionIndex(columnName);
+        return (index >= 0 && index < data.length)?data[index]:null;
     }
     
     /**
@@ -215,7 +220,6 @@ public class RowData implements RESTified, Serializable {
         if (rowInfo == null || rowInfo.getDimension() == 0) return;
         int columnIndex = rowInfo.getColumnPositionIndex(columnName);
         data[columnIndex] = columnData;
-        dataMap.put(columnName.toUpperCase(), columnData);
     }
     
     /**
@@ -240,8 +244,7 @@ public class RowData implements RESTified, Serializable {
             throw new IllegalArgumentException("\"rowInfo\" input cannot be null in setRowInfo().");
         }
         
-        //reset dataMap
-        createDataMap();
+        checkData();
     }
     
     /**
@@ -256,7 +259,6 @@ public class RowData implements RESTified, Serializable {
                 if (ci == null || ci.isPrimaryKey()) continue;
                 
                 data[i] = null;
-                dataMap.put(ci.getColumnName().toUpperCase(), null);
             }
         }
     }
@@ -323,8 +325,7 @@ public class RowData implements RESTified, Serializable {
             modifiedColumnList.add(columnName);
         }
         
-        //reset dataMap
-        createDataMap();
+        checkData();
         
         return modifiedColumnList;
     }
@@ -333,9 +334,17 @@ public class RowData implements RESTified, Serializable {
      * returns the data as a readonly Map. The keys in the Map are 
      * column names in upper case. 
      * 
-     * Modifications to this map have no impact on the row data. 
+     * Modifications to this map have no impact on the row data. A new map 
+     * is created for each call.
      */
     public Map getDataMap() {
+        Map dataMap = new HashMap();
+        if (data != null && data.length > 0) {
+            int columnSize = data.length;
+            for (int i=0; i<columnSize; i++) {
+                dataMap.put(rowInfo.getColumnInfo(i).getColumnName().toUpperCase(), data[i]);
+            }
+        }
         return dataMap;
     }
     
@@ -425,7 +434,7 @@ public class RowData implements RESTified, Serializable {
      * returns a list of RowData objects for a child from Map
      */
     public List getChildRowListFromMap(String key) {
-        if (key == null) return null;
+        if (key == null || childRowListMap == null) return null;
         return (List) childRowListMap.get(key.toUpperCase());
     }
     
@@ -442,6 +451,7 @@ public class RowData implements RESTified, Serializable {
      */
     public void addChildRowToMap(String key, List childRowList) {
         if (key == null) return;
+        if (childRowListMap == null) childRowListMap = new HashMap();
         childRowListMap.put(key.toUpperCase(), childRowList);
     }
     
@@ -465,6 +475,8 @@ public class RowData implements RESTified, Serializable {
         }
         returnString.append(LINE_BREAK);
         
+        if (childRowListMap == null) return returnString.toString();
+        
         returnString.append("childMap size = " + childRowListMap.size());
         returnString.append(LINE_BREAK);
         
@@ -481,30 +493,24 @@ public class RowData implements RESTified, Serializable {
 
     
     /**
-     * set a Map of column name and column data.  
+     * Checks that there is a column for each data.
+     * 
+     * Column data is looked up by column index of the RowInfo, so no 
+     * per-row map of column names is kept.
      */
-    private void createDataMap() {
+    private void checkData() {
         if (rowInfo == null) 
             throw new IllegalArgumentException("RowInfo must be set first.");
         
         initialized = true;
         
-        dataMap.clear();
-        
-        if (data != null && data.length > 0) {
-            int columnSize = data.length;
-            for (int i=0; i<columnSize; i++) {
-                ColumnInfo ci = rowInfo.getColumnInfo(i);
-                if (ci == null) 
-                    throw new IllegalArgumentException("There is no ColumnInfo for index " + i);
-                dataMap.put(ci.getColumnName().toUpperCase(), data[i]);
-            }
+        if (data != null && data.length > rowInfo.getDimension()) {
+            throw new IllegalArgumentException("There is no ColumnInfo for index " + rowInfo.getDimension());
         }
     }
 
     private boolean initialized = false;
     private RowInfo rowInfo = new RowInfo();
     private Object[] data = null;
-    private Map dataMap = new HashMap();
-    private Map childRowListMap = new HashMap();
+    private Map childRowListMap = null;
 }
@@ -0,0 +1,26 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.object;
+
+/**
+ * <p>RowHandler interface is a callback for processing rows of a query one 
+ * by one as they are read from database.</p>
+ * 
+ * <p>Rows passed to a RowHandler are not kept by the framework. All rows of 
+ * the same query share the same RowInfo header.</p>
+ * 
+ * @author (Fei) John Chen
+ */
+public interface RowHandler {
+    /**
+     * Processes a row of a query result.
+     * 
+     * @param row the current row
+     */
+    public void handleRow(RowData row);
+}
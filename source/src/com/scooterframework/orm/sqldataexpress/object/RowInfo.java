@@ -12,7 +12,10 @@ import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
@@ -33,6 +36,13 @@ import com.scooterframework.orm.sqldataexpress.util.SqlUtil;
  * table in the join statement. To find the table for an individual column, you 
  * need to navigate to the ColumnInfo object. </p>
  * 
+ * <p>A RowInfo of a table is shared by all threads once it is kept in 
+ * DBStore. Primary key and read-only columns may still be set by models 
+ * afterwards. Such a change replaces the primary key array and the 
+ * read-only column list with new ones instead of changing them, so that a 
+ * reader always sees a complete list. Setting columns which are already 
+ * primary key or read-only columns changes nothing.</p>
+ * 
  * @author (Fei) John Chen
  */
 public class RowInfo implements Serializable {
@@ -150,7 +160,7 @@ public class RowInfo implements Serializable {
      * returns readonly columnNames
      */
     public List getReadOnlyColumnNames() {
-        return readOnlyColumnNames;
+        return Collections.unmodifiableList(readOnlyColumnNames);
     }
     
     /**
@@ -204,10 +214,29 @@ public class RowInfo implements Serializable {
      * The index for the first column is 0, the second is 1, ...
      */
     public int getColumnPositionIndex(String colName) {
-        Integer index = (Integer)nameIndexMap.get(colName.toUpperCase());
-        if (index == null) 
+        int index = findColumnPositionIndex(colName);
+        if (index == -1) 
             throw new InvalidColumnNameException("There is no column named " + colName + ".");
-        return index.intValue();
+        return index;
+    }
+    
+    /**
+     * <p>Returns column position index, or -1 if there is no such column.</p>
+     * 
+     * <p>The index can be resolved once and used as a handle to read the 
+     * same column of all rows with this RowInfo by 
+     * {@link RowData#getField(int)}.</p>
+     * 
+     * <p>Column names in upper case or lower case are found without 
+     * converting the name.</p>
+     * 
+     * The index for the first column is 0, the second is 1, ...
+     */
+    public int findColumnPositionIndex(String colName) {
+        if (colName == null) return -1;
+        Integer index = (Integer)nameIndexMap.get(colName);
+        if (index == null) index = (Integer)nameIndexMap.get(colName.toUpperCase());
+        return (index != null)?index.intValue():-1;
     }
     
     /**
@@ -249,10 +278,15 @@ public class RowInfo implements Serializable {
         columnSqlDataTypeNames = new String[dimension];
         columnJavaClassNames = new String[dimension];
         List primaryKeyColumns = new ArrayList();
+        List readOnlyColumns = new ArrayList();
         for (int i = 0; i < dimension; i++) {
             ColumnInfo ci = (ColumnInfo)newColumnInfoList.get(i);
             
-            nameIndexMap.put(ci.getColumnName(), new Integer(i));
+            Integer position = new Integer(i);
+            nameIndexMap.put(ci.getColumnName(), position);
+            if (ci.getColumnName() != null) {
+                nameIndexMap.put(ci.getColumnName().toLowerCase(), position);
+            }
             
             columnNames[i] = ci.getColumnName();
             columnSqlDataTypes[i] = ci.getSQLDataType();
@@ -265,8 +299,9 @@ public class RowInfo implements Serializable {
             columnInfos.add(i, ci);
             
             if (ci.isPrimaryKey()) primaryKeyColumns.add(ci.getColumnName());
-            if (ci.isReadOnly()) readOnlyColumnNames.add(ci.getColumnName());
+            if (ci.isReadOnly()) readOnlyColumns.add(ci.getColumnName());
         }
+        readOnlyColumnNames = readOnlyColumns;
         
         int pkSize = primaryKeyColumns.size();
         if (pkSize > 0) {
@@ -319,7 +354,7 @@ public class RowInfo implements Serializable {
     /**
      * sets primary key columns for the row
      */
-    public void setPrimaryKeyColumns(List primaryKeyNames) {
+    public synchronized void setPrimaryKeyColumns(List primaryKeyNames) {
         if (primaryKeyNames == null || primaryKeyNames.size() == 0) return;
         
         if (columnInfos == null || columnInfos.size() == 0) 
@@ -332,12 +367,8 @@ public class RowInfo implements Serializable {
         for (int i = 0; i < dimension; i++) {
             ci = (ColumnInfo)columnInfos.get(i);
             if ( tmp.contains(ci.getColumnName()) ) {
-                ci.setPrimaryKey(true);
                 acceptedPrimaryKeyNames.add(ci.getColumnName());
             }
-            else {
-                ci.setPrimaryKey(false);
-            }
         }
         
         int pkSize = acceptedPrimaryKeyNames.size();
@@ -347,6 +378,16 @@ public class RowInfo implements Serializable {
                   "record allowed pk names: " + acceptedPrimaryKeyNames);
         }
         
+        //nothing to change
+        if (primaryKeyColumnNames != null && 
+            Arrays.asList(primaryKeyColumnNames).equals(acceptedPrimaryKeyNames)) return;
+        
+        for (int i = 0; i < dimension; i++) {
+            ci = (ColumnInfo)columnInfos.get(i);
+            ci.setPrimaryKey(acceptedPrimaryKeyNames.contains(ci.getColumnName()));
+        }
+        deleteSQL_jdbc = null;
+        
         if (pkSize > 0) {
             primaryKeyColumnNames = new String[pkSize];
             System.arraycopy(acceptedPrimaryKeyNames.toArray(), 0, primaryKeyColumnNames, 0, pkSize);
@@ -372,14 +413,9 @@ public class RowInfo implements Serializable {
     public void setReadOnlyColumn(String columnName) {
         if (columnName == null) return;
         
-        if (columnInfos == null || columnInfos.size() == 0) 
-            throw new IllegalStateException("Columns must be populated first before setting readonly columns.");
-        
-        ColumnInfo ci = getColumnInfo(columnName);
-        if (ci != null) {
-            ci.setReadOnly(true);
-            readOnlyColumnNames.add(columnName.toUpperCase());
-        }
+        Set names = new HashSet();
+        names.add(columnName);
+        setReadOnlyColumns(names);
     }
     
     /**
@@ -388,22 +424,26 @@ public class RowInfo implements Serializable {
      * Any column names in the input that are not true column names will be 
      * discarded. 
      */
-    public void setReadOnlyColumns(Set readOnlyNames) {
+    public synchronized void setReadOnlyColumns(Set readOnlyNames) {
         if (readOnlyNames == null || readOnlyNames.size() == 0) return;
         
         if (columnInfos == null || columnInfos.size() == 0) 
             throw new IllegalStateException("Columns must be populated first before setting readonly columns.");
         
-        List tmp = convertToUpperCase(readOnlyNames);
-        Iterator it = tmp.iterator();
+        List readOnlyColumns = null;
+        Iterator it = readOnlyNames.iterator();
         while(it.hasNext()) {
             String columnName = (String)it.next();
             ColumnInfo ci = getColumnInfo(columnName);
-            if (ci != null) {
+            String upperName = columnName.toUpperCase();
+            if (ci != null && !readOnlyColumnNames.contains(upperName)) {
+                if (readOnlyColumns == null) readOnlyColumns = new ArrayList(readOnlyColumnNames);
                 ci.setReadOnly(true);
-                readOnlyColumnNames.add(columnName);
+                readOnlyColumns.add(upperName);
             }
         }
+        
+        if (readOnlyColumns != null) readOnlyColumnNames = readOnlyColumns;
     }
     
     /**
@@ -524,19 +564,7 @@ public class RowInfo implements Serializable {
      * @return true if the column is valid.
      */
     public boolean isValidColumnName(String testName) {
-        boolean found = false;
-        if (columnNames != null && testName != null) {
-            int size = columnNames.length;
-            for (int i=0; i<size; i++) {
-                String tmp = columnNames[i];
-                if (testName.equalsIgnoreCase(tmp)) {
-                    found = true;
-                    break;
-                }
-            }
-        }
-        
-        return found;
+        return findColumnPositionIndex(testName) != -1;
     }
     
     /**
@@ -655,7 +683,7 @@ public class RowInfo implements Serializable {
         //some convenience arraies:
         columnNames = null;
         primaryKeyColumnNames = null;
-        readOnlyColumnNames.clear();
+        readOnlyColumnNames = new ArrayList();
         columnSqlDataTypes = null;
         columnSqlDataTypeNames = null;
         columnJavaClassNames = null;
@@ -805,8 +833,8 @@ public class RowInfo implements Serializable {
     
     //some convenience arraies:
     private String[] columnNames = null;
-    private String[] primaryKeyColumnNames = null;
-    private List readOnlyColumnNames = new ArrayList();
+    private volatile String[] primaryKeyColumnNames = null;
+    private volatile List readOnlyColumnNames = new ArrayList();
     private int[] columnSqlDataTypes = null;
     private String[] columnSqlDataTypeNames = null;
     private String[] columnJavaClassNames = null;
@@ -263,14 +263,16 @@ public class JdbcStatementParser extends JdbcStatementHelper {
         }
         
         // find matching column/value pair
+        // a multi-row insert has a list of values for each row
         int length = columns.size();
-        if (values.size() != length) 
+        if (length == 0 || values.size() == 0 || values.size() % length != 0) 
             throw new IllegalArgumentException("The number of columns does not " + 
                     "match the number of values.");
         
         int qmarkIndex = 1;
-        for (int l = 0; l < length; l++) {
-            String columnName = (String)columns.get(l);
+        int totalValues = values.size();
+        for (int l = 0; l < totalValues; l++) {
+            String columnName = (String)columns.get(l % length);
             String value = (String)values.get(l);
             if (value.startsWith("?")) {
                 JdbcStatementParameter param = new JdbcStatementParameter();
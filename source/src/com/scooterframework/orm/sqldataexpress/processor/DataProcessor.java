@@ -32,6 +32,7 @@ public interface DataProcessor {
     public static final String input_key_records_limit               = framework_input_key_prefix + "RECORDS_LIMIT";
     public static final String input_key_records_fixed               = framework_input_key_prefix + "RECORDS_FIXED";
     public static final String input_key_use_pagination              = framework_input_key_prefix + "USE_PAGINATION";
+    public static final String input_key_fetch_size                  = framework_input_key_prefix + "FETCH_SIZE";
     public static final int NO_ROW_LIMIT = -1;
     public static final int DEFAULT_PAGINATION_LIMIT = 10;
 
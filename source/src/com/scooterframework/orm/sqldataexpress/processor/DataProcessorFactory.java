@@ -36,7 +36,7 @@ public class DataProcessorFactory {
         return me;
     }
     
-    public DataProcessor getDataProcessor(UserDatabaseConnection udc, String processorType, String processorName) {
+    public DataProcessor getDataProcessor(final UserDatabaseConnection udc, String processorType, final String processorName) {
         if (processorType == null) return null;
         
         DataProcessor selectedDataProcessor = null;
@@ -46,14 +46,20 @@ public class DataProcessorFactory {
             
             if (storedProcedure == null) {
                 //discovery
-                storedProcedure = SqlExpressUtil.lookupStoredProcedure(udc, processorName);
+                storedProcedure = (StoredProcedure)DBStore.getInstance().load("spoc." + processorName, new DBStore.MetadataLoader() {
+                    public Object load() {
+                        StoredProcedure found = DBStore.getInstance().getStoredProcedure(processorName);
+                        if (found == null) {
+                            found = SqlExpressUtil.lookupStoredProcedure(udc, processorName);
+                            if (found != null) DBStore.getInstance().addStoredProcedure(processorName, found);
+                        }
+                        return found;
+                    }
+                });
                 
                 if (storedProcedure == null) {
                     throw new UnsupportedDataProcessorNameException();
                 }
-                else {
-                    DBStore.getInstance().addStoredProcedure(processorName, storedProcedure);
-                }
             }
             
             selectedDataProcessor = new StoredProcedureProcessor(storedProcedure);
@@ -63,14 +69,20 @@ public class DataProcessorFactory {
             
             if (function == null) {
                 //discovery
-                function = SqlExpressUtil.lookupFunction(udc, processorName);
+                function = (Function)DBStore.getInstance().load("function." + processorName, new DBStore.MetadataLoader() {
+                    public Object load() {
+                        Function found = DBStore.getInstance().getFunction(processorName);
+                        if (found == null) {
+                            found = SqlExpressUtil.lookupFunction(udc, processorName);
+                            if (found != null) DBStore.getInstance().addFunction(processorName, found);
+                        }
+                        return found;
+                    }
+                });
                 
                 if (function == null) {
                     throw new UnsupportedDataProcessorNameException();
                 }
-                else {
-                    DBStore.getInstance().addFunction(processorName, function);
-                }
             }
             
             selectedDataProcessor = new FunctionProcessor(function);
@@ -94,19 +106,7 @@ public class DataProcessorFactory {
             setDatabaseMetaData(udc, selectedDataProcessor);
         }
         else if (DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR.equals(processorType)) {
-            JdbcStatement statement = DBStore.getInstance().getJdbcStatement(processorName);
-            
-            if (statement == null) {
-                //discovery
-                statement = SqlExpressUtil.createJdbcStatementDirect(processorName);
-                
-                if (statement == null) {
-                    throw new UnsupportedDataProcessorNameException();
-                }
-                else {
-                    DBStore.getInstance().addJdbcStatement(processorName, statement);
-                }
-            }
+            JdbcStatement statement = SqlExpressUtil.createJdbcStatementDirect(processorName);
             
             selectedDataProcessor = new JdbcStatementProcessor(statement);
             setDatabaseMetaData(udc, selectedDataProcessor);
@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.StringTokenizer;
 
+import com.scooterframework.common.instrument.Instrumentation;
 import com.scooterframework.common.logging.LogUtil;
 import com.scooterframework.common.util.StringUtil;
 import com.scooterframework.common.util.Util;
@@ -33,12 +34,13 @@ import com.scooterframework.orm.sqldataexpress.object.JdbcStatement;
 import com.scooterframework.orm.sqldataexpress.object.OmniDTO;
 import com.scooterframework.orm.sqldataexpress.object.Parameter;
 import com.scooterframework.orm.sqldataexpress.object.RowData;
+import com.scooterframework.orm.sqldataexpress.object.RowHandler;
 import com.scooterframework.orm.sqldataexpress.object.RowInfo;
 import com.scooterframework.orm.sqldataexpress.object.TableData;
 import com.scooterframework.orm.sqldataexpress.parser.JdbcStatementParser;
 import com.scooterframework.orm.sqldataexpress.parser.ParameterMetaDataLoader;
 import com.scooterframework.orm.sqldataexpress.util.DAOUtil;
-import com.scooterframework.orm.sqldataexpress.util.DBStore;
+import com.scooterframework.orm.sqldataexpress.util.PreparedStatementCache;
 import com.scooterframework.orm.sqldataexpress.util.SqlExpressUtil;
 import com.scooterframework.orm.sqldataexpress.util.SqlUtil;
 import com.scooterframework.orm.sqldataexpress.vendor.DBAdapter;
@@ -69,6 +71,9 @@ public class JdbcStatementProcessor extends DataProcessorImpl {
         OmniDTO returnTO = new OmniDTO();
         PreparedStatement pstmt = null;
         ResultSet rs = null;
+        String executableSql = null;
+        boolean supportsGetGeneratedKeys = false;
+        boolean reusable = false;
         
         //log.debug("execute - inputs: " + inputs);
         //log.debug("execute - outputFilters: " + outputFilters);
@@ -84,75 +89,25 @@ public class JdbcStatementProcessor extends DataProcessorImpl {
                 st = updateStatement(updatedOriginalSql);
             }
             
-            String executableSql = st.getExecutableJdbcStatementString();
+            executableSql = st.getExecutableJdbcStatementString();
             executableSql = autoReplace(executableSql, inputs);
             
-            log.debug("execute - parsed expecutable sql: " + executableSql);
-            log.debug("execute - parsed inputs: " + inputs);
-            log.debug("execute - outputFilters: " + outputFilters);
+            log.debug("execute - parsed expecutable sql: {}", executableSql);
+            log.debug("execute - parsed inputs: {}", inputs);
+            log.debug("execute - outputFilters: {}", outputFilters);
             
-            boolean supportsGetGeneratedKeys = supportsGetGeneratedKeys();
-            if (supportsGetGeneratedKeys) {
-                pstmt = connection.prepareStatement(executableSql, Statement.RETURN_GENERATED_KEYS);
-            }
-            else {
-                pstmt = connection.prepareStatement(executableSql);
-            }
+            supportsGetGeneratedKeys = supportsGetGeneratedKeys();
+            pstmt = PreparedStatementCache.prepareStatement(connection, executableSql, supportsGetGeneratedKeys);
+            
+            long bindStart = System.currentTimeMillis();
             
             // check if need to load parameter properties
-            if (supportParameterMetaData()) {
-                if (!st.hasLoadedParameterMetaData()) {
-                    //get parameter meta data if it has not been loaded
-                    ParameterMetaData pmd = pstmt.getParameterMetaData();
-                    ParameterMetaDataLoader pmdl = new ParameterMetaDataLoader(pmd, st);
-                    pmdl.loadParameterMetaData(pmd);
-                }
-            }
-            else {
-                if (!st.hasLoadedParameterProperties()) {
-                    JdbcStatementParser parser = new JdbcStatementParser(udc, st);
-                    parser.parse();
-                }
-            }
+            loadParameterProperties(udc, pstmt);
             
-            Collection parameters = st.getParameters();
-            log.debug("execute - parameters: " + parameters);
-            Iterator pit = parameters.iterator();
-            while(pit.hasNext()) {
-                Parameter p = (Parameter) pit.next();
-                
-                String key = p.getName();
-                if (!inputs.containsKey(key)) {
-                	throw new Exception("There " + 
-                    "must be a key/value pair corresponding to key named " + key + 
-                    " in input parameters: " + inputs.keySet());
-                }
-                
-                if (Parameter.MODE_IN.equals(p.getMode())) {
-                    Object obj = inputs.get(key);
-                    if (obj == null || 
-                        "".equals(obj.toString().trim()) && 
-                        p.getSqlDataType() != Types.CHAR && 
-                        p.getSqlDataType() != Types.VARCHAR && 
-                        p.getSqlDataType() != Types.LONGVARCHAR) {
-                        setNull(pstmt, p.getIndex(), p.getSqlDataType());
-                    }
-                    else {
-                        if(!dba.vendorSpecificSetObject(pstmt, obj, p, inputs)) {
-                            if (Parameter.UNKNOWN_SQL_DATA_TYPE != p.getSqlDataType()) {
-                                setObject(pstmt, obj, p);
-                            }
-                            else {
-                                //It is up to JDBC driver's PreparedStatement implementation 
-                                //class to deal with. Usually the class will make a decision 
-                                //on which setXXX(Type) method to call based on the java 
-                                //class type of the obj instance. 
-                                pstmt.setObject(p.getIndex(), obj);
-                            }
-                        }
-                    }
-                }
-            }
+            bindParameters(dba, pstmt, inputs);
+            
+            long executeStart = System.currentTimeMillis();
+            int rows = 0;
             
             if (st.isSelectStatement()) {
                 rs = pstmt.executeQuery();
@@ -165,11 +120,14 @@ public class JdbcStatementProcessor extends DataProcessorImpl {
                     else {
                         handleFilteredResultSet(dba, stName, returnTO, rs, inputs, outputFilters);
                     }
+                    TableData rt = returnTO.getTableData(stName);
+                    if (rt != null) rows = rt.getTableSize();
                 }
             }
             else {
                 int rowCount = pstmt.executeUpdate();
                 returnTO.setUpdatedRowCount(rowCount);
+                rows = rowCount;
                 
                 //get generated key if the underline database permitted
                 if (supportsGetGeneratedKeys) {
@@ -181,10 +139,194 @@ public class JdbcStatementProcessor extends DataProcessorImpl {
                         }
                     }
                     catch(Throwable ex) {
+                        ;
+                    }
+                    finally {
                         DAOUtil.closeResultSet(rsg);
                     }
                 }
             }
+            
+            reusable = true;
+            
+            if (Instrumentation.isInstrumentationEnabled()) {
+                Instrumentation.recordStatement(stName, executableSql, 
+                        executeStart - bindStart, System.currentTimeMillis() - executeStart, rows);
+            }
+        }
+        catch (Exception ex) {
+            throw new BaseSQLException(ex);
+        }
+        finally {
+            DAOUtil.closeResultSet(rs);
+            PreparedStatementCache.releaseStatement(connection, executableSql, supportsGetGeneratedKeys, pstmt, reusable);
+        }
+        
+        return returnTO;
+    }
+
+    /**
+     * <p>Executes an insert, update or delete statement with values bound 
+     * by position. The value of the first parameter is <tt>values[0]</tt>.</p>
+     * 
+     * <p>No input map is used, so the statement must not have auto-filled 
+     * parameters or replaced parts.</p>
+     * 
+     * @param udc       user database connection
+     * @param values    values of parameters in order
+     * @return OmniDTO with updated row count and generated key
+     */
+    public OmniDTO executeUpdate(UserDatabaseConnection udc, Object[] values) 
+    throws BaseSQLException {
+        if (st.isSelectStatement()) 
+            throw new BaseSQLException("Select statement cannot be executed as an update: " + st.getName());
+        
+    	Connection connection = udc.getConnection();
+    	DBAdapter dba = DBAdapterFactory.getInstance().getAdapter(udc.getConnectionName());
+    	
+        OmniDTO returnTO = new OmniDTO();
+        PreparedStatement pstmt = null;
+        String executableSql = st.getExecutableJdbcStatementString();
+        boolean supportsGetGeneratedKeys = false;
+        boolean reusable = false;
+        
+        try {
+            log.debug("executeUpdate - parsed expecutable sql: {}", executableSql);
+            
+            supportsGetGeneratedKeys = supportsGetGeneratedKeys();
+            pstmt = PreparedStatementCache.prepareStatement(connection, executableSql, supportsGetGeneratedKeys);
+            
+            long bindStart = System.currentTimeMillis();
+            loadParameterProperties(udc, pstmt);
+            bindParameters(dba, pstmt, values);
+            
+            long executeStart = System.currentTimeMillis();
+            int rowCount = pstmt.executeUpdate();
+            returnTO.setUpdatedRowCount(rowCount);
+            
+            //get generated key if the underline database permitted
+            if (supportsGetGeneratedKeys) {
+                ResultSet rsg = null;
+                try {
+                    rsg = pstmt.getGeneratedKeys();
+                    if(rsg.next()) {
+                        returnTO.setGeneratedKey(rsg.getLong(1));
+                    }
+                }
+                catch(Throwable ex) {
+                    ;
+                }
+                finally {
+                    DAOUtil.closeResultSet(rsg);
+                }
+            }
+            
+            reusable = true;
+            
+            if (Instrumentation.isInstrumentationEnabled()) {
+                Instrumentation.recordStatement(st.getName(), executableSql, 
+                        executeStart - bindStart, System.currentTimeMillis() - executeStart, rowCount);
+            }
+        }
+        catch (Exception ex) {
+            throw new BaseSQLException(ex);
+        }
+        finally {
+            PreparedStatementCache.releaseStatement(connection, executableSql, supportsGetGeneratedKeys, pstmt, reusable);
+        }
+        
+        return returnTO;
+    }
+
+    /**
+     * <p>Executes the select statement and passes each row to a handler as 
+     * the row is read from database. Rows are not kept in memory. All rows 
+     * share the same RowInfo header.</p>
+     * 
+     * <p>The statement is not taken from the statement cache because its 
+     * fetch size is set for streaming. Some drivers, such as MySQL's, do not 
+     * allow other statements on the same connection before all rows are 
+     * read.</p>
+     * 
+     * @param udc           user database connection
+     * @param inputs        input data
+     * @param fetchSize     number of rows fetched from database at a time
+     * @param handler       row handler
+     * @return number of rows processed
+     */
+    public int processRows(UserDatabaseConnection udc, Map inputs, int fetchSize, RowHandler handler) 
+    throws BaseSQLException {
+        if (handler == null) throw new IllegalArgumentException("handler is null.");
+        
+        if (!st.isSelectStatement()) 
+            throw new BaseSQLException("Only select statement can be processed row by row: " + st.getName());
+        
+    	Connection connection = udc.getConnection();
+    	DBAdapter dba = DBAdapterFactory.getInstance().getAdapter(udc.getConnectionName());
+    	
+        PreparedStatement pstmt = null;
+        ResultSet rs = null;
+        Map outputFilters = null;
+        int count = 0;
+        
+        try {
+            String stName = st.getName();
+            autoFill(udc, inputs);
+            
+            String originalSql = st.getOriginalJdbcStatementString();
+            if(checkPagination(inputs)) {
+            	outputFilters = new HashMap();
+                String updatedOriginalSql = dba.preparePaginationSql(originalSql, inputs, outputFilters);
+                st = updateStatement(updatedOriginalSql);
+            }
+            
+            String executableSql = st.getExecutableJdbcStatementString();
+            executableSql = autoReplace(executableSql, inputs);
+            
+            log.debug("processRows - parsed expecutable sql: {}", executableSql);
+            
+            pstmt = connection.prepareStatement(executableSql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            dba.setStreamingFetchSize(pstmt, fetchSize);
+            
+            long bindStart = System.currentTimeMillis();
+            loadParameterProperties(udc, pstmt);
+            bindParameters(dba, pstmt, inputs);
+            
+            long executeStart = System.currentTimeMillis();
+            rs = pstmt.executeQuery();
+            
+            Cursor cursor = st.getCursor(stName, rs);
+            int cursorWidth = cursor.getDimension();
+            Set allowedColumns = null;
+            RowInfo header = cursor;
+            if (outputFilters != null) {
+                allowedColumns = getAllowedColumns(outputFilters, cursor);
+                header = getFilteredHeaderInfo(allowedColumns, cursor);
+            }
+            int width = (allowedColumns != null)?header.getDimension():cursorWidth;
+            
+            while(rs.next()) {
+                Object[] cellValues = new Object[width];
+                int index = 0;
+                for (int i = 0; i < cursorWidth; i++) {
+                    if (allowedColumns != null && 
+                        !allowedColumns.contains(cursor.getColumnName(i))) continue;
+                    cellValues[index++] = dba.getObjectFromResultSetByType(rs, 
+                                                                       cursor.getColumnJavaClassName(i), 
+                                                                       cursor.getColumnSqlDataType(i),
+                                                                       i+1);
+                }
+                handler.handleRow(new RowData(header, cellValues));
+                count++;
+            }
+            
+            if (Instrumentation.isInstrumentationEnabled()) {
+                Instrumentation.recordStatement(stName, executableSql, 
+                        executeStart - bindStart, System.currentTimeMillis() - executeStart, count);
+            }
+        }
+        catch (RuntimeException ex) {
+            throw ex;
         }
         catch (Exception ex) {
             throw new BaseSQLException(ex);
@@ -194,8 +336,233 @@ public class JdbcStatementProcessor extends DataProcessorImpl {
             DAOUtil.closeStatement(pstmt);
         }
         
+        return count;
+    }
+    
+    /**
+     * <p>Executes the statement once for each input map of a list in JDBC 
+     * batches of <tt>batchSize</tt> rows. All input maps are bound to the 
+     * same prepared statement with <tt>addBatch</tt>, and the statement is 
+     * sent to database with <tt>executeBatch</tt> when the batch is full.</p>
+     * 
+     * <p>The updated row count of the returned OmniDTO is the total count 
+     * of all rows. A row that is reported as <tt>SUCCESS_NO_INFO</tt> by the 
+     * driver is counted as one. Generated keys are added to the returned 
+     * OmniDTO if the driver supports it.</p>
+     * 
+     * @param udc           user database connection
+     * @param inputsList    list of input maps
+     * @param batchSize     number of rows in one batch
+     * @return OmniDTO
+     */
+    public OmniDTO executeBatch(UserDatabaseConnection udc, List inputsList, int batchSize) 
+    throws BaseSQLException {
+        if (st.isSelectStatement()) 
+            throw new BaseSQLException("Select statement cannot be executed in batch: " + st.getName());
+        
+        if (batchSize <= 0) batchSize = 1;
+        
+    	Connection connection = udc.getConnection();
+    	DBAdapter dba = DBAdapterFactory.getInstance().getAdapter(udc.getConnectionName());
+    	
+        OmniDTO returnTO = new OmniDTO();
+        PreparedStatement pstmt = null;
+        String executableSql = null;
+        boolean supportsGetGeneratedKeys = false;
+        boolean reusable = false;
+        int totalCount = 0;
+        
+        try {
+            long start = System.currentTimeMillis();
+            long bindTime = 0L;
+            supportsGetGeneratedKeys = supportsGetGeneratedKeys();
+            int pending = 0;
+            
+            Iterator it = inputsList.iterator();
+            while(it.hasNext()) {
+                Map inputs = (Map)it.next();
+                autoFill(udc, inputs);
+                
+                String sql = autoReplace(st.getExecutableJdbcStatementString(), inputs);
+                if (!sql.equals(executableSql)) {
+                    if (pstmt != null) {
+                        totalCount += flushBatch(pstmt, supportsGetGeneratedKeys, returnTO);
+                        pending = 0;
+                        PreparedStatementCache.releaseStatement(connection, executableSql, supportsGetGeneratedKeys, pstmt, true);
+                        pstmt = null;
+                    }
+                    
+                    executableSql = sql;
+                    log.debug("executeBatch - parsed expecutable sql: {}", executableSql);
+                    
+                    pstmt = PreparedStatementCache.prepareStatement(connection, executableSql, supportsGetGeneratedKeys);
+                    loadParameterProperties(udc, pstmt);
+                }
+                
+                long bindStart = System.currentTimeMillis();
+                bindParameters(dba, pstmt, inputs);
+                pstmt.addBatch();
+                bindTime += System.currentTimeMillis() - bindStart;
+                pending++;
+                
+                if (pending >= batchSize) {
+                    totalCount += flushBatch(pstmt, supportsGetGeneratedKeys, returnTO);
+                    pending = 0;
+                }
+            }
+            
+            if (pending > 0) {
+                totalCount += flushBatch(pstmt, supportsGetGeneratedKeys, returnTO);
+            }
+            
+            returnTO.setUpdatedRowCount(totalCount);
+            reusable = true;
+            
+            if (Instrumentation.isInstrumentationEnabled()) {
+                Instrumentation.recordStatement(st.getName(), executableSql, 
+                        bindTime, System.currentTimeMillis() - start - bindTime, totalCount);
+            }
+        }
+        catch (Exception ex) {
+            throw new BaseSQLException(ex);
+        }
+        finally {
+            PreparedStatementCache.releaseStatement(connection, executableSql, supportsGetGeneratedKeys, pstmt, reusable);
+        }
+        
         return returnTO;
     }
+    
+    /**
+     * Sends the current batch to database and returns number of rows updated.
+     */
+    private int flushBatch(PreparedStatement pstmt, boolean supportsGetGeneratedKeys, OmniDTO returnTO) 
+    throws SQLException {
+        int[] counts = pstmt.executeBatch();
+        int total = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (counts[i] > 0) total += counts[i];
+            else if (counts[i] == Statement.SUCCESS_NO_INFO) total += 1;
+        }
+        
+        //get generated keys if the underline database permitted
+        if (supportsGetGeneratedKeys) {
+            ResultSet rsg = null;
+            try {
+                rsg = pstmt.getGeneratedKeys();
+                while(rsg.next()) {
+                    returnTO.addGeneratedKey(rsg.getLong(1));
+                }
+            }
+            catch(Throwable ex) {
+                ;
+            }
+            finally {
+                DAOUtil.closeResultSet(rsg);
+            }
+        }
+        
+        return total;
+    }
+    /**
+     * Binds input values to parameters of the prepared statement.
+     */
+    private void bindParameters(DBAdapter dba, PreparedStatement pstmt, Map inputs) 
+    throws Exception {
+        Collection parameters = st.getParameters();
+        log.debug("bindParameters - parameters: {}", parameters);
+        Iterator pit = parameters.iterator();
+        while(pit.hasNext()) {
+            Parameter p = (Parameter) pit.next();
+            
+            String key = p.getName();
+            if (!inputs.containsKey(key)) {
+            	throw new Exception("There " + 
+                "must be a key/value pair corresponding to key named " + key + 
+                " in input parameters: " + inputs.keySet());
+            }
+            
+            if (Parameter.MODE_IN.equals(p.getMode())) {
+                bindParameter(dba, pstmt, p, inputs.get(key), inputs);
+            }
+        }
+    }
+    
+    /**
+     * Binds values to parameters of the prepared statement by position. 
+     * The value of the first parameter is <tt>values[0]</tt>.
+     */
+    private void bindParameters(DBAdapter dba, PreparedStatement pstmt, Object[] values) 
+    throws Exception {
+        Iterator pit = st.getParameters().iterator();
+        while(pit.hasNext()) {
+            Parameter p = (Parameter) pit.next();
+            
+            int index = p.getIndex();
+            if (index > values.length) {
+            	throw new Exception("There must be a value for parameter " + 
+                index + ", but only " + values.length + " values are provided.");
+            }
+            
+            if (Parameter.MODE_IN.equals(p.getMode())) {
+                bindParameter(dba, pstmt, p, values[index - 1], null);
+            }
+        }
+    }
+    
+    private void bindParameter(DBAdapter dba, PreparedStatement pstmt, Parameter p, Object obj, Map inputs) 
+    throws Exception {
+        if (obj == null || 
+            "".equals(obj.toString().trim()) && 
+            p.getSqlDataType() != Types.CHAR && 
+            p.getSqlDataType() != Types.VARCHAR && 
+            p.getSqlDataType() != Types.LONGVARCHAR) {
+            setNull(pstmt, p.getIndex(), p.getSqlDataType());
+        }
+        else {
+            if(!dba.vendorSpecificSetObject(pstmt, obj, p, inputs)) {
+                if (Parameter.UNKNOWN_SQL_DATA_TYPE != p.getSqlDataType()) {
+                    setObject(pstmt, obj, p);
+                }
+                else {
+                    //It is up to JDBC driver's PreparedStatement implementation 
+                    //class to deal with. Usually the class will make a decision 
+                    //on which setXXX(Type) method to call based on the java 
+                    //class type of the obj instance. 
+                    pstmt.setObject(p.getIndex(), obj);
+                }
+            }
+        }
+    }
+
+    /**
+     * Loads parameter properties of the statement. The properties are kept 
+     * in the statement which is shared by all executions of the same SQL, 
+     * so they are loaded only once.
+     */
+    private void loadParameterProperties(UserDatabaseConnection udc, PreparedStatement pstmt) 
+    throws SQLException {
+        if (supportParameterMetaData()) {
+            if (st.hasLoadedParameterMetaData()) return;
+            synchronized(st) {
+                if (!st.hasLoadedParameterMetaData()) {
+                    //get parameter meta data if it has not been loaded
+                    ParameterMetaData pmd = pstmt.getParameterMetaData();
+                    ParameterMetaDataLoader pmdl = new ParameterMetaDataLoader(pmd, st);
+                    pmdl.loadParameterMetaData(pmd);
+                }
+            }
+        }
+        else {
+            if (st.hasLoadedParameterProperties()) return;
+            synchronized(st) {
+                if (!st.hasLoadedParameterProperties()) {
+                    JdbcStatementParser parser = new JdbcStatementParser(udc, st);
+                    parser.parse();
+                }
+            }
+        }
+    }
 
     protected boolean checkPagination(Map inputs) {
         boolean usePagination = false;
@@ -237,7 +604,7 @@ public class JdbcStatementProcessor extends DataProcessorImpl {
                 OmniDTO returnTO = dp.execute(udc, inputs);
                 Object result = returnTO.getTableData(key).getFirstObject();
                 
-                log.debug("autoFill: result for key " + key + ": " + result);
+                log.debug("autoFill: result for key {}: {}", key, result);
                 inputs.put("@"+key, result);
             }
         }
@@ -327,15 +694,7 @@ public class JdbcStatementProcessor extends DataProcessorImpl {
     }
     
     private JdbcStatement updateStatement(String processorName) {
-        JdbcStatement statement = DBStore.getInstance().getJdbcStatement(processorName);
-        
-        if (statement == null) {
-            //discovery
-            statement = SqlExpressUtil.createJdbcStatementDirect(processorName);
-            DBStore.getInstance().addJdbcStatement(processorName, statement);
-        }
-        
-        return statement;
+        return SqlExpressUtil.createJdbcStatementDirect(processorName);
     }
     
     /**
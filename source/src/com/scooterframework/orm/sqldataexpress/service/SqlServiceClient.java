@@ -13,6 +13,7 @@ import java.util.Map;
 import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
 import com.scooterframework.orm.sqldataexpress.object.OmniDTO;
 import com.scooterframework.orm.sqldataexpress.object.RowData;
+import com.scooterframework.orm.sqldataexpress.object.RowHandler;
 import com.scooterframework.orm.sqldataexpress.object.TableData;
 import com.scooterframework.orm.sqldataexpress.processor.DataProcessorTypes;
 
@@ -276,6 +277,20 @@ public class SqlServiceClient {
         return executeSQL(sql, null);
     }
     
+    /**
+     * Processes rows of a sql query one by one as they are read from 
+     * database and returns number of rows processed. Rows are not kept in 
+     * memory.
+     *
+     * @param sql       a sql query
+     * @param inputs    a map of name and value pairs
+     * @param handler   a handler which processes each row
+     * @return int number of rows processed
+     */
+    public static int processRowsBySQL(String sql, Map inputs, RowHandler handler) {
+        return getSqlService().processRows(inputs, DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, sql, handler);
+    }
+    
     /**
      * Executes a non-select sql statement and returns count of updated rows.
      *
@@ -298,6 +313,30 @@ public class SqlServiceClient {
         return rowCount;
     }
     
+    /**
+     * Executes a non-select sql statement once for each input map of a list 
+     * in JDBC batches and returns total count of updated rows. All input 
+     * maps are executed in one transaction.
+     *
+     * @param sql           a sql statement
+     * @param inputsList    a list of maps of name and value pairs
+     * @return int updated row count
+     */
+    public static int executeSQLBatch(String sql, List inputsList) {
+        int rowCount = -1;
+        
+        try {
+            OmniDTO returnTO = 
+                getSqlService().executeBatch(inputsList, DataProcessorTypes.DIRECT_SQL_STATEMENT_PROCESSOR, sql);
+            
+            rowCount = returnTO.getUpdatedRowCount();
+        }
+        catch (Exception ex) {
+            throw new BaseSQLException(ex);
+        }
+        return rowCount;
+    }
+    
     /**
      * Retrieves an object from database based on the sql query related to 
      * the sql key. 
@@ -8,6 +8,7 @@
 package com.scooterframework.orm.sqldataexpress.service;
 
 import java.util.Collection;
+import java.util.List;
 import java.util.Map;
 
 import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
@@ -48,4 +49,19 @@ public interface SqlServiceGeneric {
      * execute an InputInfo object in one transaction
      */
     public OmniDTO retrieveMasterDetails(InputInfo inputInfo) throws BaseSQLException;
+    
+    /**
+     * execute a list of input maps in JDBC batches in one transaction
+     */
+    public OmniDTO executeBatch(List inputsList, String processorType, String processorName) throws BaseSQLException;
+    
+    /**
+     * execute a list of input maps in JDBC batches of batchSize rows in one transaction
+     */
+    public OmniDTO executeBatch(List inputsList, String processorType, String processorName, int batchSize) throws BaseSQLException;
+    
+    /**
+     * execute an insert, update or delete statement with values bound by position
+     */
+    public OmniDTO executeUpdate(Object[] values, String processorType, String processorName) throws BaseSQLException;
 }
@@ -35,11 +35,13 @@ import com.scooterframework.orm.sqldataexpress.exception.UnsupportedDataProcesso
 import com.scooterframework.orm.sqldataexpress.exception.UnsupportedStoredProcedureAPINameException;
 import com.scooterframework.orm.sqldataexpress.object.OmniDTO;
 import com.scooterframework.orm.sqldataexpress.object.RowData;
+import com.scooterframework.orm.sqldataexpress.object.RowHandler;
 import com.scooterframework.orm.sqldataexpress.object.RowInfo;
 import com.scooterframework.orm.sqldataexpress.object.TableData;
 import com.scooterframework.orm.sqldataexpress.processor.DataProcessor;
 import com.scooterframework.orm.sqldataexpress.processor.DataProcessorFactory;
 import com.scooterframework.orm.sqldataexpress.processor.DataProcessorTypes;
+import com.scooterframework.orm.sqldataexpress.processor.JdbcStatementProcessor;
 import com.scooterframework.orm.sqldataexpress.util.SqlUtil;
 import com.scooterframework.transaction.ImplicitTransactionManager;
 import com.scooterframework.transaction.Transaction;
@@ -144,6 +146,134 @@ public class SqlServiceImpl implements SqlService {
         return returnTO;
     }
 	
+    /**
+     * execute a list of input maps in JDBC batches in one transaction
+     */
+    public OmniDTO executeBatch(List inputsList, String processorType, String processorName) 
+    throws BaseSQLException {
+        return executeBatch(inputsList, processorType, processorName, DatabaseConfig.getInstance().getBatchSize());
+    }
+    
+    /**
+     * <p>execute a list of input maps in JDBC batches of batchSize rows in 
+     * one transaction.</p>
+     * 
+     * <p>Only direct sql and named sql processors support batch execution. 
+     * Connection related values such as connection name are taken from the 
+     * first input map.</p>
+     */
+    public OmniDTO executeBatch(List inputsList, String processorType, String processorName, int batchSize) 
+    throws BaseSQLException {
+        if (processorType == null || processorName == null) 
+            throw new IllegalArgumentException("processorType or processorName is null.");
+        
+        if (inputsList == null || inputsList.size() == 0) {
+            OmniDTO returnTO = new OmniDTO();
+            returnTO.setUpdatedRowCount(0);
+            return returnTO;
+        }
+        
+        List convertedList = new ArrayList(inputsList.size());
+        Iterator it = inputsList.iterator();
+        while(it.hasNext()) {
+            Map inputs = (Map)it.next();
+            if (inputs == null) inputs = new HashMap();
+            cleanUpInputs(inputs);
+            convertedList.add(convertKeyCase(inputs));
+        }
+        
+        Map firstInputs = (Map)inputsList.get(0);
+        if (firstInputs == null) firstInputs = new HashMap();
+        
+        ImplicitTransactionManager tm = TransactionManagerUtil.getImplicitTransactionManager();
+        OmniDTO returnTO = null;
+        
+        try {
+            tm.beginTransactionImplicit();
+            
+            UserDatabaseConnection udc = findOrCreateConnection(firstInputs);
+            
+            DataProcessor dp = DataProcessorFactory.getInstance().getDataProcessor(udc, processorType, processorName);
+            if (!(dp instanceof JdbcStatementProcessor)) 
+                throw new BaseSQLException("Batch execution is not supported by DataProcessor Type: " + processorType);
+            
+            returnTO = ((JdbcStatementProcessor)dp).executeBatch(udc, convertedList, batchSize);
+            returnTO.setProcessorType(processorType);
+            returnTO.setProcessorName(processorName);
+            
+            tm.commitTransactionImplicit();
+        }
+        catch(UnsupportedDataProcessorTypeException udptEx) {
+            tm.rollbackTransactionImplicit();
+            throw new BaseSQLException("Unsupported DataProcessor Type: " + processorType);
+        }
+        catch(UnsupportedDataProcessorNameException udpnEx) {
+            tm.rollbackTransactionImplicit();
+            throw new BaseSQLException("Unsupported DataProcessor Name: " + processorName);
+        }
+        catch(BaseSQLException bdex) {
+            tm.rollbackTransactionImplicit();
+            throw bdex;
+        }
+        finally {
+            tm.releaseResourcesImplicit();
+        }
+        
+        return returnTO;
+    }
+	
+    /**
+     * <p>execute an insert, update or delete statement with values bound by 
+     * position. The value of the first parameter is <tt>values[0]</tt>.</p>
+     * 
+     * <p>Only direct sql and named sql processors are supported. The 
+     * statement is executed with the default connection of the current 
+     * transaction. No input map is built.</p>
+     */
+    public OmniDTO executeUpdate(Object[] values, String processorType, String processorName) 
+    throws BaseSQLException {
+        if (processorType == null || processorName == null) 
+            throw new IllegalArgumentException("processorType or processorName is null.");
+        
+        if (values == null) values = new Object[0];
+        
+        ImplicitTransactionManager tm = TransactionManagerUtil.getImplicitTransactionManager();
+        OmniDTO returnTO = null;
+        
+        try {
+            tm.beginTransactionImplicit();
+            
+            UserDatabaseConnection udc = getConnection();
+            
+            DataProcessor dp = DataProcessorFactory.getInstance().getDataProcessor(udc, processorType, processorName);
+            if (!(dp instanceof JdbcStatementProcessor)) 
+                throw new BaseSQLException("Positional execution is not supported by DataProcessor Type: " + processorType);
+            
+            returnTO = ((JdbcStatementProcessor)dp).executeUpdate(udc, values);
+            returnTO.setProcessorType(processorType);
+            returnTO.setProcessorName(processorName);
+            
+            tm.commitTransactionImplicit();
+        }
+        catch(UnsupportedDataProcessorTypeException udptEx) {
+            tm.rollbackTransactionImplicit();
+            throw new BaseSQLException("Unsupported DataProcessor Type: " + processorType);
+        }
+        catch(UnsupportedDataProcessorNameException udpnEx) {
+            tm.rollbackTransactionImplicit();
+            throw new BaseSQLException("Unsupported DataProcessor Name: " + processorName);
+        }
+        catch(BaseSQLException bdex) {
+            tm.rollbackTransactionImplicit();
+            throw bdex;
+        }
+        finally {
+            tm.releaseResourcesImplicit();
+        }
+        
+        return returnTO;
+    }
+	
 	private void displayDS(String connectionName, String where) {
         try {
             DataSource ds = null;
@@ -229,7 +359,7 @@ public class SqlServiceImpl implements SqlService {
             udc.getConnection().setReadOnly(true);
             
             returnTO = executeKeepConnection(udc, ip.getInputs(), ip.getProcessorType(), ip.getProcessorName(), ip.getOutputFilters());
-            log.debug("parent: " + returnTO);
+            log.debug("parent: {}", returnTO);
             
             //now execute child InputInfo
             Collection childList = ip.getChildInputInfoObjects();
@@ -258,7 +388,7 @@ public class SqlServiceImpl implements SqlService {
                     query = childIp.getProcessorName();
                 }
                 
-                log.debug("child query1: " + query);
+                log.debug("child query1: {}", query);
                 
                 // check if parent has data
                 boolean parentHasData = false;
@@ -280,7 +410,7 @@ public class SqlServiceImpl implements SqlService {
                     childQuery = query;
                 }
                 
-                log.debug("child query2: " + childQuery);
+                log.debug("child query2: {}", childQuery);
                 
                 if (parentHasData) {
                     udc = findOrCreateConnection(childIp);
@@ -300,7 +430,7 @@ public class SqlServiceImpl implements SqlService {
                                             connectorList);
                     }
                     
-                    log.debug("returnTO2: " + returnTO2);
+                    log.debug("returnTO2: {}", returnTO2);
                 }
             }
         }
@@ -459,6 +589,69 @@ public class SqlServiceImpl implements SqlService {
     }
     
     
+    /**
+     * Process rows of a query one by one as they are read from database. 
+     * Rows are not kept in memory. The connection is released when all 
+     * rows are processed.
+     * 
+     * Number of rows fetched at a time is the value of 
+     * DataProcessor.input_key_fetch_size key in inputs, or the 
+     * <tt>fetch.size</tt> property in <tt>database.properties</tt>. 
+     * 
+     * @param inputs            Map of input data
+     * @param processorType     A named sql or direct sql
+     * @param processorName     Sql name or sql itself
+     * @param handler           RowHandler which processes each row
+     * @return int              number of rows processed
+     * @throws com.scooterframework.orm.sqldataexpress.exception.BaseSQLException
+     */
+    public int processRows(Map inputs, String processorType, String processorName, RowHandler handler) 
+    throws BaseSQLException {
+        if (processorType == null || processorName == null) 
+            throw new IllegalArgumentException("processorType or processorName is null.");
+        
+        if (inputs == null) inputs = new HashMap();
+        cleanUpInputs(inputs);
+        
+        int fetchSize = Util.getIntValue(inputs, DataProcessor.input_key_fetch_size, 
+                                         DatabaseConfig.getInstance().getFetchSize());
+        
+        ImplicitTransactionManager tm = TransactionManagerUtil.getImplicitTransactionManager();
+        int count = 0;
+        
+        try {
+            tm.beginTransactionImplicit();
+            
+            UserDatabaseConnection udc = findOrCreateConnection(inputs);
+            
+            DataProcessor dp = DataProcessorFactory.getInstance().getDataProcessor(udc, processorType, processorName);
+            if (!(dp instanceof JdbcStatementProcessor)) 
+                throw new BaseSQLException("Row processing is not supported by DataProcessor Type: " + processorType);
+            
+            count = ((JdbcStatementProcessor)dp).processRows(udc, convertKeyCase(inputs), fetchSize, handler);
+            
+            tm.commitTransactionImplicit();
+        }
+        catch(UnsupportedDataProcessorTypeException udptEx) {
+            tm.rollbackTransactionImplicit();
+            throw new BaseSQLException("Unsupported DataProcessor Type: " + processorType);
+        }
+        catch(UnsupportedDataProcessorNameException udpnEx) {
+            tm.rollbackTransactionImplicit();
+            throw new BaseSQLException("Unsupported DataProcessor Name: " + processorName);
+        }
+        catch(RuntimeException ex) {
+            tm.rollbackTransactionImplicit();
+            throw ex;
+        }
+        finally {
+            tm.releaseResourcesImplicit();
+        }
+        
+        return count;
+    }
+    
+    
     /**
      * Insert data to database.
      * 
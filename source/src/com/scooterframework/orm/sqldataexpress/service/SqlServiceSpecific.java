@@ -10,6 +10,7 @@ package com.scooterframework.orm.sqldataexpress.service;
 import java.util.Map;
 
 import com.scooterframework.orm.sqldataexpress.exception.BaseSQLException;
+import com.scooterframework.orm.sqldataexpress.object.RowHandler;
 import com.scooterframework.orm.sqldataexpress.object.TableData;
 
 /**
@@ -95,6 +96,26 @@ public interface SqlServiceSpecific
     throws BaseSQLException;
     
     
+    /**
+     * Process rows of a query one by one as they are read from database. 
+     * Rows are not kept in memory. The connection is released when all 
+     * rows are processed.
+     * 
+     * Number of rows fetched at a time is the value of 
+     * DataProcessor.input_key_fetch_size key in inputs, or the 
+     * <tt>fetch.size</tt> property in <tt>database.properties</tt>. 
+     * 
+     * @param inputs            Map of input data
+     * @param processorType     A named sql or direct sql
+     * @param processorName     Sql name or sql itself
+     * @param handler           RowHandler which processes each row
+     * @return int              number of rows processed
+     * @throws com.scooterframework.orm.sqldataexpress.exception.BaseSQLException
+     */
+    public int processRows(Map inputs, String processorType, String processorName, RowHandler handler) 
+    throws BaseSQLException;
+    
+    
     /**
      * Insert data to database.
      * 
@@ -32,6 +32,7 @@ public class DAOUtil
     {
         try {
             if (connection != null) {
+                PreparedStatementCache.closeStatements(connection);
                 connection.close();
                 connection = null;
             }
@@ -7,7 +7,9 @@
  */
 package com.scooterframework.orm.sqldataexpress.util;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 
 import com.scooterframework.common.util.CurrentThreadCache;
@@ -20,7 +22,24 @@ import com.scooterframework.orm.sqldataexpress.object.TableInfo;
 import com.scooterframework.orm.sqldataexpress.vendor.DBAdapter;
 
 /**
- * DBStore class.
+ * <p>DBStore class keeps database metadata such as table infos, primary 
+ * keys, stored procedures, functions, named SQL statements and database 
+ * adapters.</p>
+ * 
+ * <p>Metadata are shared by all request threads. Each kind of metadata is 
+ * kept in a map which is copied when an entry is added or removed, so 
+ * that lookups never lock and always see completely populated entries.</p>
+ * 
+ * <p>Loading metadata of a key is done by one thread at a time through 
+ * {@link #load(String, MetadataLoader)}. Other threads asking for the same 
+ * key wait for the result instead of querying the database again.</p>
+ * 
+ * <p>Cached metadata of a table can be dropped by 
+ * {@link #invalidateTable(String)} after the table is changed in database, 
+ * and all metadata by {@link #invalidateAll()}.</p>
+ * 
+ * <p>In development environment, metadata are kept only for the current 
+ * request thread.</p>
  * 
  * @author (Fei) John Chen
  */
@@ -34,12 +53,12 @@ public class DBStore {
 
     private DBStore() {}
     
-    public static synchronized DBStore getInstance() {
+    public static DBStore getInstance() {
         return me;
     }
     
     public Map getStoredProcedures() {
-        return storedProcedures;
+        return storedProcedures.snapshot();
     }
     
     public StoredProcedure getStoredProcedure(String name) {
@@ -73,7 +92,7 @@ public class DBStore {
     }
     
     public Map getFunctions() {
-        return functions;
+        return functions.snapshot();
     }
     
     public Function getFunction(String name) {
@@ -107,7 +126,7 @@ public class DBStore {
     }
     
     public Map getJdbcStatements() {
-        return jdbcStatements;
+        return jdbcStatements.snapshot();
     }
     
     public JdbcStatement getJdbcStatement(String name) {
@@ -140,7 +159,7 @@ public class DBStore {
     }
     
     public Map getTableInfos() {
-        return tables;
+        return tables.snapshot();
     }
     
     public TableInfo getTableInfo(String tableName) {
@@ -234,8 +253,22 @@ public class DBStore {
         pkMap.put(pkKey, pk);
     }
     
+    /**
+     * Returns primary keys keyed by their store keys.
+     */
+    Map getPrimaryKeys() {
+        return pkMap.snapshot();
+    }
+    
+    /**
+     * Adds a primary key with its store key.
+     */
+    void addPrimaryKey(String pkKey, PrimaryKey pk) {
+        pkMap.put(pkKey, pk);
+    }
+    
     public Map getAdapters() {
-        return adapterMap;
+        return adapterMap.snapshot();
     }
     
     public DBAdapter getDBAdapter(String connName) {
@@ -265,7 +298,89 @@ public class DBStore {
             return;
         }
         
-        storedProcedures.put(connName, dba);
+        adapterMap.put(connName, dba);
+    }
+
+    /**
+     * Loads metadata of a key. Only one thread at a time runs a loader of 
+     * the same key. A thread which has waited for another thread's loader 
+     * runs its own loader, which is expected to find the metadata that has 
+     * just been stored and return it without querying the database.
+     * 
+     * @param key     key of the metadata, such as "table.PETS"
+     * @param loader  loader which checks the store and loads the metadata 
+     *                if it is not there
+     * @return the result of the loader
+     */
+    public Object load(String key, MetadataLoader loader) {
+        if (key == null || loader == null) 
+            throw new IllegalArgumentException("load: Neither key nor loader can be null: " + 
+                                               "key is " + key + "; " + 
+                                               "loader is " + loader + ".");
+        
+        LoadLock lock = null;
+        synchronized(loadLocks) {
+            lock = (LoadLock)loadLocks.get(key);
+            if (lock == null) {
+                lock = new LoadLock();
+                loadLocks.put(key, lock);
+            }
+            lock.users++;
+        }
+        
+        try {
+            synchronized(lock) {
+                return loader.load();
+            }
+        }
+        finally {
+            synchronized(loadLocks) {
+                if (--lock.users == 0) loadLocks.remove(key);
+            }
+        }
+    }
+    
+    /**
+     * Removes cached table info and primary key of a table, so that they 
+     * are looked up again when the table is used next time. Parsed SQL 
+     * statements are removed too, as their parameter types are taken from 
+     * table infos.
+     * 
+     * @param tableName  table name
+     */
+    public void invalidateTable(String tableName) {
+        if (tableName == null) return;
+        
+        if (DatabaseConfig.getInstance().isInDevelopmentEnvironment()) {
+            CurrentThreadCache.clear(getTableKeyForCurrentThreadCache(tableName));
+        }
+        tables.remove(tableName.toUpperCase());
+        
+        String pkSuffix = "." + tableName.toUpperCase();
+        Iterator it = pkMap.snapshot().keySet().iterator();
+        while(it.hasNext()) {
+            String pkKey = (String)it.next();
+            if (pkKey.endsWith(pkSuffix)) pkMap.remove(pkKey);
+        }
+        
+        clearStatements();
+    }
+    
+    /**
+     * Removes all cached metadata except class to table mappings.
+     */
+    public void invalidateAll() {
+        storedProcedures.clear();
+        functions.clear();
+        tables.clear();
+        pkMap.clear();
+        adapterMap.clear();
+        clearStatements();
+    }
+    
+    private void clearStatements() {
+        jdbcStatements.clear();
+        JdbcStatementRegistry.clear();
     }
 
     private String getSpocKeyForCurrentThreadCache(String name) {
@@ -300,11 +415,62 @@ public class DBStore {
         return "dba." + connName;
     }
 
-    private Map storedProcedures = new HashMap();
-    private Map functions = new HashMap();
-    private Map jdbcStatements = new HashMap();
-    private Map tables = new HashMap();
-    private Map classTableMap = new HashMap();
-    private Map pkMap = new HashMap();
-    private Map adapterMap = new HashMap();
+    /**
+     * MetadataLoader interface loads metadata in 
+     * {@link DBStore#load(String, MetadataLoader)}.
+     */
+    public static interface MetadataLoader {
+        /**
+         * Returns metadata found in the store, or loads and stores it.
+         */
+        public Object load();
+    }
+    
+    private static class LoadLock {
+        int users;
+    }
+    
+    /**
+     * SnapshotMap class keeps entries in an immutable map which is replaced 
+     * when an entry is added or removed.
+     */
+    private static class SnapshotMap {
+        Object get(Object key) {
+            return map.get(key);
+        }
+        
+        synchronized void put(Object key, Object value) {
+            Map copy = new HashMap(map);
+            copy.put(key, value);
+            map = Collections.unmodifiableMap(copy);
+        }
+        
+        synchronized void remove(Object key) {
+            if (!map.containsKey(key)) return;
+            Map copy = new HashMap(map);
+            copy.remove(key);
+            map = Collections.unmodifiableMap(copy);
+        }
+        
+        synchronized void clear() {
+            map = Collections.EMPTY_MAP;
+        }
+        
+        Map snapshot() {
+            return map;
+        }
+        
+        private volatile Map map = Collections.EMPTY_MAP;
+    }
+
+    private SnapshotMap storedProcedures = new SnapshotMap();
+    private SnapshotMap functions = new SnapshotMap();
+    private SnapshotMap jdbcStatements = new SnapshotMap();
+    private SnapshotMap tables = new SnapshotMap();
+    private SnapshotMap classTableMap = new SnapshotMap();
+    private SnapshotMap pkMap = new SnapshotMap();
+    private SnapshotMap adapterMap = new SnapshotMap();
+    
+    //key is metadata key, value is LoadLock
+    private Map loadLocks = new HashMap();
 }
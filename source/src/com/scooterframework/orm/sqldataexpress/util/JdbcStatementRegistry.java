@@ -0,0 +1,132 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import com.scooterframework.common.util.CurrentThreadCache;
+import com.scooterframework.common.util.LRUCache;
+import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
+import com.scooterframework.orm.sqldataexpress.object.JdbcStatement;
+
+/**
+ * <p>JdbcStatementRegistry class keeps JdbcStatement instances of direct SQL
+ * strings, keyed by the SQL string. A statement's parameters are parsed and
+ * their types are looked up when it is first executed. Keeping the
+ * statement lets later executions of the same SQL, from any thread, skip
+ * the parsing and the metadata lookups.</p>
+ *
+ * <p>The number of kept statements is limited by the
+ * <tt>statement.registry.size</tt> property in <tt>database.properties</tt>.
+ * The least recently used statement is dropped when the limit is reached,
+ * so that ad-hoc SQL strings with literal values cannot fill the memory.
+ * A value of zero turns the registry off.</p>
+ *
+ * <p>In development environment, where table definitions may be changed
+ * while the application is running, statements are kept only for the
+ * current request thread, as other metadata in DBStore.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class JdbcStatementRegistry {
+
+    private static volatile LRUCache statements;
+
+    private JdbcStatementRegistry() {
+    }
+
+    /**
+     * Returns the statement of a SQL string. A kept statement is returned
+     * if there is one, otherwise a new statement is created and kept.
+     *
+     * @param sql  the SQL string
+     * @return a JdbcStatement instance
+     */
+    public static JdbcStatement getJdbcStatement(String sql) {
+        if (sql == null)
+            throw new IllegalArgumentException("SQL statement string is empty.");
+
+        if (DatabaseConfig.getInstance().isInDevelopmentEnvironment()) {
+            String key = getKeyForCurrentThreadCache(sql);
+            JdbcStatement st = (JdbcStatement)CurrentThreadCache.get(key);
+            if (st == null) {
+                st = newJdbcStatement(sql);
+                CurrentThreadCache.set(key, st);
+            }
+            return st;
+        }
+
+        LRUCache cache = getCache();
+        if (cache == null) return newJdbcStatement(sql);
+
+        JdbcStatement st = (JdbcStatement)cache.get(sql);
+        if (st == null) {
+            st = newJdbcStatement(sql);
+            JdbcStatement existing = (JdbcStatement)cache.putIfAbsent(sql, st);
+            if (existing != null) st = existing;
+        }
+        return st;
+    }
+
+    /**
+     * Removes the statement of a SQL string.
+     *
+     * @param sql  the SQL string
+     */
+    public static void remove(String sql) {
+        if (sql != null && DatabaseConfig.getInstance().isInDevelopmentEnvironment()) {
+            CurrentThreadCache.clear(getKeyForCurrentThreadCache(sql));
+        }
+
+        LRUCache cache = statements;
+        if (cache != null && sql != null) cache.remove(sql);
+    }
+
+    /**
+     * Removes all statements. Statements are to be parsed again after
+     * table definitions are changed.
+     */
+    public static void clear() {
+        LRUCache cache = statements;
+        if (cache != null) cache.clear();
+    }
+
+    /**
+     * Returns number of kept statements.
+     */
+    public static int size() {
+        LRUCache cache = statements;
+        return (cache != null)?cache.size():0;
+    }
+
+    private static JdbcStatement newJdbcStatement(String sql) {
+        //Use the sql string as name key
+        JdbcStatement st = new JdbcStatement(sql);
+        st.setJdbcStatementString(sql);
+        return st;
+    }
+
+    private static String getKeyForCurrentThreadCache(String sql) {
+        return "jdbc.direct." + sql;
+    }
+
+    private static LRUCache getCache() {
+        LRUCache cache = statements;
+        if (cache == null) {
+            int size = DatabaseConfig.getInstance().getStatementRegistrySize();
+            if (size <= 0) return null;
+
+            synchronized(JdbcStatementRegistry.class) {
+                cache = statements;
+                if (cache == null) {
+                    cache = new LRUCache(size);
+                    statements = cache;
+                }
+            }
+        }
+        return cache;
+    }
+}
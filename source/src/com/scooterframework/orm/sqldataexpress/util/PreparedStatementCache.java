@@ -0,0 +1,215 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
+
+/**
+ * <p>PreparedStatementCache class keeps prepared statements of each open
+ * connection, so that a statement executed more than once on the same
+ * connection is prepared only once.</p>
+ *
+ * <p>Statements are keyed by the executable SQL string and whether
+ * generated keys are returned. A statement is taken out of the cache while
+ * it is in use and put back when the caller releases it, so the same SQL
+ * can be executed again while a previous execution is still open. The
+ * number of idle statements of each connection is limited by the
+ * <tt>statement.cache.size</tt> property in <tt>database.properties</tt>.
+ * The least recently used statement is closed when the limit is reached.
+ * A value of zero turns the cache off.</p>
+ *
+ * <p>All cached statements of a connection are closed when the connection
+ * is closed through {@link DAOUtil#closeConnection(Connection)}.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class PreparedStatementCache {
+    /**
+     * connection to StatementMap map
+     */
+    private static Map connectionStatements = new HashMap();
+
+    private static long hits = 0;
+    private static long misses = 0;
+
+    private PreparedStatementCache() {
+    }
+
+    /**
+     * Returns a prepared statement for the SQL. A cached statement is
+     * returned if there is one, otherwise a new statement is prepared.
+     *
+     * @param connection            the connection
+     * @param sql                   executable SQL string
+     * @param returnGeneratedKeys   true if generated keys are to be returned
+     * @return a prepared statement
+     * @throws SQLException
+     */
+    public static PreparedStatement prepareStatement(Connection connection, String sql, boolean returnGeneratedKeys)
+    throws SQLException {
+        PreparedStatement pstmt = null;
+
+        int cacheSize = DatabaseConfig.getInstance().getStatementCacheSize();
+        if (cacheSize > 0) {
+            String key = getKey(sql, returnGeneratedKeys);
+            synchronized(connectionStatements) {
+                StatementMap sm = (StatementMap)connectionStatements.get(connection);
+                if (sm != null) pstmt = (PreparedStatement)sm.remove(key);
+                if (pstmt != null) hits++; else misses++;
+            }
+        }
+
+        if (pstmt != null) {
+            pstmt.clearParameters();
+            return pstmt;
+        }
+
+        if (returnGeneratedKeys) {
+            pstmt = connection.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS);
+        }
+        else {
+            pstmt = connection.prepareStatement(sql);
+        }
+        return pstmt;
+    }
+
+    /**
+     * Releases a statement obtained from <tt>prepareStatement</tt>. The
+     * statement is kept in cache for the connection if it is reusable,
+     * otherwise it is closed.
+     *
+     * @param connection            the connection
+     * @param sql                   executable SQL string
+     * @param returnGeneratedKeys   true if generated keys are to be returned
+     * @param pstmt                 the statement
+     * @param reusable              false if the statement failed and should not be reused
+     */
+    public static void releaseStatement(Connection connection, String sql, boolean returnGeneratedKeys,
+            PreparedStatement pstmt, boolean reusable) {
+        if (pstmt == null) return;
+
+        int cacheSize = DatabaseConfig.getInstance().getStatementCacheSize();
+        if (reusable && cacheSize > 0 && isOpen(connection)) {
+            String key = getKey(sql, returnGeneratedKeys);
+            synchronized(connectionStatements) {
+                StatementMap sm = (StatementMap)connectionStatements.get(connection);
+                if (sm == null) {
+                    sm = new StatementMap(cacheSize);
+                    connectionStatements.put(connection, sm);
+                }
+                if (!sm.containsKey(key)) {
+                    sm.put(key, pstmt);
+                    return;
+                }
+            }
+        }
+
+        DAOUtil.closeStatement(pstmt);
+    }
+
+    /**
+     * Closes all cached statements of a connection.
+     *
+     * @param connection    the connection
+     */
+    public static void closeStatements(Connection connection) {
+        if (connection == null) return;
+
+        StatementMap sm = null;
+        synchronized(connectionStatements) {
+            sm = (StatementMap)connectionStatements.remove(connection);
+        }
+        if (sm != null) sm.closeAll();
+    }
+
+    /**
+     * Returns number of statements found in cache.
+     */
+    public static long getHitCount() {
+        synchronized(connectionStatements) {
+            return hits;
+        }
+    }
+
+    /**
+     * Returns number of statements not found in cache.
+     */
+    public static long getMissCount() {
+        synchronized(connectionStatements) {
+            return misses;
+        }
+    }
+
+    /**
+     * Returns number of connections which have cached statements.
+     */
+    public static int countConnections() {
+        synchronized(connectionStatements) {
+            return connectionStatements.size();
+        }
+    }
+
+    private static boolean isOpen(Connection connection) {
+        try {
+            return !connection.isClosed();
+        }
+        catch(SQLException ex) {
+            return false;
+        }
+    }
+
+    private static String getKey(String sql, boolean returnGeneratedKeys) {
+        return (returnGeneratedKeys)?("K:" + sql):("N:" + sql);
+    }
+
+    /**
+     * An access-ordered map of idle statements of a connection. The least
+     * recently used statement is closed when the map is full.
+     */
+    private static class StatementMap extends LinkedHashMap {
+        /**
+         * Generated serialVersionUID
+         */
+        private static final long serialVersionUID = -6020745123394180817L;
+
+        private int maxSize;
+
+        StatementMap(int maxSize) {
+            super(16, 0.75f, true);
+            this.maxSize = maxSize;
+        }
+
+        protected boolean removeEldestEntry(Map.Entry eldest) {
+            if (size() > maxSize) {
+                DAOUtil.closeStatement((Statement)eldest.getValue());
+                return true;
+            }
+            return false;
+        }
+
+        void closeAll() {
+            List statements = new ArrayList(values());
+            clear();
+            Iterator it = statements.iterator();
+            while(it.hasNext()) {
+                DAOUtil.closeStatement((Statement)it.next());
+            }
+        }
+    }
+}
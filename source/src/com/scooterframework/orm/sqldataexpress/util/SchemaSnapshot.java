@@ -0,0 +1,339 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.scooterframework.common.logging.LogUtil;
+import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
+import com.scooterframework.orm.sqldataexpress.object.PrimaryKey;
+import com.scooterframework.orm.sqldataexpress.object.TableInfo;
+
+/**
+ * <p>SchemaSnapshot class keeps table infos and primary keys of DBStore in a 
+ * local file, so that a restarted application does not have to query 
+ * database meta data table by table again.</p>
+ * 
+ * <p>The file is specified by <tt>schema.snapshot.file</tt> property in 
+ * <tt>database.properties</tt>. It is read when the application starts and 
+ * written when the application ends. If <tt>schema.snapshot.warmup</tt> is 
+ * true, meta data of all tables of the default database connection are 
+ * loaded in a background thread when the application starts, and the file 
+ * is written when they are loaded.</p>
+ * 
+ * <p>Only tables and views of the default database connection are kept in 
+ * the file. A snapshot is used only if it was taken from the same database 
+ * as the default database connection and the database still has the same 
+ * tables and views. This is checked with one meta data query. Changes of 
+ * columns of an existing table are not detected. Delete the file, or call 
+ * {@link DBStore#invalidateTable(String)}, after such changes.</p>
+ * 
+ * <p>Snapshots are not used in development environment, where meta data 
+ * are kept only for each request.</p>
+ * 
+ * @author (Fei) John Chen
+ */
+public class SchemaSnapshot {
+    private static LogUtil log = LogUtil.getLogger(SchemaSnapshot.class.getName());
+    
+    /**
+     * Format version of the snapshot file.
+     */
+    public static final int VERSION = 1;
+    
+    private SchemaSnapshot() {
+    }
+    
+    /**
+     * Reads the snapshot file if there is one, and starts the background 
+     * warm-up if it is turned on.
+     */
+    public static void start() {
+        File file = getSnapshotFile();
+        if (file == null) return;
+        
+        restore(file);
+        
+        if (DatabaseConfig.getInstance().isSchemaSnapshotWarmup()) {
+            Thread warmup = new Thread("SchemaSnapshotWarmup") {
+                public void run() {
+                    warmUp();
+                    save(getSnapshotFile());
+                }
+            };
+            warmup.setDaemon(true);
+            warmup.start();
+        }
+    }
+    
+    /**
+     * Writes the snapshot file.
+     */
+    public static void stop() {
+        File file = getSnapshotFile();
+        if (file != null) save(file);
+    }
+    
+    /**
+     * Loads meta data of all tables and views of the default database 
+     * connection into DBStore. Tables already in DBStore are skipped.
+     * 
+     * @return number of tables loaded
+     */
+    public static int warmUp() {
+        String connName = DatabaseConfig.getInstance().getDefaultDatabaseConnectionName();
+        List names = new ArrayList();
+        Connection conn = null;
+        try {
+            conn = SqlExpressUtil.getConnection(connName);
+            String[] s2 = SqlExpressUtil.getCatalogAndSchema(connName);
+            List tables = SqlExpressUtil.getDatabaseTables(conn, s2[0], s2[1], null, TableInfo.SUPPORTED_TYPES);
+            for (Iterator it = tables.iterator(); it.hasNext();) {
+                names.add(((TableInfo)it.next()).getName());
+            }
+        }
+        catch(SQLException ex) {
+            log.error("Failed to list tables for warm-up: " + ex.getMessage());
+            return 0;
+        }
+        finally {
+            DAOUtil.closeConnection(conn);
+        }
+        
+        int count = 0;
+        long start = System.currentTimeMillis();
+        for (Iterator it = names.iterator(); it.hasNext();) {
+            String table = (String)it.next();
+            if (DBStore.getInstance().getTableInfo(table) != null) continue;
+            try {
+                SqlExpressUtil.lookupAndRegisterTable(connName, table);
+                count++;
+            }
+            catch(Exception ex) {
+                log.warn("Failed to load meta data of table " + table + ": " + ex.getMessage());
+            }
+        }
+        log.info("Loaded meta data of " + count + " tables in " + (System.currentTimeMillis() - start) + " ms.");
+        return count;
+    }
+    
+    /**
+     * Writes table infos and primary keys in DBStore to a file.
+     * 
+     * @param file  the snapshot file
+     * @return true if the file is written
+     */
+    public static boolean save(File file) {
+        if (file == null || DatabaseConfig.getInstance().isInDevelopmentEnvironment()) return false;
+        
+        if (DBStore.getInstance().getTableInfos().size() == 0) return false;
+        
+        ObjectOutputStream out = null;
+        File tmp = new File(file.getPath() + ".tmp");
+        try {
+            Map listed = new HashMap();
+            String fingerprint = readDefaultSchema(listed);
+            Map tables = getDefaultTables(DBStore.getInstance().getTableInfos(), listed);
+            if (tables.size() == 0) return false;
+            
+            out = new ObjectOutputStream(new BufferedOutputStream(new GZIPOutputStream(new FileOutputStream(tmp))));
+            out.writeInt(VERSION);
+            out.writeUTF(fingerprint);
+            out.writeObject(tables);
+            out.writeObject(getPrimaryKeys(DBStore.getInstance().getPrimaryKeys(), tables));
+            out.close();
+            out = null;
+            
+            //replace the old file only after the new one is complete
+            if (file.exists() && !file.delete()) 
+                throw new IOException("Failed to delete old file " + file);
+            if (!tmp.renameTo(file)) 
+                throw new IOException("Failed to rename " + tmp + " to " + file);
+            
+            log.info("Saved meta data of " + tables.size() + " tables to " + file);
+            return true;
+        }
+        catch(Exception ex) {
+            log.error("Failed to save schema snapshot to " + file + ": " + ex.getMessage());
+            return false;
+        }
+        finally {
+            close(out);
+            tmp.delete();
+        }
+    }
+    
+    /**
+     * Reads table infos and primary keys from a file into DBStore if the 
+     * file matches the database.
+     * 
+     * @param file  the snapshot file
+     * @return true if the snapshot is used
+     */
+    public static boolean restore(File file) {
+        if (file == null || !file.exists() || 
+            DatabaseConfig.getInstance().isInDevelopmentEnvironment()) return false;
+        
+        ObjectInputStream in = null;
+        try {
+            in = new ObjectInputStream(new BufferedInputStream(new GZIPInputStream(new FileInputStream(file))));
+            if (in.readInt() != VERSION) {
+                log.info("Schema snapshot " + file + " has a different version and is ignored.");
+                return false;
+            }
+            
+            Map listed = new HashMap();
+            String fingerprint = in.readUTF();
+            if (!fingerprint.equals(readDefaultSchema(listed))) {
+                log.info("Schema snapshot " + file + " does not match the database and is ignored.");
+                return false;
+            }
+            
+            Map tables = getDefaultTables((Map)in.readObject(), listed);
+            Map pks = getPrimaryKeys((Map)in.readObject(), tables);
+            
+            DBStore store = DBStore.getInstance();
+            for (Iterator it = tables.keySet().iterator(); it.hasNext();) {
+                String table = (String)it.next();
+                if (store.getTableInfo(table) == null) store.addTableInfo(table, (TableInfo)tables.get(table));
+            }
+            for (Iterator it = pks.keySet().iterator(); it.hasNext();) {
+                String pkKey = (String)it.next();
+                store.addPrimaryKey(pkKey, (PrimaryKey)pks.get(pkKey));
+            }
+            
+            log.info("Restored meta data of " + tables.size() + " tables from " + file);
+            return true;
+        }
+        catch(Exception ex) {
+            log.error("Failed to read schema snapshot " + file + ": " + ex.getMessage());
+            return false;
+        }
+        finally {
+            close(in);
+        }
+    }
+    
+    /**
+     * Returns a string which identifies the database and its tables and 
+     * views, taken from one meta data query on the default connection.
+     */
+    static String getFingerprint() throws SQLException {
+        return readDefaultSchema(new HashMap());
+    }
+    
+    /**
+     * Returns the fingerprint of the default connection, and puts its 
+     * tables and views into a map with upper case table name as key.
+     */
+    private static String readDefaultSchema(Map listed) throws SQLException {
+        String connName = DatabaseConfig.getInstance().getDefaultDatabaseConnectionName();
+        Connection conn = null;
+        try {
+            conn = SqlExpressUtil.getConnection(connName);
+            DatabaseMetaData dbmd = conn.getMetaData();
+            
+            String[] s2 = SqlExpressUtil.getCatalogAndSchema(connName);
+            List tables = SqlExpressUtil.getDatabaseTables(conn, s2[0], s2[1], null, TableInfo.SUPPORTED_TYPES);
+            List names = new ArrayList(tables.size());
+            for (Iterator it = tables.iterator(); it.hasNext();) {
+                TableInfo ti = (TableInfo)it.next();
+                names.add(ti.getSchema() + "." + ti.getName() + ":" + ti.getType());
+                listed.put(ti.getName().toUpperCase(), ti);
+            }
+            Collections.sort(names);
+            
+            StringBuffer sb = new StringBuffer();
+            sb.append(connName).append('|');
+            sb.append(dbmd.getURL()).append('|');
+            sb.append(dbmd.getUserName()).append('|');
+            sb.append(dbmd.getDatabaseProductName()).append(' ');
+            sb.append(dbmd.getDatabaseProductVersion()).append('|');
+            sb.append(names.size()).append('|');
+            sb.append(names.hashCode());
+            return sb.toString();
+        }
+        finally {
+            DAOUtil.closeConnection(conn);
+        }
+    }
+    
+    //returns table infos of tables listed for the default connection
+    private static Map getDefaultTables(Map tables, Map listed) {
+        Map result = new HashMap();
+        for (Iterator it = tables.keySet().iterator(); it.hasNext();) {
+            String table = (String)it.next();
+            TableInfo ti = (TableInfo)tables.get(table);
+            TableInfo found = (TableInfo)listed.get(table.toUpperCase());
+            if (found != null && sameSchema(ti.getSchema(), found.getSchema())) {
+                result.put(table, ti);
+            }
+        }
+        return result;
+    }
+    
+    //returns primary keys of the tables, keys end with the table name
+    private static Map getPrimaryKeys(Map pks, Map tables) {
+        Map result = new HashMap();
+        for (Iterator it = pks.keySet().iterator(); it.hasNext();) {
+            String pkKey = (String)it.next();
+            String table = pkKey.substring(pkKey.lastIndexOf('.') + 1);
+            if (tables.containsKey(table)) result.put(pkKey, pks.get(pkKey));
+        }
+        return result;
+    }
+    
+    private static boolean sameSchema(String schema1, String schema2) {
+        if (schema1 == null || "".equals(schema1) || 
+            schema2 == null || "".equals(schema2)) return true;
+        return schema1.equalsIgnoreCase(schema2);
+    }
+    
+    private static File getSnapshotFile() {
+        String path = DatabaseConfig.getInstance().getSchemaSnapshotFile();
+        return ("".equals(path))?null:new File(path);
+    }
+    
+    private static void close(ObjectInputStream in) {
+        if (in == null) return;
+        try {
+            in.close();
+        }
+        catch(IOException ex) {
+            ;
+        }
+    }
+    
+    private static void close(ObjectOutputStream out) {
+        if (out == null) return;
+        try {
+            out.close();
+        }
+        catch(IOException ex) {
+            ;
+        }
+    }
+}
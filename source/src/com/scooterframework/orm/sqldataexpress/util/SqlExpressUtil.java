@@ -384,32 +384,40 @@ public class SqlExpressUtil {
     
     
     
-    public static Function lookupAndRegisterFunction(String function) {
+    public static Function lookupAndRegisterFunction(final String function) {
         if (function == null) 
             throw new IllegalArgumentException("Function name is empty.");
         
-        String errorMessage = "Failed to get meta data info for function " + function;
+        final StringBuffer errorMessage = new StringBuffer("Failed to get meta data info for function " + function);
         Function f = DBStore.getInstance().getFunction(function);
         if (f == null) {
-        	UserDatabaseConnection udc = null;
-            try {
-                udc = SqlExpressUtil.getUserDatabaseConnection();
-                f = lookupFunction(udc, function);
-            }
-            catch(Exception ex) {
-                errorMessage += ", because " + ex.getMessage() + ".";
-            }
-            finally {
-                DAOUtil.closeConnection(udc.getConnection());
-            }
-            
-            if (f != null) {
-                DBStore.getInstance().addFunction(function, f);
-            }
+            f = (Function)DBStore.getInstance().load("function." + function, new DBStore.MetadataLoader() {
+                public Object load() {
+                    Function found = DBStore.getInstance().getFunction(function);
+                    if (found != null) return found;
+                    
+                    UserDatabaseConnection udc = null;
+                    try {
+                        udc = SqlExpressUtil.getUserDatabaseConnection();
+                        found = lookupFunction(udc, function);
+                    }
+                    catch(Exception ex) {
+                        errorMessage.append(", because " + ex.getMessage() + ".");
+                    }
+                    finally {
+                        DAOUtil.closeConnection(udc);
+                    }
+                    
+                    if (found != null) {
+                        DBStore.getInstance().addFunction(function, found);
+                    }
+                    return found;
+                }
+            });
         }
         
         if (f == null) {
-            throw new LookupFailureException(errorMessage);
+            throw new LookupFailureException(errorMessage.toString());
         }
         return f;
     }
@@ -504,32 +512,40 @@ public class SqlExpressUtil {
         return sp;
     }
     
-    public static StoredProcedure lookupAndRegisterStoredProcedure(String storedProcedure) {
+    public static StoredProcedure lookupAndRegisterStoredProcedure(final String storedProcedure) {
         if (storedProcedure == null) 
             throw new IllegalArgumentException("Stored procedure name is empty.");
         
-        String errorMessage = "Failed to get meta data info for stored procedur " + storedProcedure;
+        final StringBuffer errorMessage = new StringBuffer("Failed to get meta data info for stored procedur " + storedProcedure);
         StoredProcedure sp = DBStore.getInstance().getStoredProcedure(storedProcedure);
         if (sp == null) {
-        	UserDatabaseConnection udc = null;
-            try {
-                udc = SqlExpressUtil.getUserDatabaseConnection();
-                sp = lookupStoredProcedure(udc, storedProcedure);
-            }
-            catch(Exception ex) {
-                errorMessage += ", because " + ex.getMessage() + ".";
-            }
-            finally {
-                DAOUtil.closeConnection(udc.getConnection());
-            }
-            
-            if (sp != null) {
-                DBStore.getInstance().addStoredProcedure(storedProcedure, sp);
-            }
+            sp = (StoredProcedure)DBStore.getInstance().load("spoc." + storedProcedure, new DBStore.MetadataLoader() {
+                public Object load() {
+                    StoredProcedure found = DBStore.getInstance().getStoredProcedure(storedProcedure);
+                    if (found != null) return found;
+                    
+                    UserDatabaseConnection udc = null;
+                    try {
+                        udc = SqlExpressUtil.getUserDatabaseConnection();
+                        found = lookupStoredProcedure(udc, storedProcedure);
+                    }
+                    catch(Exception ex) {
+                        errorMessage.append(", because " + ex.getMessage() + ".");
+                    }
+                    finally {
+                        DAOUtil.closeConnection(udc);
+                    }
+                    
+                    if (found != null) {
+                        DBStore.getInstance().addStoredProcedure(storedProcedure, found);
+                    }
+                    return found;
+                }
+            });
         }
         
         if (sp == null) {
-            throw new LookupFailureException(errorMessage);
+            throw new LookupFailureException(errorMessage.toString());
         }
         return sp;
     }
@@ -639,16 +655,9 @@ public class SqlExpressUtil {
         return st;
     }
     
-    // find the jdbc statement from cache
+    // find the jdbc statement from registry
     public static JdbcStatement createJdbcStatementDirect(String jdbcStatementString) {
-        if (jdbcStatementString == null) 
-            throw new IllegalArgumentException("SQL statement string is empty.");
-        
-        // Use the input sqlStatementString as name key
-        JdbcStatement st = new JdbcStatement(jdbcStatementString);
-        st.setJdbcStatementString(jdbcStatementString);
-        
-        return st;
+        return JdbcStatementRegistry.getJdbcStatement(jdbcStatementString);
     }
     
     // populate more parameter properties for the JdbcStatement
@@ -676,11 +685,7 @@ public class SqlExpressUtil {
                 
                 if (tableName != null && columnName != null) {
                     // find more properties of this column
-                    TableInfo ti = DBStore.getInstance().getTableInfo(tableName);
-                    if (ti == null) {
-                        // lookup 
-                        ti = lookupTableInfo(udc, tableName);
-                    }
+                    TableInfo ti = lookupAndRegisterTable(udc, tableName);
                     
                     // add more properties for this column
                     RowInfo header = ti.getHeader();
@@ -708,34 +713,61 @@ public class SqlExpressUtil {
         return st;
     }
     
-    public static TableInfo lookupAndRegisterTable(String connName, String table) {
+    public static TableInfo lookupAndRegisterTable(final String connName, final String table) {
         if (table == null) 
             throw new IllegalArgumentException("Table name is empty.");
         
-        String errorMessage = "Failed to get meta data info of table " + table + 
-        		" with database connection named \"" + connName;
+        final StringBuffer errorMessage = new StringBuffer("Failed to get meta data info of table " + table + 
+        		" with database connection named \"" + connName);
         TableInfo ti = DBStore.getInstance().getTableInfo(table);
         if (ti == null) {
-        	UserDatabaseConnection udc = null;
-            try {
-                udc = SqlExpressUtil.getUserDatabaseConnection(connName);
-                ti = lookupTableInfo(udc, table);
-            }
-            catch(Exception ex) {
-            	ex.printStackTrace();
-                errorMessage += ". Reason: " + ex.getMessage() + ".";
-            }
-            finally {
-                DAOUtil.closeConnection(udc);
-            }
+            ti = (TableInfo)DBStore.getInstance().load(getTableLoadKey(table), new DBStore.MetadataLoader() {
+                public Object load() {
+                    TableInfo found = DBStore.getInstance().getTableInfo(table);
+                    if (found != null) return found;
+                    
+                    UserDatabaseConnection udc = null;
+                    try {
+                        udc = SqlExpressUtil.getUserDatabaseConnection(connName);
+                        found = lookupTableInfo(udc, table);
+                    }
+                    catch(Exception ex) {
+                        ex.printStackTrace();
+                        errorMessage.append(". Reason: " + ex.getMessage() + ".");
+                    }
+                    finally {
+                        DAOUtil.closeConnection(udc);
+                    }
+                    return found;
+                }
+            });
         }
         
         if (ti == null) {
-            throw new LookupFailureException(errorMessage);
+            throw new LookupFailureException(errorMessage.toString());
         }
         return ti;
     }
     
+    // find table info with an open connection, only one thread at a time 
+    // looks up the same table
+    private static TableInfo lookupAndRegisterTable(final UserDatabaseConnection udc, final String table) {
+        TableInfo ti = DBStore.getInstance().getTableInfo(table);
+        if (ti != null) return ti;
+        
+        return (TableInfo)DBStore.getInstance().load(getTableLoadKey(table), new DBStore.MetadataLoader() {
+            public Object load() {
+                TableInfo found = DBStore.getInstance().getTableInfo(table);
+                if (found != null) return found;
+                return lookupTableInfo(udc, table);
+            }
+        });
+    }
+    
+    private static String getTableLoadKey(String table) {
+        return "table." + table.toUpperCase();
+    }
+    
     // find table or view info
     // 
     public static TableInfo lookupTableInfo(UserDatabaseConnection udc, String tableName) {
@@ -939,10 +971,21 @@ public class SqlExpressUtil {
     	
         pk = DBStore.getInstance().getPrimaryKey(catalog, schema, table);
         if (pk == null) {
-            pk = lookupTablePrimaryKeyForDefaultConnection(catalog, schema, table);
-            if (pk != null) {
-                DBStore.getInstance().addPrimaryKey(catalog, schema, table, pk);
-            }
+            final String c = catalog;
+            final String s = schema;
+            final String t = table;
+            pk = (PrimaryKey)DBStore.getInstance().load("pk." + c + "." + s + "." + t.toUpperCase(), new DBStore.MetadataLoader() {
+                public Object load() {
+                    PrimaryKey found = DBStore.getInstance().getPrimaryKey(c, s, t);
+                    if (found != null) return found;
+                    
+                    found = lookupTablePrimaryKeyForDefaultConnection(c, s, t);
+                    if (found != null) {
+                        DBStore.getInstance().addPrimaryKey(c, s, t, found);
+                    }
+                    return found;
+                }
+            });
         }
         return pk;
     }
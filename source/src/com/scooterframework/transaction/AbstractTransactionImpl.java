@@ -10,10 +10,13 @@ package com.scooterframework.transaction;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 
+import com.scooterframework.common.logging.LogUtil;
 import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
 import com.scooterframework.orm.sqldataexpress.connection.DatabaseConnectionContext;
+import com.scooterframework.orm.sqldataexpress.connection.ReadReplicaRouter;
 import com.scooterframework.orm.sqldataexpress.connection.UserDatabaseConnection;
 import com.scooterframework.orm.sqldataexpress.connection.UserDatabaseConnectionFactory;
 import com.scooterframework.orm.sqldataexpress.exception.TransactionException;
@@ -78,12 +81,60 @@ abstract public class AbstractTransactionImpl implements Transaction {
             }
             connList.clear();
             nameConnMap.clear();
+            readReplicaMap.clear();
             
             bAllResourcesReleased = true;
         }
         catch(Exception ex) {
             throw new TransactionException("eroror in releaseResources()", ex);
         }
+        finally {
+            runCompletionTasks();
+        }
+    }
+    
+    /**
+     * Registers a task to be run once after this transaction is committed 
+     * or rolled back. A task registered with the same key as a pending 
+     * task replaces it.
+     * 
+     * @param key   key of the task
+     * @param task  the task
+     */
+    public void registerCompletionTask(String key, Runnable task) {
+        completionTasks.put(key, task);
+    }
+    
+    /**
+     * Checks if a completion task is registered with a key.
+     * 
+     * @param key   key of the task
+     * @return true if there is a pending task of the key
+     */
+    public boolean hasCompletionTask(String key) {
+        return completionTasks.containsKey(key);
+    }
+    
+    /**
+     * Runs and removes all registered completion tasks. Failure of a task 
+     * is logged and does not stop the other tasks.
+     */
+    public void runCompletionTasks() {
+        if (completionTasks.size() == 0) return;
+        
+        List tasks = new ArrayList(completionTasks.values());
+        completionTasks.clear();
+        
+        Iterator it = tasks.iterator();
+        while(it.hasNext()) {
+            Runnable task = (Runnable)it.next();
+            try {
+                task.run();
+            }
+            catch(Exception ex) {
+                log.error("Failed to run transaction completion task: " + ex.getMessage());
+            }
+        }
     }
     
     /**
@@ -148,12 +199,33 @@ abstract public class AbstractTransactionImpl implements Transaction {
     }
     
     /**
-     * Return a connection to the database
+     * Checks if the primary connection of this transaction has been used 
+     * by anything other than a read marked by ReadReplicaRouter. Such use 
+     * is counted as a write, as the statements are not known here.
+     */
+    public boolean hasWritten() {
+        return bHasWritten;
+    }
+    
+    /**
+     * Return a connection to the database. 
+     * 
+     * <p>A read marked by ReadReplicaRouter gets a connection to a read 
+     * replica of the named connection if there is one and this transaction 
+     * has not written yet. All reads of the transaction use the same 
+     * replica. Otherwise the named connection is returned.</p>
      *
      * @param connectionName     name of a connection
      * @return UserDatabaseConnection
      */
     public UserDatabaseConnection getConnection(String connectionName) {
+        boolean reading = ReadReplicaRouter.isReading();
+        if (reading && !bHasWritten) {
+            UserDatabaseConnection replica = getReadReplicaConnection(connectionName);
+            if (replica != null) return replica;
+        }
+        if (!reading) bHasWritten = true;
+        
         UserDatabaseConnection udc = getCachedUserDatabaseConnection(connectionName);
         
         //create a new UserDatabaseConnection
@@ -165,6 +237,32 @@ abstract public class AbstractTransactionImpl implements Transaction {
         return udc;
     }
     
+    private UserDatabaseConnection getReadReplicaConnection(String connectionName) {
+        String replicaName = (String)readReplicaMap.get(connectionName);
+        if (replicaName != null) return getCachedUserDatabaseConnection(replicaName);
+        
+        List replicaNames = DatabaseConfig.getInstance().getReadReplicaNames(connectionName);
+        if (replicaNames.size() == 0) return null;
+        
+        replicaName = ReadReplicaRouter.selectReplica(connectionName, replicaNames);
+        if (replicaName == null) return null;
+        
+        UserDatabaseConnection udc = getCachedUserDatabaseConnection(replicaName);
+        if (udc == null) {
+            try {
+                udc = UserDatabaseConnectionFactory.getInstance().createUserDatabaseConnection(replicaName);
+            }
+            catch(RuntimeException ex) {
+                log.error("Failed to connect to read replica " + replicaName + ": " + ex.getMessage());
+                ReadReplicaRouter.markFailed(replicaName);
+                return null;
+            }
+            registerResource(replicaName, udc);
+        }
+        readReplicaMap.put(connectionName, replicaName);
+        return udc;
+    }
+    
     /**
      * Return a connection based on connection context
      *
@@ -174,6 +272,8 @@ abstract public class AbstractTransactionImpl implements Transaction {
     public UserDatabaseConnection getConnection(DatabaseConnectionContext dcc) {
         if (dcc == null) throw new IllegalArgumentException("Input DatabaseConnectionContext instance is null.");
         
+        if (!ReadReplicaRouter.isReading()) bHasWritten = true;
+        
         String connectionName = dcc.getConnectionName();
         UserDatabaseConnection udc = getCachedUserDatabaseConnection(connectionName);
         
@@ -186,10 +286,19 @@ abstract public class AbstractTransactionImpl implements Transaction {
         return udc;
     }
 
+    private LogUtil log = LogUtil.getLogger(this.getClass().getName());
+    
     protected HashMap nameConnMap = new HashMap();
     protected List connList = new ArrayList();
     protected String transactionType = null;
     protected boolean bTransactionHasStarted = false;
     protected boolean bTransactionHasEnded = false;
     protected boolean bAllResourcesReleased = false;
+    protected boolean bHasWritten = false;
+    
+    //key is connection name, value is name of the replica used for reads
+    protected HashMap readReplicaMap = new HashMap();
+    
+    //key is task key, value is Runnable to run after commit or rollback
+    protected LinkedHashMap completionTasks = new LinkedHashMap();
 }
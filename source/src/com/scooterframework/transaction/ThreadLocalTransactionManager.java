@@ -54,7 +54,10 @@ implements TransactionStarterType, TransactionManager, ImplicitTransactionManage
      */
     public void commitTransaction() {
         Transaction tx = getTransaction();
-        if (tx != null) tx.commit();
+        if (tx != null) {
+            tx.commit();
+            runCompletionTasks(tx);
+        }
     }
     
     /**
@@ -62,7 +65,10 @@ implements TransactionStarterType, TransactionManager, ImplicitTransactionManage
      */
     public void rollbackTransaction() {
         Transaction tx = getTransaction();
-        if (tx != null) tx.rollback();
+        if (tx != null) {
+            tx.rollback();
+            runCompletionTasks(tx);
+        }
     }
     
     /**
@@ -77,6 +83,12 @@ implements TransactionStarterType, TransactionManager, ImplicitTransactionManage
         }
     }
     
+    private void runCompletionTasks(Transaction tx) {
+        if (tx instanceof AbstractTransactionImpl) {
+            ((AbstractTransactionImpl)tx).runCompletionTasks();
+        }
+    }
+    
     /**
      * Returns a Transaction instance associated with current thread.
      * 
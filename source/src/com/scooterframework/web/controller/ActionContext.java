@@ -231,7 +231,9 @@ public abstract class ActionContext {
      * @return Object
      */
     public Object getFromParameterDataIgnoreCase(String key) {
-        Object tmp = null;
+        Object tmp = getFromParameterData(key);
+        if (tmp != null || key == null) return tmp;
+        
         Map m = getParameterDataAsMap();
         if (m == null) return null;
         
@@ -239,7 +241,7 @@ public abstract class ActionContext {
         while(it.hasNext()) {
             String name = (String)it.next();
             if (name.equalsIgnoreCase(key)) {
-                tmp = m.get(key);
+                tmp = m.get(name);
                 break;
             }
         }
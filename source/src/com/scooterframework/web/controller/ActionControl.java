@@ -16,6 +16,7 @@ import java.util.Map;
 
 import com.scooterframework.admin.Constants;
 import com.scooterframework.admin.EnvConfig;
+import com.scooterframework.common.instrument.RequestTrace;
 import com.scooterframework.common.util.Converters;
 import com.scooterframework.common.util.CurrentThreadCache;
 import com.scooterframework.common.util.ExpandedMessage;
@@ -616,11 +617,14 @@ public class ActionControl {
         String ret = null;
         List filters = getFiltersForAction(action, type);
         if (filters != null) {
+            long start = System.currentTimeMillis();
             Iterator it = filters.iterator();
             while(it.hasNext() && (ret == null)) {
                 ActionControlFilter af = (ActionControlFilter)it.next();
                 ret = af.execute();
             }
+            RequestTrace.phaseEnded((FILTER_TYPE_BEFORE.equals(type))?
+                    RequestTrace.PHASE_BEFORE_FILTERS:RequestTrace.PHASE_AFTER_FILTERS, start);
         }
         return ret;
     }
@@ -24,6 +24,7 @@ import com.scooterframework.admin.Constants;
 import com.scooterframework.admin.EnvConfig;
 import com.scooterframework.common.exception.ExecutionException;
 import com.scooterframework.common.exception.MethodCreationException;
+import com.scooterframework.common.instrument.RequestTrace;
 import com.scooterframework.common.logging.LogUtil;
 import com.scooterframework.common.util.BeanUtil;
 import com.scooterframework.common.util.CurrentThreadCache;
@@ -79,10 +80,10 @@ public class BaseRequestProcessor {
             	String result = null;
                 ActionProperties aps = prepareActionProperties(requestPath, request);
                 registerActionProperties(request, aps);
-                log.debug("aps: " + aps);
+                log.debug("aps: {}", aps);
                 
                 result = executeRequest(aps, request, response);
-                log.debug("execution result: " + result);
+                log.debug("execution result: {}", result);
                 
                 if (result != null) {
                     processNotNullResult(request, response, result);
@@ -110,6 +111,9 @@ public class BaseRequestProcessor {
                 HttpServletRequest request, HttpServletResponse response)
     throws IOException, ServletException
     {
+        RequestTrace trace = RequestTrace.current();
+        if (trace != null) trace.setAction(aps.controller, aps.action);
+        
         Object controllerInstance = getControllerInstance(aps.controllerClassName);
         if (controllerInstance == null) {
             if (EnvConfig.getInstance().allowForwardToControllerNameViewWhenControllerNotExist()) {
@@ -263,7 +267,7 @@ public class BaseRequestProcessor {
 			}
 		}
 		
-		log.debug("User locale is '" + locale + "'.");
+		log.debug("User locale is '{}'.", locale);
 	}
     
     /**
@@ -337,7 +341,13 @@ public class BaseRequestProcessor {
             }
             
             if (beforeIsSuccess) {
-                result = (String)method.invoke(controller, (Object[])null);
+                long start = System.currentTimeMillis();
+                try {
+                    result = (String)method.invoke(controller, (Object[])null);
+                }
+                finally {
+                    RequestTrace.phaseEnded(RequestTrace.PHASE_ACTION, start);
+                }
             }
             
             if (beforeIsSuccess && ActionControl.class.isInstance(controller)) {
@@ -672,7 +682,7 @@ public class BaseRequestProcessor {
         HttpServletRequest request,
         HttpServletResponse response)
         throws IOException, ServletException {
-        log.debug("doForward: " + uri);
+        log.debug("doForward: {}", uri);
         if (uri != null && !uri.startsWith("/")) uri = "/" + uri;
         RequestDispatcher rd = getServletContext().getRequestDispatcher(uri);
         
@@ -681,7 +691,14 @@ public class BaseRequestProcessor {
             log.error("Unable to locate \"" + uri + "\", forward to " + uri);
             rd = getServletContext().getRequestDispatcher(uri);
         }
-        rd.forward(request, response);
+        
+        long start = System.currentTimeMillis();
+        try {
+            rd.forward(request, response);
+        }
+        finally {
+            RequestTrace.phaseEnded(RequestTrace.PHASE_VIEW, start);
+        }
     }
     
     /**
@@ -705,7 +722,7 @@ public class BaseRequestProcessor {
 
                     tmp += values[length-1];
                     
-                    log.debug("name=["+key+"] values=["+tmp+"]");
+                    log.debug("name=[{}] values=[{}]", key, tmp);
                 }
             }
         }
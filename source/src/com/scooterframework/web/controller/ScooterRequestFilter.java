@@ -23,6 +23,7 @@ import javax.servlet.http.HttpServletResponseWrapper;
 
 import com.scooterframework.admin.Constants;
 import com.scooterframework.admin.EnvConfig;
+import com.scooterframework.common.instrument.RequestTrace;
 import com.scooterframework.common.logging.LogUtil;
 import com.scooterframework.common.util.CurrentThreadCache;
 
@@ -121,14 +122,20 @@ public class ScooterRequestFilter implements Filter {
         
         if (!skip) {
             initializeActionContext((HttpServletRequest)request, (HttpServletResponse)response);
+            RequestTrace.begin(requestPath);
         }
         else {
             request.setAttribute(Constants.SKIP_PATH, "Y");
         }
         
-        log.debug("============>>\"" + requestPath + "\"");
+        log.debug("============>>\"{}\"", requestPath);
         
-        chain.doFilter(request, response);
+        try {
+            chain.doFilter(request, response);
+        }
+        finally {
+            RequestTrace.end();
+        }
         
         long after = System.currentTimeMillis();
         
@@ -216,7 +223,7 @@ public class ScooterRequestFilter implements Filter {
             status = true;
         }
         
-        log.debug("skip = " + status + " for " + servletPathInfo);
+        if (log.isDebugEnabled()) log.debug("skip = " + status + " for " + servletPathInfo);
         return status;
     }
     
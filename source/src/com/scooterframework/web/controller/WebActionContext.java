@@ -23,6 +23,13 @@ import com.scooterframework.common.exception.GenericException;
  * WebActionContext class holds context data for current web request.
  * </p>
  * 
+ * <p>
+ * A single parameter is read directly from the servlet request. Parameter 
+ * data of the request are collected into a map only when all of them or a 
+ * case-insensitive lookup is asked for, and the map is kept until the 
+ * servlet request is changed.
+ * </p>
+ * 
  * @author (Fei) John Chen
  */
 public class WebActionContext extends ActionContext {
@@ -37,6 +44,7 @@ public class WebActionContext extends ActionContext {
                                   HttpServletResponse servletResponse) {
         this.servletRequest = servletRequest;
         this.servletResponse = servletResponse;
+        resetParameterData();
         resetFlashMessage();
     }
     
@@ -46,6 +54,7 @@ public class WebActionContext extends ActionContext {
      */
     public void setHttpServletRequest(HttpServletRequest request) {
         this.servletRequest = request;
+        resetParameterData();
     }
     
     /**
@@ -85,23 +94,7 @@ public class WebActionContext extends ActionContext {
      * @return Map
      */
     public Map getParameterDataAsMap() {
-        Map hm = new HashMap();
-        
-        Enumeration en = getHttpServletRequest().getParameterNames();
-        while(en.hasMoreElements()) {
-            String name = (String)en.nextElement();
-            String[] valueAry = getHttpServletRequest().getParameterValues(name);
-            if (valueAry != null) {
-                if (valueAry.length == 1) {
-                    hm.put(name, valueAry[0]);
-                }
-                else {
-                    hm.put(name, valueAry);
-                }
-            }
-        }
-        
-        return hm;
+        return new HashMap(getParameterData());
     }
     
     /**
@@ -176,7 +169,24 @@ public class WebActionContext extends ActionContext {
      * @return Object
      */
     public Object getFromParameterData(String key) {
-        return getParameterDataAsMap().get(key);
+        if (key == null) return null;
+        return toParameterValue(getHttpServletRequest().getParameterValues(key));
+    }
+    
+    /**
+     * Gets data represented by the key from the parameter scope. Ignore the 
+     * case of the key string.
+     * 
+     * @param key
+     * @return Object
+     */
+    public Object getFromParameterDataIgnoreCase(String key) {
+        Object o = getFromParameterData(key);
+        if (o != null || key == null) return o;
+        
+        Map data = getParameterData();
+        String name = (String)parameterNames.get(key.toLowerCase());
+        return (name != null)?data.get(name):null;
     }
     
     /**
@@ -305,8 +315,53 @@ public class WebActionContext extends ActionContext {
         namedCycles.put(name, cycle);
     }
     
+    //collects parameter data of the current servlet request
+    private Map getParameterData() {
+        HttpServletRequest request = getHttpServletRequest();
+        if (parameterData != null && parameterDataRequest == request) return parameterData;
+        
+        Map data = new HashMap();
+        Map names = new HashMap();
+        Enumeration en = request.getParameterNames();
+        while(en.hasMoreElements()) {
+            String name = (String)en.nextElement();
+            Object value = toParameterValue(request.getParameterValues(name));
+            if (value != null) {
+                data.put(name, value);
+                String lowerCaseName = name.toLowerCase();
+                if (!names.containsKey(lowerCaseName)) names.put(lowerCaseName, name);
+            }
+        }
+        
+        parameterData = data;
+        parameterNames = names;
+        parameterDataRequest = request;
+        return data;
+    }
+    
+    private void resetParameterData() {
+        parameterData = null;
+        parameterNames = null;
+        parameterDataRequest = null;
+    }
+    
+    //a single value is returned as a string, more values as a string array
+    private static Object toParameterValue(String[] valueAry) {
+        if (valueAry == null) return null;
+        return (valueAry.length == 1)?valueAry[0]:valueAry;
+    }
+    
     private Map namedCycles = new HashMap();
     
+    //key is parameter name, value is a string or a string array
+    private Map parameterData;
+    
+    //key is lower case parameter name, value is parameter name
+    private Map parameterNames;
+    
+    //the servlet request from which parameter data are collected
+    private HttpServletRequest parameterDataRequest;
+    
     protected HttpServletRequest servletRequest;
     protected HttpServletResponse servletResponse;
 }
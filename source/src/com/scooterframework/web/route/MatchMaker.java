@@ -8,12 +8,16 @@
 package com.scooterframework.web.route;
 
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import com.scooterframework.common.instrument.RequestTrace;
+import com.scooterframework.common.util.LRUCache;
+
 /**
  * MatchMaker class
  * 
@@ -30,10 +34,21 @@ public class MatchMaker {
 	private static List regularRoutes = new ArrayList();
 	private static List restRoutes = new ArrayList();
 	
-	private Map requestRouteMap = new HashMap();
-    private Map resourceMap = new HashMap();
+	/**
+	 * Default maximum number of cached request keys
+	 */
+	public static final int DEFAULT_MAX_CACHED_REQUESTS = 1000;
+	
+	private volatile LRUCache requestRouteMap = new LRUCache(DEFAULT_MAX_CACHED_REQUESTS);
+    private Map resourceMap = Collections.synchronizedMap(new HashMap());
     
     private static List allRoutes = new ArrayList();
+    
+    /**
+     * Compiled index of <tt>allRoutes</tt>. It is reset whenever the route 
+     * list is changed and is rebuilt on the next match.
+     */
+    private volatile RouteIndex routeIndex;
 	
 	private MatchMaker() {
 	}
@@ -74,6 +89,7 @@ public class MatchMaker {
 	public void setRootRoute(RootRoute route) {
 		rootRoute = route;
         allRoutes.add(route);
+        routeIndex = null;
 	}
     
     public DefaultRoute getDefaultRoute(String routeName) {
@@ -83,11 +99,13 @@ public class MatchMaker {
 	public void addDefaultRoute(DefaultRoute route) {
 		defaultRoutes.add(route);
         allRoutes.add(route);
+        routeIndex = null;
 	}
 	
 	public void addDefaultRoutes(List routes) {
 		defaultRoutes.addAll(routes);
         allRoutes.addAll(routes);
+        routeIndex = null;
 	}
     
     public NamedRoute getNamedRoute(String routeName) {
@@ -97,11 +115,13 @@ public class MatchMaker {
 	public void addNamedRoute(NamedRoute route) {
 		namedRoutes.add(route);
         allRoutes.add(route);
+        routeIndex = null;
 	}
 	
 	public void addNamedRoutes(List routes) {
 		namedRoutes.addAll(routes);
         allRoutes.addAll(routes);
+        routeIndex = null;
 	}
     
     public RegularRoute getRegularRoute(String routeName) {
@@ -111,11 +131,13 @@ public class MatchMaker {
 	public void addRegularRoute(RegularRoute route) {
 		regularRoutes.add(route);
         allRoutes.add(route);
+        routeIndex = null;
 	}
 	
 	public void addRegularRoutes(List routes) {
 		regularRoutes.addAll(routes);
         allRoutes.addAll(routes);
+        routeIndex = null;
 	}
     
     public RestRoute getRestRoute(String routeName) {
@@ -125,11 +147,13 @@ public class MatchMaker {
 	public void addRestRoute(RestRoute route) {
 		restRoutes.add(route);
         allRoutes.add(route);
+        routeIndex = null;
 	}
 	
 	public void addRestRoutes(List routes) {
 		restRoutes.addAll(routes);
         allRoutes.addAll(routes);
+        routeIndex = null;
 	}
     
     public Map getResourceMap() {
@@ -163,12 +187,14 @@ public class MatchMaker {
      */
     public Resource getResourceForModel(String model) {
         Resource resource = null;
-        Iterator it = resourceMap.keySet().iterator();
-        while(it.hasNext()) {
-            Resource res = (Resource)resourceMap.get(it.next());
-            if (model.equals(res.getModel())) {
-                resource = res;
-                break;
+        synchronized(resourceMap) {
+            Iterator it = resourceMap.keySet().iterator();
+            while(it.hasNext()) {
+                Resource res = (Resource)resourceMap.get(it.next());
+                if (model.equals(res.getModel())) {
+                    resource = res;
+                    break;
+                }
             }
         }
         return resource;
@@ -189,27 +215,69 @@ public class MatchMaker {
 		
 		requestRouteMap.clear();
         resourceMap.clear();
+        routeIndex = null;
 	}
+    
+    /**
+     * Returns the cache of request key to route info. 
+     */
+    public LRUCache getRequestRouteCache() {
+        return requestRouteMap;
+    }
+    
+    /**
+     * Sets maximum number of request keys whose route info are cached. The 
+     * existing cache is discarded. 
+     * 
+     * @param maxCachedRequests  maximum number of cached request keys
+     */
+    public void setMaxCachedRequests(int maxCachedRequests) {
+        requestRouteMap = new LRUCache(maxCachedRequests);
+    }
+    
+    /**
+     * Rebuilds the compiled route index from the current route list. 
+     */
+    public synchronized void rebuildRouteIndex() {
+        routeIndex = new RouteIndex(allRoutes);
+    }
+    
+    private RouteIndex getRouteIndex() {
+        RouteIndex index = routeIndex;
+        if (index == null) {
+            synchronized(this) {
+                if (routeIndex == null) rebuildRouteIndex();
+                index = routeIndex;
+            }
+        }
+        return index;
+    }
 	
 	public RouteInfo match(RequestInfo requestInfo) {
+        long start = System.currentTimeMillis();
+        try {
+            return findRouteInfo(requestInfo);
+        }
+        finally {
+            RequestTrace.phaseEnded(RequestTrace.PHASE_ROUTE, start);
+        }
+	}
+	
+	private RouteInfo findRouteInfo(RequestInfo requestInfo) {
         if ("/".equals(requestInfo.getRequestPath())) return null;
         
 		String requestKey = requestInfo.getRequestKey();
-		RouteInfo routeInfo = (RouteInfo)requestRouteMap.get(requestKey);
+		LRUCache requestCache = requestRouteMap;
+		RouteInfo routeInfo = (RouteInfo)requestCache.get(requestKey);
 		if (routeInfo != null) {
 			return routeInfo;
 		}
 		
 		Route route = null;
-        int index = -1;
-        int size = allRoutes.size();
-        for (int i = 0; i < size; i++) {
-            index = i;
-            Route r = (Route)allRoutes.get(i);
-			if (r.isRouteFor(requestInfo)) {
-				route = r;
-				break;
-			}
+        RouteIndex ri = getRouteIndex();
+        int index = ri.findRoutePosition(requestInfo);
+        if (index != -1) {
+            route = ri.getRoute(index);
         }
         
         boolean autoRestified = RouteConfig.getInstance().allowAutoREST();
@@ -217,15 +285,14 @@ public class MatchMaker {
             if (autoRestified) {
                 String name = requestInfo.getAutoResourceName();
                 
-                if (!isAddedResource(name)) {
-                    Resource resource = new Resource(name, Resource.PLURAL, new Properties(), false, true);
-                    
-                    //make sure the default routes are the last
-                    allRoutes.removeAll(defaultRoutes);
-                    addRestRoutes(resource.getRoutes());
-                    allRoutes.addAll(defaultRoutes);
-                    addResource(name, resource);
-                    return match(requestInfo);
+                //the resource may have been added by another thread after 
+                //the index was read, so match again with the current index
+                if (isAddedResource(name) || addAutoResource(name)) {
+                    ri = getRouteIndex();
+                    index = ri.findRoutePosition(requestInfo);
+                    if (index != -1) {
+                        route = ri.getRoute(index);
+                    }
                 }
             }
         }
@@ -237,11 +304,31 @@ public class MatchMaker {
 		routeInfo = route.getRouteInfo(requestInfo);
         routeInfo.setIndex(index);
 		
-		requestRouteMap.put(requestKey, routeInfo);
+		requestCache.put(requestKey, routeInfo);
 		
 		return routeInfo;
 	}
     
+    /**
+     * Adds a resource automatically generated for an unknown resource name. 
+     * Concurrent first requests for the same name only add the resource once.
+     * 
+     * @param name  resource name
+     * @return true if the resource is added by this call.
+     */
+    private synchronized boolean addAutoResource(String name) {
+        if (isAddedResource(name)) return true;
+        
+        Resource resource = new Resource(name, Resource.PLURAL, new Properties(), false, true);
+        
+        //make sure the default routes are the last
+        allRoutes.removeAll(defaultRoutes);
+        addRestRoutes(resource.getRoutes());
+        allRoutes.addAll(defaultRoutes);
+        addResource(name, resource);
+        return true;
+    }
+    
     private Route getRouteFromList(String routeName, List routes) {
         if (routeName == null || routes == null || routes.size() == 0) return null;
         
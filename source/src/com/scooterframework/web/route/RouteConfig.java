@@ -43,6 +43,7 @@ public class RouteConfig implements Observer {
     public static final String DATA_PROPERTIES_FILE = "routes.properties";
     
     public static final String DEFAULT_VALUE_autoRest = "false";
+    public static final String DEFAULT_VALUE_route_cache_size = "" + MatchMaker.DEFAULT_MAX_CACHED_REQUESTS;
     public static final String DEFAULT_VALUE_supported_request_format = "html, txt, xml";
     
     private static RouteConfig me;
@@ -92,6 +93,7 @@ public class RouteConfig implements Observer {
     
     private void loadRoutes() {
         MatchMaker.getInstance().clear();
+        MatchMaker.getInstance().setMaxCachedRequests(getRouteCacheSize());
         String nameValueSpliter = RouteConstants.PROPERTY_SYMBOL_NAMEVALUESPLITER;
         String propertyDelimiter = RouteConstants.PROPERTY_SYMBOL_PROPERTYDELIMITER;
         
@@ -196,6 +198,8 @@ public class RouteConfig implements Observer {
             }
         }
         
+        MatchMaker.getInstance().rebuildRouteIndex();
+        
         log.info("total routes = " + MatchMaker.getInstance().countRoutes());
     }
 
@@ -247,6 +251,28 @@ public class RouteConfig implements Observer {
         return ("true".equalsIgnoreCase(autoRest))?true:false;
     }
     
+    /**
+     * Returns maximum number of request keys whose matched routes are cached. 
+     * The default value is used if the property is not a positive number.
+     */
+    public int getRouteCacheSize() {
+        String size = getProperty("route.cache.size", DEFAULT_VALUE_route_cache_size);
+        int value = 0;
+        try {
+            value = Integer.parseInt(size.trim());
+        }
+        catch(NumberFormatException ex) {
+            value = 0;
+        }
+        
+        if (value <= 0) {
+            log.warn("Invalid route.cache.size \"" + size + "\", use default value " + 
+                     DEFAULT_VALUE_route_cache_size + ".");
+            value = MatchMaker.DEFAULT_MAX_CACHED_REQUESTS;
+        }
+        return value;
+    }
+    
     /**
      * Checks if a string is a kind of supported format.
      */
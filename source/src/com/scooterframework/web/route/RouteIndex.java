@@ -0,0 +1,324 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.web.route;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <p>RouteIndex class is a compiled lookup structure over an ordered list of
+ * routes. It is used by {@link MatchMaker} to find the first route for a
+ * request without calling <tt>isRouteFor</tt> on every route.</p>
+ *
+ * <p>Routes are grouped by HTTP method. Within each method, regular, rest
+ * and default routes are stored in a segment trie keyed by the number of
+ * path segments and then by each static segment, while <tt>$</tt>-prefixed
+ * segments go to a wildcard slot. Named routes are keyed by their full
+ * path. A lookup only collects candidate routes from these structures; each
+ * candidate is still confirmed by its own <tt>isRouteFor</tt> method in the
+ * declared route order, so the result is always the same as a linear scan
+ * of the route list.</p>
+ *
+ * <p>An index is immutable once created. When routes change, a new index
+ * is created from the new route list.</p>
+ *
+ * @author (Fei) John Chen
+ */
+public class RouteIndex {
+	private static final String[] INDEXED_METHODS = {
+		RouteConstants.ROUTE_HTTP_METHOD_GET,
+		RouteConstants.ROUTE_HTTP_METHOD_POST,
+		RouteConstants.ROUTE_HTTP_METHOD_PUT,
+		RouteConstants.ROUTE_HTTP_METHOD_DELETE,
+		RouteConstants.ROUTE_HTTP_METHOD_HEAD
+	};
+
+	private static final int[] NO_ROUTES = new int[0];
+
+	private Route[] routes;
+
+	/**
+	 * HTTP method to MethodIndex map
+	 */
+	private Map methodIndexes = new HashMap();
+
+	/**
+	 * Positions of routes which cannot be indexed and are always checked
+	 */
+	private int[] unindexedRoutes;
+
+	public RouteIndex(List allRoutes) {
+		int total = (allRoutes != null)?allRoutes.size():0;
+		routes = new Route[total];
+		if (total > 0) allRoutes.toArray(routes);
+
+		List unindexed = new ArrayList();
+		for (int i = 0; i < total; i++) {
+			if (!isIndexable(routes[i])) unindexed.add(new Integer(i));
+		}
+		unindexedRoutes = toIntArray(unindexed);
+
+		for (int i = 0; i < INDEXED_METHODS.length; i++) {
+			String method = INDEXED_METHODS[i];
+			methodIndexes.put(method, new MethodIndex(method));
+		}
+	}
+
+	/**
+	 * Returns total number of routes in the index.
+	 */
+	public int countRoutes() {
+		return routes.length;
+	}
+
+	/**
+	 * Returns the route at a position in the route list.
+	 *
+	 * @param position  position of the route in the route list
+	 * @return route
+	 */
+	public Route getRoute(int position) {
+		return routes[position];
+	}
+
+	/**
+	 * Returns position of the first route that can handle the request, or
+	 * <tt>-1</tt> if there is no such route.
+	 *
+	 * @param requestInfo  the request
+	 * @return position of the route in the route list
+	 */
+	public int findRoutePosition(RequestInfo requestInfo) {
+		MethodIndex mi = (MethodIndex)methodIndexes.get(requestInfo.getRequestHttpMethod().toUpperCase());
+		if (mi == null) return scan(requestInfo);
+
+		int[] candidates = mi.getCandidates(requestInfo);
+		int length = candidates.length;
+		for (int i = 0; i < length; i++) {
+			int position = candidates[i];
+			if (routes[position].isRouteFor(requestInfo)) return position;
+		}
+		return -1;
+	}
+
+	/**
+	 * Checks every route in order. This is used for HTTP methods that are not
+	 * indexed.
+	 */
+	private int scan(RequestInfo requestInfo) {
+		int total = routes.length;
+		for (int i = 0; i < total; i++) {
+			if (routes[i].isRouteFor(requestInfo)) return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Only route types whose <tt>isRouteFor</tt> logic is known are indexed.
+	 */
+	private static boolean isIndexable(Route route) {
+		if (route instanceof RootRoute) return false;
+		return (route instanceof RegularRoute);
+	}
+
+	/**
+	 * Folds a path segment so that two segments are equal after folding if
+	 * and only if they are equal by <tt>String.equalsIgnoreCase</tt>.
+	 */
+	static String fold(String segment) {
+		int length = segment.length();
+		char[] chars = new char[length];
+		for (int i = 0; i < length; i++) {
+			chars[i] = Character.toLowerCase(Character.toUpperCase(segment.charAt(i)));
+		}
+		return new String(chars);
+	}
+
+	private static int[] toIntArray(List positions) {
+		int size = positions.size();
+		if (size == 0) return NO_ROUTES;
+
+		int[] result = new int[size];
+		for (int i = 0; i < size; i++) {
+			result[i] = ((Integer)positions.get(i)).intValue();
+		}
+		return result;
+	}
+
+	/**
+	 * Index of all routes allowed for one HTTP method.
+	 */
+	private class MethodIndex {
+		/**
+		 * Segment count to root node map
+		 */
+		private Map segmentTries = new HashMap();
+
+		/**
+		 * Request path to named route positions map
+		 */
+		private Map namedRoutes = new HashMap();
+
+		MethodIndex(String method) {
+			Map namedRouteLists = new HashMap();
+			int total = routes.length;
+			for (int i = 0; i < total; i++) {
+				Route route = routes[i];
+				if (!isIndexable(route) || !route.isAllowedMethod(method)) continue;
+
+				if (route instanceof NamedRoute) {
+					String path = route.getScreenURLPattern();
+					if (!path.startsWith("/")) path = "/" + path;
+					List positions = (List)namedRouteLists.get(path);
+					if (positions == null) {
+						positions = new ArrayList();
+						namedRouteLists.put(path, positions);
+					}
+					positions.add(new Integer(i));
+				}
+				else {
+					addToTrie(route, i);
+				}
+			}
+
+			Iterator it = namedRouteLists.keySet().iterator();
+			while(it.hasNext()) {
+				String path = (String)it.next();
+				namedRoutes.put(path, toIntArray((List)namedRouteLists.get(path)));
+			}
+
+			it = segmentTries.values().iterator();
+			while(it.hasNext()) {
+				((Node)it.next()).freeze();
+			}
+		}
+
+		private void addToTrie(Route route, int position) {
+			Integer count = new Integer(route.segmentCount());
+			Node node = (Node)segmentTries.get(count);
+			if (node == null) {
+				node = new Node();
+				segmentTries.put(count, node);
+			}
+
+			String[] segments = route.getPathSegments();
+			int segmentCount = route.segmentCount();
+			for (int i = 0; i < segmentCount; i++) {
+				node = node.addChild(segments[i]);
+			}
+			node.positionList.add(new Integer(position));
+		}
+
+		/**
+		 * Returns positions of candidate routes in ascending order.
+		 */
+		int[] getCandidates(RequestInfo requestInfo) {
+			int[] named = (int[])namedRoutes.get(requestInfo.getRequestPath());
+			Node root = (Node)segmentTries.get(new Integer(requestInfo.segmentCount()));
+			if (named == null && root == null) return unindexedRoutes;
+
+			Candidates candidates = new Candidates();
+			candidates.addAll(unindexedRoutes);
+			if (named != null) candidates.addAll(named);
+			if (root != null) {
+				String[] segments = requestInfo.getPathSegments();
+				int segmentCount = requestInfo.segmentCount();
+				String[] folded = new String[segmentCount];
+				for (int i = 0; i < segmentCount; i++) {
+					folded[i] = fold(segments[i]);
+				}
+				root.collect(folded, 0, candidates);
+			}
+			return candidates.toSortedArray();
+		}
+	}
+
+	/**
+	 * A node in a segment trie.
+	 */
+	private static class Node {
+		private Map children;
+		private Node wildcard;
+		private List positionList = new ArrayList();
+		private int[] positions = NO_ROUTES;
+
+		Node addChild(String segment) {
+			if (segment.startsWith("$")) {
+				if (wildcard == null) wildcard = new Node();
+				return wildcard;
+			}
+
+			if (children == null) children = new HashMap();
+			String key = fold(segment);
+			Node child = (Node)children.get(key);
+			if (child == null) {
+				child = new Node();
+				children.put(key, child);
+			}
+			return child;
+		}
+
+		void freeze() {
+			positions = toIntArray(positionList);
+			positionList = null;
+
+			if (children != null) {
+				Iterator it = children.values().iterator();
+				while(it.hasNext()) {
+					((Node)it.next()).freeze();
+				}
+			}
+			if (wildcard != null) wildcard.freeze();
+		}
+
+		void collect(String[] segments, int depth, Candidates candidates) {
+			if (depth == segments.length) {
+				candidates.addAll(positions);
+				return;
+			}
+
+			if (children != null) {
+				Node child = (Node)children.get(segments[depth]);
+				if (child != null) child.collect(segments, depth + 1, candidates);
+			}
+			if (wildcard != null) wildcard.collect(segments, depth + 1, candidates);
+		}
+	}
+
+	/**
+	 * A growable list of route positions.
+	 */
+	private static class Candidates {
+		private int[] items = new int[8];
+		private int size = 0;
+
+		void addAll(int[] positions) {
+			int length = positions.length;
+			if (length == 0) return;
+
+			if (size + length > items.length) {
+				int[] tmp = new int[Math.max(items.length * 2, size + length)];
+				System.arraycopy(items, 0, tmp, 0, size);
+				items = tmp;
+			}
+			System.arraycopy(positions, 0, items, size, length);
+			size += length;
+		}
+
+		int[] toSortedArray() {
+			int[] result = new int[size];
+			System.arraycopy(items, 0, result, 0, size);
+			Arrays.sort(result);
+			return result;
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.admin;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.scooterframework.test.ApplicationTest;
+
+/**
+ * FileChangeServiceTest class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class FileChangeServiceTest extends ApplicationTest {
+	private File dir;
+	private Recorder recorder;
+	private FileWatch watch;
+
+	protected void setUp() {
+		super.setUp();
+		dir = new File(System.getProperty("java.io.tmpdir"), "fcs" + System.currentTimeMillis());
+		dir.mkdirs();
+		new File(dir, "sub").mkdirs();
+		recorder = new Recorder();
+	}
+
+	protected void tearDown() {
+		FileChangeService.getInstance().cancel(watch);
+		delete(dir);
+	}
+
+	public void test_batchOfChanges() throws Exception {
+		watch = FileChangeService.getInstance().watch(dir, new FileFilterSameSuffix(".properties"), true, 50, recorder);
+		write(new File(dir, "a.properties"), "a=1");
+		write(new File(dir, "sub/b.properties"), "b=1");
+		write(new File(dir, "c.txt"), "c");
+
+		List batch = recorder.waitForBatch();
+		assertEquals("one batch", 1, recorder.batches.size());
+		assertEquals("two added files: " + batch, 2, batch.size());
+		assertEquals("added", FileChangeNotice.ADD_FILE, ((FileChangeNotice)batch.get(0)).getAction());
+
+		new File(dir, "a.properties").delete();
+		batch = recorder.waitForBatch();
+		assertEquals("one deleted file", 1, batch.size());
+		assertEquals("deleted", FileChangeNotice.DELETE_FILE, ((FileChangeNotice)batch.get(0)).getAction());
+	}
+
+	public void test_watchFile() throws Exception {
+		File file = new File(dir, "x.properties");
+		write(file, "x=1");
+		watch = FileChangeService.getInstance().watchFile(file, 50, recorder);
+
+		write(file, "x=2");
+		file.setLastModified(file.lastModified() + 5000);
+		List batch = recorder.waitForBatch();
+		assertEquals("one modified file", 1, batch.size());
+		assertEquals("modified", FileChangeNotice.MODIFY_FILE, ((FileChangeNotice)batch.get(0)).getAction());
+	}
+
+	public void test_cancel() {
+		int count = FileChangeService.getInstance().getWatchCount();
+		watch = FileChangeService.getInstance().watch(dir, null, false, 50, recorder);
+		assertEquals("one more watch", count + 1, FileChangeService.getInstance().getWatchCount());
+		FileChangeService.getInstance().cancel(watch);
+		assertTrue("cancelled", watch.isCancelled());
+		assertEquals("watch removed", count, FileChangeService.getInstance().getWatchCount());
+	}
+
+	public void test_deletedDirListingIsRemoved() throws Exception {
+		File sub = new File(dir, "sub");
+		write(new File(sub, "d.properties"), "d=1");
+		FileWatch fw = new FileWatch(dir, null, true, 50, recorder);
+		assertEquals("two listed dirs", 2, fw.getDirListingCount());
+
+		delete(sub);
+		fw.scan();
+		assertEquals("one listed dir", 1, fw.getDirListingCount());
+	}
+
+	private void write(File file, String content) throws IOException {
+		FileWriter writer = new FileWriter(file);
+		writer.write(content);
+		writer.close();
+	}
+
+	private void delete(File file) {
+		File[] files = file.listFiles();
+		if (files != null) {
+			for (int i = 0; i < files.length; i++) delete(files[i]);
+		}
+		file.delete();
+	}
+
+	private static class Recorder implements FileChangeListener {
+		List batches = new ArrayList();
+
+		public synchronized void onFileChanges(List notices) {
+			batches.add(notices);
+			notifyAll();
+		}
+
+		synchronized List waitForBatch() throws InterruptedException {
+			long end = System.currentTimeMillis() + 5000;
+			while (batches.size() <= taken && System.currentTimeMillis() < end) {
+				wait(100);
+			}
+			if (batches.size() <= taken) fail("no change is received.");
+			return (List)batches.get(taken++);
+		}
+
+		private int taken;
+	}
+}
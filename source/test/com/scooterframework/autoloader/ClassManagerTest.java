@@ -0,0 +1,121 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.autoloader;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import com.scooterframework.admin.ApplicationConfig;
+
+/**
+ * ClassManagerTest class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class ClassManagerTest extends TestCase {
+	private static File sourceDir;
+	private static File classDir;
+
+	//source and class locations must be set before the autoloader is loaded
+	static {
+		File dir = new File(System.getProperty("java.io.tmpdir"), "cm" + System.currentTimeMillis());
+		sourceDir = new File(dir, "src");
+		classDir = new File(dir, "classes");
+		new File(sourceDir, "cmtest").mkdirs();
+		classDir.mkdirs();
+		System.setProperty(ApplicationConfig.SYSTEM_KEY_SOURCEFILE, sourceDir.getAbsolutePath());
+		System.setProperty(ApplicationConfig.SYSTEM_KEY_CLASSFILE, classDir.getAbsolutePath());
+		ApplicationConfig.configInstanceForApp();
+
+		try {
+			writeSource("CheckedOnLoad", "v1");
+			writeSource("CheckedByMonitor", "v1");
+		}
+		catch(IOException ex) {
+			throw new RuntimeException(ex.getMessage());
+		}
+	}
+
+	protected void setUp() {
+		if (AutoLoaderConfig.getInstance().getPeriod() <= 0) {
+			fail("source_file_monitor_period must be set in autoloader.properties for this test");
+		}
+	}
+
+	protected void tearDown() {
+		AutoLoaderConfig.getInstance().setCheckSourceOnLoad(true);
+	}
+
+	public void test_reloadWhenSourceIsCheckedOnLoad() throws Exception {
+		AutoLoaderConfig.getInstance().setCheckSourceOnLoad(true);
+		String className = "cmtest.CheckedOnLoad";
+		assertEquals("first version", "v1", newInstance(className).toString());
+		assertSame("same class", loadClass(className), loadClass(className));
+
+		long compiled = changeSource("CheckedOnLoad", "v2");
+		assertTrue("recompiled", waitForCompile("CheckedOnLoad", compiled, 10000));
+		assertEquals("reloaded on load", "v2", newInstance(className).toString());
+	}
+
+	public void test_reloadWhenSourceIsCheckedByMonitor() throws Exception {
+		AutoLoaderConfig.getInstance().setCheckSourceOnLoad(false);
+		String className = "cmtest.CheckedByMonitor";
+		assertEquals("first version", "v1", newInstance(className).toString());
+		MyClassLoader loader = ClassManager.getInstance().getMyClassLoader(className);
+		assertSame("same class", loadClass(className), loadClass(className));
+
+		changeSource("CheckedByMonitor", "v2");
+		long end = System.currentTimeMillis() + 10000;
+		while (ClassManager.getInstance().getMyClassLoader(className) == loader &&
+				System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+		}
+		assertNotSame("new class loader published", loader, ClassManager.getInstance().getMyClassLoader(className));
+		assertEquals("reloaded", "v2", newInstance(className).toString());
+	}
+
+	private static Object newInstance(String className) {
+		return ClassManager.getInstance().newInstance(className);
+	}
+
+	private static Class loadClass(String className) throws ClassNotFoundException {
+		return ClassManager.getInstance().loadMyClass(className);
+	}
+
+	//returns last modified time of the class file before the change
+	private static long changeSource(String name, String version) throws Exception {
+		long compiled = classFile(name).lastModified();
+		Thread.sleep(1100);
+		writeSource(name, version);
+		return compiled;
+	}
+
+	private static void writeSource(String name, String version) throws IOException {
+		FileWriter writer = new FileWriter(new File(sourceDir, "cmtest/" + name + ".java"));
+		writer.write("package cmtest;\npublic class " + name + " {\n" +
+				"    public String toString() { return \"" + version + "\"; }\n}\n");
+		writer.close();
+	}
+
+	private static File classFile(String name) {
+		return new File(classDir, "cmtest/" + name + ".class");
+	}
+
+	private static boolean waitForCompile(String name, long previous, long timeout) throws InterruptedException {
+		File file = classFile(name);
+		long end = System.currentTimeMillis() + timeout;
+		while (file.lastModified() <= previous && System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+		}
+		return file.lastModified() > previous;
+	}
+}
@@ -0,0 +1,71 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.autoloader;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.Set;
+
+import junit.framework.TestCase;
+
+/**
+ * CompiledClassStoreTest class
+ * 
+ * @author (Fei) John Chen
+ *
+ */
+public class CompiledClassStoreTest extends TestCase {
+	private File classFile;
+
+	protected void setUp() throws Exception {
+		CompiledClassStore.clear();
+		classFile = File.createTempFile("SourceFile", ".class");
+		FileOutputStream out = new FileOutputStream(classFile);
+		out.write(readClass(SourceFile.class));
+		out.close();
+	}
+
+	protected void tearDown() {
+		CompiledClassStore.clear();
+		classFile.delete();
+	}
+
+	public void test_referencedClassNames() throws Exception {
+		Set names = CompiledClassStore.getReferencedClassNames(readClass(SourceFile.class));
+		assertTrue("java.io.File: " + names, names.contains("java.io.File"));
+		assertTrue("JavaCompiler: " + names, names.contains("com.scooterframework.autoloader.JavaCompiler"));
+	}
+
+	public void test_bytesAreKeptUntilClassFileChanges() throws Exception {
+		String className = SourceFile.class.getName();
+		byte[] bytes = CompiledClassStore.getClassBytes(className, classFile);
+		assertSame("same bytes", bytes, CompiledClassStore.getClassBytes(className, classFile));
+		assertEquals("size", 1, CompiledClassStore.size());
+
+		classFile.setLastModified(classFile.lastModified() - 10000);
+		assertNotSame("read again", bytes, CompiledClassStore.getClassBytes(className, classFile));
+	}
+
+	public void test_dependents() throws Exception {
+		CompiledClassStore.getClassBytes(SourceFile.class.getName(), classFile);
+		Set dependents = CompiledClassStore.getDependents(JavaCompiler.class.getName());
+		assertTrue("SourceFile depends on JavaCompiler", dependents.contains(SourceFile.class.getName()));
+		assertEquals("no dependents", 0, CompiledClassStore.getDependents(SourceFile.class.getName()).size());
+	}
+
+	private static byte[] readClass(Class c) throws Exception {
+		String name = "/" + c.getName().replace('.', '/') + ".class";
+		InputStream in = c.getResourceAsStream(name);
+		byte[] b = new byte[in.available()];
+		int n = 0;
+		while (n < b.length) n += in.read(b, n, b.length - n);
+		in.close();
+		return b;
+	}
+}
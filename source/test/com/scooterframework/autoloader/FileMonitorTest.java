@@ -0,0 +1,81 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.autoloader;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import junit.framework.TestCase;
+
+import com.scooterframework.admin.ApplicationConfig;
+
+/**
+ * FileMonitorTest class
+ * 
+ * @author (Fei) John Chen
+ *
+ */
+public class FileMonitorTest extends TestCase {
+	private static File sourceDir;
+	private static File classDir;
+
+	//source and class locations must be set before the autoloader is loaded
+	static {
+		File dir = new File(System.getProperty("java.io.tmpdir"), "fm" + System.currentTimeMillis());
+		sourceDir = new File(dir, "src");
+		classDir = new File(dir, "classes");
+		new File(sourceDir, "fmtest").mkdirs();
+		classDir.mkdirs();
+		System.setProperty(ApplicationConfig.SYSTEM_KEY_SOURCEFILE, sourceDir.getAbsolutePath());
+		System.setProperty(ApplicationConfig.SYSTEM_KEY_CLASSFILE, classDir.getAbsolutePath());
+		ApplicationConfig.configInstanceForApp();
+
+		try {
+			writeSource("Stale");
+		}
+		catch(IOException ex) {
+			throw new RuntimeException(ex.getMessage());
+		}
+	}
+
+	protected void setUp() {
+		if (AutoLoaderConfig.getInstance().getPeriod() <= 0) {
+			fail("source_file_monitor_period must be set in autoloader.properties for this test");
+		}
+		FileMonitor.getInstance().start();
+	}
+
+	public void test_staleSourceIsCompiledOnStart() {
+		assertTrue("Stale compiled", classFile("Stale").exists());
+	}
+
+	public void test_addedSourceIsCompiled() throws Exception {
+		writeSource("Added");
+		assertTrue("Added compiled", waitFor(classFile("Added"), 10000));
+		assertTrue("Added monitored", FileMonitor.isClassMonitored("fmtest.Added"));
+	}
+
+	private static void writeSource(String name) throws IOException {
+		FileWriter writer = new FileWriter(new File(sourceDir, "fmtest/" + name + ".java"));
+		writer.write("package fmtest;\npublic class " + name + " {\n}\n");
+		writer.close();
+	}
+
+	private static File classFile(String name) {
+		return new File(classDir, "fmtest/" + name + ".class");
+	}
+
+	private static boolean waitFor(File file, long timeout) throws InterruptedException {
+		long end = System.currentTimeMillis() + timeout;
+		while (!file.exists() && System.currentTimeMillis() < end) {
+			Thread.sleep(50);
+		}
+		return file.exists();
+	}
+}
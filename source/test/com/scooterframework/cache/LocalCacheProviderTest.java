@@ -0,0 +1,100 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.cache;
+
+import com.scooterframework.test.ApplicationTest;
+
+/**
+ * LocalCacheProviderTest class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class LocalCacheProviderTest extends ApplicationTest {
+	private LocalCacheProvider cache;
+	private LocalCacheProvider shortCache;
+
+	protected void setUp() {
+		super.setUp();
+		cache = (LocalCacheProvider)CacheProviderFactory.getInstance().getCache("scooterworks_local");
+		shortCache = (LocalCacheProvider)CacheProviderFactory.getInstance().getCache("scooterworks_local_short");
+		cache.clear();
+		shortCache.clear();
+	}
+
+	protected void tearDown() {
+		cache.clear();
+		shortCache.clear();
+	}
+
+	public void test_sameInstanceFromFactory() {
+		cache.put("k", "v");
+		Cache again = CacheProviderFactory.getInstance().getCache("scooterworks_local");
+		assertSame("same provider", cache, again);
+		assertEquals("value kept between calls", "v", again.get("k"));
+	}
+
+	public void test_putAndGet() {
+		long hits = cache.getHitCount();
+		assertNull("missing", cache.get("k"));
+		assertTrue("put", cache.put("k", "v1"));
+		assertEquals("get", "v1", cache.get("k"));
+
+		cache.put("k", "v2");
+		assertEquals("replaced", "v2", cache.get("k"));
+
+		cache.put("k", null);
+		assertNull("null value removes", cache.get("k"));
+		assertEquals("hits", hits + 2, cache.getHitCount());
+	}
+
+	public void test_removeAndClear() {
+		cache.put("a", "1");
+		cache.put("b", "2");
+		assertTrue("removed", cache.remove("a"));
+		assertFalse("already removed", cache.remove("a"));
+		assertNull("a is removed", cache.get("a"));
+		assertEquals("b is kept", "2", cache.get("b"));
+
+		cache.clear();
+		assertEquals("cleared", 0, cache.size());
+		assertNull("b is cleared", cache.get("b"));
+	}
+
+	public void test_namespacesAreSeparate() {
+		cache.put("k", "local");
+		shortCache.put("k", "short");
+		assertEquals("local", "local", cache.get("k"));
+		assertEquals("short", "short", shortCache.get("k"));
+
+		shortCache.clear();
+		assertEquals("other provider is not cleared", "local", cache.get("k"));
+	}
+
+	public void test_expiry() throws Exception {
+		shortCache.put("k", "v");
+		cache.put("k", "v");
+		assertEquals("before expiry", "v", shortCache.get("k"));
+
+		Thread.sleep(1200);
+		assertNull("expired", shortCache.get("k"));
+		assertEquals("expirations", 1, shortCache.getExpirationCount());
+		assertEquals("no expiry without expiresInSeconds", "v", cache.get("k"));
+	}
+
+	public void test_maxSize() {
+		shortCache.put("a", "1");
+		shortCache.put("b", "2");
+		shortCache.get("a");
+		shortCache.put("c", "3");
+
+		assertEquals("size", 2, shortCache.size());
+		assertNull("least recently used is evicted", shortCache.get("b"));
+		assertEquals("evictions", 1, shortCache.getEvictionCount());
+	}
+}
@@ -0,0 +1,180 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.cache;
+
+import java.util.Properties;
+
+import com.scooterframework.test.ApplicationTest;
+
+/**
+ * TwoLevelCacheProviderTest class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class TwoLevelCacheProviderTest extends ApplicationTest {
+	private CacheProvider remote;
+	private TwoLevelCacheProvider cache;
+
+	protected void setUp() {
+		super.setUp();
+		remote = (CacheProvider)CacheProviderFactory.getInstance().getCache("scooterworks_local");
+		remote.clear();
+		cache = newTwoLevelCache("1");
+	}
+
+	protected void tearDown() {
+		remote.clear();
+		cache.shutDown();
+	}
+
+	public void test_remoteObjectIsPromotedToLocal() {
+		remote.put("k", "v");
+		assertEquals("local is empty", 0, cache.localSize());
+
+		assertEquals("first read", "v", cache.get("k"));
+		assertEquals("promoted", 1, cache.localSize());
+		assertEquals("one remote fetch", 1, cache.getRemoteFetchCount());
+
+		remote.remove("k");
+		assertEquals("served from local", "v", cache.get("k"));
+		assertEquals("still one remote fetch", 1, cache.getRemoteFetchCount());
+		assertEquals("one local hit", 1, cache.getLocalHitCount());
+	}
+
+	public void test_putAndRemoveInvalidateBothLevels() {
+		cache.put("k", "v1");
+		assertEquals("written to remote", "v1", remote.get("k"));
+		assertEquals("read", "v1", cache.get("k"));
+		assertEquals("cached locally", 1, cache.localSize());
+
+		cache.put("k", "v2");
+		assertEquals("local copy dropped by put", 0, cache.localSize());
+		assertEquals("new value", "v2", cache.get("k"));
+
+		cache.remove("k");
+		assertEquals("local copy dropped by remove", 0, cache.localSize());
+		assertNull("removed from remote", remote.get("k"));
+		assertNull("removed", cache.get("k"));
+
+		cache.put("k", "v3");
+		cache.get("k");
+		cache.clear();
+		assertEquals("local cleared", 0, cache.localSize());
+		assertNull("remote cleared", remote.get("k"));
+	}
+
+	public void test_localCopyExpires() throws Exception {
+		remote.put("k", "v1");
+		assertEquals("first read", "v1", cache.get("k"));
+
+		remote.put("k", "v2");
+		assertEquals("local copy before expiry", "v1", cache.get("k"));
+
+		Thread.sleep(1200);
+		assertEquals("fetched again after expiry", "v2", cache.get("k"));
+		assertEquals("two remote fetches", 2, cache.getRemoteFetchCount());
+	}
+
+	public void test_waiterFetchesAgainAfterInvalidation() throws Exception {
+		final BlockingRemote blocking = new BlockingRemote(remote);
+		final TwoLevelCacheProvider twoLevel = new TwoLevelCacheProvider(cache.getProperties()) {
+			public CacheProvider getRemoteProvider() {
+				return blocking;
+			}
+		};
+		blocking.put("k", "v1");
+
+		Reader fetcher = new Reader(twoLevel);
+		fetcher.start();
+		blocking.awaitBlocked();
+
+		Reader waiter = new Reader(twoLevel);
+		waiter.start();
+		long end = System.currentTimeMillis() + 5000;
+		while (twoLevel.getCoalescedFetchCount() == 0 && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		assertEquals("waiter joined the fetch", 1, twoLevel.getCoalescedFetchCount());
+
+		twoLevel.put("k", "v2");
+		blocking.release();
+		fetcher.join(5000);
+		waiter.join(5000);
+
+		assertEquals("fetch started before the write", "v1", fetcher.value);
+		assertEquals("waiter fetches again", "v2", waiter.value);
+		assertEquals("old value is not kept locally", "v2", twoLevel.get("k"));
+	}
+
+	private TwoLevelCacheProvider newTwoLevelCache(String expiresInSeconds) {
+		Properties p = new Properties();
+		p.setProperty(CacheProvider.KEY_CACHE_PROVIDER_NAME, "two_level_test");
+		p.setProperty(CacheProvider.KEY_CACHE_PROVIDER_CLASS_NAME, TwoLevelCacheProvider.class.getName());
+		p.setProperty(CacheProvider.KEY_CACHE_PROVIDER_NAMESPACE, remote.getNamespace());
+		p.setProperty(CacheProvider.KEY_CACHE_PROVIDER_EXPIRESINSECONDS, expiresInSeconds);
+		p.setProperty(TwoLevelCacheProvider.KEY_CACHE_PROVIDER_REMOTEPROVIDER, "scooterworks_local");
+		return new TwoLevelCacheProvider(p);
+	}
+
+	private static class Reader extends Thread {
+		Reader(Cache cache) {
+			this.cache = cache;
+		}
+
+		public void run() {
+			value = cache.get("k");
+		}
+
+		private Cache cache;
+		volatile Object value;
+	}
+
+	/**
+	 * A remote provider whose first read waits until it is released, and
+	 * then returns the value found before it waited.
+	 */
+	private static class BlockingRemote extends LocalCacheProvider {
+		BlockingRemote(CacheProvider remote) {
+			super(remote.getProperties());
+		}
+
+		protected Object getObject(String key) {
+			Object value = super.getObject(key);
+			synchronized(this) {
+				if (!released) {
+					blocked = true;
+					notifyAll();
+					while (!released) {
+						try {
+							wait();
+						}
+						catch(InterruptedException ex) {
+							return null;
+						}
+					}
+				}
+			}
+			return value;
+		}
+
+		synchronized void awaitBlocked() throws InterruptedException {
+			long end = System.currentTimeMillis() + 5000;
+			while (!blocked && System.currentTimeMillis() < end) wait(100);
+			assertTrue("remote read is blocked", blocked);
+		}
+
+		synchronized void release() {
+			released = true;
+			notifyAll();
+		}
+
+		private boolean blocked;
+		private boolean released;
+	}
+}
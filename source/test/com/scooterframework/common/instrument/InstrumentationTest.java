@@ -0,0 +1,95 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.instrument;
+
+import java.util.Iterator;
+import java.util.List;
+
+import com.scooterframework.test.ScooterApplicationTest;
+
+/**
+ * InstrumentationTest class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class InstrumentationTest extends ScooterApplicationTest {
+
+	protected void setUp() {
+		super.setUp();
+		Instrumentation.getInstance().reset();
+		Instrumentation.setInstrumentationEnabled(true);
+	}
+
+	protected void tearDown() {
+		Instrumentation.setInstrumentationEnabled(false);
+		Instrumentation.getInstance().reset();
+	}
+
+	public void test_histogram() {
+		LatencyHistogram h = new LatencyHistogram("test");
+		for (int i = 1; i <= 100; i++) {
+			h.record(i);
+		}
+		assertEquals("count", 100, h.getCount());
+		assertEquals("max", 100, h.getMax());
+		assertEquals("mean", 50.5, h.getMean(), 0.001);
+		assertEquals("median bucket", 50, h.getPercentile(50));
+		assertEquals("p90 bucket", 100, h.getPercentile(90));
+		assertEquals("p10 bucket", 10, h.getPercentile(10));
+
+		h.reset();
+		assertEquals("count after reset", 0, h.getCount());
+		assertEquals("percentile of empty histogram", 0, h.getPercentile(50));
+	}
+
+	public void test_requestTrace() {
+		RequestTrace trace = RequestTrace.begin("GET /owners");
+		assertSame("current trace", trace, RequestTrace.current());
+		trace.setAction("owners", "index");
+		RequestTrace.phaseEnded(RequestTrace.PHASE_ACTION, System.currentTimeMillis());
+
+		ownerHome.findAll();
+		assertEquals("statements in trace", 1, trace.getStatementCount());
+		RequestTrace.StatementTiming timing = (RequestTrace.StatementTiming)trace.getStatements().get(0);
+		assertEquals("rows read", 10, timing.getRows());
+
+		assertSame("ended trace", trace, RequestTrace.end());
+		assertNull("no current trace", RequestTrace.current());
+		assertEquals("requests", 1, Instrumentation.getInstance().getRequestCount());
+		assertNotNull("action histogram", findHistogram(Instrumentation.getActionHistograms(), "owners#index"));
+		assertNotNull("phase histogram", findHistogram(Instrumentation.getPhaseHistograms(), RequestTrace.PHASE_ACTION));
+		assertEquals("recent requests", 1, Instrumentation.getRecentTraces().size());
+	}
+
+	public void test_sqlHistograms() {
+		ownerHome.findAll();
+		ownerHome.findAll();
+		assertEquals("statements", 2, Instrumentation.getInstance().getStatementCount());
+		List sqls = Instrumentation.getSqlHistograms();
+		assertEquals("one sql key", 1, sqls.size());
+		assertEquals("sql count", 2, ((LatencyHistogram)sqls.get(0)).getCount());
+		assertNull("no trace outside of request", RequestTrace.current());
+	}
+
+	public void test_disabled() {
+		Instrumentation.setInstrumentationEnabled(false);
+		assertNull("no trace when disabled", RequestTrace.begin("GET /owners"));
+		ownerHome.findAll();
+		assertEquals("no statements", 0, Instrumentation.getInstance().getStatementCount());
+	}
+
+	private LatencyHistogram findHistogram(List histograms, String name) {
+		Iterator it = histograms.iterator();
+		while(it.hasNext()) {
+			LatencyHistogram h = (LatencyHistogram)it.next();
+			if (name.equals(h.getName())) return h;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.logging;
+
+import java.io.StringWriter;
+
+import org.apache.log4j.Level;
+import org.apache.log4j.Logger;
+import org.apache.log4j.PatternLayout;
+import org.apache.log4j.WriterAppender;
+
+import com.scooterframework.test.ApplicationTest;
+
+/**
+ * TestLogUtil class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class TestLogUtil extends ApplicationTest {
+	private static final String NAME = "com.scooterframework.test.TestLogUtil";
+
+	private StringWriter writer;
+	private Logger logger;
+
+	protected void setUp() {
+		super.setUp();
+		LogUtil.enableLogger();
+		writer = new StringWriter();
+		logger = Logger.getLogger(NAME);
+		logger.removeAllAppenders();
+		logger.setAdditivity(false);
+		logger.addAppender(new WriterAppender(new PatternLayout("%p [%t] %m%n"), writer));
+	}
+
+	protected void tearDown() {
+		LogUtil.disableAsync();
+		logger.removeAllAppenders();
+	}
+
+	public void test_cachedLogger() {
+		assertSame("same logger for same name", LogUtil.getLogger(NAME), LogUtil.getLogger(NAME));
+	}
+
+	public void test_patternIsFormattedOnlyWhenEnabled() {
+		Counter counter = new Counter();
+		logger.setLevel(Level.INFO);
+		LogUtil log = LogUtil.getLogger(NAME);
+		log.debug("inputs: {}", counter);
+		assertEquals("no formatting when debug is disabled", 0, counter.count);
+		assertEquals("nothing logged", "", writer.toString());
+
+		logger.setLevel(Level.DEBUG);
+		log.debug("inputs: {} and {}", counter, "x");
+		assertEquals("formatted once", 1, counter.count);
+		assertTrue("message: " + writer, writer.toString().indexOf("inputs: counter and x") != -1);
+	}
+
+	public void test_warnWithArguments() {
+		logger.setLevel(Level.WARN);
+		LogUtil.getLogger(NAME).warn("{} of {} failed", new Object[]{new Integer(2), new Integer(3)});
+		assertTrue("message: " + writer, writer.toString().indexOf("WARN [" + Thread.currentThread().getName() + "] 2 of 3 failed") != -1);
+	}
+
+	public void test_asyncLogging() {
+		logger.setLevel(Level.DEBUG);
+		LogUtil.enableAsync(16);
+		LogUtil log = LogUtil.getLogger(NAME);
+		for (int i = 0; i < 10; i++) {
+			log.info("message {}", new Integer(i));
+		}
+		LogUtil.disableAsync();
+
+		String output = writer.toString();
+		assertTrue("first message: " + output, output.indexOf("message 0") != -1);
+		assertTrue("last message: " + output, output.indexOf("message 9") != -1);
+		assertTrue("caller thread name: " + output, output.indexOf("[" + Thread.currentThread().getName() + "]") != -1);
+	}
+
+	public void test_fullBufferDiscards() {
+		logger.setLevel(Level.DEBUG);
+		LogUtil.enableAsync(1);
+		AsyncLogDispatcher dispatcher = LogUtil.getAsyncDispatcher();
+		LogUtil log = LogUtil.getLogger(NAME);
+		for (int i = 0; i < 1000; i++) {
+			log.info("message {}", new Integer(i));
+		}
+		LogUtil.disableAsync();
+
+		assertEquals("nothing pending", 0, dispatcher.getPendingCount());
+		assertTrue("logged and discarded messages", dispatcher.getDiscardedCount() < 1000);
+	}
+
+	private static class Counter {
+		int count;
+
+		public String toString() {
+			count++;
+			return "counter";
+		}
+	}
+}
@@ -0,0 +1,74 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.common.util;
+
+import junit.framework.TestCase;
+
+/**
+ * TestLRUCache class
+ * 
+ * @author (Fei) John Chen
+ *
+ */
+public class TestLRUCache extends TestCase {
+	
+    public void test_evictLeastRecentlyUsed() {
+    	LRUCache cache = new LRUCache(3, 1);
+    	cache.put("a", "1");
+    	cache.put("b", "2");
+    	cache.put("c", "3");
+    	cache.get("a");
+    	cache.put("d", "4");
+    	
+    	assertEquals("size", 3, cache.size());
+    	assertNull("b is evicted", cache.get("b"));
+    	assertEquals("a is kept", "1", cache.get("a"));
+    	assertEquals("evictions", 1, cache.getEvictionCount());
+    }
+    
+    public void test_statistics() {
+    	LRUCache cache = new LRUCache(100);
+    	cache.put("a", "1");
+    	cache.get("a");
+    	cache.get("a");
+    	cache.get("x");
+    	
+    	assertEquals("hits", 2, cache.getHitCount());
+    	assertEquals("misses", 1, cache.getMissCount());
+    	
+    	cache.resetStatistics();
+    	assertEquals("hits after reset", 0, cache.getHitCount());
+    }
+    
+    public void test_putIfAbsent() {
+    	LRUCache cache = new LRUCache(10);
+    	assertNull("first put", cache.putIfAbsent("a", "1"));
+    	assertEquals("second put", "1", cache.putIfAbsent("a", "2"));
+    	assertEquals("value", "1", cache.get("a"));
+    }
+    
+    public void test_timeToLive() throws Exception {
+    	LRUCache cache = new LRUCache(10);
+    	cache.put("a", "1", 20);
+    	cache.put("b", "2", 0);
+    	assertEquals("a before expiration", "1", cache.get("a"));
+    	
+    	Thread.sleep(50);
+    	assertNull("a after expiration", cache.get("a"));
+    	assertEquals("b never expires", "2", cache.get("b"));
+    	assertEquals("expirations", 1, cache.getExpirationCount());
+    }
+    
+    public void test_sizeBound() {
+    	LRUCache cache = new LRUCache(50);
+    	for (int i = 0; i < 1000; i++) {
+    		cache.put("key" + i, new Integer(i));
+    	}
+    	assertTrue("size within bound", cache.size() <= 50 + LRUCache.DEFAULT_SEGMENTS);
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.i18n;
+
+import junit.framework.TestCase;
+
+/**
+ * MessageTemplateTest class
+ * 
+ * @author (Fei) John Chen
+ *
+ */
+public class MessageTemplateTest extends TestCase {
+	
+	public void test_format() {
+		MessageTemplate t = new MessageTemplate("{0} has {1} items, {0}.");
+		assertTrue("placeholders", t.hasPlaceholders());
+		assertEquals("formatted", "cart has 3 items, cart.", t.format(new Object[]{"cart", new Integer(3)}));
+		assertEquals("no values", "{0} has {1} items, {0}.", t.format(null));
+	}
+	
+	public void test_missingAndNullValues() {
+		MessageTemplate t = new MessageTemplate("a{0}b{1}c{2}");
+		assertEquals("formatted", "abxc{2}", t.format(new Object[]{null, "x"}));
+	}
+	
+	public void test_noPlaceholders() {
+		MessageTemplate t = new MessageTemplate("price is {amount} or {} or {1");
+		assertFalse("no placeholders", t.hasPlaceholders());
+		assertSame("same message", t.getMessage(), t.format(new Object[]{"x"}));
+	}
+	
+	public void test_specialCharactersInValues() {
+		MessageTemplate t = new MessageTemplate("total: {0}");
+		assertEquals("formatted", "total: $5\\", t.format(new Object[]{"$5\\"}));
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.activerecord;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
+import com.scooterframework.test.ScooterApplicationTest;
+import com.scooterframework.test.models.Vet;
+
+/**
+ * ActiveRecordBatchTest class
+ * 
+ * @author (Fei) John Chen
+ *
+ */
+public class ActiveRecordBatchTest extends ScooterApplicationTest {
+	
+	private static final String BATCH_LAST_NAME = "Batched";
+	
+	protected void tearDown() {
+		vetHome.deleteAll("last_name='" + BATCH_LAST_NAME + "'");
+	}
+	
+	public void test_createAllFromMaps() {
+		String findNextID = "SELECT (max(id)+1) FROM vets";
+		int nextID = Integer.parseInt("" + SqlServiceClient.retrieveObjectBySQL(findNextID));
+		
+		List maps = new ArrayList();
+		for (int i = 0; i < 5; i++) {
+			Map data = new HashMap();
+			data.put("id", new Integer(nextID + i));
+			data.put("first_name", "Vet" + i);
+			data.put("last_name", BATCH_LAST_NAME);
+			maps.add(data);
+		}
+		
+		List created = vetHome.createAll(maps, 2);
+		assertEquals("total created", 5, created.size());
+		assertTrue("created record is not new", !((ActiveRecord)created.get(0)).isNewRecord());
+		assertEquals("total vets", 11, vetHome.findAll().size());
+		
+		ActiveRecord vet = vetHome.findById(new Integer(nextID + 4));
+		assertEquals("last created vet's firstname", "Vet4", vet.getField("first_name"));
+	}
+	
+	public void test_createAllFromRecords() {
+		List records = new ArrayList();
+		for (int i = 0; i < 3; i++) {
+			ActiveRecord vet = new Vet();
+			vet.setData("first_name", "Vet" + i);
+			vet.setData("last_name", BATCH_LAST_NAME);
+			records.add(vet);
+		}
+		
+		List created = vetHome.createAll(records);
+		assertEquals("total created", 3, created.size());
+		assertEquals("total batched vets", 3, 
+			vetHome.findAll("last_name='" + BATCH_LAST_NAME + "'").size());
+	}
+	
+	public void test_executeSQLBatch() {
+		String findNextID = "SELECT (max(id)+1) FROM vets";
+		int nextID = Integer.parseInt("" + SqlServiceClient.retrieveObjectBySQL(findNextID));
+		
+		List inputsList = new ArrayList();
+		for (int i = 0; i < 3; i++) {
+			Map inputs = new HashMap();
+			inputs.put("id", new Integer(nextID + i));
+			inputs.put("first_name", "Vet" + i);
+			inputs.put("last_name", BATCH_LAST_NAME);
+			inputsList.add(inputs);
+		}
+		
+		String insertSQL = "INSERT INTO vets (id, first_name, last_name) VALUES (?id, ?first_name, ?last_name)";
+		int count = SqlServiceClient.executeSQLBatch(insertSQL, inputsList);
+		assertEquals("total inserted", 3, count);
+	}
+}
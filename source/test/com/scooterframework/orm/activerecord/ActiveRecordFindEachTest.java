@@ -0,0 +1,82 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.activerecord;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.scooterframework.orm.sqldataexpress.object.RowData;
+import com.scooterframework.orm.sqldataexpress.object.RowHandler;
+import com.scooterframework.orm.sqldataexpress.object.RowInfo;
+import com.scooterframework.orm.sqldataexpress.processor.DataProcessor;
+import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
+import com.scooterframework.test.ScooterApplicationTest;
+import com.scooterframework.test.models.Vet;
+
+/**
+ * ActiveRecordFindEachTest class
+ * 
+ * @author (Fei) John Chen
+ *
+ */
+public class ActiveRecordFindEachTest extends ScooterApplicationTest {
+	
+	public void test_findEach() {
+		NameCollector collector = new NameCollector();
+		int count = vetHome.findEach(collector);
+		assertEquals("total vets", 6, count);
+		assertEquals("total collected vets", 6, collector.names.size());
+	}
+	
+	public void test_findEachWithConditions() {
+		Map inputs = new HashMap();
+		inputs.put("last_name", "Ortega");
+		NameCollector collector = new NameCollector();
+		int count = vetHome.findEach("last_name=?last_name", inputs, null, collector);
+		assertEquals("total Ortega", 1, count);
+		assertEquals("#4 Ortega's firstname", "Rafael", collector.names.get(0));
+	}
+	
+	public void test_findEachWithLimit() {
+		Map options = new HashMap();
+		options.put(ActiveRecordConstants.key_order_by, "id");
+		options.put(DataProcessor.input_key_records_limit, new Integer(2));
+		options.put(DataProcessor.input_key_records_offset, new Integer(1));
+		NameCollector collector = new NameCollector();
+		int count = ActiveRecordUtil.getGateway(Vet.class).findEach((Map)null, options, collector);
+		assertEquals("total vets", 2, count);
+		assertEquals("#2 vet's firstname", "Helen", collector.names.get(0));
+	}
+	
+	public void test_processRowsBySQL() {
+		HeaderChecker checker = new HeaderChecker();
+		int count = SqlServiceClient.processRowsBySQL("SELECT * FROM vets", null, checker);
+		assertEquals("total vets", 6, count);
+		assertTrue("rows share header", checker.sameHeader);
+	}
+	
+	private static class NameCollector implements RecordHandler {
+		List names = new ArrayList();
+		
+		public void handleRecord(ActiveRecord record) {
+			names.add(record.getField("first_name"));
+		}
+	}
+	
+	private static class HeaderChecker implements RowHandler {
+		RowInfo header = null;
+		boolean sameHeader = true;
+		
+		public void handleRow(RowData row) {
+			if (header == null) header = row.getRowInfo();
+			else if (header != row.getRowInfo()) sameHeader = false;
+		}
+	}
+}
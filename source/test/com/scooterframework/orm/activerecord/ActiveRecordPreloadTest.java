@@ -0,0 +1,130 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.activerecord;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import com.scooterframework.test.ScooterApplicationTest;
+
+/**
+ * ActiveRecordPreloadTest class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class ActiveRecordPreloadTest extends ScooterApplicationTest {
+
+	private Map preloadOptions(String include) {
+		Map options = new HashMap();
+		options.put(ActiveRecordConstants.key_include, include);
+		options.put(ActiveRecordConstants.key_include_strategy, ActiveRecordConstants.INCLUDE_STRATEGY_PRELOAD);
+		return options;
+	}
+
+	public void test_preloadHasManyAndBelongsTo() {
+		long before = countStatements();
+		List owners = ownerHome.findAll((Map)null, preloadOptions("pets=>visits, pets=>type"));
+		int totalPets = 0;
+		int totalVisits = 0;
+		Iterator it = owners.iterator();
+		while(it.hasNext()) {
+			ActiveRecord owner = (ActiveRecord)it.next();
+			List pets = owner.allAssociated("pets").getRecords();
+			totalPets += pets.size();
+			Iterator itPet = pets.iterator();
+			while(itPet.hasNext()) {
+				ActiveRecord pet = (ActiveRecord)itPet.next();
+				totalVisits += pet.allAssociated("visits").size();
+				assertNotNull("type of pet " + pet.getField("name"), pet.associated("type").getRecord());
+			}
+		}
+		assertEquals("one query for owners and one for each association", 4, countStatements() - before);
+		assertEquals("total pets", 13, totalPets);
+		assertEquals("total visits", 4, totalVisits);
+
+		Map owner6 = new HashMap();
+		owner6.put("id", new Integer(6));
+		ActiveRecord jean = ownerHome.findFirst(owner6);
+		assertEquals("total pets for owner #6", 2, jean.allAssociated("pets").size());
+		ActiveRecord preloaded = findById(owners, jean.getField("id"));
+		assertEquals("total preloaded pets for owner #6", 2, preloaded.allAssociated("pets").size());
+	}
+
+	public void test_preloadHasManyThrough() {
+		List vets = vetHome.findAll((Map)null, preloadOptions("specialties"));
+		assertEquals("total vets", 6, vets.size());
+
+		long before = countStatements();
+		Iterator it = vets.iterator();
+		while(it.hasNext()) {
+			ActiveRecord vet = (ActiveRecord)it.next();
+			List specialties = vet.allAssociated("specialties").getRecords();
+
+			Map vetId = new HashMap();
+			vetId.put("id", vet.getField("id"));
+			ActiveRecord lazyVet = vetHome.findFirst(vetId);
+			assertEquals("specialties of vet " + vet.getField("last_name"),
+				lazyVet.allAssociated("specialties").size(), specialties.size());
+		}
+		assertEquals("no query for preloaded specialties", 2 * vets.size(), countStatements() - before);
+	}
+
+	public void test_preloadFoundRecords() {
+		List pets = petHome.findAll();
+		long before = countStatements();
+		petHome.preload(pets, "owner");
+		assertEquals("one query for all owners", 1, countStatements() - before);
+
+		Iterator it = pets.iterator();
+		while(it.hasNext()) {
+			ActiveRecord pet = (ActiveRecord)it.next();
+			ActiveRecord owner = pet.associated("owner").getRecord();
+			assertEquals("owner of pet " + pet.getField("name"), "" + pet.getField("owner_id"), "" + owner.getField("id"));
+		}
+		assertEquals("no query for preloaded owners", 1, countStatements() - before);
+	}
+
+	public void test_strictIncludeNotSupported() {
+		Map options = new HashMap();
+		options.put(ActiveRecordConstants.key_strict_include, "pets");
+		options.put(ActiveRecordConstants.key_include_strategy, ActiveRecordConstants.INCLUDE_STRATEGY_PRELOAD);
+		try {
+			ownerHome.findAll((Map)null, options);
+			fail("strict_include should not be allowed with preload");
+		}
+		catch(IllegalArgumentException ex) {
+			;
+		}
+	}
+
+	public void test_mappingKeys() {
+		assertEquals("same number of different types",
+				PreloadHelper.getKey(new Object[]{new Integer(10), new Long(3)}),
+				PreloadHelper.getKey(new Object[]{new BigDecimal("10"), new Double(3.0)}));
+		assertEquals("same decimal of different scales",
+				PreloadHelper.getKey(new Object[]{new BigDecimal("1.50")}),
+				PreloadHelper.getKey(new Object[]{new Double(1.5)}));
+		assertFalse("number and string",
+				PreloadHelper.getKey(new Object[]{new Integer(1)}).equals(PreloadHelper.getKey(new Object[]{"1"})));
+		assertFalse("values with separator",
+				PreloadHelper.getKey(new Object[]{"a|b", "c"}).equals(PreloadHelper.getKey(new Object[]{"a", "b|c"})));
+	}
+
+	private ActiveRecord findById(List records, Object id) {
+		Iterator it = records.iterator();
+		while(it.hasNext()) {
+			ActiveRecord record = (ActiveRecord)it.next();
+			if (("" + id).equals("" + record.getField("id"))) return record;
+		}
+		return null;
+	}
+}
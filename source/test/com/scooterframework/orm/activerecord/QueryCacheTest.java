@@ -0,0 +1,173 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.activerecord;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.scooterframework.cache.CacheProviderFactory;
+import com.scooterframework.cache.LocalCacheProvider;
+import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
+import com.scooterframework.test.ScooterApplicationTest;
+import com.scooterframework.test.models.Vet;
+import com.scooterframework.transaction.TransactionManager;
+import com.scooterframework.transaction.TransactionManagerUtil;
+
+/**
+ * QueryCacheTest class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class QueryCacheTest extends ScooterApplicationTest {
+
+	private static final String CACHE_OPTION = "cache: scooterworks_local";
+
+	private LocalCacheProvider cache;
+
+	protected void setUp() {
+		super.setUp();
+		cache = (LocalCacheProvider)CacheProviderFactory.getInstance().getCache("scooterworks_local");
+		cache.clear();
+	}
+
+	public void test_findAllFromCache() {
+		List vets = vetHome.findAll((Map)null, CACHE_OPTION);
+		assertEquals("total vets", 6, vets.size());
+		long hits = cache.getHitCount();
+
+		vets = vetHome.findAll((Map)null, CACHE_OPTION);
+		assertEquals("total cached vets", 6, vets.size());
+		assertTrue("second query is served from cache", cache.getHitCount() > hits);
+	}
+
+	public void test_cachedRowsAreCopied() {
+		Map vet6 = new HashMap();
+		vet6.put("id", new Integer(6));
+		ActiveRecord vet = vetHome.findFirst(vet6, CACHE_OPTION);
+		assertEquals("#6 vet's firstname", "Sharon", vet.getField("first_name"));
+		vet.setData("first_name", "Jenny");
+
+		vet = vetHome.findFirst(vet6, CACHE_OPTION);
+		assertEquals("#6 cached vet's firstname", "Sharon", vet.getField("first_name"));
+	}
+
+	public void test_noCacheOption() {
+		Map vet6 = new HashMap();
+		vet6.put("id", new Integer(6));
+		vetHome.findAll((Map)null, CACHE_OPTION);
+		int size = cache.size();
+
+		vetHome.findAll(vet6, "cache: false");
+		assertEquals("nothing cached", size, cache.size());
+	}
+
+	public void test_createAndDeleteInvalidate() {
+		List vets = vetHome.findAll((Map)null, CACHE_OPTION);
+		assertEquals("total vets", 6, vets.size());
+
+		String findNextID = "SELECT (max(id)+1) FROM vets";
+		Object nextID = SqlServiceClient.retrieveObjectBySQL(findNextID);
+
+		ActiveRecord vet7 = new Vet();
+		vet7.setData("id", nextID);
+		vet7.setData("first_name", "John");
+		vet7.setData("last_name", "Chen");
+		vet7.save();
+
+		vets = vetHome.findAll((Map)null, CACHE_OPTION);
+		assertEquals("total vets after create", 7, vets.size());
+
+		vet7.delete();
+		vets = vetHome.findAll((Map)null, CACHE_OPTION);
+		assertEquals("total vets after delete", 6, vets.size());
+	}
+
+	public void test_commitReplacesVersion() {
+		vetHome.findAll((Map)null, CACHE_OPTION);
+		ActiveRecord vet7 = newVet();
+
+		TransactionManager tm = TransactionManagerUtil.getTransactionManager();
+		try {
+			tm.beginTransaction();
+			vet7.save();
+			Object version = cache.get(QueryCache.getVersionKey(vetHome));
+			assertNotNull("version replaced by the change", version);
+
+			tm.commitTransaction();
+			assertFalse("version replaced after commit", 
+					version.equals(cache.get(QueryCache.getVersionKey(vetHome))));
+		}
+		finally {
+			tm.releaseResources();
+		}
+
+		assertEquals("total vets after commit", 7, vetHome.findAll((Map)null, CACHE_OPTION).size());
+		vet7.delete();
+	}
+
+	public void test_rollbackInvalidates() {
+		vetHome.findAll((Map)null, CACHE_OPTION);
+		ActiveRecord vet7 = newVet();
+
+		TransactionManager tm = TransactionManagerUtil.getTransactionManager();
+		try {
+			tm.beginTransaction();
+			vet7.save();
+			List vets = vetHome.findAll((Map)null, CACHE_OPTION);
+			assertEquals("total vets in transaction", 7, vets.size());
+
+			tm.rollbackTransaction();
+		}
+		finally {
+			tm.releaseResources();
+		}
+
+		List vets = vetHome.findAll((Map)null, CACHE_OPTION);
+		assertEquals("total vets after rollback", 6, vets.size());
+	}
+
+	public void test_uncommittedRowsAreNotCached() {
+		vetHome.findAll((Map)null, CACHE_OPTION);
+		ActiveRecord vet7 = newVet();
+
+		TransactionManager tm = TransactionManagerUtil.getTransactionManager();
+		try {
+			tm.beginTransaction();
+			vet7.save();
+			int size = cache.size();
+			long hits = cache.getHitCount();
+
+			List vets = vetHome.findAll((Map)null, CACHE_OPTION);
+			assertEquals("total vets in transaction", 7, vets.size());
+			assertEquals("uncommitted rows are not cached", size, cache.size());
+			assertEquals("cache is not read", hits, cache.getHitCount());
+
+			tm.rollbackTransaction();
+		}
+		finally {
+			tm.releaseResources();
+		}
+
+		List vets = vetHome.findAll((Map)null, CACHE_OPTION);
+		assertEquals("total vets after rollback", 6, vets.size());
+		assertTrue("cached after transaction", cache.size() > 0);
+	}
+
+	private ActiveRecord newVet() {
+		String findNextID = "SELECT (max(id)+1) FROM vets";
+		Object nextID = SqlServiceClient.retrieveObjectBySQL(findNextID);
+
+		ActiveRecord vet = new Vet();
+		vet.setData("id", nextID);
+		vet.setData("first_name", "John");
+		vet.setData("last_name", "Chen");
+		return vet;
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.activerecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * ReferenceDataStoreTest class
+ * 
+ * @author (Fei) John Chen
+ *
+ */
+public class ReferenceDataStoreTest extends TestCase {
+	
+	protected void setUp() {
+		List list = new ArrayList();
+		list.add(new Item("CA", "California"));
+		list.add(new Item("NY", "New York"));
+		list.add(new Item("ny", "duplicate"));
+		ReferenceDataStore.setReferenceData("states", list);
+	}
+	
+	public void test_lookupByKeyAndValue() {
+		assertEquals("by key", "California", ReferenceDataStore.getReferenceDataByTypeAndKey("states", "ca").getValueData());
+		assertEquals("first item wins", "New York", ReferenceDataStore.getReferenceDataByTypeAndKey("states", "NY").getValueData());
+		assertEquals("by value", "CA", ReferenceDataStore.getReferenceDataByTypeAndValue("states", "CALIFORNIA").getKeyData());
+		assertNull("unknown key", ReferenceDataStore.getReferenceDataByTypeAndKey("states", "TX"));
+		assertNull("unknown type", ReferenceDataStore.getReferenceDataByTypeAndKey("countries", "CA"));
+	}
+	
+	public void test_listCannotBeModified() {
+		List list = ReferenceDataStore.getReferenceDataList("states");
+		assertEquals("size", 3, list.size());
+		try {
+			list.add(new Item("TX", "Texas"));
+			fail("list is modified");
+		}
+		catch(UnsupportedOperationException ex) {
+			;
+		}
+	}
+	
+	public void test_merge() {
+		List old = ReferenceDataStore.getReferenceDataList("states");
+		
+		List changes = new ArrayList();
+		changes.add(new Item("ca", "Calif."));
+		changes.add(new Item("TX", "Texas"));
+		ReferenceDataStore.mergeReferenceData("states", changes);
+		
+		List list = ReferenceDataStore.getReferenceDataList("states");
+		assertEquals("size", 4, list.size());
+		assertEquals("replaced in place", "Calif.", ((ReferenceData)list.get(0)).getValueData());
+		assertEquals("added at end", "TX", ((ReferenceData)list.get(3)).getKeyData());
+		assertEquals("by new value", "ca", ReferenceDataStore.getReferenceDataByTypeAndValue("states", "calif.").getKeyData());
+		assertNull("old value", ReferenceDataStore.getReferenceDataByTypeAndValue("states", "California"));
+		assertEquals("old snapshot is unchanged", 3, old.size());
+	}
+	
+	private static class Item implements ReferenceData {
+		Item(String key, String value) {
+			this.key = key;
+			this.value = value;
+		}
+		
+		public Object getFieldData(String fieldName) {
+			return null;
+		}
+		
+		public String getKeyName() {
+			return "code";
+		}
+		
+		public Object getKeyData() {
+			return key;
+		}
+		
+		public String getValueName() {
+			return "name";
+		}
+		
+		public Object getValueData() {
+			return value;
+		}
+		
+		private String key;
+		private String value;
+	}
+}
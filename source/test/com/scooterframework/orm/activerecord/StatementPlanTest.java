@@ -0,0 +1,73 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.activerecord;
+
+import java.util.BitSet;
+import java.util.List;
+
+import com.scooterframework.orm.sqldataexpress.object.RowInfo;
+import com.scooterframework.test.ScooterApplicationTest;
+
+/**
+ * StatementPlanTest class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class StatementPlanTest extends ScooterApplicationTest {
+
+	public void test_compiledStatements() {
+		RowInfo header = vetHome.getTableInfo().getHeader();
+		StatementPlan plan = StatementPlan.getPlan("vets", header, header);
+
+		assertEquals("insert", "INSERT INTO VETS (ID, FIRST_NAME, LAST_NAME) VALUES (?, ?, ?)",
+				plan.getInsert(false).getSql().toUpperCase());
+		assertEquals("insert with generated key", "INSERT INTO VETS (FIRST_NAME, LAST_NAME) VALUES (?, ?)",
+				plan.getInsert(true).getSql().toUpperCase());
+		assertEquals("update", "UPDATE VETS SET FIRST_NAME = ?, LAST_NAME = ? WHERE ID = ?",
+				plan.getUpdate().getSql().toUpperCase());
+		assertEquals("delete", "DELETE FROM VETS WHERE ID = ?",
+				plan.getDelete().getSql().toUpperCase());
+		assertSame("plan is reused", plan, StatementPlan.getPlan("vets", header, header));
+	}
+
+	public void test_updateChangedVariants() {
+		RowInfo header = vetHome.getTableInfo().getHeader();
+		StatementPlan plan = StatementPlan.getPlan("vets", header, header);
+
+		BitSet changed = new BitSet();
+		changed.set(header.getColumnPositionIndex("last_name"));
+		StatementPlan.PlannedStatement ps = plan.getUpdateChanged(changed);
+		assertEquals("update last name", "UPDATE VETS SET LAST_NAME = ? WHERE ID = ?", ps.getSql().toUpperCase());
+		assertSame("variant is reused", ps, plan.getUpdateChanged((BitSet)changed.clone()));
+
+		BitSet keyOnly = new BitSet();
+		keyOnly.set(header.getColumnPositionIndex("id"));
+		assertNull("primary key is not updated", plan.getUpdateChanged(keyOnly));
+	}
+
+	//finders of different queries create their own RowInfo for the rows
+	public void test_recordsOfSeparateFindsSharePlan() {
+		ActiveRecord vet5 = vetHome.findById(new Integer(5));
+		ActiveRecord vet6 = vetHome.findFirst("id = 6");
+		List vets = vetHome.findAll("last_name is not null");
+		assertSame("shared plan", vet5.getStatementPlan(), vet6.getStatementPlan());
+		assertSame("shared plan of all vets", vet5.getStatementPlan(), ((ActiveRecord)vets.get(0)).getStatementPlan());
+	}
+
+	public void test_updateChanged() {
+		ActiveRecord vet6 = vetHome.findById(new Integer(6));
+		vet6.setData("first_name", "Jenny");
+		vet6.updateChanged();
+		assertEquals("changed first name", "Jenny", vetHome.findById(new Integer(6)).getField("first_name"));
+
+		vet6.setData("first_name", "Sharon");
+		vet6.update();
+		assertEquals("restored first name", "Sharon", vetHome.findById(new Integer(6)).getField("first_name"));
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.misc;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.scooterframework.common.util.Converters;
+import com.scooterframework.orm.activerecord.ActiveRecord;
+import com.scooterframework.test.ScooterApplicationTest;
+import com.scooterframework.test.models.Vet;
+
+/**
+ * PaginatorTest class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class PaginatorTest extends ScooterApplicationTest {
+
+	private Paginator paginate(String sqlOptions, String controlOptions) {
+		Map options = Converters.convertSqlOptionStringToMap(sqlOptions);
+		return new Paginator(new JdbcPageListSource(Vet.class, options), controlOptions);
+	}
+
+	private String ids(Paginator page) {
+		StringBuffer sb = new StringBuffer();
+		List records = page.getRecordList();
+		for (int i = 0; i < records.size(); i++) {
+			if (i > 0) sb.append(",");
+			sb.append(((ActiveRecord)records.get(i)).getField("id"));
+		}
+		return sb.toString();
+	}
+
+	public void test_offsetPages() {
+		Paginator page = paginate("order_by: id", "limit=2, cpage=1, npage=2");
+		assertEquals("page 2 ids", "3,4", ids(page));
+		assertEquals("total vets", 6, page.getTotalCount());
+		assertEquals("total pages", 3, page.getPageCount());
+		assertEquals("no keyset in next link", -1, page.getQueryStringNext().indexOf("after="));
+	}
+
+	public void test_keysetNextAndPrevious() {
+		Paginator page = paginate("keyset: id", "limit=2");
+		assertEquals("page 1 ids", "1,2", ids(page));
+		String next = page.getQueryStringNext();
+		assertTrue("next link has last key: " + next, next.indexOf("after=2") != -1);
+
+		page = paginate("keyset: id", next);
+		assertEquals("page 2 ids", "3,4", ids(page));
+		assertEquals("total pages", 3, page.getPageCount());
+		String previous = page.getQueryStringPrevious();
+		assertTrue("previous link has first key: " + previous, previous.indexOf("before=3") != -1);
+		assertEquals("page link has no key", -1, page.getQueryStringPage(3).indexOf("after="));
+
+		page = paginate("keyset: id", previous);
+		assertEquals("page 1 ids again", "1,2", ids(page));
+	}
+
+	public void test_keysetDescending() {
+		Map control = new HashMap();
+		control.put("limit", "2");
+		control.put("cpage", "1");
+		control.put("npage", "2");
+		control.put("after", "6");
+		Paginator page = new Paginator(new JdbcPageListSource(Vet.class, Converters.convertSqlOptionStringToMap("keyset: id desc")), control);
+		assertEquals("records after the key, not after the offset", "5,4", ids(page));
+	}
+
+	public void test_countModeNone() {
+		Paginator page = paginate("keyset: id; count_mode: none", "limit=4");
+		assertTrue("count skipped", page.isCountSkipped());
+		assertEquals("page 1 ids", "1,2,3,4", ids(page));
+		assertEquals("one more record than page 1", 5, page.getTotalCount());
+		assertEquals("known pages", 2, page.getPageCount());
+
+		page = paginate("keyset: id; count_mode: none", "limit=4, cpage=1, npage=2, after=4");
+		assertEquals("page 2 ids", "5,6", ids(page));
+		assertEquals("all records", 6, page.getTotalCount());
+		assertTrue("last page", page.isLastPage());
+	}
+
+	public void test_countModeCached() {
+		paginate("order_by: id; count_mode: cached; count_ttl: 60", "limit=2");
+		long before = countStatements();
+		Paginator page = paginate("order_by: id; count_mode: cached; count_ttl: 60", "limit=2, cpage=1, npage=2");
+		assertEquals("only the page query", 1, countStatements() - before);
+		assertEquals("cached total", 6, page.getTotalCount());
+		assertEquals("page 2 ids", "3,4", ids(page));
+	}
+}
@@ -0,0 +1,75 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.connection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * ReadReplicaRouterTest class has test cases for ReadReplicaRouter.
+ * 
+ * @author (Fei) John Chen
+ */
+public class ReadReplicaRouterTest extends TestCase {
+
+	protected void setUp() {
+		ReadReplicaRouter.reset();
+	}
+
+	protected void tearDown() {
+		ReadReplicaRouter.reset();
+	}
+
+	public void test_nested_reads() {
+		assertFalse(ReadReplicaRouter.isReading());
+		ReadReplicaRouter.beginRead();
+		ReadReplicaRouter.beginRead();
+		ReadReplicaRouter.endRead();
+		assertTrue(ReadReplicaRouter.isReading());
+		ReadReplicaRouter.endRead();
+		assertFalse(ReadReplicaRouter.isReading());
+		ReadReplicaRouter.endRead();
+		assertFalse(ReadReplicaRouter.isReading());
+	}
+
+	public void test_round_robin() {
+		List replicas = replicas();
+		assertEquals("r1", ReadReplicaRouter.selectReplica("db", replicas));
+		assertEquals("r2", ReadReplicaRouter.selectReplica("db", replicas));
+		assertEquals("r3", ReadReplicaRouter.selectReplica("db", replicas));
+		assertEquals("r1", ReadReplicaRouter.selectReplica("db", replicas));
+		assertEquals("r1", ReadReplicaRouter.selectReplica("other", replicas));
+	}
+
+	public void test_failed_replica_is_skipped() {
+		List replicas = replicas();
+		ReadReplicaRouter.markFailed("r1");
+		assertEquals("r2", ReadReplicaRouter.selectReplica("db", replicas));
+		assertEquals("r2", ReadReplicaRouter.selectReplica("db", replicas));
+		assertEquals("r3", ReadReplicaRouter.selectReplica("db", replicas));
+
+		ReadReplicaRouter.markFailed("r2");
+		ReadReplicaRouter.markFailed("r3");
+		assertNull(ReadReplicaRouter.selectReplica("db", replicas));
+	}
+
+	public void test_no_replica() {
+		assertNull(ReadReplicaRouter.selectReplica("db", new ArrayList()));
+		assertNull(ReadReplicaRouter.selectReplica("db", null));
+	}
+
+	private List replicas() {
+		List list = new ArrayList();
+		list.add("r1");
+		list.add("r2");
+		list.add("r3");
+		return list;
+	}
+}
@@ -0,0 +1,126 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.connection;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Properties;
+
+import junit.framework.TestCase;
+
+/**
+ * SimpleConnectionPoolTest class
+ * 
+ * @author (Fei) John Chen
+ *
+ */
+public class SimpleConnectionPoolTest extends TestCase {
+	private SimpleConnectionPool pool;
+
+	protected void setUp() throws Exception {
+		Properties p = new Properties();
+		p.setProperty("driver", "org.h2.Driver");
+		p.setProperty("url", "jdbc:h2:mem:pooltest");
+		p.setProperty("username", "sa");
+		p.setProperty("password", "");
+		p.setProperty("max_pool_size", "2");
+		p.setProperty("initial_pool_size", "1");
+		p.setProperty("checkout_timeout", "100");
+		p.setProperty("validation_query", "select 1");
+		p.setProperty("leak_detection_threshold", "1");
+		pool = new SimpleConnectionPool("pooltest", p);
+	}
+
+	protected void tearDown() {
+		pool.close();
+	}
+
+	public void test_connectionIsReused() throws Exception {
+		Connection c = pool.getConnection();
+		c.close();
+		assertTrue("closed handle", c.isClosed());
+		pool.getConnection("sa", "").close();
+
+		ConnectionPoolMetrics metrics = pool.getMetrics();
+		assertEquals("created", 1, metrics.getCreatedCount());
+		assertEquals("checkouts", 2, metrics.getCheckoutCount());
+		assertEquals("idle", 1, metrics.getIdleCount());
+		assertEquals("active", 0, metrics.getActiveCount());
+		assertEquals("acquisitions", 2, metrics.getAcquireHistogram().getCount());
+	}
+
+	public void test_settingsAreRestoredOnRelease() throws Exception {
+		Connection c = pool.getConnection();
+		boolean autoCommit = c.getAutoCommit();
+		int isolation = c.getTransactionIsolation();
+		assertFalse("writable when opened", c.isReadOnly());
+
+		c.setReadOnly(true);
+		c.setAutoCommit(!autoCommit);
+		c.setTransactionIsolation(Connection.TRANSACTION_SERIALIZABLE);
+		c.close();
+
+		c = pool.getConnection();
+		assertFalse("writable again", c.isReadOnly());
+		assertEquals("auto-commit restored", autoCommit, c.getAutoCommit());
+		assertEquals("isolation restored", isolation, c.getTransactionIsolation());
+		c.close();
+		assertEquals("same connection", 1, pool.getMetrics().getCreatedCount());
+	}
+
+	public void test_closedHandleCannotBeUsed() throws Exception {
+		Connection c = pool.getConnection();
+		c.close();
+		c.close();
+		try {
+			c.createStatement();
+			fail("closed connection is used");
+		}
+		catch(SQLException ex) {
+			;
+		}
+		assertEquals("idle", 1, pool.getMetrics().getIdleCount());
+	}
+
+	public void test_checkoutTimeout() throws Exception {
+		Connection c1 = pool.getConnection();
+		Connection c2 = pool.getConnection();
+		try {
+			pool.getConnection();
+			fail("pool is exhausted");
+		}
+		catch(SQLException ex) {
+			;
+		}
+		ConnectionPoolMetrics metrics = pool.getMetrics();
+		assertEquals("timeouts", 1, metrics.getTimeoutCount());
+		assertEquals("active", 2, metrics.getActiveCount());
+		c1.close();
+		c2.close();
+	}
+
+	public void test_leakDetection() throws Exception {
+		Connection c = pool.getConnection();
+		Thread.sleep(20);
+		pool.housekeep();
+		pool.housekeep();
+		assertEquals("leaks", 1, pool.getMetrics().getLeakCount());
+		c.close();
+	}
+
+	public void test_closedPool() throws Exception {
+		pool.close();
+		try {
+			pool.getConnection();
+			fail("pool is closed");
+		}
+		catch(SQLException ex) {
+			;
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.object;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+/**
+ * CompactTableDataTest class
+ * 
+ * @author (Fei) John Chen
+ *
+ */
+public class CompactTableDataTest extends TestCase {
+	
+	private RowInfo header;
+	private TableData td;
+	
+	protected void setUp() {
+		header = new RowInfo();
+		List columns = new ArrayList();
+		columns.add(column("id"));
+		columns.add(column("name"));
+		columns.add(column("status"));
+		columns.add(column("created_at"));
+		header.setColumnInfoList(columns);
+		
+		td = new TableData();
+		td.setHeader(header);
+		Timestamp ts = new Timestamp(1000000L);
+		ts.setNanos(123456789);
+		for (int i = 0; i < 10; i++) {
+			Object[] fields = {new Integer(i), "name" + i, (i == 3)?null:"active", (i == 5)?null:ts};
+			td.addRow(new RowData(header, fields));
+		}
+	}
+	
+	public void test_sameData() {
+		CompactTableData ctd = new CompactTableData(td);
+		assertEquals("size", 10, ctd.getTableSize());
+		for (int i = 0; i < 10; i++) {
+			Object[] expected = td.getRow(i).getFields();
+			for (int j = 0; j < expected.length; j++) {
+				assertEquals("row " + i + " column " + j, expected[j], ctd.getField(i, j));
+			}
+		}
+		assertNull("null string", ctd.getField(3, 2));
+		assertNull("null timestamp", ctd.getField(5, 3));
+		assertEquals("nanos", 123456789, ((Timestamp)ctd.getField(0, 3)).getNanos());
+	}
+	
+	public void test_rowsAreCopies() {
+		CompactTableData ctd = new CompactTableData(td);
+		RowData row = ctd.getRow(1);
+		assertEquals("name by column name", "name1", row.getField("NAME"));
+		row.setField("name", "changed");
+		assertEquals("compact data is not changed", "name1", ctd.getRow(1).getField("name"));
+	}
+	
+	public void test_columnIndexHandle() {
+		int index = header.findColumnPositionIndex("status");
+		assertEquals("status index", 2, index);
+		assertEquals("status value", "active", td.getRow(0).getField(index));
+		assertEquals("unknown column", -1, header.findColumnPositionIndex("unknown"));
+		assertNull("unknown column value", td.getRow(0).getField("unknown"));
+	}
+	
+	private ColumnInfo column(String name) {
+		ColumnInfo ci = new ColumnInfo();
+		ci.setColumnName(name);
+		return ci;
+	}
+}
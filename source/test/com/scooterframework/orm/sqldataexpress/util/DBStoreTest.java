@@ -0,0 +1,73 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
+import com.scooterframework.orm.sqldataexpress.object.TableInfo;
+import com.scooterframework.test.ApplicationTest;
+
+/**
+ * DBStoreTest class
+ * 
+ * @author (Fei) John Chen
+ *
+ */
+public class DBStoreTest extends ApplicationTest {
+	
+	public void test_loadOnce() throws Exception {
+		final int[] loads = new int[1];
+		final Object[] value = new Object[1];
+		final DBStore.MetadataLoader loader = new DBStore.MetadataLoader() {
+			public Object load() {
+				if (value[0] != null) return value[0];
+				loads[0]++;
+				try {
+					Thread.sleep(50);
+				}
+				catch(InterruptedException ex) {
+					;
+				}
+				value[0] = "loaded";
+				return value[0];
+			}
+		};
+		
+		Thread[] threads = new Thread[5];
+		final Object[] results = new Object[threads.length];
+		for (int i = 0; i < threads.length; i++) {
+			final int index = i;
+			threads[i] = new Thread() {
+				public void run() {
+					results[index] = DBStore.getInstance().load("test.key", loader);
+				}
+			};
+			threads[i].start();
+		}
+		for (int i = 0; i < threads.length; i++) {
+			threads[i].join();
+		}
+		
+		assertEquals("loaded once", 1, loads[0]);
+		for (int i = 0; i < results.length; i++) {
+			assertEquals("result of thread " + i, "loaded", results[i]);
+		}
+	}
+	
+	public void test_invalidateTable() {
+		String connName = DatabaseConfig.getInstance().getDefaultDatabaseConnectionName();
+		TableInfo ti = SqlExpressUtil.lookupAndRegisterTable(connName, "pets");
+		assertSame("kept table info", ti, DBStore.getInstance().getTableInfo("pets"));
+		
+		DBStore.getInstance().invalidateTable("pets");
+		assertNull("removed table info", DBStore.getInstance().getTableInfo("pets"));
+		
+		TableInfo ti2 = SqlExpressUtil.lookupAndRegisterTable(connName, "pets");
+		assertNotSame("new table info", ti, ti2);
+		assertEquals("same columns", ti.getHeader().getDimension(), ti2.getHeader().getDimension());
+	}
+}
@@ -0,0 +1,51 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.scooterframework.orm.sqldataexpress.object.JdbcStatement;
+import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
+import com.scooterframework.test.ApplicationTest;
+
+/**
+ * JdbcStatementRegistryTest class
+ * 
+ * @author (Fei) John Chen
+ *
+ */
+public class JdbcStatementRegistryTest extends ApplicationTest {
+	
+	public void test_statementIsParsedOnce() {
+		String sql = "SELECT name FROM pets WHERE id = ?id";
+		JdbcStatementRegistry.remove(sql);
+		
+		Map inputs = new HashMap();
+		inputs.put("id", new Integer(1));
+		SqlServiceClient.retrieveObjectBySQL(sql, inputs);
+		
+		JdbcStatement st = JdbcStatementRegistry.getJdbcStatement(sql);
+		assertTrue("parameters loaded", st.hasLoadedParameterProperties());
+		assertEquals("one parameter", 1, st.getParameterCount());
+		
+		inputs.put("id", new Integer(2));
+		Object name = SqlServiceClient.retrieveObjectBySQL(sql, inputs);
+		assertNotNull("name of pet #2", name);
+		assertSame("statement reused", st, JdbcStatementRegistry.getJdbcStatement(sql));
+	}
+	
+	public void test_remove() {
+		String sql = "SELECT name FROM pets WHERE id = 3";
+		JdbcStatement st = JdbcStatementRegistry.getJdbcStatement(sql);
+		assertSame("kept statement", st, JdbcStatementRegistry.getJdbcStatement(sql));
+		
+		JdbcStatementRegistry.remove(sql);
+		assertNotSame("new statement", st, JdbcStatementRegistry.getJdbcStatement(sql));
+	}
+}
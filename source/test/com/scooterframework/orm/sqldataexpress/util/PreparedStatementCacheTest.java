@@ -0,0 +1,52 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
+import com.scooterframework.test.ApplicationTest;
+import com.scooterframework.transaction.TransactionManager;
+import com.scooterframework.transaction.TransactionManagerUtil;
+
+/**
+ * PreparedStatementCacheTest class
+ * 
+ * @author (Fei) John Chen
+ *
+ */
+public class PreparedStatementCacheTest extends ApplicationTest {
+	
+	public void test_reuseInTransaction() {
+		String sql = "SELECT name FROM pets WHERE id = ?id";
+		int connections = PreparedStatementCache.countConnections();
+		
+        TransactionManager tm =  TransactionManagerUtil.getTransactionManager();
+        try{
+        	tm.beginTransaction();
+			
+			Map inputs = new HashMap();
+			inputs.put("id", new Integer(1));
+			SqlServiceClient.retrieveObjectBySQL(sql, inputs);
+			long hits = PreparedStatementCache.getHitCount();
+			
+			inputs.put("id", new Integer(2));
+			Object name = SqlServiceClient.retrieveObjectBySQL(sql, inputs);
+			assertNotNull("name of pet #2", name);
+			assertEquals("statement reused", hits + 1, PreparedStatementCache.getHitCount());
+			
+	    	tm.commitTransaction();
+	    }
+	    finally {
+	    	tm.releaseResources();
+	    }
+		
+		assertEquals("statements closed with connection", connections, PreparedStatementCache.countConnections());
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.orm.sqldataexpress.util;
+
+import java.io.File;
+
+import com.scooterframework.admin.Constants;
+import com.scooterframework.orm.sqldataexpress.config.DatabaseConfig;
+import com.scooterframework.orm.sqldataexpress.object.TableInfo;
+import com.scooterframework.orm.sqldataexpress.service.SqlServiceClient;
+import com.scooterframework.test.ApplicationTest;
+
+/**
+ * SchemaSnapshotTest class
+ * 
+ * @author (Fei) John Chen
+ *
+ */
+public class SchemaSnapshotTest extends ApplicationTest {
+	private File file;
+	
+	//snapshots are not used in development environment
+	static {
+		Constants.RUNNING_ENVIRONMENT = "PRODUCTION";
+	}
+	
+	protected void setUp() {
+		super.setUp();
+		file = new File(System.getProperty("java.io.tmpdir"), "schema" + System.currentTimeMillis() + ".snapshot");
+		DBStore.getInstance().invalidateAll();
+	}
+	
+	protected void tearDown() {
+		file.delete();
+		DBStore.getInstance().invalidateAll();
+	}
+	
+	public void test_saveAndRestore() {
+		String connName = DatabaseConfig.getInstance().getDefaultDatabaseConnectionName();
+		TableInfo pets = SqlExpressUtil.lookupAndRegisterTable(connName, "pets");
+		SqlExpressUtil.lookupAndRegisterTable(connName, "vets");
+		assertTrue("saved", SchemaSnapshot.save(file));
+		
+		DBStore.getInstance().invalidateAll();
+		assertNull("no table info", DBStore.getInstance().getTableInfo("pets"));
+		
+		assertTrue("restored", SchemaSnapshot.restore(file));
+		TableInfo restored = DBStore.getInstance().getTableInfo("pets");
+		assertNotNull("restored pets", restored);
+		assertEquals("same columns", pets.getHeader().getDimension(), restored.getHeader().getDimension());
+		assertNotNull("restored vets", DBStore.getInstance().getTableInfo("vets"));
+	}
+	
+	public void test_tableOfOtherConnectionIsNotSaved() {
+		String connName = DatabaseConfig.getInstance().getDefaultDatabaseConnectionName();
+		TableInfo pets = SqlExpressUtil.lookupAndRegisterTable(connName, "pets");
+		DBStore.getInstance().addTableInfo("other_db_table", pets);
+		assertTrue("saved", SchemaSnapshot.save(file));
+		
+		DBStore.getInstance().invalidateAll();
+		assertTrue("restored", SchemaSnapshot.restore(file));
+		assertNotNull("restored pets", DBStore.getInstance().getTableInfo("pets"));
+		assertNull("table of other connection", DBStore.getInstance().getTableInfo("other_db_table"));
+	}
+	
+	public void test_rejectedAfterTablesChange() {
+		String connName = DatabaseConfig.getInstance().getDefaultDatabaseConnectionName();
+		SqlExpressUtil.lookupAndRegisterTable(connName, "pets");
+		assertTrue("saved", SchemaSnapshot.save(file));
+		
+		DBStore.getInstance().invalidateAll();
+		SqlServiceClient.executeSQL("CREATE TABLE snapshot_test (id INT)");
+		try {
+			assertFalse("rejected", SchemaSnapshot.restore(file));
+			assertNull("nothing restored", DBStore.getInstance().getTableInfo("pets"));
+		}
+		finally {
+			SqlServiceClient.executeSQL("DROP TABLE snapshot_test");
+		}
+	}
+}
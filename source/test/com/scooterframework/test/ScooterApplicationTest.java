@@ -9,6 +9,7 @@ package com.scooterframework.test;
 
 import com.scooterframework.orm.activerecord.ActiveRecord;
 import com.scooterframework.orm.activerecord.ActiveRecordUtil;
+import com.scooterframework.orm.sqldataexpress.util.PreparedStatementCache;
 import com.scooterframework.test.models.Owner;
 import com.scooterframework.test.models.Pet;
 import com.scooterframework.test.models.Specialty;
@@ -46,4 +47,12 @@ public class ScooterApplicationTest extends ApplicationTest {
 		if (visitHome == null) visitHome = ActiveRecordUtil.getHomeInstance(Visit.class);
 		if (typeHome == null) typeHome = ActiveRecordUtil.getHomeInstance(Type.class);
 	}
+	
+	/**
+	 * Returns number of sql statements executed so far through prepared 
+	 * statements.
+	 */
+	protected long countStatements() {
+		return PreparedStatementCache.getHitCount() + PreparedStatementCache.getMissCount();
+	}
 }
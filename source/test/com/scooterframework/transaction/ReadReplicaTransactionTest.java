@@ -0,0 +1,88 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.transaction;
+
+import com.scooterframework.orm.sqldataexpress.connection.JdbcConnectionContext;
+import com.scooterframework.orm.sqldataexpress.connection.ReadReplicaRouter;
+import com.scooterframework.orm.sqldataexpress.connection.UserDatabaseConnection;
+import com.scooterframework.test.ApplicationTest;
+
+/**
+ * ReadReplicaTransactionTest class has test cases for connections given 
+ * to reads and writes of a transaction whose connection has read replicas.
+ * 
+ * @author (Fei) John Chen
+ */
+public class ReadReplicaTransactionTest extends ApplicationTest {
+	private static final String PRIMARY = "replica_test_primary";
+
+	private JdbcTransaction tx;
+
+	protected void setUp() {
+		super.setUp();
+		ReadReplicaRouter.reset();
+		tx = new JdbcTransaction();
+		tx.begin();
+	}
+
+	protected void tearDown() {
+		tx.releaseResources();
+		ReadReplicaRouter.reset();
+	}
+
+	public void test_reads_use_one_replica_until_write() {
+		assertEquals("first read", "replica_test_r1", read().getConnectionName());
+		assertEquals("same replica for the transaction", "replica_test_r1", read().getConnectionName());
+		assertFalse("not written", tx.hasWritten());
+
+		assertEquals("write", PRIMARY, tx.getConnection(PRIMARY).getConnectionName());
+		assertTrue("written", tx.hasWritten());
+		assertEquals("read after write", PRIMARY, read().getConnectionName());
+	}
+
+	public void test_next_transaction_uses_next_replica() {
+		assertEquals("first transaction", "replica_test_r1", read().getConnectionName());
+		tx.releaseResources();
+
+		tx = new JdbcTransaction();
+		tx.begin();
+		assertEquals("second transaction", "replica_test_r2", read().getConnectionName());
+	}
+
+	public void test_write_through_connection_context() {
+		assertEquals("first read", "replica_test_r1", read().getConnectionName());
+
+		JdbcConnectionContext dcc = new JdbcConnectionContext(PRIMARY, 
+				"org.h2.Driver", "jdbc:h2:mem:replica_test_primary", "sa", "");
+		assertEquals("write", PRIMARY, tx.getConnection(dcc).getConnectionName());
+		assertTrue("written", tx.hasWritten());
+		assertEquals("read after write", PRIMARY, read().getConnectionName());
+	}
+
+	public void test_no_replica() {
+		String name = "scooter_test_db_h2";
+		ReadReplicaRouter.beginRead();
+		try {
+			assertEquals("read", name, tx.getConnection(name).getConnectionName());
+		}
+		finally {
+			ReadReplicaRouter.endRead();
+		}
+		assertFalse("not written", tx.hasWritten());
+	}
+
+	private UserDatabaseConnection read() {
+		ReadReplicaRouter.beginRead();
+		try {
+			return tx.getConnection(PRIMARY);
+		}
+		finally {
+			ReadReplicaRouter.endRead();
+		}
+	}
+}
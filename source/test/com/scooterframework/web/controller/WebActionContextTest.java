@@ -0,0 +1,157 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.web.controller;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpSession;
+
+import junit.framework.TestCase;
+
+/**
+ * WebActionContextTest class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class WebActionContextTest extends TestCase {
+
+	public void test_exactName() {
+		RequestStub stub = new RequestStub();
+		stub.addParameter("userName", "john");
+		WebActionContext ac = new WebActionContext(stub.newRequest(), null);
+
+		assertEquals("exact name", "john", ac.getFromParameterData("userName"));
+		assertNull("other case", ac.getFromParameterData("username"));
+		assertNull("missing", ac.getFromParameterData("password"));
+		assertEquals("exact name ignoring case", "john", ac.getFromParameterDataIgnoreCase("userName"));
+		assertEquals("no full scan for an exact name", 0, stub.nameScans);
+	}
+
+	public void test_differentCase() {
+		RequestStub stub = new RequestStub();
+		stub.addParameter("userName", "john");
+		WebActionContext ac = new WebActionContext(stub.newRequest(), null);
+
+		assertEquals("lower case", "john", ac.getFromParameterDataIgnoreCase("username"));
+		assertEquals("upper case", "john", ac.getFromParameterDataIgnoreCase("USERNAME"));
+		assertNull("missing", ac.getFromParameterDataIgnoreCase("password"));
+		assertEquals("parameters collected once", 1, stub.nameScans);
+	}
+
+	public void test_multipleValues() {
+		RequestStub stub = new RequestStub();
+		stub.addParameter("color", new String[]{"red", "blue"});
+		WebActionContext ac = new WebActionContext(stub.newRequest(), null);
+
+		Object value = ac.getFromParameterData("color");
+		assertTrue("string array", value instanceof String[]);
+		assertEquals("two values", 2, ((String[])value).length);
+
+		value = ac.getFromParameterDataIgnoreCase("COLOR");
+		assertTrue("string array ignoring case", value instanceof String[]);
+		assertEquals("second value", "blue", ((String[])value)[1]);
+
+		value = ac.getParameterDataAsMap().get("color");
+		assertTrue("string array in map", value instanceof String[]);
+	}
+
+	public void test_parameterDataIsDroppedWhenRequestIsReplaced() {
+		RequestStub first = new RequestStub();
+		first.addParameter("id", "1");
+		WebActionContext ac = new WebActionContext(first.newRequest(), null);
+		assertEquals("first request", "1", ac.getFromParameterDataIgnoreCase("ID"));
+
+		RequestStub second = new RequestStub();
+		second.addParameter("id", "2");
+		ac.setHttpServletRequest(second.newRequest());
+		assertEquals("second request", "2", ac.getFromParameterDataIgnoreCase("ID"));
+		assertEquals("second map", "2", ac.getParameterDataAsMap().get("id"));
+		assertEquals("second request collected", 1, second.nameScans);
+	}
+
+	public void test_parameterDataMapIsACopy() {
+		RequestStub stub = new RequestStub();
+		stub.addParameter("id", "1");
+		WebActionContext ac = new WebActionContext(stub.newRequest(), null);
+
+		ac.getParameterDataAsMap().put("ID", "2");
+		assertEquals("not changed by caller", 1, ac.getParameterDataAsMap().size());
+		assertEquals("exact match is kept", "1", ac.getFromParameterDataIgnoreCase("ID"));
+	}
+
+	public void test_actionContextDifferentCase() {
+		AppActionContext ac = new AppActionContext();
+		ac.storeToParameter("userName", "john");
+
+		assertEquals("exact name", "john", ac.getFromParameterDataIgnoreCase("userName"));
+		assertEquals("other case", "john", ac.getFromParameterDataIgnoreCase("USERNAME"));
+		assertNull("missing", ac.getFromParameterDataIgnoreCase("password"));
+	}
+
+	/**
+	 * Creates HttpServletRequest instances which only support parameters
+	 * and an empty session.
+	 */
+	private static class RequestStub implements InvocationHandler {
+		Map parameters = new LinkedHashMap();
+		int nameScans;
+
+		void addParameter(String name, String value) {
+			addParameter(name, new String[]{value});
+		}
+
+		void addParameter(String name, String[] values) {
+			parameters.put(name, values);
+		}
+
+		HttpServletRequest newRequest() {
+			return (HttpServletRequest)Proxy.newProxyInstance(getClass().getClassLoader(),
+					new Class[]{HttpServletRequest.class}, this);
+		}
+
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			String name = method.getName();
+			if ("getParameterValues".equals(name)) {
+				return parameters.get(args[0]);
+			}
+			if ("getParameter".equals(name)) {
+				String[] values = (String[])parameters.get(args[0]);
+				return (values != null)?values[0]:null;
+			}
+			if ("getParameterNames".equals(name)) {
+				nameScans++;
+				return Collections.enumeration(parameters.keySet());
+			}
+			if ("getParameterMap".equals(name)) {
+				return parameters;
+			}
+			if ("getSession".equals(name)) {
+				return Proxy.newProxyInstance(getClass().getClassLoader(),
+						new Class[]{HttpSession.class}, new EmptySession());
+			}
+			if ("equals".equals(name)) return Boolean.valueOf(proxy == args[0]);
+			if ("hashCode".equals(name)) return new Integer(System.identityHashCode(proxy));
+			return null;
+		}
+	}
+
+	private static class EmptySession implements InvocationHandler {
+		public Object invoke(Object proxy, Method method, Object[] args) {
+			if ("equals".equals(method.getName())) return Boolean.valueOf(proxy == args[0]);
+			if ("hashCode".equals(method.getName())) return new Integer(System.identityHashCode(proxy));
+			return null;
+		}
+	}
+}
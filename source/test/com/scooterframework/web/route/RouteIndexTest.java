@@ -0,0 +1,82 @@
+/*
+ *   This software is distributed under the terms of the FSF 
+ *   Gnu Lesser General Public License (see lgpl.txt). 
+ *
+ *   This program is distributed WITHOUT ANY WARRANTY. See the
+ *   GNU General Public License for more details.
+ */
+package com.scooterframework.web.route;
+
+import java.util.List;
+import java.util.Properties;
+
+import com.scooterframework.test.ApplicationTest;
+
+/**
+ * RouteIndexTest class
+ *
+ * @author (Fei) John Chen
+ *
+ */
+public class RouteIndexTest extends ApplicationTest {
+
+	private static final String[] PATHS = {
+		"/routes", "/ROUTES", "/routes.xml",
+		"/databases", "/databases/1", "/databases/1/edit", "/databases/new",
+		"/databases/1/tables", "/databases/1/tables/2",
+		"/databases/1/tables/2/records/3", "/databases/1/views/2/vrecords",
+		"/posts", "/posts/show", "/posts/show/1", "/posts/show/1.xml",
+		"/posts/12", "/a/b/c/d/e", "/a1/b2"
+	};
+
+	private static final String[] METHODS = {
+		"GET", "POST", "PUT", "DELETE", "HEAD", "OPTIONS"
+	};
+
+	/**
+	 * The index must find the same route as a linear scan of the routes.
+	 */
+	public void test_sameRouteAsLinearScan() {
+		RouteConfig.getInstance();
+		List allRoutes = MatchMaker.getInstance().getAllRoutes();
+		RouteIndex index = new RouteIndex(allRoutes);
+		assertEquals("total routes", allRoutes.size(), index.countRoutes());
+
+		for (int i = 0; i < PATHS.length; i++) {
+			for (int j = 0; j < METHODS.length; j++) {
+				RequestInfo ri = new RequestInfo(PATHS[i], METHODS[j]);
+				assertEquals("route position for " + ri.getRequestKey(),
+						scan(allRoutes, ri), index.findRoutePosition(ri));
+			}
+		}
+	}
+
+	public void test_fold() {
+		assertEquals("fold ascii", RouteIndex.fold("abc"), RouteIndex.fold("AbC"));
+		assertEquals("fold kelvin sign", RouteIndex.fold("k"), RouteIndex.fold("\u212A"));
+	}
+
+	public void test_invalidRouteCacheSize() {
+		Properties p = RouteConfig.getInstance().getProperties();
+		String size = p.getProperty("route.cache.size");
+		try {
+			p.setProperty("route.cache.size", "abc");
+			assertEquals("not a number", MatchMaker.DEFAULT_MAX_CACHED_REQUESTS, RouteConfig.getInstance().getRouteCacheSize());
+			p.setProperty("route.cache.size", "0");
+			assertEquals("zero", MatchMaker.DEFAULT_MAX_CACHED_REQUESTS, RouteConfig.getInstance().getRouteCacheSize());
+			p.setProperty("route.cache.size", " 20 ");
+			assertEquals("valid size", 20, RouteConfig.getInstance().getRouteCacheSize());
+		}
+		finally {
+			if (size == null) p.remove("route.cache.size"); else p.setProperty("route.cache.size", size);
+		}
+	}
+
+	private int scan(List routes, RequestInfo ri) {
+		int size = routes.size();
+		for (int i = 0; i < size; i++) {
+			if (((Route)routes.get(i)).isRouteFor(ri)) return i;
+		}
+		return -1;
+	}
+}
@@ -0,0 +1,140 @@
+<%@ page import="
+        java.util.Iterator,
+        java.util.List,
+        com.scooterframework.common.instrument.LatencyHistogram,
+        com.scooterframework.common.instrument.RequestTrace,
+        com.scooterframework.orm.sqldataexpress.connection.ConnectionPoolMetrics,
+        com.scooterframework.web.util.O,
+        com.scooterframework.web.util.T,
+        com.scooterframework.web.util.W"
+%>
+
+<%!
+private String histogramRows(List histograms) {
+    StringBuffer sb = new StringBuffer();
+    for (Iterator it = histograms.iterator(); it.hasNext();) {
+        LatencyHistogram h = (LatencyHistogram)it.next();
+        sb.append("<tr class=\"").append(W.cycle("odd, even")).append("\">");
+        sb.append("<td>").append(W.h(h.getName())).append("</td>");
+        sb.append("<td align=\"right\">").append(h.getCount()).append("</td>");
+        sb.append("<td align=\"right\">").append(Math.round(h.getMean())).append("</td>");
+        sb.append("<td align=\"right\">").append(h.getPercentile(50)).append("</td>");
+        sb.append("<td align=\"right\">").append(h.getPercentile(90)).append("</td>");
+        sb.append("<td align=\"right\">").append(h.getPercentile(99)).append("</td>");
+        sb.append("<td align=\"right\">").append(h.getMax()).append("</td>");
+        sb.append("</tr>");
+    }
+    return sb.toString();
+}
+
+private static final String HISTOGRAM_HEADER = 
+    "<tr><th>Name</th><th>Count</th><th>Mean (ms)</th><th>50% (ms)</th>" + 
+    "<th>90% (ms)</th><th>99% (ms)</th><th>Max (ms)</th></tr>";
+%>
+
+<%
+List actions = (List)request.getAttribute("actions");
+List phases = (List)request.getAttribute("phases");
+List sqls = (List)request.getAttribute("sqls");
+List traces = (List)request.getAttribute("traces");
+List pools = (List)request.getAttribute("pools");
+%>
+
+<div id="locator">
+    <p><%=W.labelLink("Home", "/")%> > Instrumentation</p>
+</div>
+
+<h3>instrumentation: <%=W.get("enabled")%>, MBean: <%=W.get("mbean")%>, 
+<%=T.pluralize(W.get("request_count"), "request")%>, 
+<%=T.pluralize(W.get("statement_count"), "statement")%></h3>
+
+<form action="<%=W.getURL("/instrumentation/reset")%>" method="POST">
+    <input type="submit" value="Reset" />
+</form>
+
+<h3>Actions</h3>
+<table class="sTable">
+    <%=HISTOGRAM_HEADER%>
+    <%=histogramRows(actions)%>
+</table>
+
+<h3>Request phases</h3>
+<table class="sTable">
+    <%=HISTOGRAM_HEADER%>
+    <%=histogramRows(phases)%>
+</table>
+
+<h3>SQL statements</h3>
+<table class="sTable">
+    <%=HISTOGRAM_HEADER%>
+    <%=histogramRows(sqls)%>
+</table>
+
+<h3>Connection pools</h3>
+<table class="sTable">
+    <tr>
+        <th>Connection</th>
+        <th>Provider</th>
+        <th>Max</th>
+        <th>Active</th>
+        <th>Idle</th>
+        <th>Waiting</th>
+        <th>Checkouts</th>
+        <th>Waits</th>
+        <th>Timeouts</th>
+        <th>Validation failures</th>
+        <th>Leaks</th>
+        <th>Acquire 99% (ms)</th>
+    </tr>
+<%
+for (Iterator it = O.iteratorOf(pools); it.hasNext();) {
+    ConnectionPoolMetrics pool = (ConnectionPoolMetrics)it.next();
+    LatencyHistogram acquire = pool.getAcquireHistogram();
+%>
+    <tr class="<%=W.cycle("odd, even")%>">
+        <td><%=W.h(pool.getConnectionName())%></td>
+        <td><%=W.h(pool.getProvider())%></td>
+        <td align="right"><%=pool.getMaxPoolSize()%></td>
+        <td align="right"><%=pool.getActiveCount()%></td>
+        <td align="right"><%=pool.getIdleCount()%></td>
+        <td align="right"><%=pool.getWaitingCount()%></td>
+        <td align="right"><%=pool.getCheckoutCount()%></td>
+        <td align="right"><%=pool.getWaitCount()%></td>
+        <td align="right"><%=pool.getTimeoutCount()%></td>
+        <td align="right"><%=pool.getValidationFailureCount()%></td>
+        <td align="right"><%=pool.getLeakCount()%></td>
+        <td align="right"><%=(acquire != null)?("" + acquire.getPercentile(99)):"-"%></td>
+    </tr>
+<%}%>
+</table>
+
+<h3><%=T.pluralize(O.count(traces), "recent request")%></h3>
+<table class="sTable">
+    <tr>
+        <th>Request</th>
+        <th>Action</th>
+        <th>Total (ms)</th>
+        <th>Phases (ms)</th>
+        <th>Statements</th>
+    </tr>
+<%
+for (Iterator it = O.iteratorOf(traces); it.hasNext();) {
+    RequestTrace trace = (RequestTrace)it.next();
+%>
+    <tr class="<%=W.cycle("odd, even")%>">
+        <td nowrap="nowrap"><%=W.h(trace.getRequestPath())%></td>
+        <td><%=O.property(trace, "actionKey")%></td>
+        <td align="right"><%=trace.getDuration()%></td>
+        <td><%=trace.getPhases()%></td>
+        <td>
+<%
+    for (Iterator its = trace.getStatements().iterator(); its.hasNext();) {
+%>
+            <%=W.h(its.next().toString())%><br/>
+<%
+    }
+%>
+        </td>
+    </tr>
+<%}%>
+</table>